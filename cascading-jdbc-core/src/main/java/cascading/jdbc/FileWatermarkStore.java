@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+
+/**
+ * Class FileWatermarkStore keeps the mark in a small file on any Hadoop {@link FileSystem}, e.g. HDFS or the local
+ * file system.
+ * <p/>
+ * A new mark is written to a temporary file next to the mark, named like the mark with the suffix {@code .tmp}. The
+ * existing mark is then deleted and the temporary file renamed in its place, since rename does not replace files on
+ * all file systems. If the job dies after the delete, only the temporary file is left, so {@link #load} falls back
+ * to it, whenever the mark itself does not exist.
+ */
+public class FileWatermarkStore extends WatermarkStore
+  {
+  private static final long serialVersionUID = 2747183617316937263L;
+
+  /** Field path */
+  private final String path;
+
+  /**
+   * Constructor FileWatermarkStore creates a new FileWatermarkStore instance.
+   *
+   * @param path the fully qualified path of the file holding the mark
+   */
+  public FileWatermarkStore( String path )
+    {
+    if( path == null || path.isEmpty() )
+      throw new IllegalArgumentException( "path must not be empty" );
+
+    this.path = path;
+    }
+
+  public String getPath()
+    {
+    return path;
+    }
+
+  @Override
+  protected String loadMark( JDBCTap tap, Configuration conf ) throws IOException
+    {
+    Path markPath = new Path( path );
+    Path tempPath = getTempPath( markPath );
+    FileSystem fileSystem = markPath.getFileSystem( conf );
+
+    if( fileSystem.exists( markPath ) )
+      return read( fileSystem, markPath );
+
+    if( fileSystem.exists( tempPath ) )
+      return read( fileSystem, tempPath );
+
+    return null;
+    }
+
+  @Override
+  protected void storeMark( JDBCTap tap, Configuration conf, String mark ) throws IOException
+    {
+    Path markPath = new Path( path );
+    Path tempPath = getTempPath( markPath );
+    FileSystem fileSystem = markPath.getFileSystem( conf );
+
+    try( FSDataOutputStream output = fileSystem.create( tempPath, true ) )
+      {
+      output.write( mark.getBytes( StandardCharsets.UTF_8 ) );
+      }
+
+    // rename does not replace existing files on all file systems
+    if( fileSystem.exists( markPath ) && !fileSystem.delete( markPath, false ) )
+      throw new IOException( "unable to replace watermark: " + markPath );
+
+    if( !fileSystem.rename( tempPath, markPath ) )
+      throw new IOException( "unable to rename " + tempPath + " to " + markPath );
+    }
+
+  private static Path getTempPath( Path markPath )
+    {
+    return new Path( markPath.getParent(), markPath.getName() + ".tmp" );
+    }
+
+  private static String read( FileSystem fileSystem, Path markPath ) throws IOException
+    {
+    int length = (int) fileSystem.getFileStatus( markPath ).getLen();
+    byte[] bytes = new byte[ length ];
+
+    try( FSDataInputStream input = fileSystem.open( markPath ) )
+      {
+      IOUtils.readFully( input, bytes, 0, length );
+      }
+
+    return new String( bytes, StandardCharsets.UTF_8 ).trim();
+    }
+
+  @Override
+  public String toString()
+    {
+    return "FileWatermarkStore{path='" + path + "'}";
+    }
+  }
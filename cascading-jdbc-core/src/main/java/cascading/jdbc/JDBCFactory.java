@@ -25,6 +25,8 @@ import org.apache.hadoop.mapred.InputFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import cascading.jdbc.db.DBConfiguration;
+import cascading.jdbc.db.DBFilter;
 import cascading.jdbc.db.DBInputFormat;
 import cascading.jdbc.db.DBOutputFormat;
 import cascading.scheme.Scheme;
@@ -53,6 +55,8 @@ public class JDBCFactory
   public static final String PROTOCOL_COLUMN_DEFS = "tabledesc.columndefs";
   public static final String PROTOCOL_PRIMARY_KEYS = "tabledesc.primarykeys";
   public static final String PROTOCOL_SINK_MODE = "sinkmode";
+  public static final String PROTOCOL_REPLICAS = "replicas";
+  public static final String PROTOCOL_REPLICA_SELECTION = "replicaselection";
 
   public static final String FORMAT_SEPARATOR = "separator";
   public static final String FORMAT_COLUMNS = "columnnames";
@@ -65,6 +69,21 @@ public class JDBCFactory
   public static final String FORMAT_SELECT_QUERY = "selectQuery";
   public static final String FORMAT_COUNT_QUERY = "countQuery";
 
+  public static final String FORMAT_ISOLATION_LEVEL = "isolationLevel";
+  public static final String FORMAT_CONSISTENT_READ = "consistentRead";
+  public static final String FORMAT_PREFETCH_DEPTH = "prefetchDepth";
+  public static final String FORMAT_FETCH_SIZE = "fetchSize";
+  public static final String FORMAT_PROJECTION = "projection";
+  public static final String FORMAT_FILTER = "filter";
+  public static final String FORMAT_SPLIT_COLUMN = "splitColumn";
+  public static final String FORMAT_SPLIT_LOWER_BOUND = "splitLowerBound";
+  public static final String FORMAT_SPLIT_UPPER_BOUND = "splitUpperBound";
+  public static final String FORMAT_PAGE_SIZE = "pageSize";
+  public static final String FORMAT_REBALANCE_THREADS = "rebalanceThreads";
+  public static final String FORMAT_MATERIALIZE = "materialize";
+  public static final String FORMAT_COMBINED_SPLITS = "combinedSplits";
+  public static final String FORMAT_COMBINE_THREADS = "combineThreads";
+
   /**
    * Creates a new Tap for the given arguments.
    *
@@ -121,7 +140,18 @@ public class JDBCFactory
     if( sinkModeProperty != null && !sinkModeProperty.isEmpty() )
       userMode = SinkMode.valueOf( sinkModeProperty );
 
-    return new JDBCTap( identifier, jdbcUser, jdbcPassword, driver, tableDesc, jdbcScheme, userMode );
+    JDBCTap tap = new JDBCTap( identifier, jdbcUser, jdbcPassword, driver, tableDesc, jdbcScheme, userMode );
+
+    // replica urls may contain the separator, so they are separated by whitespace
+    String replicasProperty = properties.getProperty( PROTOCOL_REPLICAS );
+    if( replicasProperty != null && !replicasProperty.trim().isEmpty() )
+      tap.setReplicaUrls( replicasProperty.trim().split( "\\s+" ) );
+
+    String replicaSelectionProperty = properties.getProperty( PROTOCOL_REPLICA_SELECTION );
+    if( replicaSelectionProperty != null && !replicaSelectionProperty.isEmpty() )
+      tap.setReplicaSelection( DBInputFormat.ReplicaSelection.valueOf( replicaSelectionProperty.toUpperCase() ) );
+
+    return tap;
 
     }
 
@@ -157,7 +187,13 @@ public class JDBCFactory
       if( countQuery == null )
         throw new IllegalArgumentException( "no count query for select query given" );
 
-      return createScheme( fields, selectQuery, countQuery, limit, columnNames, tableAlias );
+      Scheme scheme = configureReads( createScheme( fields, selectQuery, countQuery, limit, columnNames, tableAlias ), properties );
+
+      String materializeProperty = properties.getProperty( FORMAT_MATERIALIZE );
+      if( materializeProperty != null && !materializeProperty.isEmpty() )
+        ( (JDBCScheme) scheme ).setMaterialized( Boolean.parseBoolean( materializeProperty ) );
+
+      return configureSplits( scheme, properties );
       }
 
     String conditions = properties.getProperty( FORMAT_CONDITIONS );
@@ -176,8 +212,105 @@ public class JDBCFactory
     if( orderByProperty != null && !orderByProperty.isEmpty() )
       orderBy = orderByProperty.split( separator );
 
-    return createUpdatableScheme( fields, limit, columnNames, tableAlias, conditions, updateBy, updateByFields, orderBy );
+    Scheme scheme = configureReads( createUpdatableScheme( fields, limit, columnNames, tableAlias, conditions, updateBy, updateByFields,
+      orderBy ), properties );
+
+    String projectionProperty = properties.getProperty( FORMAT_PROJECTION );
+    if( projectionProperty != null && !projectionProperty.isEmpty() )
+      ( (JDBCScheme) scheme ).setProjection( new Fields( projectionProperty.split( separator ) ) );
+
+    configureSplits( scheme, properties );
+
+    String pageSizeProperty = properties.getProperty( FORMAT_PAGE_SIZE );
+    if( pageSizeProperty != null && !pageSizeProperty.isEmpty() )
+      ( (JDBCScheme) scheme ).setPageSize( Integer.parseInt( pageSizeProperty ) );
+
+    String rebalanceThreadsProperty = properties.getProperty( FORMAT_REBALANCE_THREADS );
+    if( rebalanceThreadsProperty != null && !rebalanceThreadsProperty.isEmpty() )
+      ( (JDBCScheme) scheme ).setRebalanceThreads( Integer.parseInt( rebalanceThreadsProperty ) );
+
+    // filters are typed, Lingual hands them over serialized, see DBFilter#serialize
+    Object filter = properties.get( FORMAT_FILTER );
+    if( filter instanceof DBFilter )
+      ( (JDBCScheme) scheme ).setFilter( (DBFilter) filter );
+    else if( filter instanceof String )
+      ( (JDBCScheme) scheme ).setFilter( DBFilter.deserialize( (String) filter ) );
+    else if( filter != null )
+      throw new IllegalArgumentException( "filter must be an instance of " + DBFilter.class.getName() + " or a serialized filter, but was: " + filter );
+
+    return scheme;
+
+    }
+
+  /**
+   * Applies the split column and its bounds to the given scheme.
+   *
+   * @param scheme a {@link JDBCScheme} instance.
+   * @param properties The {@link Properties} object given to the createScheme method.
+   * @return the configured scheme.
+   */
+  protected Scheme configureSplits( Scheme scheme, Properties properties )
+    {
+    String splitColumnProperty = properties.getProperty( FORMAT_SPLIT_COLUMN );
+    if( splitColumnProperty != null && !splitColumnProperty.isEmpty() )
+      ( (JDBCScheme) scheme ).setSplitColumn( splitColumnProperty );
+
+    String lowerBoundProperty = properties.getProperty( FORMAT_SPLIT_LOWER_BOUND );
+    String upperBoundProperty = properties.getProperty( FORMAT_SPLIT_UPPER_BOUND );
+    boolean hasLowerBound = lowerBoundProperty != null && !lowerBoundProperty.isEmpty();
+    boolean hasUpperBound = upperBoundProperty != null && !upperBoundProperty.isEmpty();
+
+    if( hasLowerBound != hasUpperBound )
+      throw new IllegalArgumentException( "split bounds require both " + FORMAT_SPLIT_LOWER_BOUND + " and " + FORMAT_SPLIT_UPPER_BOUND );
+
+    if( hasLowerBound )
+      ( (JDBCScheme) scheme ).setSplitBounds( Long.parseLong( lowerBoundProperty ), Long.parseLong( upperBoundProperty ) );
+
+    return scheme;
+    }
+
+  /**
+   * Applies the properties controlling how the data is read, like the transaction isolation level, to the given
+   * scheme.
+   *
+   * @param scheme a {@link JDBCScheme} instance.
+   * @param properties The {@link Properties} object given to the createScheme method.
+   * @return the configured scheme.
+   */
+  protected Scheme configureReads( Scheme scheme, Properties properties )
+    {
+    JDBCScheme jdbcScheme = (JDBCScheme) scheme;
+
+    String isolationLevelProperty = properties.getProperty( FORMAT_ISOLATION_LEVEL );
+    if( isolationLevelProperty != null && !isolationLevelProperty.isEmpty() )
+      jdbcScheme.setIsolationLevel( DBConfiguration.parseIsolationLevel( isolationLevelProperty ) );
+
+    String consistentReadProperty = properties.getProperty( FORMAT_CONSISTENT_READ );
+    if( consistentReadProperty != null && !consistentReadProperty.isEmpty() )
+      jdbcScheme.setConsistentRead( Boolean.parseBoolean( consistentReadProperty ) );
+
+    String prefetchDepthProperty = properties.getProperty( FORMAT_PREFETCH_DEPTH );
+    if( prefetchDepthProperty != null && !prefetchDepthProperty.isEmpty() )
+      jdbcScheme.setPrefetchDepth( Integer.parseInt( prefetchDepthProperty ) );
+
+    String fetchSizeProperty = properties.getProperty( FORMAT_FETCH_SIZE );
+    if( DBConfiguration.AUTO_FETCH_SIZE.equalsIgnoreCase( fetchSizeProperty ) )
+      jdbcScheme.setAutoFetchSize( true );
+    else if( fetchSizeProperty != null && !fetchSizeProperty.isEmpty() )
+      jdbcScheme.setFetchSize( Integer.parseInt( fetchSizeProperty ) );
+
+    String combinedSplitsProperty = properties.getProperty( FORMAT_COMBINED_SPLITS );
+    if( combinedSplitsProperty != null && !combinedSplitsProperty.isEmpty() )
+      {
+      String combineThreadsProperty = properties.getProperty( FORMAT_COMBINE_THREADS );
+      int combineThreads = 1;
+      if( combineThreadsProperty != null && !combineThreadsProperty.isEmpty() )
+        combineThreads = Integer.parseInt( combineThreadsProperty );
+
+      jdbcScheme.setCombinedSplits( Integer.parseInt( combinedSplitsProperty ), combineThreads );
+      }
 
+    return jdbcScheme;
     }
 
   protected Scheme createUpdatableScheme( Fields fields, long limit, String[] columnNames, Boolean tableAlias, String conditions,
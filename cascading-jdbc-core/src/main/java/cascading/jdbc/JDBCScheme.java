@@ -23,6 +23,7 @@ package cascading.jdbc;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapred.JobConf;
@@ -32,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import cascading.flow.FlowProcess;
+import cascading.jdbc.db.DBFilter;
 import cascading.jdbc.db.DBInputFormat;
 import cascading.jdbc.db.DBOutputFormat;
 import cascading.scheme.Scheme;
@@ -79,8 +81,26 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
   private String selectQuery;
   private String countQuery;
   private long limit = -1;
+  private boolean materialized = false;
   protected Boolean tableAlias = true;
   private Fields internalSinkFields;
+  private Fields projectionFields;
+  private DBFilter filter;
+  private String watermarkColumn;
+  private WatermarkStore watermarkStore;
+  private String splitColumn;
+  private Long splitLowerBound;
+  private Long splitUpperBound;
+  private int pageSize = 0;
+  private int rebalanceThreads = 0;
+  private Integer isolationLevel;
+  private boolean consistentRead = false;
+  private int prefetchDepth = 0;
+  private Integer fetchSize;
+  private boolean autoFetchSize = false;
+  private int combinedSplits = 0;
+  private int combineThreads = 1;
+  private boolean newApi = false;
 
   private static final Logger LOG = LoggerFactory.getLogger( JDBCScheme.class );
 
@@ -612,25 +632,614 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
     return orderBy;
     }
 
+  /**
+   * Method getProjection returns the subset of the column fields, which is read from the database, or null if all
+   * columns are read.
+   *
+   * @return the projection (type Fields) of this JDBCScheme object.
+   */
+  public Fields getProjection()
+    {
+    return projectionFields;
+    }
+
+  /**
+   * Method setProjection restricts the columns read from the database to the given subset of the column fields. The
+   * source fields of this scheme, and with that the tuples it produces, are narrowed to the projection. Writing into
+   * the table is not affected.
+   * <p/>
+   * Projections are only supported, when reading a table, not for custom select queries.
+   *
+   * @param projection the fields to read, null to read all columns.
+   */
+  public void setProjection( Fields projection )
+    {
+    if( projection == null )
+      {
+      this.projectionFields = null;
+      setSourceFields( columnFields );
+      return;
+      }
+
+    if( selectQuery != null )
+      throw new IllegalStateException( "projections are not supported for custom select queries" );
+
+    if( !columnFields.contains( projection ) )
+      throw new IllegalArgumentException( "columnFields must contain the projected fields: " + projection );
+
+    // keep the types of the column fields
+    this.projectionFields = columnFields.select( projection );
+    setSourceFields( projectionFields );
+    }
+
+  /**
+   * Returns the names of the columns to read, which are either all columns or the ones matching the projection.
+   *
+   * @return the column names
+   */
+  protected String[] getSourceColumns()
+    {
+    if( projectionFields == null )
+      return columns;
+
+    int[] positions = columnFields.getPos( projectionFields );
+    String[] projectedColumns = new String[ positions.length ];
+
+    for( int i = 0; i < positions.length; i++ )
+      projectedColumns[ i ] = columns[ positions[ i ] ];
+
+    return projectedColumns;
+    }
+
+  /**
+   * Method getFilter returns the filter applied when reading the table, or null.
+   *
+   * @return the filter (type DBFilter) of this JDBCScheme object.
+   */
+  public DBFilter getFilter()
+    {
+    return filter;
+    }
+
+  /**
+   * Method setFilter sets a typed filter, which is applied in addition to the conditions when reading the table. The
+   * values of the filter are bound as query parameters instead of being part of the SQL, so all splits share one
+   * statement and execution plan.
+   * <p/>
+   * Filters are only supported, when reading a table, not for custom select queries.
+   *
+   * @param filter the filter to apply, null to read all rows matching the conditions.
+   */
+  public void setFilter( DBFilter filter )
+    {
+    if( filter != null && selectQuery != null )
+      throw new IllegalStateException( "filters are not supported for custom select queries" );
+
+    this.filter = filter;
+    }
+
+  /**
+   * Method isIncremental returns true, if only rows above the last stored high-water mark are read.
+   *
+   * @return true, if this JDBCScheme reads incrementally
+   */
+  public boolean isIncremental()
+    {
+    return watermarkColumn != null;
+    }
+
+  /**
+   * Method getWatermarkColumn returns the column holding the high-water mark of incremental reads.
+   *
+   * @return the watermarkColumn (type String) of this JDBCScheme object.
+   */
+  public String getWatermarkColumn()
+    {
+    return watermarkColumn;
+    }
+
+  /**
+   * Method getWatermarkStore returns the store of the high-water mark of incremental reads.
+   *
+   * @return the watermarkStore (type WatermarkStore) of this JDBCScheme object.
+   */
+  public WatermarkStore getWatermarkStore()
+    {
+    return watermarkStore;
+    }
+
+  /**
+   * Method setIncremental enables incremental reads. The given column must increase monotonically with every change
+   * of a row, like an update timestamp or a sequence.
+   * <p/>
+   * When the flow is planned, the current maximum of the column is determined and only rows between the stored mark
+   * (exclusive) and that maximum (inclusive) are read. Once the flow completed successfully the maximum is stored as
+   * the new mark. Failed flows leave the mark untouched, so the next run reads the same rows again.
+   * <p/>
+   * Incremental reads are only supported, when reading a table, not for custom select queries.
+   *
+   * @param watermarkColumn the monotonic column
+   * @param watermarkStore  the store of the high-water mark
+   */
+  public void setIncremental( String watermarkColumn, WatermarkStore watermarkStore )
+    {
+    if( selectQuery != null )
+      throw new IllegalStateException( "incremental reads are not supported for custom select queries" );
+
+    if( watermarkColumn == null || watermarkColumn.isEmpty() )
+      throw new IllegalArgumentException( "watermarkColumn must not be empty" );
+
+    if( watermarkStore == null )
+      throw new IllegalArgumentException( "watermarkStore must not be null" );
+
+    this.watermarkColumn = watermarkColumn;
+    this.watermarkStore = watermarkStore;
+    }
+
+  /**
+   * Method isMaterialized returns true, if the select query is run once into a staging table, which is then split.
+   *
+   * @return the materialized (type boolean) of this JDBCScheme object.
+   */
+  public boolean isMaterialized()
+    {
+    return materialized;
+    }
+
+  /**
+   * Method setMaterialized runs the custom select query only once, when the flow is planned, into a staging table
+   * numbering the rows of the result. The splits then read disjoint ranges of row numbers from the staging table,
+   * instead of every split running the whole query again and skipping the rows of the other splits. The staging table
+   * is dropped, once the flow has finished.
+   * <p/>
+   * The columns of this scheme have to match the column names of the query result. Materializing is only supported
+   * for custom select queries.
+   *
+   * @param materialized the materialized of this JDBCScheme object.
+   */
+  public void setMaterialized( boolean materialized )
+    {
+    if( materialized && selectQuery == null )
+      throw new IllegalStateException( "only custom select queries can be materialized" );
+
+    this.materialized = materialized;
+    }
+
+  /**
+   * Returns the statements materializing the select query into the given staging table, as defined by the input
+   * format of this scheme.
+   */
+  List<String> getStagingStatements( String stagingTable )
+    {
+    try
+      {
+      DBInputFormat inputFormat = inputFormatClass == null ? new DBInputFormat() : inputFormatClass.newInstance();
+
+      // the staging table holds all rows, it is split by its row numbers instead
+      String query = selectQuery.replace( DBInputFormat.CONDITIONS_PLACEHOLDER, "( 1 = 1 )" );
+
+      return inputFormat.getStagingStatements( stagingTable, query );
+      }
+    catch( InstantiationException | IllegalAccessException exception )
+      {
+      throw new TapException( "unable to create input format: " + inputFormatClass.getName(), exception );
+      }
+    }
+
+  /**
+   * Returns a single select statement reading all rows of this scheme from the given table, for exporting them in
+   * bulk outside of the input format, e.g. by a Redshift UNLOAD. The order of the rows is not defined.
+   * <p/>
+   * Filters and incremental reads bind their values as parameters, so they cannot be exported this way.
+   */
+  String getSelectStatement( String tableName )
+    {
+    if( filter != null || isIncremental() )
+      throw new TapException( "filters and incremental reads cannot be exported by a single select statement" );
+
+    if( selectQuery != null )
+      return selectQuery.replace( DBInputFormat.CONDITIONS_PLACEHOLDER, "( 1 = 1 )" );
+
+    StringBuilder query = new StringBuilder();
+
+    query.append( "SELECT " ).append( Util.join( getSourceColumns(), ", " ) ).append( " FROM " ).append( tableName );
+
+    if( conditions != null )
+      query.append( " WHERE " ).append( conditions );
+
+    if( limit > 0 )
+      query.append( " LIMIT " ).append( limit );
+
+    return query.toString();
+    }
+
+  /**
+   * Method getSplitColumn returns the column the table is split by, or null if it is split by row numbers.
+   *
+   * @return the splitColumn (type String) of this JDBCScheme object.
+   */
+  public String getSplitColumn()
+    {
+    return splitColumn;
+    }
+
+  /**
+   * Method setSplitColumn sets an integral, unique column without nulls, like the primary key, which is used to split
+   * the table into ranges of keys. Unlike splits by row numbers, key ranges are selected with a plain predicate on the column,
+   * so reading a split neither sorts the table nor skips over the rows of the other splits.
+   * <p/>
+   * Custom select queries are split by key ranges, if they contain the placeholder
+   * {@link DBInputFormat#CONDITIONS_PLACEHOLDER}, e.g. {@code SELECT ... FROM a JOIN b ON ... WHERE $CONDITIONS}. Every
+   * split replaces the placeholder with the predicate selecting its range, so the range is applied inside of the
+   * query, where the indexes of the underlying tables apply, and queries with UNION or GROUP BY are split correctly.
+   * <p/>
+   * Split columns are not supported for limits.
+   *
+   * @param splitColumn the column to split by
+   */
+  public void setSplitColumn( String splitColumn )
+    {
+    if( splitColumn != null && selectQuery != null && !selectQuery.contains( DBInputFormat.CONDITIONS_PLACEHOLDER ) )
+      throw new IllegalStateException( "custom select queries require the placeholder " + DBInputFormat.CONDITIONS_PLACEHOLDER
+        + " to be split by a column" );
+
+    this.splitColumn = splitColumn;
+    }
+
+  /**
+   * Method getSplitLowerBound returns the smallest value of the split column, or null if it is queried.
+   *
+   * @return the splitLowerBound (type Long) of this JDBCScheme object.
+   */
+  public Long getSplitLowerBound()
+    {
+    return splitLowerBound;
+    }
+
+  /**
+   * Method getSplitUpperBound returns the largest value of the split column, or null if it is queried.
+   *
+   * @return the splitUpperBound (type Long) of this JDBCScheme object.
+   */
+  public Long getSplitUpperBound()
+    {
+    return splitUpperBound;
+    }
+
+  /**
+   * Method setSplitBounds sets the smallest and the largest value of the split column. Otherwise they are queried when
+   * the flow is planned, which runs a custom select query once more. Rows with keys outside of the bounds are not read.
+   *
+   * @param splitLowerBound the smallest value of the split column
+   * @param splitUpperBound the largest value of the split column
+   */
+  public void setSplitBounds( long splitLowerBound, long splitUpperBound )
+    {
+    if( splitLowerBound > splitUpperBound )
+      throw new IllegalArgumentException( "lower bound must not be greater than upper bound: " + splitLowerBound + " > " + splitUpperBound );
+
+    this.splitLowerBound = splitLowerBound;
+    this.splitUpperBound = splitUpperBound;
+    }
+
+  /**
+   * Method getPageSize returns the number of rows read per query, or 0 if each split is read with a single query.
+   *
+   * @return the pageSize (type int) of this JDBCScheme object.
+   */
+  public int getPageSize()
+    {
+    return pageSize;
+    }
+
+  /**
+   * Method setPageSize enables reading each split page by page, ordered by the split column, which has to be one of
+   * the columns read. Every page is read in a short transaction with a query continuing after the last key read,
+   * and pages failing with a transient error are retried from there instead of restarting the task.
+   *
+   * @param pageSize the number of rows per page, 0 to read each split with a single query
+   */
+  public void setPageSize( int pageSize )
+    {
+    if( pageSize < 0 )
+      throw new IllegalArgumentException( "pageSize must not be negative" );
+
+    this.pageSize = pageSize;
+    }
+
+  /**
+   * Method getRebalanceThreads returns the number of threads reading each split, or 0 if each split is read by a
+   * single reader.
+   *
+   * @return the rebalanceThreads (type int) of this JDBCScheme object.
+   */
+  public int getRebalanceThreads()
+    {
+    return rebalanceThreads;
+    }
+
+  /**
+   * Method setRebalanceThreads reads each key range split with the given number of threads, each on its own
+   * connection. A thread, which has finished its part of the split, takes over the upper half of the unread keys of
+   * the thread with the most keys left, so a dense part of the key range does not leave a single straggling reader.
+   * <p/>
+   * Rebalancing requires paging, see {@link #setPageSize(int)}, since only pages are read in the order of the keys.
+   *
+   * @param rebalanceThreads the number of threads per split, 0 to read each split with a single reader
+   */
+  public void setRebalanceThreads( int rebalanceThreads )
+    {
+    if( rebalanceThreads < 0 )
+      throw new IllegalArgumentException( "rebalanceThreads must not be negative" );
+
+    this.rebalanceThreads = rebalanceThreads;
+    }
+
+  /**
+   * Method getIsolationLevel returns the transaction isolation level used for reading, or null if the default
+   * READ_COMMITTED is used.
+   *
+   * @return the isolation level (type Integer) of this JDBCScheme object.
+   */
+  public Integer getIsolationLevel()
+    {
+    return isolationLevel;
+    }
+
+  /**
+   * Method setIsolationLevel sets the transaction isolation level used for reading.
+   *
+   * @param isolationLevel one of the isolation level constants in {@link java.sql.Connection}
+   */
+  public void setIsolationLevel( Integer isolationLevel )
+    {
+    this.isolationLevel = isolationLevel;
+    }
+
+  /**
+   * Method isConsistentRead returns true, if all splits are reading from the same snapshot of the database.
+   *
+   * @return the consistentRead (type boolean) of this JDBCScheme object.
+   */
+  public boolean isConsistentRead()
+    {
+    return consistentRead;
+    }
+
+  /**
+   * Method setConsistentRead enables reading all splits from the same snapshot of the database. Databases, which
+   * cannot share a snapshot between connections, are read with a single split in this mode.
+   *
+   * @param consistentRead the consistentRead of this JDBCScheme object.
+   */
+  public void setConsistentRead( boolean consistentRead )
+    {
+    this.consistentRead = consistentRead;
+    }
+
+  /**
+   * Method getPrefetchDepth returns the number of rows read ahead in a background thread.
+   *
+   * @return the prefetchDepth (type int) of this JDBCScheme object.
+   */
+  public int getPrefetchDepth()
+    {
+    return prefetchDepth;
+    }
+
+  /**
+   * Method setPrefetchDepth sets the number of rows read ahead in a background thread, so that fetching rows from the
+   * database overlaps with processing them. A value of 0 disables reading ahead.
+   *
+   * @param prefetchDepth the prefetchDepth of this JDBCScheme object.
+   */
+  public void setPrefetchDepth( int prefetchDepth )
+    {
+    this.prefetchDepth = prefetchDepth;
+    }
+
+  /**
+   * Method getFetchSize returns the number of rows fetched per round trip, or null if the default of the
+   * {@link DBInputFormat} is used.
+   *
+   * @return the fetchSize (type Integer) of this JDBCScheme object.
+   */
+  public Integer getFetchSize()
+    {
+    return fetchSize;
+    }
+
+  /**
+   * Method setFetchSize sets the number of rows fetched per round trip.
+   *
+   * @param fetchSize the fetchSize of this JDBCScheme object.
+   */
+  public void setFetchSize( Integer fetchSize )
+    {
+    this.fetchSize = fetchSize;
+    }
+
+  /**
+   * Method isAutoFetchSize returns true, if the fetch size is derived from the width of the rows.
+   *
+   * @return the autoFetchSize (type boolean) of this JDBCScheme object.
+   */
+  public boolean isAutoFetchSize()
+    {
+    return autoFetchSize;
+    }
+
+  /**
+   * Method setAutoFetchSize lets the fetch size follow the width of the rows, so that the fetched rows fit into a
+   * bounded share of the heap.
+   *
+   * @param autoFetchSize the autoFetchSize of this JDBCScheme object.
+   */
+  public void setAutoFetchSize( boolean autoFetchSize )
+    {
+    this.autoFetchSize = autoFetchSize;
+    }
+
+  /**
+   * Method getCombinedSplits returns the maximum number of splits read by a single task, or 0 if each task reads a
+   * single split.
+   *
+   * @return the combinedSplits (type int) of this JDBCScheme object.
+   */
+  public int getCombinedSplits()
+    {
+    return combinedSplits;
+    }
+
+  /**
+   * Method getCombineThreads returns the number of splits a task reads at the same time.
+   *
+   * @return the combineThreads (type int) of this JDBCScheme object.
+   */
+  public int getCombineThreads()
+    {
+    return combineThreads;
+    }
+
+  /**
+   * Method setCombinedSplits lets each task read a group of up to splitsPerTask splits, reading threads of them at the
+   * same time, each on its own connection. The database is still read by as many connections as there are splits,
+   * see {@link JDBCTap#setConcurrentReads(int)}, while far fewer tasks have to be scheduled.
+   *
+   * @param splitsPerTask the maximum number of splits per task, 0 to read a single split per task
+   * @param threads       the number of splits a task reads at the same time
+   */
+  public void setCombinedSplits( int splitsPerTask, int threads )
+    {
+    if( splitsPerTask < 0 )
+      throw new IllegalArgumentException( "splitsPerTask must not be negative" );
+
+    if( threads < 1 )
+      throw new IllegalArgumentException( "threads must be at least 1" );
+
+    this.combinedSplits = splitsPerTask;
+    this.combineThreads = threads;
+    }
+
+  /**
+   * Method isNewApi returns true, if this scheme reads and writes with the new-API (org.apache.hadoop.mapreduce)
+   * formats in {@link cascading.jdbc.db.mapreduce}.
+   *
+   * @return the newApi (type boolean) of this JDBCScheme object.
+   */
+  public boolean isNewApi()
+    {
+    return newApi;
+    }
+
+  /**
+   * Method setNewApi lets this scheme read and write with the new-API (org.apache.hadoop.mapreduce) formats in
+   * {@link cascading.jdbc.db.mapreduce}, instead of the old-API ones. Splits are still planned and rows still read and
+   * written by the old-API format classes of this scheme, which the new-API formats wrap. The sink gets the new-API
+   * {@link cascading.jdbc.db.mapreduce.DBOutputCommitter}, which publishes the rows of each task when it commits, if
+   * {@link cascading.jdbc.db.mapreduce.DBOutputFormat#setTaskStaging} is enabled in the flow properties.
+   * <p/>
+   * Only the Tez planner honors the new API, its MRInput and MROutput hand the records to the tap either way. The
+   * MapReduce planner always runs its jobs with the old API.
+   *
+   * @param newApi true, to read and write with the new-API formats
+   */
+  public void setNewApi( boolean newApi )
+    {
+    this.newApi = newApi;
+    }
+
   @Override
   public void sourceConfInit( FlowProcess<? extends Configuration> process, Tap<Configuration, RecordReader, OutputCollector> tap, Configuration conf )
     {
     int concurrentReads = ( (JDBCTap) tap ).concurrentReads;
 
-    if( selectQuery != null )
+    if( selectQuery != null && materialized )
+      {
+      // the query was run once into the staging table, whose row numbers are split into disjoint ranges
+      String stagingTable = ( (JDBCTap) tap ).getStagingTable();
+      DBInputFormat.setInput( conf, TupleRecord.class, stagingTable, null, null, -1, concurrentReads, tableAlias, columns );
+      DBInputFormat.setSplitColumn( conf, DBInputFormat.STAGING_ROW_COLUMN );
+
+      if( limit > 0 )
+        DBInputFormat.setFilter( conf, DBFilter.le( DBInputFormat.STAGING_ROW_COLUMN, limit ) );
+      }
+    else if( selectQuery != null )
+      {
       DBInputFormat.setInput( conf, TupleRecord.class, selectQuery, countQuery, limit, concurrentReads, tableAlias );
+
+      if( splitColumn != null )
+        DBInputFormat.setSplitColumn( conf, splitColumn );
+      }
     else
       {
       String tableName = ( (JDBCTap) tap ).getTableName();
       String joinedOrderBy = orderBy != null ? Util.join( orderBy, ", " ) : null;
-      DBInputFormat.setInput( conf, TupleRecord.class, tableName, conditions, joinedOrderBy, limit, concurrentReads, tableAlias, columns );
+      DBInputFormat.setInput( conf, TupleRecord.class, tableName, conditions, joinedOrderBy, limit, concurrentReads, tableAlias,
+        getSourceColumns() );
+
+      DBFilter sourceFilter = filter;
+
+      if( isIncremental() )
+        {
+        DBFilter watermarkFilter = ( (JDBCTap) tap ).getWatermarkFilter( conf );
+
+        if( watermarkFilter != null )
+          sourceFilter = sourceFilter == null ? watermarkFilter : DBFilter.and( sourceFilter, watermarkFilter );
+        }
+
+      if( sourceFilter != null )
+        DBInputFormat.setFilter( conf, sourceFilter );
+
+      if( splitColumn != null )
+        DBInputFormat.setSplitColumn( conf, splitColumn );
+
+      if( pageSize > 0 )
+        {
+        if( splitColumn == null )
+          throw new TapException( "paging requires a split column" );
+
+        DBInputFormat.setPageSize( conf, pageSize );
+        }
+
+      if( rebalanceThreads > 0 )
+        {
+        if( pageSize <= 0 )
+          throw new TapException( "rebalancing requires paging" );
+
+        DBInputFormat.setRebalanceThreads( conf, rebalanceThreads );
+        }
       }
 
+    if( splitColumn != null && splitLowerBound != null && !materialized )
+      DBInputFormat.setSplitBounds( conf, splitLowerBound, splitUpperBound );
+
+    if( isolationLevel != null )
+      DBInputFormat.setTransactionIsolationLevel( conf, isolationLevel );
+
+    if( consistentRead )
+      DBInputFormat.setConsistentRead( conf, consistentRead );
+
+    if( prefetchDepth > 0 )
+      DBInputFormat.setPrefetchDepth( conf, prefetchDepth );
+
+    if( autoFetchSize )
+      DBInputFormat.setAutoFetchSize( conf, 0 );
+    else if( fetchSize != null )
+      DBInputFormat.setFetchSize( conf, fetchSize );
+
+    if( combinedSplits > 1 )
+      DBInputFormat.setCombinedSplits( conf, combinedSplits, combineThreads );
+
     if( inputFormatClass != null )
       conf.set( "mapred.input.format.class", inputFormatClass.getName() );
 
-    conf.set( "mapred.mapper.new-api", "false");
-    conf.set( "mapred.reducer.new-api", "false");
+    // the new-API format reads with the old-API format class set above
+    if( newApi )
+      conf.set( "mapreduce.job.inputformat.class", cascading.jdbc.db.mapreduce.DBInputFormat.class.getName() );
+
+    conf.set( "mapred.mapper.new-api", Boolean.toString( newApi ) );
+    conf.set( "mapred.reducer.new-api", Boolean.toString( newApi ) );
     }
 
   @Override
@@ -645,13 +1254,22 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
     if( outputFormatClass != null )
       conf.set( "mapred.output.format.class", outputFormatClass.getName() );
 
-    conf.set( "mapred.mapper.new-api", "false");
-    conf.set( "mapred.reducer.new-api", "false");
+    // the new-API format writes with the old-API format class set above
+    if( newApi )
+      conf.set( "mapreduce.job.outputformat.class", cascading.jdbc.db.mapreduce.DBOutputFormat.class.getName() );
+
+    conf.set( "mapred.mapper.new-api", Boolean.toString( newApi ) );
+    conf.set( "mapred.reducer.new-api", Boolean.toString( newApi ) );
 
     }
 
   @Override
   public void sourcePrepare( FlowProcess<? extends Configuration> flowProcess, SourceCall<Object[], RecordReader> sourceCall )
+    {
+    prepareSource( sourceCall );
+    }
+
+  void prepareSource( SourceCall<Object[], RecordReader> sourceCall )
     {
     Object[] pair = new Object[]{ sourceCall.getInput().createKey(), sourceCall.getInput().createValue() };
 
@@ -660,6 +1278,11 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
 
   @Override
   public boolean source( FlowProcess<? extends Configuration> flowProcess, SourceCall<Object[], RecordReader> sourceCall ) throws IOException
+    {
+    return readTuple( sourceCall );
+    }
+
+  boolean readTuple( SourceCall<Object[], RecordReader> sourceCall ) throws IOException
     {
     Object key = sourceCall.getContext()[ 0 ];
     Object value = sourceCall.getContext()[ 1 ];
@@ -669,8 +1292,9 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
       return false;
 
     Tuple rawTuple = ( (TupleRecord) value ).getTuple();
-    Type[] types = getColumnFields().getTypes();
-    int size = getColumnFields().size();
+    Fields readFields = projectionFields != null ? projectionFields : getColumnFields();
+    Type[] types = readFields.getTypes();
+    int size = readFields.size();
 
     Tuple newTuple = Tuple.size( size );
     for( int i = 0; i < size; i++ )
@@ -695,6 +1319,11 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
 
   @Override
   public void sink( FlowProcess<? extends Configuration> flowProcess, SinkCall<Object[], OutputCollector> sinkCall ) throws IOException
+    {
+    writeTuple( sinkCall );
+    }
+
+  void writeTuple( SinkCall<Object[], OutputCollector> sinkCall ) throws IOException
     {
     // it's ok to use NULL here so the collector does not write anything
     TupleEntry tupleEntry = sinkCall.getOutgoingEntry();
@@ -738,13 +1367,17 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
     LOG.info( "receiving final sink fields {}", fields );
     super.presentSinkFields( flowProcess, tap, fields );
 
+    completeSinkFields( (JDBCTap) tap, fields );
+    }
+
+  void completeSinkFields( JDBCTap tap, Fields fields )
+    {
     deriveInternalSinkFields( fields );
 
     // if the column names or types on the tabledesc instance are missing,
     // we can now add it. The method will throw an Exception, if the information
     // is still incomplete afterwards.
-    JDBCTap jtap = (JDBCTap) tap;
-    TableDesc tableDesc = jtap.getTableDesc();
+    TableDesc tableDesc = tap.getTableDesc();
 
     if( !tableDesc.hasRequiredTableInformation() )
       tableDesc.completeFromFields( fields );
@@ -825,6 +1458,28 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
 
     if( limit != that.limit )
       return false;
+    if( consistentRead != that.consistentRead )
+      return false;
+    if( prefetchDepth != that.prefetchDepth )
+      return false;
+    if( autoFetchSize != that.autoFetchSize )
+      return false;
+    if( materialized != that.materialized )
+      return false;
+    if( rebalanceThreads != that.rebalanceThreads )
+      return false;
+    if( combinedSplits != that.combinedSplits )
+      return false;
+    if( combineThreads != that.combineThreads )
+      return false;
+    if( splitLowerBound != null ? !splitLowerBound.equals( that.splitLowerBound ) : that.splitLowerBound != null )
+      return false;
+    if( splitUpperBound != null ? !splitUpperBound.equals( that.splitUpperBound ) : that.splitUpperBound != null )
+      return false;
+    if( fetchSize != null ? !fetchSize.equals( that.fetchSize ) : that.fetchSize != null )
+      return false;
+    if( isolationLevel != null ? !isolationLevel.equals( that.isolationLevel ) : that.isolationLevel != null )
+      return false;
     if( columnFields != null ? !columnFields.equals( that.columnFields ) : that.columnFields != null )
       return false;
     if( !Arrays.equals( columns, that.columns ) )
@@ -849,6 +1504,16 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
       return false;
     if( updateValueFields != null ? !updateValueFields.equals( that.updateValueFields ) : that.updateValueFields != null )
       return false;
+    if( projectionFields != null ? !projectionFields.equals( that.projectionFields ) : that.projectionFields != null )
+      return false;
+    if( filter != null ? !filter.equals( that.filter ) : that.filter != null )
+      return false;
+    if( watermarkColumn != null ? !watermarkColumn.equals( that.watermarkColumn ) : that.watermarkColumn != null )
+      return false;
+    if( splitColumn != null ? !splitColumn.equals( that.splitColumn ) : that.splitColumn != null )
+      return false;
+    if( pageSize != that.pageSize )
+      return false;
 
     return true;
     }
@@ -870,6 +1535,22 @@ public class JDBCScheme extends Scheme<Configuration, RecordReader, OutputCollec
     result = 31 * result + ( selectQuery != null ? selectQuery.hashCode() : 0 );
     result = 31 * result + ( countQuery != null ? countQuery.hashCode() : 0 );
     result = 31 * result + (int) ( limit ^ ( limit >>> 32 ) );
+    result = 31 * result + ( projectionFields != null ? projectionFields.hashCode() : 0 );
+    result = 31 * result + ( filter != null ? filter.hashCode() : 0 );
+    result = 31 * result + ( watermarkColumn != null ? watermarkColumn.hashCode() : 0 );
+    result = 31 * result + ( splitColumn != null ? splitColumn.hashCode() : 0 );
+    result = 31 * result + pageSize;
+    result = 31 * result + ( isolationLevel != null ? isolationLevel.hashCode() : 0 );
+    result = 31 * result + ( consistentRead ? 1 : 0 );
+    result = 31 * result + prefetchDepth;
+    result = 31 * result + ( fetchSize != null ? fetchSize.hashCode() : 0 );
+    result = 31 * result + ( autoFetchSize ? 1 : 0 );
+    result = 31 * result + ( materialized ? 1 : 0 );
+    result = 31 * result + rebalanceThreads;
+    result = 31 * result + combinedSplits;
+    result = 31 * result + combineThreads;
+    result = 31 * result + ( splitLowerBound != null ? splitLowerBound.hashCode() : 0 );
+    result = 31 * result + ( splitUpperBound != null ? splitUpperBound.hashCode() : 0 );
     return result;
     }
   }
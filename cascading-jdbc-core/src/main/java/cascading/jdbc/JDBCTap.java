@@ -19,13 +19,18 @@ import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
 
+import cascading.flow.Flow;
+import cascading.flow.FlowListener;
 import cascading.flow.FlowProcess;
 import cascading.jdbc.db.DBConfiguration;
+import cascading.jdbc.db.DBFilter;
+import cascading.jdbc.db.DBInputFormat;
 import cascading.management.annotation.URISanitizer;
 import cascading.property.AppProps;
 import cascading.tap.SinkMode;
@@ -37,6 +42,7 @@ import cascading.tuple.TupleEntryCollector;
 import cascading.tuple.TupleEntryIterator;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.OutputCollector;
 import org.apache.hadoop.mapred.RecordReader;
 import org.slf4j.Logger;
@@ -124,6 +130,17 @@ public class JDBCTap extends Tap<Configuration, RecordReader, OutputCollector>
   int batchSize = 1000;
   /** Field concurrentReads */
   int concurrentReads = 0;
+  /** Field replicaUrls */
+  String[] replicaUrls = new String[]{};
+  /** Field replicaSelection */
+  DBInputFormat.ReplicaSelection replicaSelection = DBInputFormat.ReplicaSelection.ROUND_ROBIN;
+
+  /** Field watermarksResolved */
+  private transient boolean watermarksResolved = false;
+  /** Field lowWatermark */
+  private transient Object lowWatermark;
+  /** Field highWatermark */
+  private transient Object highWatermark;
 
   /**
    * Constructor JDBCTap creates a new JDBCTap instance.
@@ -320,6 +337,53 @@ public class JDBCTap extends Tap<Configuration, RecordReader, OutputCollector>
     this.concurrentReads = concurrentReads;
     }
 
+  /**
+   * Method getReplicaUrls returns the JDBC URLs of the read replicas of this JDBCTap object.
+   *
+   * @return the replicaUrls (type String[]) of this JDBCTap object.
+   */
+  public String[] getReplicaUrls()
+    {
+    return Arrays.copyOf( replicaUrls, replicaUrls.length );
+    }
+
+  /**
+   * Method setReplicaUrls sets the JDBC URLs of read replicas of the database of this JDBCTap object.
+   * <p/>
+   * Splits are planned on the primary database, but read from the replicas, each split failing over to the next
+   * replica, if its replica cannot be reached. Writes, DDL, metadata lookups and watermarks always use the primary.
+   * Replicas are not used for consistent reads, since a snapshot can only be read on the database, which exported it.
+   *
+   * @param replicaUrls the JDBC URLs of the replicas, all accepting the credentials of the primary.
+   */
+  public void setReplicaUrls( String... replicaUrls )
+    {
+    this.replicaUrls = replicaUrls == null ? new String[]{} : Arrays.copyOf( replicaUrls, replicaUrls.length );
+    }
+
+  /**
+   * Method getReplicaSelection returns how splits are assigned to the read replicas.
+   *
+   * @return the replicaSelection (type ReplicaSelection) of this JDBCTap object.
+   */
+  public DBInputFormat.ReplicaSelection getReplicaSelection()
+    {
+    return replicaSelection;
+    }
+
+  /**
+   * Method setReplicaSelection sets how splits are assigned to the read replicas, defaults to round-robin.
+   *
+   * @param replicaSelection the replicaSelection of this JDBCTap object.
+   */
+  public void setReplicaSelection( DBInputFormat.ReplicaSelection replicaSelection )
+    {
+    if( replicaSelection == null )
+      throw new IllegalArgumentException( "replicaSelection must not be null" );
+
+    this.replicaSelection = replicaSelection;
+    }
+
   /**
    * Method getPath returns the path of this JDBCTap object.
    *
@@ -370,6 +434,219 @@ public class JDBCTap extends Tap<Configuration, RecordReader, OutputCollector>
     return tableDesc != null;
     }
 
+  @Override
+  public void flowConfInit( Flow<Configuration> flow )
+    {
+    super.flowConfInit( flow );
+
+    addFlowListeners( flow );
+    }
+
+  /** Registers the listeners releasing or storing the state of this tap, once the given flow has finished. */
+  void addFlowListeners( Flow<?> flow )
+    {
+    // snapshots exported for consistent reads may keep a transaction open until the flow is done
+    if( getScheme() instanceof JDBCScheme && ( (JDBCScheme) getScheme() ).isConsistentRead() )
+      flow.addListener( new SnapshotReleasingListener( connectionUrl ) );
+
+    if( getScheme() instanceof JDBCScheme && ( (JDBCScheme) getScheme() ).isIncremental() )
+      flow.addListener( new WatermarkCommittingListener( this ) );
+
+    // flows only commit or roll back their sinks, so sources clean up their staging tables on their own
+    if( isMaterialized() )
+      flow.addListener( new StagingTableDroppingListener( this ) );
+    }
+
+  /**
+   * Returns the given configuration of a flow as a JobConf. The properties of flows in local mode are copied.
+   *
+   * @param config the configuration of the flow
+   * @return the configuration as a JobConf
+   */
+  static JobConf asJobConf( Object config )
+    {
+    if( config instanceof JobConf )
+      return (JobConf) config;
+
+    if( config instanceof Configuration )
+      return new JobConf( (Configuration) config );
+
+    JobConf conf = new JobConf();
+    Properties properties = (Properties) config;
+
+    for( String key : properties.stringPropertyNames() )
+      conf.set( key, properties.getProperty( key ) );
+
+    return conf;
+    }
+
+  private boolean isMaterialized()
+    {
+    return getScheme() instanceof JDBCScheme && ( (JDBCScheme) getScheme() ).isMaterialized();
+    }
+
+  private String getStagingTableName()
+    {
+    // short enough for databases limiting names to 30 characters
+    return "cascading_" + id.replace( "-", "" ).substring( 0, 20 );
+    }
+
+  /**
+   * Returns the staging table holding the result of the select query of a materializing scheme, running the query
+   * into the table, if it does not exist yet. The name of the table is derived from the id of this tap, so the query
+   * runs once, even if the tap is initialized again by another step or on the cluster.
+   * <p/>
+   * Copies of this tap may materialize the query at the same time, so the table is not looked up first. The statements
+   * run in one transaction, and a failure because the table already exists means another copy created it, which is
+   * left in place.
+   *
+   * @return the name of the staging table
+   */
+  synchronized String getStagingTable()
+    {
+    String stagingTable = getStagingTableName();
+    TableDesc stagingDesc = new TableDesc( stagingTable );
+
+    try( Connection connection = createConnection() )
+      {
+      LOG.info( "materializing select query into staging table: {}", stagingTable );
+
+      try
+        {
+        JDBCUtil.executeUpdates( connection, ( (JDBCScheme) getScheme() ).getStagingStatements( stagingTable ) );
+        }
+      catch( IOException exception )
+        {
+        if( JDBCUtil.isTableExistsError( exception ) )
+          {
+          LOG.info( "staging table already exists: {}", stagingTable );
+          return stagingTable;
+          }
+
+        // do not leave a partially filled table behind on databases committing DDL implicitly, it would be read by
+        // the next attempt
+        JDBCUtil.dropTable( connection, stagingDesc );
+        throw exception;
+        }
+      }
+    catch( IOException | SQLException exception )
+      {
+      throw new TapException( "unable to materialize select query into staging table: " + stagingTable, exception );
+      }
+
+    return stagingTable;
+    }
+
+  private boolean dropStagingTable() throws IOException
+    {
+    if( !isMaterialized() )
+      return true;
+
+    Connection connection = null;
+    try
+      {
+      connection = createConnection();
+      LOG.info( "dropping staging table: {}", getStagingTableName() );
+      JDBCUtil.dropTable( connection, new TableDesc( getStagingTableName() ) );
+      }
+    finally
+      {
+      JDBCUtil.closeConnection( connection );
+      }
+
+    return true;
+    }
+
+  @Override
+  public boolean commitResource( Configuration conf ) throws IOException
+    {
+    return dropStagingTable() && super.commitResource( conf );
+    }
+
+  @Override
+  public boolean rollbackResource( Configuration conf ) throws IOException
+    {
+    return dropStagingTable() && super.rollbackResource( conf );
+    }
+
+  /**
+   * Returns the filter restricting an incremental read to the rows above the stored mark and up to the current
+   * maximum of the watermark column. The range is determined once per tap instance, so all steps of a flow read the
+   * same rows.
+   *
+   * @param conf the current configuration
+   * @return the filter or null, if all rows are read
+   */
+  synchronized DBFilter getWatermarkFilter( Configuration conf )
+    {
+    JDBCScheme scheme = (JDBCScheme) getScheme();
+    String column = scheme.getWatermarkColumn();
+
+    if( !watermarksResolved )
+      {
+      try
+        {
+        lowWatermark = scheme.getWatermarkStore().load( this, conf );
+        }
+      catch( IOException exception )
+        {
+        throw new TapException( "unable to load watermark from: " + scheme.getWatermarkStore(), exception );
+        }
+
+      highWatermark = queryHighWatermark( column );
+      watermarksResolved = true;
+
+      LOG.info( "reading {} from {} (exclusive) to {} (inclusive)", column, lowWatermark, highWatermark );
+      }
+
+    // an empty table, nothing to restrict
+    if( highWatermark == null && lowWatermark == null )
+      return null;
+
+    if( highWatermark == null )
+      return DBFilter.gt( column, lowWatermark );
+
+    if( lowWatermark == null )
+      return DBFilter.le( column, highWatermark );
+
+    return DBFilter.and( DBFilter.gt( column, lowWatermark ), DBFilter.le( column, highWatermark ) );
+    }
+
+  private Object queryHighWatermark( String column )
+    {
+    try( Connection connection = createConnection() )
+      {
+      List<Object[]> result = JDBCUtil.executeQuery( connection, "SELECT MAX(" + column + ") FROM " + getTableName(), 1 );
+
+      if( result.isEmpty() )
+        return null;
+
+      return result.get( 0 )[ 0 ];
+      }
+    catch( SQLException | IOException exception )
+      {
+      throw new TapException( "unable to determine the maximum of " + column + " in " + getTableName(), exception );
+      }
+    }
+
+  /**
+   * Stores the upper bound of the finished incremental read as the new mark.
+   *
+   * @param conf the configuration of the flow
+   * @throws IOException
+   */
+  synchronized void commitWatermark( Configuration conf ) throws IOException
+    {
+    if( !watermarksResolved || highWatermark == null )
+      return;
+
+    WatermarkStore store = ( (JDBCScheme) getScheme() ).getWatermarkStore();
+
+    LOG.info( "storing watermark {} in {}", highWatermark, store );
+    store.store( this, conf, highWatermark );
+    lowWatermark = highWatermark;
+    }
+
   @Override
   public void sourceConfInit( FlowProcess<? extends Configuration> process, Configuration conf )
     {
@@ -378,6 +655,10 @@ public class JDBCTap extends Tap<Configuration, RecordReader, OutputCollector>
     else
       DBConfiguration.configureDB( conf, driverClassName, connectionUrl, username, password );
 
+    // a staging table may not have been replicated yet
+    if( replicaUrls.length != 0 && !isMaterialized() )
+      DBInputFormat.setReplicas( conf, replicaSelection, replicaUrls );
+
     super.sourceConfInit( process, conf );
     }
 
@@ -395,7 +676,7 @@ public class JDBCTap extends Tap<Configuration, RecordReader, OutputCollector>
     super.sinkConfInit( process, conf );
     }
 
-  private Connection createConnection()
+  Connection createConnection()
     {
     try
       {
@@ -585,6 +866,127 @@ public class JDBCTap extends Tap<Configuration, RecordReader, OutputCollector>
     return true;
     }
 
+  /** FlowListener releasing the snapshots exported for consistent reads, once the flow has finished. */
+  private static class SnapshotReleasingListener implements FlowListener
+    {
+    private final String connectionUrl;
+
+    private SnapshotReleasingListener( String connectionUrl )
+      {
+      this.connectionUrl = connectionUrl;
+      }
+
+    @Override
+    public void onStarting( Flow flow )
+      {
+      }
+
+    @Override
+    public void onStopping( Flow flow )
+      {
+      DBInputFormat.releaseSnapshots( connectionUrl );
+      }
+
+    @Override
+    public void onCompleted( Flow flow )
+      {
+      DBInputFormat.releaseSnapshots( connectionUrl );
+      }
+
+    @Override
+    public boolean onThrowable( Flow flow, Throwable throwable )
+      {
+      DBInputFormat.releaseSnapshots( connectionUrl );
+      return false;
+      }
+    }
+
+  /** FlowListener dropping the staging table of a materialized select query, once the flow has finished. */
+  private static class StagingTableDroppingListener implements FlowListener
+    {
+    private final JDBCTap tap;
+
+    private StagingTableDroppingListener( JDBCTap tap )
+      {
+      this.tap = tap;
+      }
+
+    @Override
+    public void onStarting( Flow flow )
+      {
+      }
+
+    @Override
+    public void onStopping( Flow flow )
+      {
+      }
+
+    @Override
+    public void onCompleted( Flow flow )
+      {
+      try
+        {
+        if( flow.getFlowStats().isSuccessful() )
+          tap.commitResource( asJobConf( flow.getConfig() ) );
+        else
+          tap.rollbackResource( asJobConf( flow.getConfig() ) );
+        }
+      catch( IOException exception )
+        {
+        LOG.warn( "unable to drop staging table of: " + tap, exception );
+        }
+      }
+
+    @Override
+    public boolean onThrowable( Flow flow, Throwable throwable )
+      {
+      return false;
+      }
+    }
+
+  /** FlowListener storing the new watermark of incremental reads, once the flow has completed successfully. */
+  private static class WatermarkCommittingListener implements FlowListener
+    {
+    private final JDBCTap tap;
+
+    private WatermarkCommittingListener( JDBCTap tap )
+      {
+      this.tap = tap;
+      }
+
+    @Override
+    public void onStarting( Flow flow )
+      {
+      }
+
+    @Override
+    public void onStopping( Flow flow )
+      {
+      }
+
+    @Override
+    public void onCompleted( Flow flow )
+      {
+      if( !flow.getFlowStats().isSuccessful() )
+        return;
+
+      try
+        {
+        tap.commitWatermark( asJobConf( flow.getConfig() ) );
+        }
+      catch( IOException exception )
+        {
+        throw new TapException( "unable to store watermark of: " + tap, exception );
+        }
+      }
+
+    @Override
+    public boolean onThrowable( Flow flow, Throwable throwable )
+      {
+      return false;
+      }
+    }
+
   @Override
   public int hashCode()
     {
@@ -21,6 +21,7 @@
 package cascading.jdbc;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
@@ -30,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import cascading.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +43,34 @@ public class JDBCUtil
   /**Logger*/
   private static final Logger LOG = LoggerFactory.getLogger( JDBCUtil.class );
 
+  /** Thread.ofVirtual() and the methods of its builder, null before Java 21 */
+  private static final Method OF_VIRTUAL;
+  private static final Method BUILDER_NAME;
+  private static final Method BUILDER_UNSTARTED;
+
+  static
+    {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderUnstarted = null;
+
+    try
+      {
+      Class<?> builder = Class.forName( "java.lang.Thread$Builder" );
+      ofVirtual = Thread.class.getMethod( "ofVirtual" );
+      builderName = builder.getMethod( "name", String.class );
+      builderUnstarted = builder.getMethod( "unstarted", Runnable.class );
+      }
+    catch( ReflectiveOperationException exception )
+      {
+      ofVirtual = null;
+      }
+
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_UNSTARTED = builderUnstarted;
+    }
+
   /**
    * Method to check if a table exists in the database of the given Connection object
    * */
@@ -127,6 +157,140 @@ public class JDBCUtil
     return result;
     }
 
+  /**
+   * Executes the given sql statements on the given Connection in a single transaction, which is rolled back, if any of
+   * the statements fails.
+   * */
+  public static void executeUpdates( Connection connection, List<String> updateStrings ) throws IOException
+    {
+    String current = null;
+
+    try( Statement statement = connection.createStatement() )
+      {
+      for( String updateString : updateStrings )
+        {
+        current = updateString;
+        LOG.info( "executing update: {}", updateString );
+        statement.executeUpdate( updateString );
+        }
+
+      connection.commit();
+      }
+    catch( SQLException exception )
+      {
+      try
+        {
+        connection.rollback();
+        }
+      catch( SQLException rollbackException )
+        {
+        LOG.warn( "unable to roll back transaction", rollbackException );
+        }
+
+      throw new IOException( "SQL error code: " + exception.getErrorCode() + " executing update statement: " + current, exception );
+      }
+    }
+
+  /**
+   * Returns true, if the given exception, or one of its causes, reports that a table to be created already exists.
+   * The databases disagree on the SQL state, so the states of Derby, PostgreSQL, DB2, H2 and MySQL are checked, along
+   * with the error codes of MySQL and Oracle.
+   * */
+  public static boolean isTableExistsError( Throwable throwable )
+    {
+    for( Throwable cause = throwable; cause != null; cause = cause.getCause() )
+      {
+      if( !( cause instanceof SQLException ) )
+        continue;
+
+      SQLException exception = (SQLException) cause;
+      String state = exception.getSQLState();
+
+      if( "X0Y32".equals( state ) || "42P07".equals( state ) || "42710".equals( state ) || "42S01".equals( state ) )
+        return true;
+
+      // ER_TABLE_EXISTS_ERROR and ORA-00955
+      if( exception.getErrorCode() == 1050 || exception.getErrorCode() == 955 )
+        return true;
+      }
+
+    return false;
+    }
+
+  /**
+   * Moves all rows of the staging table into the target table. The rows are copied and deleted from the staging
+   * table in one transaction, so moving them again, e.g. when a commit is retried before the staging table was
+   * dropped, moves nothing. Deleting the rows, instead of relying on dropping the table, keeps the move atomic on
+   * databases, which commit DDL statements implicitly.
+   *
+   * @return the number of rows moved
+   * */
+  public static int moveRows( Connection connection, TableDesc stagingDesc, TableDesc targetDesc ) throws IOException
+    {
+    String columns = Util.join( targetDesc.getColumnNames(), ", " );
+    String insert = "INSERT INTO " + targetDesc.getTableName() + " (" + columns + ") SELECT " + columns + " FROM "
+      + stagingDesc.getTableName();
+    String current = insert;
+
+    try
+      {
+      connection.setAutoCommit( false );
+
+      try( Statement statement = connection.createStatement() )
+        {
+        LOG.info( "executing update: {}", insert );
+        int rows = statement.executeUpdate( insert );
+
+        current = "DELETE FROM " + stagingDesc.getTableName();
+        LOG.info( "executing update: {}", current );
+        statement.executeUpdate( current );
+
+        connection.commit();
+
+        return rows;
+        }
+      }
+    catch( SQLException exception )
+      {
+      try
+        {
+        connection.rollback();
+        }
+      catch( SQLException rollbackException )
+        {
+        LOG.warn( "unable to roll back transaction", rollbackException );
+        }
+
+      throw new IOException( "SQL error code: " + exception.getErrorCode() + " executing update statement: " + current, exception );
+      }
+    }
+
+  /**
+   * Creates an unstarted daemon thread of the given name. If virtual is set and the JVM supports virtual threads (Java
+   * 21 and later), the thread is virtual. They are looked up by reflection, since this library also runs on older JVMs.
+   * */
+  public static Thread newThread( String name, Runnable runnable, boolean virtual )
+    {
+    if( virtual && OF_VIRTUAL != null )
+      {
+      try
+        {
+        Object builder = BUILDER_NAME.invoke( OF_VIRTUAL.invoke( null ), name );
+
+        return (Thread) BUILDER_UNSTARTED.invoke( builder, runnable );
+        }
+      catch( ReflectiveOperationException exception )
+        {
+        LOG.warn( "unable to create virtual thread, creating a platform thread", exception );
+        }
+      }
+
+    Thread thread = new Thread( runnable, name );
+    thread.setDaemon( true );
+
+    return thread;
+    }
+
   /**
    * Drops the table described by the table descriptor if it exists.
    * */
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import cascading.flow.FlowProcess;
+import cascading.scheme.Scheme;
+import cascading.scheme.SinkCall;
+import cascading.scheme.SourceCall;
+import cascading.tap.Tap;
+import cascading.tuple.Fields;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.RecordReader;
+
+/**
+ * Class LocalJDBCScheme is the {@link Scheme} of a {@link LocalJDBCTap}. It reads and writes tuples exactly like the
+ * {@link JDBCScheme} it wraps, the configuration of the input and output is done by the tap.
+ */
+public class LocalJDBCScheme extends Scheme<Properties, RecordReader, OutputCollector, Object[], Object[]>
+  {
+  /** Field scheme */
+  private final JDBCScheme scheme;
+
+  /**
+   * Constructor LocalJDBCScheme creates a new LocalJDBCScheme instance.
+   *
+   * @param scheme of type JDBCScheme
+   */
+  public LocalJDBCScheme( JDBCScheme scheme )
+    {
+    super( scheme.getSourceFields(), scheme.getSinkFields() );
+    this.scheme = scheme;
+    }
+
+  /**
+   * Method getJDBCScheme returns the wrapped JDBCScheme.
+   *
+   * @return the scheme (type JDBCScheme) of this LocalJDBCScheme object.
+   */
+  public JDBCScheme getJDBCScheme()
+    {
+    return scheme;
+    }
+
+  @Override
+  public void sourceConfInit( FlowProcess<? extends Properties> flowProcess, Tap<Properties, RecordReader, OutputCollector> tap, Properties conf )
+    {
+    // the input is configured by the tap, when it is opened
+    }
+
+  @Override
+  public void sinkConfInit( FlowProcess<? extends Properties> flowProcess, Tap<Properties, RecordReader, OutputCollector> tap, Properties conf )
+    {
+    // the output is configured by the tap, when it is opened
+    }
+
+  @Override
+  public void presentSinkFields( FlowProcess<? extends Properties> flowProcess, Tap tap, Fields fields )
+    {
+    super.presentSinkFields( flowProcess, tap, fields );
+
+    if( scheme.getSinkFields().isAll() )
+      scheme.setSinkFields( fields );
+
+    scheme.completeSinkFields( ( (LocalJDBCTap) tap ).getJDBCTap(), fields );
+    }
+
+  @Override
+  public void sourcePrepare( FlowProcess<? extends Properties> flowProcess, SourceCall<Object[], RecordReader> sourceCall ) throws IOException
+    {
+    scheme.prepareSource( sourceCall );
+    }
+
+  @Override
+  public boolean source( FlowProcess<? extends Properties> flowProcess, SourceCall<Object[], RecordReader> sourceCall ) throws IOException
+    {
+    return scheme.readTuple( sourceCall );
+    }
+
+  @Override
+  public void sourceCleanup( FlowProcess<? extends Properties> flowProcess, SourceCall<Object[], RecordReader> sourceCall ) throws IOException
+    {
+    sourceCall.setContext( null );
+    }
+
+  @Override
+  public void sink( FlowProcess<? extends Properties> flowProcess, SinkCall<Object[], OutputCollector> sinkCall ) throws IOException
+    {
+    scheme.writeTuple( sinkCall );
+    }
+
+  @Override
+  public boolean equals( Object object )
+    {
+    if( this == object )
+      return true;
+    if( !( object instanceof LocalJDBCScheme ) )
+      return false;
+
+    return scheme.equals( ( (LocalJDBCScheme) object ).scheme );
+    }
+
+  @Override
+  public int hashCode()
+    {
+    return scheme.hashCode();
+    }
+
+  @Override
+  public String toString()
+    {
+    return "LocalJDBCScheme{" + scheme + "}";
+    }
+  }
@@ -0,0 +1,507 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import cascading.flow.Flow;
+import cascading.flow.FlowProcess;
+import cascading.jdbc.db.DBConfiguration;
+import cascading.jdbc.db.DBInputFormat;
+import cascading.jdbc.db.DBOutputFormat;
+import cascading.tap.Tap;
+import cascading.tap.TapException;
+import cascading.tuple.Tuple;
+import cascading.tuple.TupleEntryCollector;
+import cascading.tuple.TupleEntryIterator;
+import cascading.tuple.TupleEntrySchemeCollector;
+import cascading.tuple.TupleEntrySchemeIterator;
+import cascading.util.CloseableIterator;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class LocalJDBCTap runs a {@link JDBCTap} in Cascading local mode, so small and medium sized jobs move their rows
+ * in-process instead of waiting for a cluster to schedule them. The wrapped tap and its {@link JDBCScheme} are
+ * configured as usual, e.g. the table description, the split column or the number of concurrent reads.
+ * <p/>
+ * The input is split like on a cluster and the splits are read on a pool of {@link #setReadThreads(int)} threads,
+ * each on its own connection. Written tuples are handed over in batches to {@link #setWriteThreads(int)} writers,
+ * each inserting on its own connection. The threads are virtual threads on Java 21 and later, platform threads
+ * before.
+ */
+public class LocalJDBCTap extends Tap<Properties, RecordReader, OutputCollector>
+  {
+  private static final Logger LOG = LoggerFactory.getLogger( LocalJDBCTap.class );
+
+  /** Field DEFAULT_THREADS */
+  public static final int DEFAULT_THREADS = 4;
+
+  /** Field tap */
+  private final JDBCTap tap;
+  /** Field readThreads */
+  private int readThreads = DEFAULT_THREADS;
+  /** Field writeThreads */
+  private int writeThreads = DEFAULT_THREADS;
+
+  /**
+   * Constructor LocalJDBCTap creates a new LocalJDBCTap instance.
+   *
+   * @param tap the tap to run in local mode, its scheme must be a JDBCScheme
+   */
+  public LocalJDBCTap( JDBCTap tap )
+    {
+    super( new LocalJDBCScheme( (JDBCScheme) tap.getScheme() ), tap.getSinkMode() );
+    this.tap = tap;
+    }
+
+  /**
+   * Method getJDBCTap returns the wrapped JDBCTap.
+   *
+   * @return the tap (type JDBCTap) of this LocalJDBCTap object.
+   */
+  public JDBCTap getJDBCTap()
+    {
+    return tap;
+    }
+
+  /**
+   * Method getReadThreads returns the number of splits read at the same time.
+   *
+   * @return the readThreads (type int) of this LocalJDBCTap object.
+   */
+  public int getReadThreads()
+    {
+    return readThreads;
+    }
+
+  /**
+   * Method setReadThreads sets the number of splits read at the same time, each on its own connection. Unless the
+   * number of concurrent reads is set on the wrapped tap, the input is split into as many splits.
+   *
+   * @param readThreads the readThreads of this LocalJDBCTap object.
+   */
+  public void setReadThreads( int readThreads )
+    {
+    if( readThreads < 1 )
+      throw new IllegalArgumentException( "readThreads must be at least 1" );
+
+    this.readThreads = readThreads;
+    }
+
+  /**
+   * Method getWriteThreads returns the number of writers inserting at the same time.
+   *
+   * @return the writeThreads (type int) of this LocalJDBCTap object.
+   */
+  public int getWriteThreads()
+    {
+    return writeThreads;
+    }
+
+  /**
+   * Method setWriteThreads sets the number of writers inserting at the same time, each on its own connection. The
+   * tuples are handed over to the writers in batches of the batch size of the wrapped tap.
+   * <p/>
+   * Each writer commits its batches on its own connection, so the sink is not written in one transaction. If a writer
+   * or the flow fails, the batches committed so far stay in the table. Sink into a new table with
+   * {@link cascading.tap.SinkMode#REPLACE}, or clean up the table, to rerun a failed flow.
+   *
+   * @param writeThreads the writeThreads of this LocalJDBCTap object.
+   */
+  public void setWriteThreads( int writeThreads )
+    {
+    if( writeThreads < 1 )
+      throw new IllegalArgumentException( "writeThreads must be at least 1" );
+
+    this.writeThreads = writeThreads;
+    }
+
+  @Override
+  public String getIdentifier()
+    {
+    return tap.getIdentifier();
+    }
+
+  @Override
+  public boolean isSink()
+    {
+    return tap.isSink();
+    }
+
+  @Override
+  public boolean isSource()
+    {
+    return tap.isSource();
+    }
+
+  @Override
+  public void flowConfInit( Flow<Properties> flow )
+    {
+    super.flowConfInit( flow );
+
+    tap.addFlowListeners( flow );
+    }
+
+  @Override
+  public TupleEntryIterator openForRead( FlowProcess<? extends Properties> flowProcess, RecordReader input ) throws IOException
+    {
+    if( input != null )
+      return new TupleEntrySchemeIterator<Properties, RecordReader>( flowProcess, getScheme(), input, getIdentifier() );
+
+    JobConf conf = JDBCTap.asJobConf( flowProcess.getConfig() );
+
+    // neither the tap nor its scheme use the flow process to configure the input
+    tap.sourceConfInit( null, conf );
+    conf.setBoolean( DBConfiguration.INPUT_VIRTUAL_THREADS_PROPERTY, true );
+
+    DBInputFormat format = ReflectionUtils.newInstance( conf.getClass( "mapred.input.format.class", DBInputFormat.class, DBInputFormat.class ), conf );
+    InputSplit[] splits = format.getSplits( conf, readThreads );
+
+    LOG.info( "reading {} splits with {} threads from: {}", splits.length, readThreads, getIdentifier() );
+
+    RecordReader reader = format.getRecordReader( splits, conf, Reporter.NULL, readThreads );
+
+    return new TupleEntrySchemeIterator<Properties, RecordReader>( flowProcess, getScheme(), new RecordReaderIterator( reader ), getIdentifier() );
+    }
+
+  @Override
+  public TupleEntryCollector openForWrite( FlowProcess<? extends Properties> flowProcess, OutputCollector output ) throws IOException
+    {
+    if( !isSink() )
+      throw new TapException( "this tap may not be used as a sink, no TableDesc defined" );
+
+    if( output != null )
+      return new TupleEntrySchemeCollector<Properties, OutputCollector>( flowProcess, getScheme(), output, getIdentifier() );
+
+    JobConf conf = JDBCTap.asJobConf( flowProcess.getConfig() );
+
+    // neither the tap nor its scheme use the flow process to configure the output
+    tap.sinkConfInit( null, conf );
+
+    // the table is created once, before the writers race to create it
+    tap.createResource( conf );
+
+    final ConcurrentOutputCollector collector = new ConcurrentOutputCollector( conf, writeThreads, tap.getBatchSize() );
+
+    return new TupleEntrySchemeCollector<Properties, OutputCollector>( flowProcess, getScheme(), collector, getIdentifier() )
+      {
+      @Override
+      public void close()
+        {
+        try
+          {
+          super.close();
+          }
+        finally
+          {
+          try
+            {
+            collector.close();
+            }
+          catch( IOException exception )
+            {
+            throw new TapException( "unable to write to: " + getIdentifier(), exception );
+            }
+          }
+        }
+      };
+    }
+
+  @Override
+  public boolean createResource( Properties conf ) throws IOException
+    {
+    return tap.createResource( JDBCTap.asJobConf( conf ) );
+    }
+
+  @Override
+  public boolean deleteResource( Properties conf ) throws IOException
+    {
+    return tap.deleteResource( JDBCTap.asJobConf( conf ) );
+    }
+
+  @Override
+  public boolean prepareResourceForWrite( Properties conf ) throws IOException
+    {
+    return tap.prepareResourceForWrite( JDBCTap.asJobConf( conf ) );
+    }
+
+  @Override
+  public boolean commitResource( Properties conf ) throws IOException
+    {
+    return tap.commitResource( JDBCTap.asJobConf( conf ) );
+    }
+
+  @Override
+  public boolean rollbackResource( Properties conf ) throws IOException
+    {
+    return tap.rollbackResource( JDBCTap.asJobConf( conf ) );
+    }
+
+  @Override
+  public boolean resourceExists( Properties conf ) throws IOException
+    {
+    return tap.resourceExists( JDBCTap.asJobConf( conf ) );
+    }
+
+  @Override
+  public long getModifiedTime( Properties conf ) throws IOException
+    {
+    return tap.getModifiedTime( JDBCTap.asJobConf( conf ) );
+    }
+
+  @Override
+  public boolean equals( Object object )
+    {
+    if( this == object )
+      return true;
+    if( !( object instanceof LocalJDBCTap ) )
+      return false;
+
+    LocalJDBCTap that = (LocalJDBCTap) object;
+
+    return readThreads == that.readThreads && writeThreads == that.writeThreads && tap.equals( that.tap );
+    }
+
+  @Override
+  public int hashCode()
+    {
+    int result = tap.hashCode();
+    result = 31 * result + readThreads;
+    result = 31 * result + writeThreads;
+    return result;
+    }
+
+  @Override
+  public String toString()
+    {
+    return "LocalJDBCTap{" + tap + "}";
+    }
+
+  /** Iterator over the single RecordReader reading all splits, closing the reader with the iterator. */
+  private static class RecordReaderIterator implements CloseableIterator<RecordReader>
+    {
+    private final RecordReader reader;
+    private boolean consumed = false;
+
+    private RecordReaderIterator( RecordReader reader )
+      {
+      this.reader = reader;
+      }
+
+    @Override
+    public boolean hasNext()
+      {
+      return !consumed;
+      }
+
+    @Override
+    public RecordReader next()
+      {
+      if( consumed )
+        throw new NoSuchElementException();
+
+      consumed = true;
+
+      return reader;
+      }
+
+    @Override
+    public void remove()
+      {
+      throw new UnsupportedOperationException( "remove" );
+      }
+
+    @Override
+    public void close() throws IOException
+      {
+      reader.close();
+      }
+    }
+
+  /**
+   * OutputCollector handing the collected rows over in batches to a pool of writer threads, each writing with a
+   * RecordWriter of the {@link DBOutputFormat} on its own connection.
+   */
+  static class ConcurrentOutputCollector implements OutputCollector<Object, Object>
+    {
+    /** Marks the end of the batches in the queue */
+    private static final List<Object[]> END_OF_BATCHES = Collections.emptyList();
+
+    private final int batchSize;
+    private final BlockingQueue<List<Object[]>> batches;
+    private final List<Thread> writers = new ArrayList<Thread>();
+    private List<Object[]> batch;
+    private volatile Throwable failure;
+    private boolean closed = false;
+
+    ConcurrentOutputCollector( JobConf conf, int threads, int batchSize ) throws IOException
+      {
+      this.batchSize = Math.max( 1, batchSize );
+      this.batches = new ArrayBlockingQueue<List<Object[]>>( 2 * threads );
+      this.batch = new ArrayList<Object[]>( this.batchSize );
+
+      DBOutputFormat format = ReflectionUtils.newInstance( conf.getClass( "mapred.output.format.class", DBOutputFormat.class, DBOutputFormat.class ), conf );
+
+      for( int i = 0; i < threads; i++ )
+        {
+        final RecordWriter writer = format.getRecordWriter( null, conf, "local-" + i, Reporter.NULL );
+
+        Thread thread = JDBCUtil.newThread( "jdbc-writer-" + i, new Runnable()
+        {
+        @Override
+        public void run()
+          {
+          write( writer );
+          }
+        }, true );
+
+        writers.add( thread );
+        }
+
+      for( Thread writer : writers )
+        writer.start();
+      }
+
+    @SuppressWarnings("unchecked")
+    private void write( RecordWriter writer )
+      {
+      try
+        {
+        List<Object[]> rows;
+
+        while( ( rows = batches.take() ) != END_OF_BATCHES )
+          {
+          // keep taking batches after a failure, also of this writer, so the collecting thread is never blocked
+          if( failure != null )
+            continue;
+
+          try
+            {
+            for( Object[] row : rows )
+              writer.write( row[ 0 ], row[ 1 ] );
+            }
+          catch( Throwable throwable )
+            {
+            failure = throwable;
+            }
+          }
+        }
+      catch( InterruptedException exception )
+        {
+        if( failure == null )
+          failure = exception;
+        }
+      finally
+        {
+        try
+          {
+          writer.close( Reporter.NULL );
+          }
+        catch( IOException exception )
+          {
+          if( failure == null )
+            failure = exception;
+          }
+        }
+      }
+
+    @Override
+    public void collect( Object key, Object value ) throws IOException
+      {
+      if( failure != null )
+        throw new IOException( "unable to write rows", failure );
+
+      // Cascading reuses the outgoing tuples, so the rows are copied before a writer binds them on its own thread
+      Object keyCopy = copy( key );
+      batch.add( new Object[]{keyCopy, value == key ? keyCopy : copy( value )} );
+
+      if( batch.size() >= batchSize )
+        {
+        put( batch );
+        batch = new ArrayList<Object[]>( batchSize );
+        }
+      }
+
+    private static Object copy( Object record )
+      {
+      if( record instanceof TupleRecord && ( (TupleRecord) record ).getTuple() != null )
+        return new TupleRecord( new Tuple( ( (TupleRecord) record ).getTuple() ) );
+
+      return record;
+      }
+
+    private void put( List<Object[]> rows ) throws IOException
+      {
+      try
+        {
+        batches.put( rows );
+        }
+      catch( InterruptedException exception )
+        {
+        Thread.currentThread().interrupt();
+        throw new IOException( "interrupted while handing over rows", exception );
+        }
+      }
+
+    void close() throws IOException
+      {
+      if( closed )
+        return;
+
+      closed = true;
+
+      if( !batch.isEmpty() )
+        put( batch );
+
+      for( Thread writer : writers )
+        put( END_OF_BATCHES );
+
+      try
+        {
+        for( Thread writer : writers )
+          writer.join();
+        }
+      catch( InterruptedException exception )
+        {
+        Thread.currentThread().interrupt();
+        throw new IOException( "interrupted while waiting for the writers", exception );
+        }
+
+      if( failure != null )
+        throw new IOException( "unable to write rows", failure );
+      }
+    }
+  }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc;
+
+import java.util.Arrays;
+
+import cascading.flow.Flow;
+import cascading.flow.FlowProcess;
+import cascading.jdbc.db.DBInputFormat;
+import cascading.tap.TapException;
+import cascading.util.Util;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Class ShardedJDBCTap is a source only {@link JDBCTap}, which reads a table, that is sharded across several
+ * databases with the same schema. All shards are read by the same flow step in parallel.
+ * <p/>
+ * Each shard is split on its own, the number of concurrent reads set by {@link #setConcurrentReads(int)} applies to
+ * each shard, so it caps the connections opened to every single shard. The splits report the host of their shard as
+ * their location, which allows schedulers to run them close to the shard.
+ * <p/>
+ * Ad-hoc queries and metadata lookups use the first shard. Incremental and materialized reads are rejected, since
+ * their watermark or staging table only exist on a single database.
+ */
+public class ShardedJDBCTap extends JDBCTap
+  {
+  /** Field shardUrls */
+  String[] shardUrls;
+
+  /**
+   * Constructor ShardedJDBCTap creates a new ShardedJDBCTap instance.
+   *
+   * @param shardUrls of type String[]
+   * @param username of type String
+   * @param password of type String
+   * @param driverClassName of type String
+   * @param tableName of type String
+   * @param scheme of type JDBCScheme
+   */
+  public ShardedJDBCTap( String[] shardUrls, String username, String password, String driverClassName, String tableName, JDBCScheme scheme )
+    {
+    super( verifyShardUrls( shardUrls )[ 0 ], username, password, driverClassName, tableName, scheme );
+    this.shardUrls = Arrays.copyOf( shardUrls, shardUrls.length );
+
+    verifyScheme();
+    }
+
+  /**
+   * Constructor ShardedJDBCTap creates a new ShardedJDBCTap instance.
+   *
+   * @param shardUrls of type String[]
+   * @param driverClassName of type String
+   * @param tableName of type String
+   * @param scheme of type JDBCScheme
+   */
+  public ShardedJDBCTap( String[] shardUrls, String driverClassName, String tableName, JDBCScheme scheme )
+    {
+    this( shardUrls, null, null, driverClassName, tableName, scheme );
+    }
+
+  private static String[] verifyShardUrls( String[] shardUrls )
+    {
+    if( shardUrls == null || shardUrls.length == 0 )
+      throw new IllegalArgumentException( "at least one shard url is required" );
+
+    for( String shardUrl : shardUrls )
+      {
+      if( shardUrl == null || shardUrl.isEmpty() )
+        throw new IllegalArgumentException( "shard urls must not be empty" );
+      }
+
+    return shardUrls;
+    }
+
+  /** Rejects reads, which depend on state kept in a single database, the scheme may still change after construction. */
+  private void verifyScheme()
+    {
+    if( !( getScheme() instanceof JDBCScheme ) )
+      return;
+
+    JDBCScheme scheme = (JDBCScheme) getScheme();
+
+    // the watermark of an incremental read is determined on a single database
+    if( scheme.isIncremental() )
+      throw new TapException( "incremental reads are not supported across shards" );
+
+    // the staging table would only be created on the first shard
+    if( scheme.isMaterialized() )
+      throw new TapException( "materialized queries are not supported across shards" );
+    }
+
+  /**
+   * Method getShardUrls returns the JDBC URLs of all shards.
+   *
+   * @return the shardUrls (type String[]) of this ShardedJDBCTap object.
+   */
+  public String[] getShardUrls()
+    {
+    return Arrays.copyOf( shardUrls, shardUrls.length );
+    }
+
+  @Override
+  public boolean isSink()
+    {
+    return false;
+    }
+
+  @Override
+  public String getJDBCPath()
+    {
+    return "jdbc://" + Util.join( shardUrls, "," );
+    }
+
+  @Override
+  public void flowConfInit( Flow<Configuration> flow )
+    {
+    verifyScheme();
+
+    super.flowConfInit( flow );
+    }
+
+  @Override
+  public void sourceConfInit( FlowProcess<? extends Configuration> process, Configuration conf )
+    {
+    verifyScheme();
+
+    super.sourceConfInit( process, conf );
+
+    DBInputFormat.setShards( conf, shardUrls );
+    }
+
+  @Override
+  public boolean equals( Object object )
+    {
+    if( this == object )
+      return true;
+    if( !( object instanceof ShardedJDBCTap ) )
+      return false;
+    if( !super.equals( object ) )
+      return false;
+
+    ShardedJDBCTap that = (ShardedJDBCTap) object;
+
+    return Arrays.equals( shardUrls, that.shardUrls );
+    }
+
+  @Override
+  public int hashCode()
+    {
+    return 31 * super.hashCode() + Arrays.hashCode( shardUrls );
+    }
+  }
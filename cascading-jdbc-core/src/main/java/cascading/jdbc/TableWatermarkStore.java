@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Class TableWatermarkStore keeps the marks of any number of incremental reads in a small state table of the
+ * database, which is read from. Each mark is stored in a row identified by a name. The table is created, if it does
+ * not exist.
+ */
+public class TableWatermarkStore extends WatermarkStore
+  {
+  private static final long serialVersionUID = -1592866183429540153L;
+
+  /** Field tableName */
+  private final String tableName;
+  /** Field name */
+  private final String name;
+
+  /**
+   * Constructor TableWatermarkStore creates a new TableWatermarkStore instance.
+   *
+   * @param tableName the name of the state table
+   * @param name      the name of the mark, unique within the state table
+   */
+  public TableWatermarkStore( String tableName, String name )
+    {
+    if( tableName == null || tableName.isEmpty() )
+      throw new IllegalArgumentException( "tableName must not be empty" );
+
+    if( name == null || name.isEmpty() )
+      throw new IllegalArgumentException( "name must not be empty" );
+
+    this.tableName = tableName;
+    this.name = name;
+    }
+
+  public String getTableName()
+    {
+    return tableName;
+    }
+
+  public String getName()
+    {
+    return name;
+    }
+
+  protected TableDesc getTableDesc()
+    {
+    return new TableDesc( tableName, new String[]{"name", "mark"}, new String[]{"VARCHAR(255) NOT NULL", "VARCHAR(255)"},
+      new String[]{"name"} );
+    }
+
+  @Override
+  protected String loadMark( JDBCTap tap, Configuration conf ) throws IOException
+    {
+    try( Connection connection = tap.createConnection() )
+      {
+      JDBCUtil.createTableIfNotExists( connection, getTableDesc() );
+
+      try( PreparedStatement statement = connection.prepareStatement( "SELECT mark FROM " + tableName + " WHERE name = ?" ) )
+        {
+        statement.setString( 1, name );
+
+        try( ResultSet results = statement.executeQuery() )
+          {
+          String mark = results.next() ? results.getString( 1 ) : null;
+          connection.commit();
+          return mark;
+          }
+        }
+      }
+    catch( SQLException exception )
+      {
+      throw new IOException( "unable to load watermark " + name + " from " + tableName, exception );
+      }
+    }
+
+  @Override
+  protected void storeMark( JDBCTap tap, Configuration conf, String mark ) throws IOException
+    {
+    try( Connection connection = tap.createConnection() )
+      {
+      JDBCUtil.createTableIfNotExists( connection, getTableDesc() );
+
+      try
+        {
+        int updated;
+
+        try( PreparedStatement statement = connection.prepareStatement( "UPDATE " + tableName + " SET mark = ? WHERE name = ?" ) )
+          {
+          statement.setString( 1, mark );
+          statement.setString( 2, name );
+          updated = statement.executeUpdate();
+          }
+
+        if( updated == 0 )
+          {
+          try( PreparedStatement statement = connection.prepareStatement( "INSERT INTO " + tableName + " (name, mark) VALUES (?, ?)" ) )
+            {
+            statement.setString( 1, name );
+            statement.setString( 2, mark );
+            statement.executeUpdate();
+            }
+          }
+
+        connection.commit();
+        }
+      catch( SQLException exception )
+        {
+        connection.rollback();
+        throw exception;
+        }
+      }
+    catch( SQLException exception )
+      {
+      throw new IOException( "unable to store watermark " + name + " in " + tableName, exception );
+      }
+    }
+
+  @Override
+  public String toString()
+    {
+    return "TableWatermarkStore{tableName='" + tableName + "', name='" + name + "'}";
+    }
+  }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Class WatermarkStore persists the high-water mark of an incremental read, see
+ * {@link JDBCScheme#setIncremental(String, WatermarkStore)}. The mark is the largest value of the watermark column,
+ * which was read by the last successful flow.
+ * <p/>
+ * Sub-classes only store and load the textual form of the mark and must replace a stored mark atomically.
+ *
+ * @see FileWatermarkStore
+ * @see TableWatermarkStore
+ */
+public abstract class WatermarkStore implements Serializable
+  {
+  private static final long serialVersionUID = -6417342231795207125L;
+
+  /**
+   * Method load returns the stored mark or null, if no mark has been stored yet.
+   *
+   * @param tap  the tap reading incrementally
+   * @param conf the configuration of the flow
+   * @return the stored mark
+   * @throws IOException
+   */
+  public Object load( JDBCTap tap, Configuration conf ) throws IOException
+    {
+    return decode( loadMark( tap, conf ) );
+    }
+
+  /**
+   * Method store replaces the stored mark.
+   *
+   * @param tap  the tap reading incrementally
+   * @param conf the configuration of the flow
+   * @param mark the new mark
+   * @throws IOException
+   */
+  public void store( JDBCTap tap, Configuration conf, Object mark ) throws IOException
+    {
+    storeMark( tap, conf, encode( mark ) );
+    }
+
+  protected abstract String loadMark( JDBCTap tap, Configuration conf ) throws IOException;
+
+  protected abstract void storeMark( JDBCTap tap, Configuration conf, String mark ) throws IOException;
+
+  /**
+   * Encodes a mark together with its type, so it is bound with the same type when it is read back.
+   *
+   * @param mark the mark to encode
+   * @return the encoded mark
+   */
+  static String encode( Object mark )
+    {
+    if( mark instanceof Long || mark instanceof Integer || mark instanceof Short || mark instanceof Byte )
+      return "long:" + mark;
+    if( mark instanceof BigDecimal )
+      return "decimal:" + ( (BigDecimal) mark ).toPlainString();
+    if( mark instanceof Timestamp )
+      return "timestamp:" + mark;
+    if( mark instanceof Date )
+      return "date:" + mark;
+    if( mark instanceof String )
+      return "string:" + mark;
+
+    throw new IllegalArgumentException( "unsupported type of watermark: " + ( mark == null ? null : mark.getClass().getName() ) );
+    }
+
+  /**
+   * Decodes a mark created by {@link #encode(Object)}.
+   *
+   * @param encoded the encoded mark, may be null
+   * @return the mark
+   */
+  static Object decode( String encoded )
+    {
+    if( encoded == null || encoded.isEmpty() )
+      return null;
+
+    int separator = encoded.indexOf( ':' );
+
+    if( separator == -1 )
+      throw new IllegalArgumentException( "invalid watermark: " + encoded );
+
+    String type = encoded.substring( 0, separator );
+    String value = encoded.substring( separator + 1 );
+
+    switch( type )
+      {
+      case "long":
+        return Long.valueOf( value );
+      case "decimal":
+        return new BigDecimal( value );
+      case "timestamp":
+        return Timestamp.valueOf( value );
+      case "date":
+        return Date.valueOf( value );
+      case "string":
+        return value;
+      default:
+        throw new IllegalArgumentException( "invalid watermark: " + encoded );
+      }
+    }
+  }
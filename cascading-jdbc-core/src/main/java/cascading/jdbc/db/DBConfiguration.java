@@ -119,12 +119,97 @@ public class DBConfiguration
   /** The number of statements to batch before executing */
   public static final String BATCH_STATEMENTS_PROPERTY = "mapred.jdbc.batch.statements.num";
 
+  /** Whether new-API tasks write into their own staging table, which is published when the task commits */
+  public static final String OUTPUT_TASK_STAGING_PROPERTY = "mapred.jdbc.output.task.staging";
+
+  /** Output table the staging table of a Tez vertex is published to, when the vertex succeeds */
+  public static final String OUTPUT_PUBLISH_TABLE_NAME_PROPERTY = "mapred.jdbc.output.publish.table.name";
+
   /** The number of splits allowed, becomes max concurrent reads. */
   public static final String CONCURRENT_READS_PROPERTY = "mapred.jdbc.concurrent.reads.num";
 
+  /** Transaction isolation level of the reading connections, e.g. READ_COMMITTED or SERIALIZABLE */
+  public static final String INPUT_ISOLATION_LEVEL_PROPERTY = "mapred.jdbc.input.isolation.level";
+
+  /** Boolean to open the reading connections in read-only mode */
+  public static final String INPUT_READ_ONLY_PROPERTY = "mapred.jdbc.input.read.only";
+
+  /** Boolean to let all splits read from one consistent snapshot of the database */
+  public static final String INPUT_CONSISTENT_READ_PROPERTY = "mapred.jdbc.input.consistent.read";
+
+  /** The snapshot exported during split calculation, which all splits are reading at */
+  public static final String INPUT_SNAPSHOT_PROPERTY = "mapred.jdbc.input.snapshot";
+
+  /** The number of rows a background thread reads ahead of the task, 0 disables reading ahead */
+  public static final String INPUT_PREFETCH_DEPTH_PROPERTY = "mapred.jdbc.input.prefetch.depth";
+
+  /** The number of rows fetched per round trip, or "auto" to derive it from the width of the rows */
+  public static final String INPUT_FETCH_SIZE_PROPERTY = "mapred.jdbc.input.fetch.size";
+
+  /** The number of bytes the fetched rows may occupy, if the fetch size is "auto" */
+  public static final String INPUT_FETCH_BUFFER_SIZE_PROPERTY = "mapred.jdbc.input.fetch.buffer.size";
+
+  /** A serialized {@link DBFilter}, which is applied in addition to the input conditions */
+  public static final String INPUT_FILTER_PROPERTY = "mapred.jdbc.input.filter";
+
+  /** An integral, unique column used to split the table into key ranges */
+  public static final String INPUT_SPLIT_COLUMN_PROPERTY = "mapred.jdbc.input.split.column";
+
+  /** Whether a split column is looked up in the metadata of the table, when none is set */
+  public static final String INPUT_SPLIT_COLUMN_DISCOVERY_PROPERTY = "mapred.jdbc.input.split.column.discovery";
+
+  /** The smallest value of the split column, if known in advance */
+  public static final String INPUT_SPLIT_LOWER_BOUND_PROPERTY = "mapred.jdbc.input.split.lower.bound";
+
+  /** The largest value of the split column, if known in advance */
+  public static final String INPUT_SPLIT_UPPER_BOUND_PROPERTY = "mapred.jdbc.input.split.upper.bound";
+
+  /** Whether the threads reading several splits in one process are virtual threads, where the JVM supports them */
+  public static final String INPUT_VIRTUAL_THREADS_PROPERTY = "mapred.jdbc.input.virtual.threads";
+
+  /** The number of rows read per query, when paging through a split by its key */
+  public static final String INPUT_PAGE_SIZE_PROPERTY = "mapred.jdbc.input.page.size";
+
+  /** The number of threads reading a key range split, taking over keys from straggling readers */
+  public static final String INPUT_REBALANCE_THREADS_PROPERTY = "mapred.jdbc.input.rebalance.threads";
+
+  /** The maximum number of splits read by a single task */
+  public static final String INPUT_COMBINED_SPLITS_PROPERTY = "mapred.jdbc.input.combined.splits";
+
+  /** The number of splits a task reads at the same time, when reading combined splits */
+  public static final String INPUT_COMBINE_THREADS_PROPERTY = "mapred.jdbc.input.combine.threads";
+
+  /** The number of times a failed page is retried from the last key read */
+  public static final String INPUT_PAGE_RETRIES_PROPERTY = "mapred.jdbc.input.page.retries";
+
+  /** The number of shards, which are read instead of the database at {@link #URL_PROPERTY} */
+  public static final String INPUT_SHARDS_PROPERTY = "mapred.jdbc.input.shards";
+
+  /** Prefix of the JDBC URLs of the shards, followed by the index of the shard */
+  public static final String INPUT_SHARD_URL_PROPERTY_PREFIX = "mapred.jdbc.input.shard.url.";
+
+  /** The number of read replicas, the splits are spread across */
+  public static final String INPUT_REPLICAS_PROPERTY = "mapred.jdbc.input.replicas";
+
+  /** Prefix of the JDBC URLs of the read replicas, followed by the index of the replica */
+  public static final String INPUT_REPLICA_URL_PROPERTY_PREFIX = "mapred.jdbc.input.replica.url.";
+
+  /** How splits are assigned to read replicas, see {@link DBInputFormat.ReplicaSelection} */
+  public static final String INPUT_REPLICA_SELECTION_PROPERTY = "mapred.jdbc.input.replica.selection";
+
+  /** Value of {@link #INPUT_FETCH_SIZE_PROPERTY} to derive the fetch size from the width of the rows */
+  public static final String AUTO_FETCH_SIZE = "auto";
+
+  private static final String[] ISOLATION_LEVEL_NAMES = new String[]{"NONE", "READ_UNCOMMITTED", "READ_COMMITTED",
+                                                                     "REPEATABLE_READ", "SERIALIZABLE"};
+
+  private static final int[] ISOLATION_LEVELS = new int[]{Connection.TRANSACTION_NONE, Connection.TRANSACTION_READ_UNCOMMITTED,
+                                                          Connection.TRANSACTION_READ_COMMITTED, Connection.TRANSACTION_REPEATABLE_READ,
+                                                          Connection.TRANSACTION_SERIALIZABLE};
+
   private Configuration configuration;
 
-  DBConfiguration( Configuration job )
+  public DBConfiguration( Configuration job )
     {
     this.configuration = job;
     }
@@ -168,7 +253,18 @@ public class DBConfiguration
    * @throws ClassNotFoundException
    * @throws SQLException
    */
-  Connection getConnection() throws IOException
+  public Connection getConnection() throws IOException
+    {
+    return getConnection( configuration.get( DBConfiguration.URL_PROPERTY ) );
+    }
+
+  /**
+   * Returns a connection object to the DB at the given URL, using the configured driver and credentials
+   *
+   * @param url the JDBC URL to connect to
+   * @throws IOException
+   */
+  Connection getConnection( String url ) throws IOException
     {
     try
       {
@@ -178,15 +274,15 @@ public class DBConfiguration
       {
       throw new IOException( "unable to load database driver", exception );
       }
-    LOG.info( "opening db connection: " + configuration.get( DBConfiguration.URL_PROPERTY ) );
+    LOG.info( "opening db connection: " + url );
     try
       {
       if( configuration.get( DBConfiguration.USERNAME_PROPERTY ) == null )
-        return DriverManager.getConnection( configuration.get( DBConfiguration.URL_PROPERTY ) );
+        return DriverManager.getConnection( url );
 
       else
         {
-        return DriverManager.getConnection( configuration.get( DBConfiguration.URL_PROPERTY ),
+        return DriverManager.getConnection( url,
           configuration.get( DBConfiguration.USERNAME_PROPERTY ),
           configuration.get( DBConfiguration.PASSWORD_PROPERTY ) );
         }
@@ -197,6 +293,11 @@ public class DBConfiguration
       }
     }
 
+  String getConnectionUrl()
+    {
+    return configuration.get( DBConfiguration.URL_PROPERTY );
+    }
+
   String getInputTableName()
     {
     return configuration.get( DBConfiguration.INPUT_TABLE_NAME_PROPERTY );
@@ -374,7 +475,291 @@ public class DBConfiguration
     configuration.setInt( DBConfiguration.CONCURRENT_READS_PROPERTY, maxConcurrentReads );
     }
 
-  TableDesc toTableDesc()
+  int getInputIsolationLevel()
+    {
+    return parseIsolationLevel( configuration.get( DBConfiguration.INPUT_ISOLATION_LEVEL_PROPERTY, "READ_COMMITTED" ) );
+    }
+
+  void setInputIsolationLevel( int isolationLevel )
+    {
+    configuration.set( DBConfiguration.INPUT_ISOLATION_LEVEL_PROPERTY, isolationLevelName( isolationLevel ) );
+    }
+
+  boolean getInputReadOnly()
+    {
+    return configuration.getBoolean( DBConfiguration.INPUT_READ_ONLY_PROPERTY, true );
+    }
+
+  void setInputReadOnly( boolean readOnly )
+    {
+    configuration.setBoolean( DBConfiguration.INPUT_READ_ONLY_PROPERTY, readOnly );
+    }
+
+  boolean getInputConsistentRead()
+    {
+    return configuration.getBoolean( DBConfiguration.INPUT_CONSISTENT_READ_PROPERTY, false );
+    }
+
+  void setInputConsistentRead( boolean consistentRead )
+    {
+    configuration.setBoolean( DBConfiguration.INPUT_CONSISTENT_READ_PROPERTY, consistentRead );
+    }
+
+  String getInputSnapshot()
+    {
+    return configuration.get( DBConfiguration.INPUT_SNAPSHOT_PROPERTY );
+    }
+
+  void setInputSnapshot( String snapshot )
+    {
+    if( snapshot != null && snapshot.length() > 0 )
+      configuration.set( DBConfiguration.INPUT_SNAPSHOT_PROPERTY, snapshot );
+    }
+
+  int getInputPrefetchDepth()
+    {
+    return configuration.getInt( DBConfiguration.INPUT_PREFETCH_DEPTH_PROPERTY, 0 );
+    }
+
+  void setInputPrefetchDepth( int prefetchDepth )
+    {
+    if( prefetchDepth < 0 )
+      throw new IllegalArgumentException( "prefetchDepth must not be negative" );
+
+    configuration.setInt( DBConfiguration.INPUT_PREFETCH_DEPTH_PROPERTY, prefetchDepth );
+    }
+
+  String getInputFetchSize()
+    {
+    return configuration.get( DBConfiguration.INPUT_FETCH_SIZE_PROPERTY );
+    }
+
+  void setInputFetchSize( String fetchSize )
+    {
+    if( fetchSize != null && fetchSize.length() > 0 )
+      configuration.set( DBConfiguration.INPUT_FETCH_SIZE_PROPERTY, fetchSize );
+    }
+
+  boolean isInputAutoFetchSize()
+    {
+    return AUTO_FETCH_SIZE.equalsIgnoreCase( getInputFetchSize() );
+    }
+
+  long getInputFetchBufferSize()
+    {
+    // by default use a small share of the heap, but not more than 64mb
+    long defaultSize = Math.min( Runtime.getRuntime().maxMemory() / 20, 64L * 1024 * 1024 );
+
+    return configuration.getLong( DBConfiguration.INPUT_FETCH_BUFFER_SIZE_PROPERTY, defaultSize );
+    }
+
+  void setInputFetchBufferSize( long bufferSize )
+    {
+    if( bufferSize <= 0 )
+      throw new IllegalArgumentException( "bufferSize must be a positive value" );
+
+    configuration.setLong( DBConfiguration.INPUT_FETCH_BUFFER_SIZE_PROPERTY, bufferSize );
+    }
+
+  String getInputSplitColumn()
+    {
+    return configuration.get( DBConfiguration.INPUT_SPLIT_COLUMN_PROPERTY );
+    }
+
+  void setInputSplitColumn( String splitColumn )
+    {
+    if( splitColumn != null && splitColumn.length() > 0 )
+      configuration.set( DBConfiguration.INPUT_SPLIT_COLUMN_PROPERTY, splitColumn );
+    }
+
+  boolean getInputSplitColumnDiscovery()
+    {
+    return configuration.getBoolean( DBConfiguration.INPUT_SPLIT_COLUMN_DISCOVERY_PROPERTY, true );
+    }
+
+  void setInputSplitColumnDiscovery( boolean discovery )
+    {
+    configuration.setBoolean( DBConfiguration.INPUT_SPLIT_COLUMN_DISCOVERY_PROPERTY, discovery );
+    }
+
+  Long getInputSplitLowerBound()
+    {
+    String lowerBound = configuration.get( DBConfiguration.INPUT_SPLIT_LOWER_BOUND_PROPERTY );
+    return lowerBound == null ? null : Long.valueOf( lowerBound );
+    }
+
+  Long getInputSplitUpperBound()
+    {
+    String upperBound = configuration.get( DBConfiguration.INPUT_SPLIT_UPPER_BOUND_PROPERTY );
+    return upperBound == null ? null : Long.valueOf( upperBound );
+    }
+
+  void setInputSplitBounds( long lowerBound, long upperBound )
+    {
+    configuration.setLong( DBConfiguration.INPUT_SPLIT_LOWER_BOUND_PROPERTY, lowerBound );
+    configuration.setLong( DBConfiguration.INPUT_SPLIT_UPPER_BOUND_PROPERTY, upperBound );
+    }
+
+  int getInputRebalanceThreads()
+    {
+    return configuration.getInt( DBConfiguration.INPUT_REBALANCE_THREADS_PROPERTY, 0 );
+    }
+
+  void setInputRebalanceThreads( int threads )
+    {
+    configuration.setInt( DBConfiguration.INPUT_REBALANCE_THREADS_PROPERTY, threads );
+    }
+
+  int getInputCombinedSplits()
+    {
+    return configuration.getInt( DBConfiguration.INPUT_COMBINED_SPLITS_PROPERTY, 0 );
+    }
+
+  void setInputCombinedSplits( int splitsPerTask )
+    {
+    configuration.setInt( DBConfiguration.INPUT_COMBINED_SPLITS_PROPERTY, splitsPerTask );
+    }
+
+  int getInputCombineThreads()
+    {
+    return configuration.getInt( DBConfiguration.INPUT_COMBINE_THREADS_PROPERTY, 1 );
+    }
+
+  void setInputCombineThreads( int threads )
+    {
+    configuration.setInt( DBConfiguration.INPUT_COMBINE_THREADS_PROPERTY, threads );
+    }
+
+  int getInputPageSize()
+    {
+    return configuration.getInt( DBConfiguration.INPUT_PAGE_SIZE_PROPERTY, 0 );
+    }
+
+  void setInputPageSize( int pageSize )
+    {
+    if( pageSize < 0 )
+      throw new IllegalArgumentException( "pageSize must not be negative" );
+
+    configuration.setInt( DBConfiguration.INPUT_PAGE_SIZE_PROPERTY, pageSize );
+    }
+
+  int getInputPageRetries()
+    {
+    return configuration.getInt( DBConfiguration.INPUT_PAGE_RETRIES_PROPERTY, 3 );
+    }
+
+  void setInputPageRetries( int retries )
+    {
+    if( retries < 0 )
+      throw new IllegalArgumentException( "retries must not be negative" );
+
+    configuration.setInt( DBConfiguration.INPUT_PAGE_RETRIES_PROPERTY, retries );
+    }
+
+  String[] getInputShardUrls()
+    {
+    return getUrls( DBConfiguration.INPUT_SHARDS_PROPERTY, DBConfiguration.INPUT_SHARD_URL_PROPERTY_PREFIX );
+    }
+
+  void setInputShardUrls( String... shardUrls )
+    {
+    setUrls( DBConfiguration.INPUT_SHARDS_PROPERTY, DBConfiguration.INPUT_SHARD_URL_PROPERTY_PREFIX, shardUrls );
+    }
+
+  String[] getInputReplicaUrls()
+    {
+    return getUrls( DBConfiguration.INPUT_REPLICAS_PROPERTY, DBConfiguration.INPUT_REPLICA_URL_PROPERTY_PREFIX );
+    }
+
+  void setInputReplicaUrls( String... replicaUrls )
+    {
+    setUrls( DBConfiguration.INPUT_REPLICAS_PROPERTY, DBConfiguration.INPUT_REPLICA_URL_PROPERTY_PREFIX, replicaUrls );
+    }
+
+  DBInputFormat.ReplicaSelection getInputReplicaSelection()
+    {
+    return configuration.getEnum( DBConfiguration.INPUT_REPLICA_SELECTION_PROPERTY, DBInputFormat.ReplicaSelection.ROUND_ROBIN );
+    }
+
+  void setInputReplicaSelection( DBInputFormat.ReplicaSelection selection )
+    {
+    if( selection != null )
+      configuration.setEnum( DBConfiguration.INPUT_REPLICA_SELECTION_PROPERTY, selection );
+    }
+
+  private String[] getUrls( String countProperty, String urlPropertyPrefix )
+    {
+    String[] urls = new String[ configuration.getInt( countProperty, 0 ) ];
+
+    for( int i = 0; i < urls.length; i++ )
+      urls[ i ] = configuration.get( urlPropertyPrefix + i );
+
+    return urls;
+    }
+
+  private void setUrls( String countProperty, String urlPropertyPrefix, String... urls )
+    {
+    // urls may contain commas, so they are not stored as a list
+    configuration.setInt( countProperty, urls.length );
+
+    for( int i = 0; i < urls.length; i++ )
+      configuration.set( urlPropertyPrefix + i, urls[ i ] );
+    }
+
+  DBFilter getInputFilter()
+    {
+    String filter = configuration.get( DBConfiguration.INPUT_FILTER_PROPERTY );
+
+    if( filter == null || filter.length() == 0 )
+      return null;
+
+    return DBFilter.deserialize( filter );
+    }
+
+  void setInputFilter( DBFilter filter )
+    {
+    if( filter != null )
+      configuration.set( DBConfiguration.INPUT_FILTER_PROPERTY, DBFilter.serialize( filter ) );
+    }
+
+  /**
+   * Translates the name of a transaction isolation level into the matching constant of {@link Connection}. The
+   * name is case insensitive and may carry the <code>TRANSACTION_</code> prefix.
+   *
+   * @param name the name of the isolation level, e.g. READ_COMMITTED
+   * @return the isolation level
+   */
+  public static int parseIsolationLevel( String name )
+    {
+    String normalized = name.trim().toUpperCase().replaceFirst( "^TRANSACTION_", "" );
+
+    for( int i = 0; i < ISOLATION_LEVEL_NAMES.length; i++ )
+      {
+      if( ISOLATION_LEVEL_NAMES[ i ].equals( normalized ) )
+        return ISOLATION_LEVELS[ i ];
+      }
+
+    throw new IllegalArgumentException( "unknown transaction isolation level: " + name );
+    }
+
+  /**
+   * Translates a transaction isolation level constant of {@link Connection} into its name.
+   *
+   * @param isolationLevel the isolation level
+   * @return the name of the isolation level
+   */
+  public static String isolationLevelName( int isolationLevel )
+    {
+    for( int i = 0; i < ISOLATION_LEVELS.length; i++ )
+      {
+      if( ISOLATION_LEVELS[ i ] == isolationLevel )
+        return ISOLATION_LEVEL_NAMES[ i ];
+      }
+
+    throw new IllegalArgumentException( "unknown transaction isolation level: " + isolationLevel );
+    }
+
+  public TableDesc toTableDesc()
     {
     return new TableDesc( getOutputTableName(), getOutputFieldNames(), getOutputFieldTypes(), getOutputPrimaryKeys() );
     }
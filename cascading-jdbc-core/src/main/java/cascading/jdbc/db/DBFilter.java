@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * Class DBFilter is a typed predicate on the columns of a table, which is pushed into the WHERE clause of the
+ * queries issued by {@link DBInputFormat}. Unlike plain conditions, the values of a filter are never part of the
+ * SQL text. They are bound as parameters of a {@link java.sql.PreparedStatement}, so every split of a read uses
+ * the same statement and the database can reuse its execution plan.
+ * <p/>
+ * Filters are created with the static factory methods and can be combined with {@link #and(DBFilter...)} and
+ * {@link #or(DBFilter...)}:
+ * <pre>
+ *   DBFilter filter = DBFilter.and( DBFilter.ge( "created", startDate ), DBFilter.in( "status", "NEW", "OPEN" ) );
+ * </pre>
+ * All values must be serializable and of a type the JDBC driver accepts in {@code setObject}.
+ */
+public abstract class DBFilter implements Serializable
+  {
+  private static final long serialVersionUID = -3719453020487623491L;
+
+  /**
+   * Appends the SQL of this filter to the given query, using a '?' for each value. The values are added in the same
+   * order to the given parameters.
+   *
+   * @param query      the query to append to
+   * @param parameters the parameters of the query
+   */
+  public abstract void appendTo( StringBuilder query, List<Object> parameters );
+
+  /**
+   * Returns the values of this filter in the order they are bound.
+   *
+   * @return the values of this filter
+   */
+  public List<Object> getParameters()
+    {
+    List<Object> parameters = new ArrayList<Object>();
+    appendTo( new StringBuilder(), parameters );
+    return parameters;
+    }
+
+  /**
+   * Returns the SQL of this filter with a '?' for each value.
+   *
+   * @return the SQL of this filter
+   */
+  public String toSQL()
+    {
+    StringBuilder query = new StringBuilder();
+    appendTo( query, new ArrayList<Object>() );
+    return query.toString();
+    }
+
+  @Override
+  public boolean equals( Object object )
+    {
+    if( this == object )
+      return true;
+    if( !( object instanceof DBFilter ) )
+      return false;
+
+    DBFilter filter = (DBFilter) object;
+
+    return toSQL().equals( filter.toSQL() ) && getParameters().equals( filter.getParameters() );
+    }
+
+  @Override
+  public int hashCode()
+    {
+    return 31 * toSQL().hashCode() + getParameters().hashCode();
+    }
+
+  @Override
+  public String toString()
+    {
+    return toSQL() + " " + getParameters();
+    }
+
+  public static DBFilter eq( String column, Object value )
+    {
+    if( value == null )
+      return isNull( column );
+
+    return new Comparison( column, "=", value );
+    }
+
+  public static DBFilter ne( String column, Object value )
+    {
+    if( value == null )
+      return isNotNull( column );
+
+    return new Comparison( column, "<>", value );
+    }
+
+  public static DBFilter lt( String column, Object value )
+    {
+    return new Comparison( column, "<", value );
+    }
+
+  public static DBFilter le( String column, Object value )
+    {
+    return new Comparison( column, "<=", value );
+    }
+
+  public static DBFilter gt( String column, Object value )
+    {
+    return new Comparison( column, ">", value );
+    }
+
+  public static DBFilter ge( String column, Object value )
+    {
+    return new Comparison( column, ">=", value );
+    }
+
+  public static DBFilter in( String column, Object... values )
+    {
+    return new In( column, values );
+    }
+
+  public static DBFilter between( String column, Object lower, Object upper )
+    {
+    return new Between( column, lower, upper );
+    }
+
+  public static DBFilter isNull( String column )
+    {
+    return new NullCheck( column, true );
+    }
+
+  public static DBFilter isNotNull( String column )
+    {
+    return new NullCheck( column, false );
+    }
+
+  public static DBFilter and( DBFilter... filters )
+    {
+    return new Junction( "AND", filters );
+    }
+
+  public static DBFilter or( DBFilter... filters )
+    {
+    return new Junction( "OR", filters );
+    }
+
+  /**
+   * Serializes the given filter into a String, which can be stored in a {@link org.apache.hadoop.conf.Configuration}.
+   *
+   * @param filter the filter to serialize
+   * @return the serialized filter
+   */
+  public static String serialize( DBFilter filter )
+    {
+    try
+      {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+      try( ObjectOutputStream output = new ObjectOutputStream( bytes ) )
+        {
+        output.writeObject( filter );
+        }
+
+      return StringUtils.byteToHexString( bytes.toByteArray() );
+      }
+    catch( IOException exception )
+      {
+      throw new IllegalArgumentException( "unable to serialize filter: " + filter, exception );
+      }
+    }
+
+  /**
+   * Deserializes a filter created by {@link #serialize(DBFilter)}.
+   *
+   * @param serialized the serialized filter
+   * @return the filter
+   */
+  public static DBFilter deserialize( String serialized )
+    {
+    try( ObjectInputStream input = new ObjectInputStream( new ByteArrayInputStream( StringUtils.hexStringToByte( serialized ) ) ) )
+      {
+      return (DBFilter) input.readObject();
+      }
+    catch( IOException | ClassNotFoundException exception )
+      {
+      throw new IllegalArgumentException( "unable to deserialize filter", exception );
+      }
+    }
+
+  private static String checkColumn( String column )
+    {
+    if( column == null || column.isEmpty() )
+      throw new IllegalArgumentException( "column must not be empty" );
+
+    return column;
+    }
+
+  private static Object checkValue( Object value )
+    {
+    if( value == null )
+      throw new IllegalArgumentException( "value must not be null, use isNull() instead" );
+
+    return value;
+    }
+
+  static class Comparison extends DBFilter
+    {
+    private static final long serialVersionUID = 3290017315786126433L;
+
+    private final String column;
+    private final String operator;
+    private final Object value;
+
+    Comparison( String column, String operator, Object value )
+      {
+      this.column = checkColumn( column );
+      this.operator = operator;
+      this.value = checkValue( value );
+      }
+
+    @Override
+    public void appendTo( StringBuilder query, List<Object> parameters )
+      {
+      query.append( column ).append( " " ).append( operator ).append( " ?" );
+      parameters.add( value );
+      }
+    }
+
+  static class In extends DBFilter
+    {
+    private static final long serialVersionUID = -4598314026367640315L;
+
+    private final String column;
+    private final List<Object> values;
+
+    In( String column, Object... values )
+      {
+      this.column = checkColumn( column );
+      this.values = new ArrayList<Object>( Arrays.asList( values ) );
+
+      for( Object value : this.values )
+        checkValue( value );
+      }
+
+    @Override
+    public void appendTo( StringBuilder query, List<Object> parameters )
+      {
+      // an empty IN list is not valid SQL, but never matches anyway
+      if( values.isEmpty() )
+        {
+        query.append( "1 = 0" );
+        return;
+        }
+
+      query.append( column ).append( " IN (" );
+
+      for( int i = 0; i < values.size(); i++ )
+        {
+        query.append( i == 0 ? "?" : ", ?" );
+        parameters.add( values.get( i ) );
+        }
+
+      query.append( ")" );
+      }
+    }
+
+  static class Between extends DBFilter
+    {
+    private static final long serialVersionUID = 6204856793042818850L;
+
+    private final String column;
+    private final Object lower;
+    private final Object upper;
+
+    Between( String column, Object lower, Object upper )
+      {
+      this.column = checkColumn( column );
+      this.lower = checkValue( lower );
+      this.upper = checkValue( upper );
+      }
+
+    @Override
+    public void appendTo( StringBuilder query, List<Object> parameters )
+      {
+      query.append( column ).append( " BETWEEN ? AND ?" );
+      parameters.add( lower );
+      parameters.add( upper );
+      }
+    }
+
+  static class NullCheck extends DBFilter
+    {
+    private static final long serialVersionUID = 1557224587303614570L;
+
+    private final String column;
+    private final boolean isNull;
+
+    NullCheck( String column, boolean isNull )
+      {
+      this.column = checkColumn( column );
+      this.isNull = isNull;
+      }
+
+    @Override
+    public void appendTo( StringBuilder query, List<Object> parameters )
+      {
+      query.append( column ).append( isNull ? " IS NULL" : " IS NOT NULL" );
+      }
+    }
+
+  static class Junction extends DBFilter
+    {
+    private static final long serialVersionUID = 8856601260771327725L;
+
+    private final String operator;
+    private final List<DBFilter> filters;
+
+    Junction( String operator, DBFilter... filters )
+      {
+      if( filters == null || filters.length == 0 )
+        throw new IllegalArgumentException( "at least one filter is required" );
+
+      this.operator = operator;
+      this.filters = Collections.unmodifiableList( new ArrayList<DBFilter>( Arrays.asList( filters ) ) );
+
+      for( DBFilter filter : this.filters )
+        {
+        if( filter == null )
+          throw new IllegalArgumentException( "filters must not be null" );
+        }
+      }
+
+    @Override
+    public void appendTo( StringBuilder query, List<Object> parameters )
+      {
+      for( int i = 0; i < filters.size(); i++ )
+        {
+        if( i != 0 )
+          query.append( " " ).append( operator ).append( " " );
+
+        query.append( "(" );
+        filters.get( i ).appendTo( query, parameters );
+        query.append( ")" );
+        }
+      }
+    }
+  }
@@ -30,11 +30,13 @@
 package cascading.jdbc.db;
 
 import cascading.jdbc.JDBCUtil;
+import cascading.jdbc.TupleRecord;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapred.*;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.slf4j.Logger;
@@ -44,6 +46,17 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A InputFormat that reads input data from an SQL table.
@@ -58,6 +71,37 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
   /** Field LOG */
   private static final Logger LOG = LoggerFactory.getLogger( DBInputFormat.class );
 
+  /** Placeholder in custom select and count queries, which is replaced by the predicate selecting a split */
+  public static final String CONDITIONS_PLACEHOLDER = "$CONDITIONS";
+
+  /** Column of a staging table holding the row numbers, see {@link #getStagingStatements(String, String)} */
+  public static final String STAGING_ROW_COLUMN = "cascading_row";
+
+  /** Field MIN_AUTO_FETCH_SIZE */
+  private static final int MIN_AUTO_FETCH_SIZE = 10;
+  /** Field MAX_AUTO_FETCH_SIZE */
+  private static final int MAX_AUTO_FETCH_SIZE = 50000;
+  /** Field MAX_ESTIMATED_COLUMN_SIZE */
+  private static final int MAX_ESTIMATED_COLUMN_SIZE = 4000;
+
+  /** Counters reported by the record readers */
+  public enum Counter
+    {
+      /** Time the task spent waiting for the prefetch thread */
+      PREFETCH_QUEUE_WAIT_MILLIS,
+      /** Key ranges taken over from straggling readers */
+      STOLEN_KEY_RANGES
+    }
+
+  /** Strategies assigning splits to read replicas */
+  public enum ReplicaSelection
+    {
+      /** Assigns the splits to the replicas in turn */
+      ROUND_ROBIN,
+      /** Assigns each split to the replica with the least rows assigned so far */
+      LEAST_LOADED
+    }
+
   /**
    * A RecordReader that reads records from a SQL table. Emits LongWritables
    * containing the record number as key and DBWritables as value.
@@ -65,11 +109,40 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
   protected class DBRecordReader implements RecordReader<LongWritable, T>
     {
     private ResultSet results;
-    private Statement statement;
+    private PreparedStatement statement;
     private Class<T> inputClass;
     private JobConf job;
     protected DBInputSplit split;
     private long pos = 0;
+    private Reporter reporter;
+    private final int prefetchDepth;
+    private final int pageSize;
+    private final int pageRetries;
+
+    /** Whether the split is read page by page, which requires a key range split */
+    private final boolean paged;
+
+    /** Position of the split column in the selected columns, starting at 1, or 0 if it is not selected */
+    private int keyIndex = 0;
+    private int rowsInPage = 0;
+    private volatile Long lastKey;
+
+    /** Guards the end of the key range, which may be cut by {@link #cutRemainder(long)} while reading */
+    private final Object rangeLock = new Object();
+    private long upperKey;
+
+    /** Marks the end of the rows in the prefetch queue */
+    private final Object endOfResults = new Object();
+    private BlockingQueue<Object> prefetched;
+    private BlockingQueue<T> recycled;
+    private Thread prefetcher;
+    private volatile boolean closing = false;
+    private volatile Throwable prefetchFailure;
+
+    /** The values bound to the select query, filled by {@link #getSelectQuery()} */
+    protected final List<Object> parameters = new ArrayList<Object>();
+    private boolean exhausted = false;
+    private long queueWaitNanos = 0;
 
     /**
      * @param split The InputSplit to read data for
@@ -80,34 +153,299 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
       this.inputClass = inputClass;
       this.split = split;
       this.job = job;
+      this.prefetchDepth = dbConf.getInputPrefetchDepth();
+      this.pageSize = dbConf.getInputPageSize();
+      this.pageRetries = dbConf.getInputPageRetries();
+      this.upperKey = split.getUpperKey();
+
+      // splits of row numbers, e.g. of limited reads, would each page through the whole table
+      this.paged = pageSize > 0 && split.hasKeyRange();
+
+      if( pageSize > 0 && !paged )
+        LOG.warn( "ignoring page size {}, paging requires a key range split", pageSize );
+
+      if( isKeyed() )
+        keyIndex = getKeyIndex();
 
       if( connection == null )
-        openConnection();
+        openConnection( split );
+
+      beginRead();
+
+      try
+        {
+        executeQuery();
+        }
+      catch ( SQLException exception )
+        {
+        throw new IOException( "unable to execute select query", exception );
+        }
+      }
+
+    /**
+     * Returns the column the split selects its key range of. Splits carry the column, since
+     * {@link DBInputFormat#findSplitColumn} runs at planning time, on the client or in a
+     * {@link cascading.jdbc.db.tez.DBInputInitializer}, so a discovered column is never in the configuration of the task.
+     */
+    protected String getSplitColumn()
+      {
+      return split.getSplitColumn() != null ? split.getSplitColumn() : dbConf.getInputSplitColumn();
+      }
+
+    /** Returns true, if the rows are selected by key, from a key range split, which may be read page by page. */
+    private boolean isKeyed()
+      {
+      return split.hasKeyRange();
+      }
+
+    private int getKeyIndex() throws IOException
+      {
+      String splitColumn = getSplitColumn();
+
+      if( paged && ( splitColumn == null || fieldNames == null ) )
+        throw new IOException( "paging through a split requires a table and a split column" );
 
-      statement = createStatement();
+      if( fieldNames != null )
+        {
+        for( int i = 0; i < fieldNames.length; i++ )
+          {
+          if( fieldNames[ i ].equalsIgnoreCase( splitColumn ) )
+            return i + 1;
+          }
+        }
+
+      if( paged )
+        throw new IOException( "split column must be one of the selected columns: " + splitColumn );
+
+      return 0;
+      }
+
+    /** Starts reading in the current transaction, at the shared snapshot if reads are consistent. */
+    private void beginRead() throws SQLException
+      {
+      if( !dbConf.getInputConsistentRead() )
+        return;
+
+      String snapshot = split.getSnapshot() != null ? split.getSnapshot() : dbConf.getInputSnapshot();
+      LOG.info( "reading at snapshot: {}", snapshot );
+      useSnapshot( connection, snapshot );
+      }
+
+    private void executeQuery() throws SQLException
+      {
+      parameters.clear();
+
+      String query = isKeyed() ? getKeyRangeQuery() : getSelectQuery();
 
-      String query = getSelectQuery();
       try
         {
         LOG.info( query );
-        results = statement.executeQuery( query );
+        LOG.debug( "query parameters: {}", parameters );
+        statement = createStatement( query );
+        setParameters( statement, parameters );
+        results = statement.executeQuery();
+        rowsInPage = 0;
         LOG.debug( "done executing select query" );
+
+        // streaming and driver default fetch sizes are left alone
+        if( dbConf.isInputAutoFetchSize() && statement.getFetchSize() > 0 )
+          {
+          int fetchSize = estimateFetchSize( results.getMetaData() );
+          LOG.info( "using fetch size: {}", fetchSize );
+          results.setFetchSize( fetchSize );
+          }
         }
       catch ( SQLException exception )
         {
         LOG.error( "unable to execute select query: " + query, exception );
-        throw new IOException( "unable to execute select query: " + query, exception );
+        throw exception;
+        }
+      }
+
+    /**
+     * Moves to the next row. When paging, the next page is queried in a new transaction once the current one is
+     * exhausted, and failed pages are retried from the last key read.
+     */
+    private boolean nextRow() throws SQLException
+      {
+      int failures = 0;
+      boolean reopen = false;
+
+      while( true )
+        {
+        try
+          {
+          if( reopen )
+            {
+            reconnect();
+            beginRead();
+            executeQuery();
+            reopen = false;
+            }
+
+          if( results.next() )
+            {
+            // the rows are ordered by key, so the first one beyond a cut range ends the split
+            if( keyIndex > 0 && !acceptKey( readKey() ) )
+              return false;
+
+            rowsInPage++;
+            return true;
+            }
+
+          // a partial page is the last one
+          if( !paged || rowsInPage < pageSize )
+            return false;
+
+          closeStatement();
+          connection.commit();
+          beginRead();
+          executeQuery();
+          }
+        catch( SQLException exception )
+          {
+          if( !paged || exception instanceof SQLNonTransientException || ++failures > pageRetries )
+            throw exception;
+
+          LOG.warn( "unable to read page, retrying after key: " + lastKey + ", attempt " + failures + " of " + pageRetries, exception );
+          backOff( failures );
+          reopen = true;
+          }
+        }
+      }
+
+    /** Reads the split column of the current row, which must not be null, since no key range selects nulls. */
+    private long readKey() throws SQLException
+      {
+      long key = results.getLong( keyIndex );
+
+      if( results.wasNull() )
+        throw new SQLNonTransientException( "split column must not be null: " + getSplitColumn() );
+
+      return key;
+      }
+
+    private boolean acceptKey( long key )
+      {
+      synchronized( rangeLock )
+        {
+        if( split.hasKeyRange() && key > upperKey )
+          return false;
+
+        lastKey = key;
+        return true;
+        }
+      }
+
+    /** Returns the highest key to read, which is lowered, when the remainder of the range is cut off. */
+    protected long getUpperKey()
+      {
+      synchronized( rangeLock )
+        {
+        return upperKey;
+        }
+      }
+
+    /** Returns the number of keys in the unread part of the key range of this reader. */
+    long getRemainingKeys()
+      {
+      synchronized( rangeLock )
+        {
+        long position = lastKey != null ? lastKey : split.getLowerKey() - 1;
+
+        return Math.max( 0, upperKey - position );
+        }
+      }
+
+    /**
+     * Cuts the unread part of the key range in half and hands over the upper half. This reader stops reading at the
+     * cut, the returned split covers the rest. Only paged readers can be cut, since their rows are ordered by key.
+     *
+     * @param minKeys the minimum number of keys in each half
+     * @return the split with the upper half of the unread keys, or null if the range is too small to be cut
+     */
+    DBInputSplit cutRemainder( long minKeys )
+      {
+      if( !paged || keyIndex == 0 )
+        return null;
+
+      synchronized( rangeLock )
+        {
+        long position = lastKey != null ? lastKey : split.getLowerKey() - 1;
+        long remaining = upperKey - position;
+
+        // also skips ranges, whose width does not fit into a long
+        if( remaining < 2 * Math.max( 1, minKeys ) )
+          return null;
+
+        long cut = position + remaining / 2;
+        DBInputSplit remainder = split.subSplit( cut + 1, upperKey );
+        upperKey = cut;
+
+        return remainder;
+        }
+      }
+
+    private void backOff( int failures ) throws SQLException
+      {
+      try
+        {
+        Thread.sleep( 1000L * failures );
+        }
+      catch( InterruptedException exception )
+        {
+        Thread.currentThread().interrupt();
+        throw new SQLException( "interrupted while retrying", exception );
+        }
+      }
+
+    private void reconnect() throws SQLException
+      {
+      closeStatement();
+
+      try
+        {
+        closeConnection();
+        }
+      catch( IOException exception )
+        {
+        LOG.debug( "unable to close connection", exception );
+        }
+
+      try
+        {
+        openConnection( split );
+        }
+      catch( RuntimeException exception )
+        {
+        throw new SQLException( "unable to reconnect", exception );
+        }
+      }
+
+    private void closeStatement()
+      {
+      try
+        {
+        results.close();
+        statement.close();
+        }
+      catch( SQLException exception )
+        {
+        LOG.debug( "unable to close statement", exception );
         }
       }
 
-    protected Statement createStatement() throws SQLException
+    protected PreparedStatement createStatement( String query ) throws SQLException
       {
-      return connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+      PreparedStatement statement = connection.prepareStatement( query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+      statement.setFetchSize( getFetchSize() );
+      return statement;
       }
 
     /**
      * Returns the query for selecting the records, subclasses can override this
-     * for custom behaviour.
+     * for custom behaviour. Values of the query are added to {@link #parameters}
+     * and bound in the same order.
      */
     protected String getSelectQuery()
       {
@@ -133,8 +471,7 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
           query.append( " " ).append( tableName );
           }
 
-        if( conditions != null && conditions.length() > 0 )
-          query.append( " WHERE (" ).append( conditions ).append( ")" );
+        appendWhere( query, parameters );
 
         String orderBy = dbConf.getInputOrderBy();
 
@@ -143,15 +480,17 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
 
         }
       else
-        query.append( dbConf.getInputQuery() );
+        query.append( getInputQuery() );
 
       try
         {
-        // Only add limit and offset if you have multiple chunks
+        // Only add limit and offset if you have multiple chunks, the bounds are parameters
+        // so all splits share one statement
         if( split.getChunks() > 1 )
           {
-          query.append( " LIMIT " ).append( split.getLength() );
-          query.append( " OFFSET " ).append( split.getStart() );
+          query.append( " LIMIT ? OFFSET ?" );
+          parameters.add( split.getLength() );
+          parameters.add( split.getStart() );
           }
         }
       catch ( IOException ex )
@@ -162,10 +501,99 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
       return query.toString();
       }
 
+    /**
+     * Returns the query for selecting the records of a key range split, or the next page of a split, subclasses can
+     * override this for custom behaviour. Pages are always ordered by the split column, and values of the query are
+     * added to {@link #parameters}.
+     */
+    protected String getKeyRangeQuery()
+      {
+      String splitColumn = getSplitColumn();
+
+      // custom queries select their split in place of the placeholder, where indexes of the underlying tables apply
+      if( dbConf.getInputQuery() != null )
+        {
+        if( !split.hasKeyRange() )
+          return getInputQuery();
+
+        return replaceConditions( dbConf.getInputQuery(), splitColumn + " BETWEEN ? AND ?", parameters, split.getLowerKey(),
+          getUpperKey() );
+        }
+
+      StringBuilder query = new StringBuilder();
+
+      query.append( "SELECT " );
+
+      for( int i = 0; i < fieldNames.length; i++ )
+        {
+        query.append( fieldNames[ i ] );
+
+        if( i != fieldNames.length - 1 )
+          query.append( ", " );
+        }
+
+      query.append( " FROM " ).append( tableName );
+
+      if( dbConf.getTableAlias() )
+        query.append( " " ).append( tableName );
+
+      int length = query.length();
+      appendWhere( query, parameters );
+      String glue = query.length() == length ? " WHERE " : " AND ";
+
+      if( split.hasKeyRange() )
+        {
+        query.append( glue ).append( splitColumn ).append( " BETWEEN ? AND ?" );
+        parameters.add( split.getLowerKey() );
+        parameters.add( getUpperKey() );
+        glue = " AND ";
+        }
+
+      if( !paged )
+        {
+        String orderBy = dbConf.getInputOrderBy();
+
+        if( orderBy != null && orderBy.length() > 0 )
+          query.append( " ORDER BY " ).append( orderBy );
+
+        return query.toString();
+        }
+
+      Long key = lastKey;
+
+      if( key != null )
+        {
+        query.append( glue ).append( splitColumn ).append( " > ?" );
+        parameters.add( key );
+        }
+
+      query.append( " ORDER BY " ).append( splitColumn );
+
+      return limitPage( query.toString(), parameters, pageSize );
+      }
+
+    /** Returns the custom select query reading all rows, without restricting it by a placeholder. */
+    protected String getInputQuery()
+      {
+      return replaceConditions( dbConf.getInputQuery(), "1 = 1", parameters );
+      }
+
+    /**
+     * Sets the reporter, which receives the counters of this reader.
+     *
+     * @param reporter the Reporter of the current task
+     */
+    protected void setReporter( Reporter reporter )
+      {
+      this.reporter = reporter;
+      }
+
     /** {@inheritDoc} */
     @Override
     public void close() throws IOException
       {
+      stopPrefetching();
+
       try
         {
         if( connection != null )
@@ -204,15 +632,28 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
     /** {@inheritDoc} */
     public float getProgress() throws IOException
       {
-      return pos / (float) split.getLength();
+      if( !split.hasKeyRange() || keyIndex == 0 )
+        return pos / (float) split.getLength();
+
+      Long key = lastKey;
+
+      if( key == null )
+        return 0.0f;
+
+      float range = getUpperKey() - split.getLowerKey() + 1;
+
+      return Math.min( 1.0f, ( key - split.getLowerKey() + 1 ) / range );
       }
 
     /** {@inheritDoc} */
     public boolean next( LongWritable key, T value ) throws IOException
       {
+      if( prefetchDepth > 0 )
+        return nextPrefetched( key, value );
+
       try
         {
-        if( !results.next() )
+        if( !nextRow() )
           return false;
 
         // Set the key field value as the output key value
@@ -229,266 +670,1895 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
 
       return true;
       }
-    }
-
-  /** A Class that does nothing, implementing DBWritable */
-  public static class NullDBWritable implements DBWritable, Writable
-    {
 
-    public void readFields( DataInput in ) throws IOException
+    /**
+     * Copies a prefetched value into the value handed to {@link #next(LongWritable, DBWritable)}. Subclasses using
+     * value classes, which are neither a {@link TupleRecord} nor {@link Writable}, have to override this.
+     *
+     * @param from the prefetched value
+     * @param to the value to fill
+     */
+    protected void copyValue( T from, T to ) throws IOException
       {
+      DBInputFormat.this.copyValue( from, to, job );
       }
 
-    public void readFields( ResultSet arg0 ) throws SQLException
+    private boolean nextPrefetched( LongWritable key, T value ) throws IOException
       {
-      }
+      if( exhausted )
+        return false;
 
-    public void write( DataOutput out ) throws IOException
-      {
-      }
+      if( prefetcher == null )
+        startPrefetching();
 
-    public void write( PreparedStatement arg0 ) throws SQLException
-      {
-      }
-    }
+      Object row = prefetched.poll();
 
-  /** A InputSplit that spans a set of rows */
-  protected static class DBInputSplit implements InputSplit
-    {
-    private long end = 0;
-    private long start = 0;
-    private long chunks = 0;
+      if( row == null )
+        {
+        long start = System.nanoTime();
 
-    /** Default Constructor */
-    public DBInputSplit()
-      {
-      }
+        try
+          {
+          row = prefetched.take();
+          }
+        catch( InterruptedException exception )
+          {
+          Thread.currentThread().interrupt();
+          throw new IOException( "interrupted while waiting for the next value", exception );
+          }
 
-    /**
-     * Convenience Constructor
-     *
-     * @param start the index of the first row to select
-     * @param end the index of the last row to select
-     */
-    public DBInputSplit( long start, long end, long chunks )
-      {
-      this.start = start;
-      this.end = end;
-      this.chunks = chunks;
-      LOG.info( "creating DB input split with start: " + start + ", end: " + end + ", chunks: " + chunks );
-      }
+        reportQueueWait( System.nanoTime() - start );
+        }
 
-    /** {@inheritDoc} */
-    public String[] getLocations() throws IOException
-      {
-      // TODO Add a layer to enable SQL "sharding" and support locality
-      return new String[]{};
-      }
+      if( row == endOfResults )
+        {
+        exhausted = true;
 
-    /** @return The index of the first row to select */
-    public long getStart()
-      {
-      return start;
+        if( prefetchFailure != null )
+          throw new IOException( "unable to get next value", prefetchFailure );
+
+        return false;
+        }
+
+      @SuppressWarnings("unchecked")
+      T prefetchedValue = (T) row;
+
+      key.set( pos + split.getStart() );
+
+      copyValue( prefetchedValue, value );
+      recycled.offer( prefetchedValue );
+
+      pos++;
+
+      return true;
       }
 
-    /** @return The index of the last row to select */
-    public long getEnd()
+    private void reportQueueWait( long nanos )
       {
-      return end;
+      queueWaitNanos += nanos;
+
+      long millis = TimeUnit.NANOSECONDS.toMillis( queueWaitNanos );
+
+      if( millis == 0 )
+        return;
+
+      queueWaitNanos -= TimeUnit.MILLISECONDS.toNanos( millis );
+
+      if( reporter != null )
+        reporter.incrCounter( Counter.PREFETCH_QUEUE_WAIT_MILLIS, millis );
       }
 
-    /** @return The total row count in this split */
-    public long getLength() throws IOException
+    private void startPrefetching()
       {
-      return end - start;
-      }
+      LOG.info( "prefetching up to {} rows in the background", prefetchDepth );
+
+      prefetched = new ArrayBlockingQueue<Object>( prefetchDepth );
+      // values are recycled once they have been copied, so at most depth + 2 values exist at any time
+      recycled = new ArrayBlockingQueue<T>( prefetchDepth + 2 );
+
+      prefetcher = new Thread( "jdbc-prefetch-" + split.getStart() )
+        {
+        @Override
+        public void run()
+          {
+          prefetch();
+          }
+        };
+
+      prefetcher.setDaemon( true );
+      prefetcher.start();
+      }
+
+    private void prefetch()
+      {
+      try
+        {
+        while( !closing && nextRow() )
+          {
+          T value = recycled.poll();
+
+          if( value == null )
+            value = createValue();
+
+          value.readFields( results );
+
+          if( !enqueue( value ) )
+            return;
+          }
+        }
+      catch( Throwable throwable )
+        {
+        prefetchFailure = throwable;
+        }
+
+      enqueue( endOfResults );
+      }
+
+    private boolean enqueue( Object row )
+      {
+      try
+        {
+        // wake up regularly to notice, if the reader is closed while the consumer is gone
+        while( !prefetched.offer( row, 100, TimeUnit.MILLISECONDS ) )
+          {
+          if( closing )
+            return false;
+          }
+
+        return true;
+        }
+      catch( InterruptedException exception )
+        {
+        Thread.currentThread().interrupt();
+        return false;
+        }
+      }
+
+    private void stopPrefetching() throws IOException
+      {
+      if( prefetcher == null )
+        return;
+
+      closing = true;
+      prefetched.clear();
+
+      try
+        {
+        // not interrupting the thread, since some drivers close the connection on interrupts
+        prefetcher.join();
+        }
+      catch( InterruptedException exception )
+        {
+        Thread.currentThread().interrupt();
+        throw new IOException( "interrupted while stopping the prefetch thread", exception );
+        }
+      finally
+        {
+        prefetcher = null;
+        }
+      }
+    }
+
+  /**
+   * Base of the RecordReaders reading with several threads, each through a reader on its own connection. The threads
+   * hand their rows over to the task through a bounded queue.
+   */
+  protected abstract class ConcurrentRecordReader implements RecordReader<LongWritable, T>
+    {
+    protected final Class<T> inputClass;
+    protected final JobConf job;
+    protected final Reporter reporter;
+    private final long start;
+
+    private final List<Thread> workers = new ArrayList<Thread>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    /** Marks the end of the rows in the queue */
+    private final Object endOfResults = new Object();
+    private final BlockingQueue<Object> rows;
+    protected volatile boolean closing = false;
+    private volatile Throwable failure;
+    private boolean exhausted = false;
+    private long pos = 0;
+
+    /**
+     * @param start    the record number of the first row
+     * @param capacity the number of rows buffered between the threads and the task
+     */
+    protected ConcurrentRecordReader( Class<T> inputClass, JobConf job, Reporter reporter, long start, int capacity )
+      {
+      this.inputClass = inputClass;
+      this.job = job;
+      this.reporter = reporter;
+      this.start = start;
+      this.rows = new ArrayBlockingQueue<Object>( Math.max( 1, capacity ) );
+      }
+
+    /**
+     * Starts the given number of threads, each running {@link #work(int)}. They are virtual threads, if
+     * {@link DBConfiguration#INPUT_VIRTUAL_THREADS_PROPERTY} is set and the JVM supports them.
+     */
+    protected void start( String name, int threads )
+      {
+      boolean virtual = job.getBoolean( DBConfiguration.INPUT_VIRTUAL_THREADS_PROPERTY, false );
+
+      for( int i = 0; i < threads; i++ )
+        {
+        final int index = i;
+
+        Thread worker = JDBCUtil.newThread( name + "-" + i, new Runnable()
+        {
+        @Override
+        public void run()
+          {
+          runWorker( index );
+          }
+        }, virtual );
+
+        workers.add( worker );
+        }
+
+      running.set( threads );
+
+      for( Thread worker : workers )
+        worker.start();
+      }
+
+    private void runWorker( int index )
+      {
+      try
+        {
+        work( index );
+        }
+      catch( Throwable throwable )
+        {
+        failure = throwable;
+        closing = true;
+        }
+      finally
+        {
+        if( running.decrementAndGet() == 0 )
+          enqueue( endOfResults, true );
+        }
+      }
+
+    /**
+     * Reads rows in the thread with the given index and hands them over with {@link #drain(RecordReader)}, until there
+     * is nothing left to read or this reader is closing.
+     */
+    protected abstract void work( int index ) throws Exception;
+
+    /**
+     * Hands all rows of the given reader over to the task.
+     *
+     * @return false, if this reader is closing
+     */
+    protected boolean drain( RecordReader<LongWritable, T> reader ) throws IOException
+      {
+      LongWritable key = reader.createKey();
+
+      while( !closing )
+        {
+        T value = reader.createValue();
+
+        if( !reader.next( key, value ) )
+          return true;
+
+        if( !enqueue( value, false ) )
+          return false;
+        }
+
+      return false;
+      }
+
+    /** Returns a new instance of the input format, since every input format holds a connection of its own. */
+    protected DBInputFormat<T> newFormat()
+      {
+      @SuppressWarnings("unchecked")
+      DBInputFormat<T> format = ReflectionUtils.newInstance( DBInputFormat.this.getClass(), job );
+
+      return format;
+      }
+
+    private boolean enqueue( Object row, boolean always )
+      {
+      try
+        {
+        // wake up regularly to notice, if the reader is closed while the consumer is gone
+        while( !rows.offer( row, 100, TimeUnit.MILLISECONDS ) )
+          {
+          if( closing && !always )
+            return false;
+
+          if( closing )
+            rows.clear();
+          }
+
+        return true;
+        }
+      catch( InterruptedException exception )
+        {
+        Thread.currentThread().interrupt();
+        return false;
+        }
+      }
+
+    /**
+     * Copies a value read by one of the threads into the value handed to {@link #next(LongWritable, DBWritable)}.
+     *
+     * @param from the value read
+     * @param to the value to fill
+     */
+    protected void copyValue( T from, T to ) throws IOException
+      {
+      DBInputFormat.this.copyValue( from, to, job );
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean next( LongWritable key, T value ) throws IOException
+      {
+      if( exhausted )
+        return false;
+
+      Object row;
+
+      try
+        {
+        row = rows.take();
+        }
+      catch( InterruptedException exception )
+        {
+        Thread.currentThread().interrupt();
+        throw new IOException( "interrupted while waiting for the next value", exception );
+        }
+
+      if( row == endOfResults )
+        {
+        exhausted = true;
+
+        if( failure != null )
+          throw new IOException( "unable to get next value", failure );
+
+        return false;
+        }
+
+      @SuppressWarnings("unchecked")
+      T readValue = (T) row;
+
+      key.set( pos + start );
+      copyValue( readValue, value );
+      pos++;
+
+      return true;
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public LongWritable createKey()
+      {
+      return new LongWritable();
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public T createValue()
+      {
+      return ReflectionUtils.newInstance( inputClass, job );
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getPos() throws IOException
+      {
+      return pos;
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException
+      {
+      closing = true;
+      rows.clear();
+
+      try
+        {
+        // not interrupting the threads, since some drivers close the connection on interrupts
+        for( Thread worker : workers )
+          worker.join();
+        }
+      catch( InterruptedException exception )
+        {
+        Thread.currentThread().interrupt();
+        throw new IOException( "interrupted while stopping the reader threads", exception );
+        }
+
+      if( failure != null && !exhausted )
+        LOG.warn( "reader thread failed", failure );
+      }
+    }
+
+  /**
+   * A RecordReader reading a key range split with several threads, each on its own connection. The split starts out
+   * with a single reader. Idle threads steal the upper half of the unread keys of the reader with the most keys left,
+   * so dense parts of the range are read in parallel instead of leaving a single straggler.
+   */
+  protected class RebalancingRecordReader extends ConcurrentRecordReader
+    {
+    private final DBInputSplit split;
+    private final long minKeys;
+
+    /** The readers currently owning a part of the key range */
+    private final List<DBRecordReader> active = new ArrayList<DBRecordReader>();
+    private final DBRecordReader first;
+
+    /**
+     * @param split   the key range split to read
+     * @param threads the number of reader threads
+     */
+    protected RebalancingRecordReader( DBInputSplit split, Class<T> inputClass, JobConf job, Reporter reporter, int threads )
+      throws SQLException, IOException
+      {
+      // cutting ranges smaller than a page only adds queries
+      super( inputClass, job, reporter, split.getStart(), threads * Math.min( Math.max( 1, dbConf.getInputPageSize() ), MAX_AUTO_FETCH_SIZE ) );
+      this.split = split;
+      this.minKeys = Math.max( 1, dbConf.getInputPageSize() );
+
+      first = newReader( DBInputFormat.this, split );
+      active.add( first );
+
+      LOG.info( "reading keys {} to {} with up to {} rebalancing threads", split.getLowerKey(), split.getUpperKey(), threads );
+
+      start( "jdbc-rebalance-" + split.getStart(), threads );
+      }
+
+    private DBRecordReader newReader( DBInputFormat<T> format, DBInputSplit split ) throws SQLException, IOException
+      {
+      RecordReader<LongWritable, T> reader = format.getRecordReaderInternal( split, inputClass, job );
+
+      if( !( reader instanceof DBInputFormat.DBRecordReader ) )
+        throw new IOException( "rebalancing requires a DBRecordReader, got: " + reader.getClass().getName() );
+
+      // every part of the range reports to the task, no matter which thread stole it
+      ( (DBRecordReader) reader ).setReporter( reporter );
+
+      return (DBRecordReader) reader;
+      }
+
+    @Override
+    protected void work( int index ) throws Exception
+      {
+      DBRecordReader reader = index == 0 ? first : null;
+
+      while( !closing )
+        {
+        if( reader == null )
+          reader = steal();
+
+        if( reader == null )
+          {
+          if( !hasActive() )
+            return;
+
+          // wait for a reader to progress far enough to be cut again
+          Thread.sleep( 100 );
+          continue;
+          }
+
+        try
+          {
+          drain( reader );
+          }
+        finally
+          {
+          release( reader );
+          }
+
+        reader = null;
+        }
+
+      // the first reader is owned by the first thread, even if it never started reading
+      if( reader != null )
+        release( reader );
+      }
+
+    private void release( DBRecordReader reader ) throws IOException
+      {
+      synchronized( active )
+        {
+        if( !active.remove( reader ) )
+          return;
+        }
+
+      reader.close();
+      }
+
+    private boolean hasActive()
+      {
+      synchronized( active )
+        {
+        return !active.isEmpty();
+        }
+      }
+
+    /** Cuts the reader with the most unread keys and opens a reader for the upper half on a new connection. */
+    private DBRecordReader steal() throws SQLException, IOException
+      {
+      DBInputSplit remainder = null;
+
+      synchronized( active )
+        {
+        DBRecordReader victim = null;
+
+        for( DBRecordReader reader : active )
+          {
+          if( victim == null || reader.getRemainingKeys() > victim.getRemainingKeys() )
+            victim = reader;
+          }
+
+        if( victim != null )
+          remainder = victim.cutRemainder( minKeys );
+        }
+
+      if( remainder == null )
+        return null;
+
+      LOG.info( "stealing keys {} to {} from a straggling reader", remainder.getLowerKey(), remainder.getUpperKey() );
+
+      if( reporter != null )
+        reporter.incrCounter( Counter.STOLEN_KEY_RANGES, 1 );
+
+      DBRecordReader reader = newReader( newFormat(), remainder );
+
+      synchronized( active )
+        {
+        active.add( reader );
+        }
+
+      return reader;
+      }
+
+    @Override
+    protected void copyValue( T from, T to ) throws IOException
+      {
+      first.copyValue( from, to );
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public float getProgress() throws IOException
+      {
+      long remaining = 0;
+
+      synchronized( active )
+        {
+        for( DBRecordReader reader : active )
+          remaining += reader.getRemainingKeys();
+        }
+
+      float range = split.getUpperKey() - split.getLowerKey() + 1;
+
+      return Math.max( 0.0f, Math.min( 1.0f, 1.0f - remaining / range ) );
+      }
+    }
+
+  /**
+   * A RecordReader reading all splits of a {@link CombinedDBInputSplit} on a small pool of threads, each split through
+   * a reader on its own connection.
+   */
+  protected class CombinedRecordReader extends ConcurrentRecordReader
+    {
+    private final DBInputSplit[] splits;
+    private final AtomicInteger nextSplit = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+
+    /**
+     * @param split   the splits to read
+     * @param threads the maximum number of splits read at the same time
+     */
+    protected CombinedRecordReader( CombinedDBInputSplit split, Class<T> inputClass, JobConf job, Reporter reporter, int threads )
+      {
+      super( inputClass, job, reporter, 0, Math.max( 1, threads ) * Math.max( MIN_AUTO_FETCH_SIZE, getFetchSize() ) );
+      this.splits = split.getSplits();
+
+      threads = Math.max( 1, Math.min( threads, splits.length ) );
+
+      LOG.info( "reading {} combined splits with {} threads", splits.length, threads );
+
+      start( "jdbc-combined", threads );
+      }
+
+    @Override
+    protected void work( int index ) throws Exception
+      {
+      int next;
+
+      while( !closing && ( next = nextSplit.getAndIncrement() ) < splits.length )
+        {
+        RecordReader<LongWritable, T> reader = newFormat().getRecordReader( splits[ next ], job, reporter );
+
+        try
+          {
+          if( !drain( reader ) )
+            return;
+          }
+        finally
+          {
+          reader.close();
+          }
+
+        completed.incrementAndGet();
+        }
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public float getProgress() throws IOException
+      {
+      return splits.length == 0 ? 1.0f : completed.get() / (float) splits.length;
+      }
+    }
+
+  /** A Class that does nothing, implementing DBWritable */
+  public static class NullDBWritable implements DBWritable, Writable
+    {
+
+    public void readFields( DataInput in ) throws IOException
+      {
+      }
+
+    public void readFields( ResultSet arg0 ) throws SQLException
+      {
+      }
+
+    public void write( DataOutput out ) throws IOException
+      {
+      }
+
+    public void write( PreparedStatement arg0 ) throws SQLException
+      {
+      }
+    }
+
+  /** A InputSplit grouping several {@link DBInputSplit}s, which are read by a single task */
+  protected static class CombinedDBInputSplit implements InputSplit
+    {
+    private DBInputSplit[] splits = new DBInputSplit[]{};
+
+    /** Default Constructor */
+    public CombinedDBInputSplit()
+      {
+      }
+
+    /**
+     * Convenience Constructor
+     *
+     * @param splits the splits read by the task
+     */
+    public CombinedDBInputSplit( List<DBInputSplit> splits )
+      {
+      this.splits = splits.toArray( new DBInputSplit[ splits.size() ] );
+      }
+
+    /** @return the splits read by the task */
+    public DBInputSplit[] getSplits()
+      {
+      return splits;
+      }
+
+    /** {@inheritDoc} */
+    public String[] getLocations() throws IOException
+      {
+      List<String> locations = new ArrayList<String>();
+
+      for( DBInputSplit split : splits )
+        {
+        for( String location : split.getLocations() )
+          {
+          if( !locations.contains( location ) )
+            locations.add( location );
+          }
+        }
+
+      return locations.toArray( new String[ locations.size() ] );
+      }
+
+    /** {@inheritDoc} */
+    public long getLength() throws IOException
+      {
+      long length = 0;
+
+      for( DBInputSplit split : splits )
+        length += split.getLength();
+
+      return length;
+      }
+
+    /** @return The estimated number of rows read by all splits */
+    public long getEstimatedRows()
+      {
+      long rows = 0;
+
+      for( DBInputSplit split : splits )
+        rows += split.getEstimatedRows();
+
+      return rows;
+      }
+
+    /** {@inheritDoc} */
+    public void readFields( DataInput input ) throws IOException
+      {
+      splits = new DBInputSplit[ WritableUtils.readVInt( input ) ];
+
+      for( int i = 0; i < splits.length; i++ )
+        {
+        splits[ i ] = new DBInputSplit();
+        splits[ i ].readFields( input );
+        }
+      }
+
+    /** {@inheritDoc} */
+    public void write( DataOutput output ) throws IOException
+      {
+      WritableUtils.writeVInt( output, splits.length );
+
+      for( DBInputSplit split : splits )
+        split.write( output );
+      }
+
+    @Override
+    public String toString()
+      {
+      return new ToStringBuilder( this, ToStringStyle.SHORT_PREFIX_STYLE ).append( "splits", splits.length ).toString();
+      }
+    }
+
+  /** A InputSplit that spans a set of rows */
+  protected static class DBInputSplit implements InputSplit
+    {
+    private long end = 0;
+    private long start = 0;
+    private long chunks = 0;
+    private String snapshot;
+    private boolean keyRange = false;
+    private long lowerKey = 0;
+    private long upperKey = 0;
+    private String splitColumn;
+    private int shard = -1;
+    private int replica = -1;
+    private long estimatedRows = -1;
+    private String[] locations = new String[]{};
+
+    /** Default Constructor */
+    public DBInputSplit()
+      {
+      }
+
+    /**
+     * Convenience Constructor
+     *
+     * @param start the index of the first row to select
+     * @param end the index of the last row to select
+     */
+    public DBInputSplit( long start, long end, long chunks )
+      {
+      this.start = start;
+      this.end = end;
+      this.chunks = chunks;
+      LOG.info( "creating DB input split with start: " + start + ", end: " + end + ", chunks: " + chunks );
+      }
+
+    /**
+     * Convenience Constructor
+     *
+     * @param start the index of the first row to select
+     * @param end the index of the last row to select
+     * @param snapshot the snapshot to read at, may be null
+     */
+    public DBInputSplit( long start, long end, long chunks, String snapshot )
+      {
+      this( start, end, chunks );
+      this.snapshot = snapshot;
+      }
+
+    /**
+     * Convenience Constructor
+     *
+     * @param start the index of the first row to select
+     * @param end the index of the last row to select
+     * @param snapshot the snapshot to read at, may be null
+     * @param lowerKey the lowest value of the split column to select
+     * @param upperKey the highest value of the split column to select
+     */
+    public DBInputSplit( long start, long end, long chunks, String snapshot, long lowerKey, long upperKey )
+      {
+      this( start, end, chunks, snapshot );
+      this.keyRange = true;
+      this.lowerKey = lowerKey;
+      this.upperKey = upperKey;
+      }
+
+    /**
+     * Returns a split reading a part of the key range of this split from the same database.
+     *
+     * @param lowerKey the lowest value of the split column to select
+     * @param upperKey the highest value of the split column to select
+     */
+    DBInputSplit subSplit( long lowerKey, long upperKey )
+      {
+      long offset = start - this.lowerKey;
+      DBInputSplit subSplit = new DBInputSplit( offset + lowerKey, offset + upperKey + 1, chunks, snapshot, lowerKey, upperKey );
+
+      subSplit.splitColumn = splitColumn;
+      subSplit.shard = shard;
+      subSplit.replica = replica;
+      subSplit.locations = locations;
+
+      if( estimatedRows >= 0 )
+        subSplit.estimatedRows = (long) ( (double) estimatedRows * ( upperKey - lowerKey + 1 ) / ( this.upperKey - this.lowerKey + 1 ) );
+
+      return subSplit;
+      }
+
+    /** {@inheritDoc} */
+    public String[] getLocations() throws IOException
+      {
+      return locations;
+      }
+
+    /**
+     * Assigns this split to a shard.
+     *
+     * @param shard the index of the shard
+     * @param locations the hosts of the shard
+     */
+    void setShard( int shard, String... locations )
+      {
+      this.shard = shard;
+      this.locations = locations;
+      }
+
+    /** @return The index of the shard this split is read from, or -1 if the input is not sharded */
+    public int getShard()
+      {
+      return shard;
+      }
+
+    /**
+     * Assigns this split to a read replica.
+     *
+     * @param replica the index of the replica
+     * @param locations the hosts of the replica
+     */
+    void setReplica( int replica, String... locations )
+      {
+      this.replica = replica;
+      this.locations = locations;
+      }
+
+    /** @return The index of the read replica this split is read from first, or -1 if it is read from the primary */
+    public int getReplica()
+      {
+      return replica;
+      }
+
+    /** @return The index of the first row to select */
+    public long getStart()
+      {
+      return start;
+      }
+
+    /** @return The index of the last row to select */
+    public long getEnd()
+      {
+      return end;
+      }
+
+    /** @return The total row count in this split */
+    public long getLength() throws IOException
+      {
+      return end - start;
+      }
+
+    /**
+     * Sets the number of rows this split is expected to read, if it differs from its length. The length of a key
+     * range split is the width of its range, which can be far off its row count for sparse keys.
+     *
+     * @param estimatedRows the estimated number of rows
+     */
+    void setEstimatedRows( long estimatedRows )
+      {
+      this.estimatedRows = estimatedRows;
+      }
+
+    /** @return The estimated number of rows read by this split */
+    public long getEstimatedRows()
+      {
+      return estimatedRows >= 0 ? estimatedRows : end - start;
+      }
 
     /** @return The total number of chucks accross all splits */
     public long getChunks()
       {
-      return chunks;
+      return chunks;
+      }
+
+    /** @return The snapshot all splits are reading at, or null */
+    public String getSnapshot()
+      {
+      return snapshot;
+      }
+
+    /** @return true, if this split selects a range of the split column instead of a range of rows */
+    public boolean hasKeyRange()
+      {
+      return keyRange;
+      }
+
+    /**
+     * Sets the column, whose key range this split selects.
+     *
+     * @param splitColumn the split column
+     */
+    void setSplitColumn( String splitColumn )
+      {
+      this.splitColumn = splitColumn;
+      }
+
+    /** @return The column, whose key range this split selects, or null if not set */
+    public String getSplitColumn()
+      {
+      return splitColumn;
+      }
+
+    /** @return The lowest value of the split column to select */
+    public long getLowerKey()
+      {
+      return lowerKey;
+      }
+
+    /** @return The highest value of the split column to select */
+    public long getUpperKey()
+      {
+      return upperKey;
+      }
+
+    /** {@inheritDoc} */
+    public void readFields( DataInput input ) throws IOException
+      {
+      start = input.readLong();
+      end = input.readLong();
+      chunks = input.readLong();
+      snapshot = WritableUtils.readString( input );
+      keyRange = input.readBoolean();
+      lowerKey = input.readLong();
+      upperKey = input.readLong();
+      splitColumn = WritableUtils.readString( input );
+      shard = input.readInt();
+      replica = input.readInt();
+      estimatedRows = input.readLong();
+      }
+
+    /** {@inheritDoc} */
+    public void write( DataOutput output ) throws IOException
+      {
+      output.writeLong( start );
+      output.writeLong( end );
+      output.writeLong( chunks );
+      WritableUtils.writeString( output, snapshot );
+      output.writeBoolean( keyRange );
+      output.writeLong( lowerKey );
+      output.writeLong( upperKey );
+      WritableUtils.writeString( output, splitColumn );
+      output.writeInt( shard );
+      output.writeInt( replica );
+      output.writeLong( estimatedRows );
+      }
+
+    @Override
+    public String toString()
+      {
+      return ToStringBuilder.reflectionToString( this, ToStringStyle.SHORT_PREFIX_STYLE );
+      }
+    }
+
+  /** Field exportedSnapshots, connections keeping exported snapshots alive until the reading flow is done */
+  private static final Map<String, ExportedSnapshot> exportedSnapshots = new HashMap<String, ExportedSnapshot>();
+
+  /** Field releaseHookAdded */
+  private static boolean releaseHookAdded = false;
+
+  protected DBConfiguration dbConf;
+  protected Connection connection;
+
+  protected String tableName;
+  protected String[] fieldNames;
+  protected String conditions;
+  protected DBFilter filter;
+  protected String splitColumn;
+  protected String[] shardUrls;
+  protected String[] replicaUrls;
+  protected long limit;
+  protected int maxConcurrentReads;
+
+  /** {@inheritDoc} */
+  public void configure( JobConf job )
+    {
+    dbConf = new DBConfiguration( job );
+
+    tableName = dbConf.getInputTableName();
+    fieldNames = dbConf.getInputFieldNames();
+    conditions = dbConf.getInputConditions();
+    filter = dbConf.getInputFilter();
+    splitColumn = dbConf.getInputSplitColumn();
+    shardUrls = dbConf.getInputShardUrls();
+    replicaUrls = dbConf.getInputReplicaUrls();
+    limit = dbConf.getInputLimit();
+    maxConcurrentReads = dbConf.getMaxConcurrentReadsNum();
+    }
+
+  /**
+   * Opens the connection for reading the given split. Splits assigned to a read replica fail over to the next
+   * replica, if the connection cannot be opened.
+   */
+  private void openConnection( DBInputSplit split )
+    {
+    if( split.getReplica() < 0 )
+      {
+      openConnection( getConnectionUrl( split ) );
+      return;
+      }
+
+    RuntimeException failure = null;
+
+    for( int i = 0; i < replicaUrls.length; i++ )
+      {
+      String url = replicaUrls[ ( split.getReplica() + i ) % replicaUrls.length ];
+
+      try
+        {
+        openConnection( url );
+        return;
+        }
+      catch( RuntimeException exception )
+        {
+        LOG.warn( "unable to connect to read replica: " + url + ", failing over to the next one", exception );
+        failure = exception;
+        }
+      }
+
+    throw failure;
+    }
+
+  private void openConnection( String url )
+    {
+    try
+      {
+      connection = dbConf.getConnection( url );
+      }
+    catch ( IOException exception )
+      {
+      throw new RuntimeException( "unable to create connection", exception.getCause() );
+      }
+    setTransactionIsolationLevel( connection );
+    setReadOnly( connection );
+    setAutoCommit( connection );
+    }
+
+  protected void setReadOnly( Connection connection )
+    {
+    try
+      {
+      connection.setReadOnly( dbConf.getInputReadOnly() );
+      }
+    catch( SQLException exception )
+      {
+      throw new RuntimeException( "unable to set read only", exception );
+      }
+    }
+
+  protected void setAutoCommit( Connection connection )
+    {
+    try
+      {
+      connection.setAutoCommit( false );
+      }
+    catch ( Exception exception )
+      {
+      throw new RuntimeException( "unable to set auto commit", exception );
+      }
+    }
+
+  protected void setTransactionIsolationLevel( Connection connection )
+    {
+    try
+      {
+      connection.setTransactionIsolation( getTransactionIsolationLevel() );
+      }
+    catch ( SQLException exception )
+      {
+      throw new RuntimeException( "unable to configure transaction isolation level", exception );
+      }
+    }
+
+  /**
+   * Returns the transaction isolation level of the reading connections. Consistent reads require at least
+   * REPEATABLE_READ, so that the snapshot is kept for the whole transaction. Subclasses can override this, if the
+   * database uses a different mechanism.
+   *
+   * @return the isolation level, one of the constants in {@link Connection}
+   */
+  protected int getTransactionIsolationLevel()
+    {
+    int isolationLevel = dbConf.getInputIsolationLevel();
+
+    if( dbConf.getInputConsistentRead() && isolationLevel < Connection.TRANSACTION_REPEATABLE_READ )
+      return Connection.TRANSACTION_REPEATABLE_READ;
+
+    return isolationLevel;
+    }
+
+  /**
+   * Returns the fetch size of the select statements. This is the configured fetch size or, if none or "auto" is
+   * configured, {@link #getDefaultFetchSize()}. In "auto" mode the fetch size is adjusted by
+   * {@link #estimateFetchSize(ResultSetMetaData)} once the query has been executed.
+   *
+   * @return the fetch size
+   */
+  protected int getFetchSize()
+    {
+    String fetchSize = dbConf.getInputFetchSize();
+
+    if( fetchSize == null || dbConf.isInputAutoFetchSize() )
+      return getDefaultFetchSize();
+
+    return Integer.parseInt( fetchSize );
+    }
+
+  /**
+   * Returns the fetch size used, if none is configured. Subclasses can override this with a value matching the
+   * behaviour of their driver. 0 uses the default of the driver.
+   *
+   * @return the default fetch size
+   */
+  protected int getDefaultFetchSize()
+    {
+    return 1000;
+    }
+
+  /**
+   * Estimates the number of rows fitting into the configured fetch buffer, based on the width of the columns
+   * of the result.
+   *
+   * @param metaData the meta data of the result
+   * @return the fetch size
+   * @throws SQLException In case the meta data cannot be read.
+   */
+  protected int estimateFetchSize( ResultSetMetaData metaData ) throws SQLException
+    {
+    long rowWidth = 0;
+
+    for( int i = 1; i <= metaData.getColumnCount(); i++ )
+      rowWidth += estimateColumnWidth( metaData, i );
+
+    long fetchSize = dbConf.getInputFetchBufferSize() / Math.max( rowWidth, 1 );
+
+    return (int) Math.max( MIN_AUTO_FETCH_SIZE, Math.min( MAX_AUTO_FETCH_SIZE, fetchSize ) );
+    }
+
+  /**
+   * Estimates the number of bytes a value of the given column occupies, when fetched.
+   *
+   * @param metaData the meta data of the result
+   * @param column the index of the column, starting at 1
+   * @return the estimated width in bytes
+   * @throws SQLException In case the meta data cannot be read.
+   */
+  protected int estimateColumnWidth( ResultSetMetaData metaData, int column ) throws SQLException
+    {
+    switch( metaData.getColumnType( column ) )
+      {
+      case Types.BIT:
+      case Types.BOOLEAN:
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return 16;
+      case Types.DATE:
+      case Types.TIME:
+      case Types.TIMESTAMP:
+      case Types.NUMERIC:
+      case Types.DECIMAL:
+        return 32;
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.BINARY:
+      case Types.VARBINARY:
+        int size = metaData.getPrecision( column );
+
+        // unbounded columns report 0 or huge values, assume a medium sized value for those
+        if( size <= 0 || size > MAX_ESTIMATED_COLUMN_SIZE )
+          size = MAX_ESTIMATED_COLUMN_SIZE;
+
+        return 2 * size + 40;
+      default:
+        return 4 * 1024;
+      }
+    }
+
+  /**
+   * Exports a snapshot of the database, which can be shared with other connections, when consistent reads are
+   * enabled. The default implementation returns null, meaning the database cannot share snapshots between
+   * connections and all data will be read by a single split.
+   *
+   * @param connection the connection used for planning the splits
+   * @return an identifier of the snapshot or null
+   * @throws SQLException In case the snapshot cannot be exported.
+   */
+  protected String exportSnapshot( Connection connection ) throws SQLException
+    {
+    return null;
+    }
+
+  /**
+   * Makes the given connection read at the snapshot previously returned by {@link #exportSnapshot(Connection)}. This
+   * is called before the select query is executed, and again before every further page and every retried page on
+   * the same connection, so it must not fail, if the connection already reads at the snapshot. The default
+   * implementation does nothing.
+   *
+   * @param connection the connection of the record reader
+   * @param snapshot the exported snapshot, may be null
+   * @throws SQLException In case the snapshot cannot be used.
+   */
+  protected void useSnapshot( Connection connection, String snapshot ) throws SQLException
+    {
+    }
+
+  /**
+   * Returns true, if an exported snapshot is only valid as long as the exporting transaction is open. In that case the
+   * connection used for planning the splits is kept open until {@link #releaseSnapshots(String)} is called.
+   *
+   * @return true, if the exporting transaction has to be kept open
+   */
+  protected boolean isSnapshotBoundToTransaction()
+    {
+    return false;
+    }
+
+  /** {@inheritDoc} */
+  public RecordReader<LongWritable, T> getRecordReader( InputSplit split, JobConf job, Reporter reporter ) throws IOException
+    {
+    @SuppressWarnings("rawtypes")
+    Class inputClass = dbConf.getInputClass();
+    if( split instanceof CombinedDBInputSplit )
+      return new CombinedRecordReader( (CombinedDBInputSplit) split, inputClass, job, reporter, dbConf.getInputCombineThreads() );
+
+    try
+      {
+      DBInputSplit dbSplit = (DBInputSplit) split;
+      int rebalanceThreads = dbConf.getInputRebalanceThreads();
+
+      // only paged reads are ordered by key and can therefore be cut while reading
+      if( rebalanceThreads > 1 && dbSplit.hasKeyRange() && dbConf.getInputPageSize() > 0 )
+        return new RebalancingRecordReader( dbSplit, inputClass, job, reporter, rebalanceThreads );
+
+      RecordReader<LongWritable, T> recordReader = getRecordReaderInternal( dbSplit, inputClass, job );
+
+      if( recordReader instanceof DBInputFormat.DBRecordReader )
+        ( (DBRecordReader) recordReader ).setReporter( reporter );
+
+      return recordReader;
+      }
+    catch ( SQLException exception )
+      {
+      throw new IOException( exception.getMessage(), exception );
       }
+    }
 
-    /** {@inheritDoc} */
-    public void readFields( DataInput input ) throws IOException
+  /**
+   * Returns a RecordReader reading all given splits on the given number of threads, each split on its own
+   * connection. This allows reading a whole input within a single process, e.g. in Cascading local mode.
+   *
+   * @param splits the splits as returned by {@link #getSplits(JobConf, int)}
+   * @param job the current JobConf
+   * @param reporter the reporter to use
+   * @param threads the maximum number of splits read at the same time
+   * @return a RecordReader over all rows of the splits
+   */
+  public RecordReader<LongWritable, T> getRecordReader( InputSplit[] splits, JobConf job, Reporter reporter, int threads )
+    {
+    List<DBInputSplit> dbSplits = new ArrayList<DBInputSplit>();
+
+    for( InputSplit split : splits )
       {
-      start = input.readLong();
-      end = input.readLong();
-      chunks = input.readLong();
+      if( split instanceof CombinedDBInputSplit )
+        Collections.addAll( dbSplits, ( (CombinedDBInputSplit) split ).getSplits() );
+      else
+        dbSplits.add( (DBInputSplit) split );
       }
 
-    /** {@inheritDoc} */
-    public void write( DataOutput output ) throws IOException
+    @SuppressWarnings("unchecked")
+    Class<T> inputClass = (Class<T>) dbConf.getInputClass();
+
+    return new CombinedRecordReader( new CombinedDBInputSplit( dbSplits ), inputClass, job, reporter, threads );
+    }
+
+  /***
+   * Internal method that can be overwritten in subclasses to return subclasses of DBRecordReader.
+   * @param split The current input split.
+   * @param inputClass The inpurt class.
+   * @param job The current JobConf.
+   * @return A new {@link RecordReader} instance.
+   * @throws SQLException In case any database interaction fails.
+   * @throws IOException In case another I/O problem occurs.
+   */
+  protected RecordReader<LongWritable, T> getRecordReaderInternal( DBInputSplit split, Class inputClass, JobConf job ) throws SQLException,
+      IOException
+    {
+    return new DBRecordReader( split, inputClass, job );
+    }
+
+  /**
+   * Copies a value read by one reader into a value handed to the task. Subclasses using value classes, which are
+   * neither a {@link TupleRecord} nor {@link Writable}, have to override this.
+   *
+   * @param from the value read
+   * @param to the value to fill
+   * @param job the current JobConf
+   */
+  protected void copyValue( T from, T to, JobConf job ) throws IOException
+    {
+    if( from instanceof TupleRecord )
+      ( (TupleRecord) to ).setTuple( ( (TupleRecord) from ).getTuple() );
+    else if( from instanceof Writable )
+      ReflectionUtils.copy( job, from, to );
+    else
+      throw new IOException( "unable to copy values of type: " + from.getClass().getName() );
+    }
+
+  /** {@inheritDoc} */
+  public InputSplit[] getSplits( JobConf job, int chunks ) throws IOException
+    {
+    InputSplit[] splits = planSplits( job, chunks );
+    int splitsPerTask = dbConf.getInputCombinedSplits();
+
+    if( splitsPerTask <= 1 || splits.length <= 1 )
+      return splits;
+
+    return combineSplits( splits, splitsPerTask );
+    }
+
+  /**
+   * Groups the given splits into splits of at most the given size. Splits sharing a location, e.g. of the same shard
+   * or replica, are grouped together, so the task can still be scheduled close to the database.
+   */
+  private InputSplit[] combineSplits( InputSplit[] splits, int splitsPerTask ) throws IOException
+    {
+    Map<String, List<DBInputSplit>> byLocation = new LinkedHashMap<String, List<DBInputSplit>>();
+
+    for( InputSplit split : splits )
       {
-      output.writeLong( start );
-      output.writeLong( end );
-      output.writeLong( chunks );
+      String[] locations = split.getLocations();
+      String location = locations.length == 0 ? "" : locations[ 0 ];
+
+      if( !byLocation.containsKey( location ) )
+        byLocation.put( location, new ArrayList<DBInputSplit>() );
+
+      byLocation.get( location ).add( (DBInputSplit) split );
       }
 
-    @Override
-    public String toString()
+    List<InputSplit> combined = new ArrayList<InputSplit>();
+
+    for( List<DBInputSplit> group : byLocation.values() )
       {
-      return ToStringBuilder.reflectionToString( this, ToStringStyle.SHORT_PREFIX_STYLE );
+      for( int i = 0; i < group.size(); i += splitsPerTask )
+        combined.add( new CombinedDBInputSplit( group.subList( i, Math.min( group.size(), i + splitsPerTask ) ) ) );
       }
+
+    LOG.info( "combining {} splits into {} tasks", splits.length, combined.size() );
+
+    return combined.toArray( new InputSplit[ combined.size() ] );
     }
 
-  protected DBConfiguration dbConf;
-  protected Connection connection;
+  private InputSplit[] planSplits( JobConf job, int chunks ) throws IOException
+    {
+    if( shardUrls.length == 0 )
+      {
+      // use the configured value if avail
+      chunks = maxConcurrentReads == 0 ? chunks : maxConcurrentReads;
 
-  protected String tableName;
-  protected String[] fieldNames;
-  protected String conditions;
-  protected long limit;
-  protected int maxConcurrentReads;
+      // splits are always planned on the primary
+      InputSplit[] splits = getSplits( job, chunks, dbConf.getConnectionUrl() );
 
-  /** {@inheritDoc} */
-  public void configure( JobConf job )
+      if( replicaUrls.length != 0 )
+        assignReplicas( splits );
+
+      return splits;
+      }
+
+    if( replicaUrls.length != 0 )
+      LOG.warn( "ignoring read replicas of sharded input" );
+
+    // the configured value caps the connections per shard
+    int chunksPerShard = maxConcurrentReads == 0 ? Math.max( 1, chunks / shardUrls.length ) : maxConcurrentReads;
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+
+    for( int shard = 0; shard < shardUrls.length; shard++ )
+      {
+      String host = getHost( shardUrls[ shard ] );
+
+      for( InputSplit split : getSplits( job, chunksPerShard, shardUrls[ shard ] ) )
+        {
+        if( host == null )
+          ( (DBInputSplit) split ).setShard( shard );
+        else
+          ( (DBInputSplit) split ).setShard( shard, host );
+
+        splits.add( split );
+        }
+      }
+
+    LOG.info( "reading {} shards with {} splits", shardUrls.length, splits.size() );
+
+    return splits.toArray( new InputSplit[ splits.size() ] );
+    }
+
+  private void assignReplicas( InputSplit[] splits ) throws IOException
     {
-    dbConf = new DBConfiguration( job );
+    // an exported snapshot is only valid on the database, which exported it
+    if( dbConf.getInputConsistentRead() )
+      {
+      LOG.warn( "reading from the primary, consistent reads are not supported on read replicas" );
+      return;
+      }
 
-    tableName = dbConf.getInputTableName();
-    fieldNames = dbConf.getInputFieldNames();
-    conditions = dbConf.getInputConditions();
-    limit = dbConf.getInputLimit();
-    maxConcurrentReads = dbConf.getMaxConcurrentReadsNum();
+    ReplicaSelection selection = dbConf.getInputReplicaSelection();
+    long[] assigned = new long[ replicaUrls.length ];
+
+    for( int i = 0; i < splits.length; i++ )
+      {
+      DBInputSplit split = (DBInputSplit) splits[ i ];
+      int replica = i % replicaUrls.length;
+
+      if( selection == ReplicaSelection.LEAST_LOADED )
+        {
+        for( int j = 0; j < assigned.length; j++ )
+          {
+          if( assigned[ j ] < assigned[ replica ] )
+            replica = j;
+          }
+        }
+
+      assigned[ replica ] += Math.max( 1, split.getLength() );
+
+      String host = getHost( replicaUrls[ replica ] );
+
+      if( host == null )
+        split.setReplica( replica );
+      else
+        split.setReplica( replica, host );
+      }
+
+    LOG.info( "spreading {} splits across {} read replicas", splits.length, replicaUrls.length );
     }
 
-  private void openConnection()
+  private InputSplit[] getSplits( JobConf job, int chunks, String url ) throws IOException
     {
     try
       {
-      connection = dbConf.getConnection();
+      if( connection == null )
+        openConnection( url );
+
+      String snapshot = null;
+
+      if( dbConf.getInputConsistentRead() )
+        {
+        snapshot = exportSnapshot( connection );
+
+        if( snapshot != null )
+          {
+          LOG.info( "all splits are reading at snapshot: {}", snapshot );
+          new DBConfiguration( job ).setInputSnapshot( snapshot );
+          }
+        else if( chunks > 1 )
+          {
+          LOG.warn( "unable to share a snapshot between connections, reading with a single split to stay consistent" );
+          chunks = 1;
+          }
+        }
+
+      if( splitColumn == null && tableName != null && dbConf.getInputQuery() == null && limit == -1 && dbConf.getInputSplitColumnDiscovery() )
+        {
+        splitColumn = findSplitColumn( connection, tableName );
+
+        // the splits carry the column to their readers
+        if( splitColumn != null )
+          LOG.info( "splitting {} by its key: {}", tableName, splitColumn );
+        }
+
+      InputSplit[] splits;
+
+      if( useKeyRanges() )
+        splits = getKeyRangeSplits( chunks, snapshot );
+      else
+        splits = getRowSplits( chunks, snapshot );
+
+      if( snapshot != null && isSnapshotBoundToTransaction() )
+        holdSnapshot( snapshot );
+      else
+        closeConnection();
+
+      return splits;
       }
-    catch ( IOException exception )
+    catch ( SQLException e )
       {
-      throw new RuntimeException( "unable to create connection", exception.getCause() );
+      throw new IOException( e.getMessage() );
       }
-    setTransactionIsolationLevel( connection );
-    setAutoCommit( connection );
     }
 
-  protected void setAutoCommit( Connection connection )
-    {
-    try
-      {
-      connection.setAutoCommit( false );
-      }
-    catch ( Exception exception )
-      {
-      throw new RuntimeException( "unable to set auto commit", exception );
-      }
+  /**
+   * Returns an integral, unique column of the given table to split it by, when no split column was set. Splitting by
+   * key lets every split select its rows through an index instead of skipping over the rows of the splits before it.
+   * Returns null by default, which splits the table by row numbers, subclasses can override this for databases whose
+   * metadata tells a suitable column.
+   *
+   * @param connection the connection the splits are planned on
+   * @param table      the table to read
+   */
+  protected String findSplitColumn( Connection connection, String table ) throws SQLException
+    {
+    return null;
+    }
+
+  private boolean useKeyRanges()
+    {
+    if( splitColumn == null )
+      return false;
+
+    if( limit != -1 )
+      {
+      LOG.warn( "ignoring split column {}, key ranges are not supported for limits", splitColumn );
+      return false;
+      }
+
+    if( dbConf.getInputQuery() != null && !dbConf.getInputQuery().contains( CONDITIONS_PLACEHOLDER ) )
+      {
+      LOG.warn( "ignoring split column {}, select query has no {} placeholder", splitColumn, CONDITIONS_PLACEHOLDER );
+      return false;
+      }
+
+    return true;
+    }
+
+  private InputSplit[] getRowSplits( int chunks, String snapshot ) throws SQLException
+    {
+    List<Object> parameters = new ArrayList<Object>();
+    PreparedStatement statement = connection.prepareStatement( getCountQuery( parameters ) );
+    setParameters( statement, parameters );
+
+    ResultSet results = statement.executeQuery();
+
+    long count = 0;
+
+    while( results.next() )
+      count += results.getLong( 1 );
+
+    if( limit != -1 )
+      count = Math.min( limit, count );
+
+    long chunkSize = ( count / chunks );
+
+    results.close();
+    statement.close();
+
+    InputSplit[] splits = new InputSplit[chunks];
+
+    // Split the rows into n-number of chunks and adjust the last chunk
+    // accordingly
+    for( int i = 0; i < chunks; i++ )
+      {
+      DBInputSplit split;
+
+      if( i + 1 == chunks )
+        split = new DBInputSplit( i * chunkSize, count, chunks, snapshot );
+      else
+        split = new DBInputSplit( i * chunkSize, i * chunkSize + chunkSize, chunks, snapshot );
+
+      splits[ i ] = split;
+      }
+    return splits;
+    }
+
+  /**
+   * Splits the table into ranges of equal width of the split column, which must be integral. Each split selects
+   * its range by key, so reading it does not depend on the order of the rows and no rows are skipped over. The
+   * bounds of the split column are queried, unless they were given in advance.
+   */
+  private InputSplit[] getKeyRangeSplits( int chunks, String snapshot ) throws SQLException, IOException
+    {
+    Object min = dbConf.getInputSplitLowerBound();
+    Object max = dbConf.getInputSplitUpperBound();
+    long count = -1;
+
+    if( min == null || max == null )
+      {
+      List<Object> parameters = new ArrayList<Object>();
+
+      try( PreparedStatement statement = connection.prepareStatement( getBoundsQuery( parameters ) ) )
+        {
+        setParameters( statement, parameters );
+
+        try( ResultSet results = statement.executeQuery() )
+          {
+          results.next();
+          min = results.getObject( 1 );
+          max = results.getObject( 2 );
+
+          // subclasses may override the bounds query without counting the rows
+          if( results.getMetaData().getColumnCount() > 2 )
+            count = results.getLong( 3 );
+
+          if( results.getMetaData().getColumnCount() > 3 && results.getLong( 4 ) != count )
+            throw new IOException( "split column must not be null, no key range selects the null rows: " + splitColumn );
+          }
+        }
+      }
+
+    // nothing to split
+    if( min == null || max == null )
+      return new InputSplit[]{new DBInputSplit( 0, 0, 1, snapshot )};
+
+    if( !( min instanceof Number ) || !( max instanceof Number ) )
+      throw new IOException( "split column must be integral: " + splitColumn );
+
+    long lower = ( (Number) min ).longValue();
+    long upper = ( (Number) max ).longValue();
+    long span = upper - lower + 1;
+
+    // the width of extreme ranges does not fit into a long
+    if( span <= 0 )
+      span = Long.MAX_VALUE;
+
+    chunks = (int) Math.min( chunks, span );
+
+    long step = span / chunks;
+
+    LOG.info( "splitting {} from {} to {} into {} ranges", splitColumn, lower, upper, chunks );
+
+    InputSplit[] splits = new InputSplit[ chunks ];
+
+    for( int i = 0; i < chunks; i++ )
+      {
+      long lowerKey = lower + i * step;
+      long upperKey = i + 1 == chunks ? upper : lowerKey + step - 1;
+
+      DBInputSplit split = new DBInputSplit( lowerKey - lower, upperKey - lower + 1, chunks, snapshot, lowerKey, upperKey );
+      split.setSplitColumn( splitColumn );
+
+      // assumes the rows are spread evenly across the key range
+      if( count >= 0 )
+        split.setEstimatedRows( (long) ( (double) count * ( upperKey - lowerKey + 1 ) / span ) );
+
+      splits[ i ] = split;
+      }
+
+    return splits;
+    }
+
+  /**
+   * Returns the query for getting the smallest and the largest value of the split column, optionally the number
+   * of rows as third column and the number of rows, whose split column is not null, as fourth column, subclasses can
+   * override this for custom behaviour.
+   *
+   * @param parameters receives the values bound to the query
+   */
+  protected String getBoundsQuery( List<Object> parameters )
+    {
+    StringBuilder query = new StringBuilder();
+
+    query.append( "SELECT MIN(" ).append( splitColumn ).append( "), MAX(" ).append( splitColumn ).append( "), COUNT(*), COUNT(" )
+      .append( splitColumn ).append( ") FROM " );
+
+    if( dbConf.getInputQuery() != null )
+      return query.append( "( " ).append( replaceConditions( dbConf.getInputQuery(), "1 = 1", parameters ) ).append( " ) q" ).toString();
+
+    query.append( tableName );
+
+    appendWhere( query, parameters );
+
+    return query.toString();
+    }
+
+  /**
+   * Returns the query for getting the total number of rows, subclasses can
+   * override this for custom behaviour.
+   *
+   * @param parameters receives the values bound to the query
+   */
+  protected String getCountQuery( List<Object> parameters )
+    {
+    if( dbConf.getInputCountQuery() != null )
+      return replaceConditions( dbConf.getInputCountQuery(), "1 = 1", parameters );
+
+    StringBuilder query = new StringBuilder();
+
+    query.append( "SELECT COUNT(*) FROM ").append( tableName );
+
+    appendWhere( query, parameters );
+
+    return query.toString();
     }
 
-  protected void setTransactionIsolationLevel( Connection connection )
+  /**
+   * Appends the WHERE clause made of the input conditions and the input filter, if any, to the given query.
+   *
+   * @param query      the query to append to
+   * @param parameters receives the values of the filter
+   */
+  protected void appendWhere( StringBuilder query, List<Object> parameters )
     {
-    try
-      {
-      connection.setTransactionIsolation( Connection.TRANSACTION_SERIALIZABLE );
-      }
-    catch ( SQLException exception )
-      {
-      throw new RuntimeException( "unable to configure transaction isolation level", exception );
-      }
-    }
+    boolean hasConditions = conditions != null && conditions.length() > 0;
 
-  /** {@inheritDoc} */
-  public RecordReader<LongWritable, T> getRecordReader( InputSplit split, JobConf job, Reporter reporter ) throws IOException
-    {
-    @SuppressWarnings("rawtypes")
-    Class inputClass = dbConf.getInputClass();
-    try
-      {
-      return getRecordReaderInternal( (DBInputSplit) split, inputClass, job );
-      }
-    catch ( SQLException exception )
+    if( !hasConditions && filter == null )
+      return;
+
+    query.append( " WHERE " );
+
+    if( hasConditions )
+      query.append( "(" ).append( conditions ).append( ")" );
+
+    if( hasConditions && filter != null )
+      query.append( " AND " );
+
+    if( filter != null )
       {
-      throw new IOException( exception.getMessage(), exception );
+      query.append( "(" );
+      filter.appendTo( query, parameters );
+      query.append( ")" );
       }
     }
 
-  /***
-   * Internal method that can be overwritten in subclasses to return subclasses of DBRecordReader.
-   * @param split The current input split.
-   * @param inputClass The inpurt class.
-   * @param job The current JobConf.
-   * @return A new {@link RecordReader} instance.
-   * @throws SQLException In case any database interaction fails.
-   * @throws IOException In case another I/O problem occurs.
+  /**
+   * Returns the URL of the database, the given split is read from.
+   *
+   * @param split the split to read
+   * @return the JDBC URL
    */
-  protected RecordReader<LongWritable, T> getRecordReaderInternal( DBInputSplit split, Class inputClass, JobConf job ) throws SQLException,
-      IOException
+  protected String getConnectionUrl( DBInputSplit split )
     {
-    return new DBRecordReader( split, inputClass, job );
-    }
+    if( split.getShard() >= 0 )
+      return shardUrls[ split.getShard() ];
 
-  /** {@inheritDoc} */
-  public InputSplit[] getSplits( JobConf job, int chunks ) throws IOException
-    {
-    // use the configured value if avail
-    chunks = maxConcurrentReads == 0 ? chunks : maxConcurrentReads;
-    try
-      {
-      if( connection == null )
-        openConnection();
+    if( split.getReplica() >= 0 )
+      return replicaUrls[ split.getReplica() ];
 
-      Statement statement = connection.createStatement();
+    return dbConf.getConnectionUrl();
+    }
 
-      ResultSet results = statement.executeQuery( getCountQuery() );
+  /**
+   * Returns the host named in a JDBC URL, like jdbc:postgresql://host:5432/db or jdbc:oracle:thin:@host:1521:sid,
+   * which is reported as the location of the splits reading from it.
+   *
+   * @param url the JDBC URL
+   * @return the host or null, if the URL does not name one
+   */
+  protected static String getHost( String url )
+    {
+    int start = url.indexOf( "//" );
 
-      long count = 0;
+    if( start != -1 )
+      start += 2;
+    else if( url.indexOf( '@' ) != -1 )
+      start = url.indexOf( '@' ) + 1;
+    else
+      return null;
 
-      while( results.next() )
-        count += results.getLong( 1 );
+    // skip user info
+    int at = url.indexOf( '@', start );
+    int slash = url.indexOf( '/', start );
 
-      if( limit != -1 )
-        count = Math.min( limit, count );
+    if( at != -1 && ( slash == -1 || at < slash ) )
+      start = at + 1;
 
-      long chunkSize = ( count / chunks );
+    int end = start;
 
-      results.close();
-      statement.close();
-      closeConnection();
+    while( end < url.length() && ":/;?,".indexOf( url.charAt( end ) ) == -1 )
+      end++;
 
-      InputSplit[] splits = new InputSplit[chunks];
+    return end > start ? url.substring( start, end ) : null;
+    }
 
-      // Split the rows into n-number of chunks and adjust the last chunk
-      // accordingly
-      for( int i = 0; i < chunks; i++ )
-        {
-        DBInputSplit split;
+  /**
+   * Returns the statements materializing the result of the given query into a new staging table. The rows of the
+   * staging table are numbered from 1 in the column {@link #STAGING_ROW_COLUMN}, followed by the columns of the query.
+   * Subclasses can override this for databases not supporting CREATE TABLE AS or ROW_NUMBER.
+   *
+   * @param stagingTable the name of the staging table
+   * @param query        the query to materialize
+   * @return the statements to execute in order
+   */
+  public List<String> getStagingStatements( String stagingTable, String query )
+    {
+    return Collections.singletonList( "CREATE TABLE " + stagingTable + " AS SELECT ROW_NUMBER() OVER () AS " + STAGING_ROW_COLUMN
+      + ", q.* FROM ( " + query + " ) q" );
+    }
 
-        if( i + 1 == chunks )
-          split = new DBInputSplit( i * chunkSize, count, chunks );
-        else
-          split = new DBInputSplit( i * chunkSize, i * chunkSize + chunkSize, chunks );
+  /**
+   * Replaces every {@link #CONDITIONS_PLACEHOLDER} in the given query with the given predicate, adding the values of
+   * the predicate to the parameters once for each occurrence, e.g. for every branch of a UNION.
+   *
+   * @param query      the query containing the placeholder
+   * @param predicate  the predicate to insert
+   * @param parameters receives the values of the query
+   * @param values     the values of the predicate
+   * @return the query selecting by the predicate
+   */
+  protected static String replaceConditions( String query, String predicate, List<Object> parameters, Object... values )
+    {
+    StringBuilder result = new StringBuilder();
+    int start = 0;
+    int index;
 
-        splits[ i ] = split;
-        }
-      return splits;
-      }
-    catch ( SQLException e )
+    while( ( index = query.indexOf( CONDITIONS_PLACEHOLDER, start ) ) != -1 )
       {
-      throw new IOException( e.getMessage() );
+      result.append( query, start, index ).append( "( " ).append( predicate ).append( " )" );
+      Collections.addAll( parameters, values );
+      start = index + CONDITIONS_PLACEHOLDER.length();
       }
+
+    return result.append( query.substring( start ) ).toString();
     }
 
   /**
-   * Returns the query for getting the total number of rows, subclasses can
-   * override this for custom behaviour.
+   * Restricts the given ordered query to its first rows, subclasses can override this for databases not supporting
+   * LIMIT.
+   *
+   * @param query      the ordered query
+   * @param parameters receives the values of the query
+   * @param pageSize   the maximum number of rows
+   * @return the restricted query
    */
-  protected String getCountQuery()
+  protected String limitPage( String query, List<Object> parameters, int pageSize )
     {
-    if( dbConf.getInputCountQuery() != null )
-      return dbConf.getInputCountQuery();
-
-    StringBuilder query = new StringBuilder();
-
-    query.append( "SELECT COUNT(*) FROM ").append( tableName );
+    parameters.add( pageSize );
+    return query + " LIMIT ?";
+    }
 
-    if( conditions != null && conditions.length() > 0 )
-      query.append( " WHERE " ).append( conditions );
+  /**
+   * Binds the given values to the parameters of the statement.
+   *
+   * @param statement  the statement to bind to
+   * @param parameters the values in the order of the parameters
+   * @throws SQLException
+   */
+  protected void setParameters( PreparedStatement statement, List<Object> parameters ) throws SQLException
+    {
+    for( int i = 0; i < parameters.size(); i++ )
+      setParameter( statement, i + 1, parameters.get( i ) );
+    }
 
-    return query.toString();
+  /**
+   * Binds a single value to a parameter of a statement. Subclasses can override this to map types, which are not
+   * supported by the driver.
+   *
+   * @param statement the statement to bind to
+   * @param index     the index of the parameter, starting at 1
+   * @param value     the value to bind
+   * @throws SQLException
+   */
+  protected void setParameter( PreparedStatement statement, int index, Object value ) throws SQLException
+    {
+    // java.util.Date is not a JDBC type, the sql subclasses are bound as they are
+    if( value != null && value.getClass() == java.util.Date.class )
+      statement.setTimestamp( index, new Timestamp( ( (java.util.Date) value ).getTime() ) );
+    else
+      statement.setObject( index, value );
     }
 
   /**
@@ -555,6 +2625,276 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
     dbConf.setMaxConcurrentReadsNum( concurrentReads );
     }
 
+  /**
+   * Sets the number of rows fetched per round trip to the database.
+   *
+   * @param configuration The configuration object.
+   * @param fetchSize the fetch size, 0 uses the default of the driver
+   */
+  public static void setFetchSize( Configuration configuration, int fetchSize )
+    {
+    new DBConfiguration( configuration ).setInputFetchSize( Integer.toString( fetchSize ) );
+    }
+
+  /**
+   * Lets the number of rows fetched per round trip follow the width of the rows, so that the fetched rows occupy
+   * about the given number of bytes.
+   *
+   * @param configuration The configuration object.
+   * @param bufferSize the number of bytes the fetched rows may occupy, 0 uses a share of the heap
+   */
+  public static void setAutoFetchSize( Configuration configuration, long bufferSize )
+    {
+    DBConfiguration dbConf = new DBConfiguration( configuration );
+
+    dbConf.setInputFetchSize( DBConfiguration.AUTO_FETCH_SIZE );
+
+    if( bufferSize > 0 )
+      dbConf.setInputFetchBufferSize( bufferSize );
+    }
+
+  /**
+   * Enables reading ahead in a background thread, which fills a buffer of the given number of rows, while the task
+   * processes the previous ones. A depth of 0 disables the background thread.
+   *
+   * @param configuration The configuration object.
+   * @param prefetchDepth the maximum number of rows to read ahead
+   */
+  public static void setPrefetchDepth( Configuration configuration, int prefetchDepth )
+    {
+    new DBConfiguration( configuration ).setInputPrefetchDepth( prefetchDepth );
+    }
+
+  /**
+   * Sets a filter, which is applied in addition to the conditions when reading a table. The values of the filter
+   * are bound as parameters of the queries.
+   *
+   * @param configuration The configuration object.
+   * @param filter the filter to apply
+   */
+  public static void setFilter( Configuration configuration, DBFilter filter )
+    {
+    new DBConfiguration( configuration ).setInputFilter( filter );
+    }
+
+  /**
+   * Spreads the splits across the given read replicas. Splits are planned on the primary, but read from the replicas,
+   * failing over to the next replica if one cannot be reached.
+   *
+   * @param configuration The configuration object.
+   * @param selection how splits are assigned to replicas
+   * @param replicaUrls the JDBC URLs of the replicas
+   */
+  public static void setReplicas( Configuration configuration, ReplicaSelection selection, String... replicaUrls )
+    {
+    DBConfiguration dbConf = new DBConfiguration( configuration );
+
+    dbConf.setInputReplicaUrls( replicaUrls );
+    dbConf.setInputReplicaSelection( selection );
+    }
+
+  /**
+   * Reads the table from all the given shards instead of the configured database. Each shard is split separately,
+   * and the splits report the host of their shard as their location.
+   *
+   * @param configuration The configuration object.
+   * @param shardUrls the JDBC URLs of the shards
+   */
+  public static void setShards( Configuration configuration, String... shardUrls )
+    {
+    new DBConfiguration( configuration ).setInputShardUrls( shardUrls );
+    }
+
+  /**
+   * Sets an integral, unique column without nulls, like the primary key, which is used to split the table into ranges of keys
+   * instead of ranges of rows.
+   *
+   * @param configuration The configuration object.
+   * @param splitColumn the column to split by
+   */
+  public static void setSplitColumn( Configuration configuration, String splitColumn )
+    {
+    new DBConfiguration( configuration ).setInputSplitColumn( splitColumn );
+    }
+
+  /**
+   * Enables or disables looking up a split column in the metadata of the table, when none is set, see
+   * {@link #findSplitColumn(Connection, String)}. It is enabled by default.
+   *
+   * @param configuration The configuration object.
+   * @param discovery false to split tables without a split column by row numbers
+   */
+  public static void setSplitColumnDiscovery( Configuration configuration, boolean discovery )
+    {
+    new DBConfiguration( configuration ).setInputSplitColumnDiscovery( discovery );
+    }
+
+  /**
+   * Sets the smallest and the largest value of the split column, so they do not have to be queried, when the splits
+   * are planned. Rows with keys outside of the bounds are not read.
+   *
+   * @param configuration The configuration object.
+   * @param lowerBound the smallest value of the split column
+   * @param upperBound the largest value of the split column
+   */
+  public static void setSplitBounds( Configuration configuration, long lowerBound, long upperBound )
+    {
+    new DBConfiguration( configuration ).setInputSplitBounds( lowerBound, upperBound );
+    }
+
+  /**
+   * Enables reading each split page by page, ordered by the split column. Every page is read in a short transaction
+   * with a query continuing after the last key read, and failed pages are retried from there. Only key range splits
+   * are paged, splits of row numbers, e.g. of limited reads, are read with a single query.
+   *
+   * @param configuration The configuration object.
+   * @param pageSize the number of rows per page, 0 to read each split with a single query
+   */
+  public static void setPageSize( Configuration configuration, int pageSize )
+    {
+    new DBConfiguration( configuration ).setInputPageSize( pageSize );
+    }
+
+  /**
+   * Reads each key range split with the given number of threads, each on its own connection. Threads, which have
+   * finished their part, take over the upper half of the unread keys of the reader with the most keys left. Requires
+   * paging, see {@link #setPageSize(Configuration, int)}.
+   *
+   * @param configuration The configuration object.
+   * @param threads the number of reader threads per split, 0 or 1 to read each split with a single reader
+   */
+  public static void setRebalanceThreads( Configuration configuration, int threads )
+    {
+    new DBConfiguration( configuration ).setInputRebalanceThreads( threads );
+    }
+
+  /**
+   * Groups the splits, so each task reads several splits concurrently, each on its own connection. This keeps the
+   * number of tasks low, while the database is still read by as many connections as there are splits.
+   *
+   * @param configuration The configuration object.
+   * @param splitsPerTask the maximum number of splits read by a single task, 0 or 1 to read one split per task
+   * @param threads the number of splits a task reads at the same time
+   */
+  public static void setCombinedSplits( Configuration configuration, int splitsPerTask, int threads )
+    {
+    DBConfiguration dbConf = new DBConfiguration( configuration );
+
+    dbConf.setInputCombinedSplits( splitsPerTask );
+    dbConf.setInputCombineThreads( threads );
+    }
+
+  /**
+   * Sets the number of times a failed page is retried, before the task fails.
+   *
+   * @param configuration The configuration object.
+   * @param retries the number of retries
+   */
+  public static void setPageRetries( Configuration configuration, int retries )
+    {
+    new DBConfiguration( configuration ).setInputPageRetries( retries );
+    }
+
+  /**
+   * Enables or disables reading all splits from one consistent snapshot of the database.
+   *
+   * @param configuration The configuration object.
+   * @param consistentRead true, if all splits should read at the same snapshot
+   */
+  public static void setConsistentRead( Configuration configuration, boolean consistentRead )
+    {
+    new DBConfiguration( configuration ).setInputConsistentRead( consistentRead );
+    }
+
+  /**
+   * Sets the transaction isolation level of the reading connections.
+   *
+   * @param configuration The configuration object.
+   * @param isolationLevel one of the isolation level constants in {@link Connection}
+   */
+  public static void setTransactionIsolationLevel( Configuration configuration, int isolationLevel )
+    {
+    new DBConfiguration( configuration ).setInputIsolationLevel( isolationLevel );
+    }
+
+  /**
+   * Returns the estimated number of rows read by a split of this input format. Other splits report their length.
+   *
+   * @param split a split returned by {@link #getSplits(JobConf, int)}
+   * @return the estimated number of rows
+   * @throws IOException
+   */
+  public static long getEstimatedRows( InputSplit split ) throws IOException
+    {
+    if( split instanceof CombinedDBInputSplit )
+      return ( (CombinedDBInputSplit) split ).getEstimatedRows();
+
+    if( split instanceof DBInputSplit )
+      return ( (DBInputSplit) split ).getEstimatedRows();
+
+    return split.getLength();
+    }
+
+  /**
+   * Releases all snapshots, which have been exported from the database behind the given URL and are still held open
+   * in this JVM. This is called when a flow, reading at a snapshot, has finished.
+   *
+   * @param connectionUrl the JDBC URL of the database
+   */
+  public static void releaseSnapshots( String connectionUrl )
+    {
+    synchronized( exportedSnapshots )
+      {
+      Iterator<Map.Entry<String, ExportedSnapshot>> iterator = exportedSnapshots.entrySet().iterator();
+
+      while( iterator.hasNext() )
+        {
+        Map.Entry<String, ExportedSnapshot> entry = iterator.next();
+
+        if( connectionUrl != null && !connectionUrl.equals( entry.getValue().connectionUrl ) )
+          continue;
+
+        LOG.info( "releasing snapshot: {}", entry.getKey() );
+        iterator.remove();
+
+        try
+          {
+          JDBCUtil.closeConnection( entry.getValue().connection );
+          }
+        catch( IOException exception )
+          {
+          LOG.warn( "unable to release snapshot: " + entry.getKey(), exception );
+          }
+        }
+      }
+    }
+
+  /**
+   * Keeps the current connection, and with it the transaction exporting the given snapshot, open.
+   * */
+  private void holdSnapshot( String snapshot )
+    {
+    synchronized( exportedSnapshots )
+      {
+      if( !releaseHookAdded )
+        {
+        Runtime.getRuntime().addShutdownHook( new Thread( "release-jdbc-snapshots" )
+          {
+          @Override
+          public void run()
+            {
+            releaseSnapshots( null );
+            }
+          } );
+        releaseHookAdded = true;
+        }
+
+      exportedSnapshots.put( snapshot, new ExportedSnapshot( dbConf.getConnectionUrl(), connection ) );
+      }
+
+    connection = null;
+    }
+
   /**
    * Closes the database connection.
    * */
@@ -563,4 +2903,17 @@ public class DBInputFormat<T extends DBWritable> implements InputFormat<LongWrit
     JDBCUtil.closeConnection( connection );
     connection = null;
     }
+
+  /** A connection holding an exported snapshot */
+  private static class ExportedSnapshot
+    {
+    private final String connectionUrl;
+    private final Connection connection;
+
+    private ExportedSnapshot( String connectionUrl, Connection connection )
+      {
+      this.connectionUrl = connectionUrl;
+      this.connection = connection;
+      }
+    }
   }
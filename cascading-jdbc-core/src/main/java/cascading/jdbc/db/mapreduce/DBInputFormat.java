@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db.mapreduce;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import cascading.jdbc.db.DBWritable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * A new-API (org.apache.hadoop.mapreduce) InputFormat, that reads the results of a SQL query from a database table.
+ * <p/>
+ * The input is configured with {@link cascading.jdbc.db.DBInputFormat#setInput}, the same way as for old-API jobs.
+ * Splits are planned and read by the old-API input format class set there, so dialect specific input formats, e.g.
+ * for Oracle or MySQL, and all read options work in new-API jobs as well.
+ * <p/>
+ * Plain MapReduce jobs set it with {@link org.apache.hadoop.mapreduce.Job#setInputFormatClass(Class)}, Cascading flows
+ * on the Tez planner with {@link cascading.jdbc.JDBCScheme#setNewApi(boolean)}.
+ */
+public class DBInputFormat<T extends DBWritable> extends InputFormat<LongWritable, T>
+  {
+  /** A RecordReader that reads a split with a record reader of the old-API input format */
+  protected class DBRecordReader extends RecordReader<LongWritable, T>
+    {
+    /** Field reader */
+    private org.apache.hadoop.mapred.RecordReader<LongWritable, T> reader;
+    /** Field key */
+    private LongWritable key;
+    /** Field value */
+    private T value;
+
+    /** {@inheritDoc} */
+    @Override
+    public void initialize( InputSplit split, TaskAttemptContext context ) throws IOException
+      {
+      JobConf job = asJobConf( context.getConfiguration() );
+      org.apache.hadoop.mapred.InputSplit oldSplit = ( (DBInputSplit) split ).getSplit();
+
+      reader = getOldFormat( job ).getRecordReader( oldSplit, job, new TaskContextReporter( context, oldSplit ) );
+      key = reader.createKey();
+      value = reader.createValue();
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean nextKeyValue() throws IOException
+      {
+      return reader.next( key, value );
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public LongWritable getCurrentKey()
+      {
+      return key;
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public T getCurrentValue()
+      {
+      return value;
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public float getProgress() throws IOException
+      {
+      return reader == null ? 0.0f : reader.getProgress();
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException
+      {
+      if( reader != null )
+        reader.close();
+      }
+    }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<InputSplit> getSplits( JobContext context ) throws IOException
+    {
+    JobConf job = asJobConf( context.getConfiguration() );
+    org.apache.hadoop.mapred.InputSplit[] oldSplits = getOldFormat( job ).getSplits( job, job.getNumMapTasks() );
+    List<InputSplit> splits = new ArrayList<InputSplit>( oldSplits.length );
+
+    for( org.apache.hadoop.mapred.InputSplit oldSplit : oldSplits )
+      splits.add( new DBInputSplit( oldSplit ) );
+
+    return splits;
+    }
+
+  /** {@inheritDoc} */
+  @Override
+  public RecordReader<LongWritable, T> createRecordReader( InputSplit split, TaskAttemptContext context )
+    {
+    return new DBRecordReader();
+    }
+
+  /**
+   * Returns a new instance of the old-API input format, which plans and reads the splits. Every instance holds its
+   * own connection.
+   *
+   * @param job the configuration of the job
+   */
+  @SuppressWarnings("unchecked")
+  protected org.apache.hadoop.mapred.InputFormat<LongWritable, T> getOldFormat( JobConf job )
+    {
+    Class<? extends org.apache.hadoop.mapred.InputFormat> formatClass = job.getClass( "mapred.input.format.class",
+      cascading.jdbc.db.DBInputFormat.class, org.apache.hadoop.mapred.InputFormat.class );
+
+    return ReflectionUtils.newInstance( formatClass, job );
+    }
+
+  static JobConf asJobConf( Configuration configuration )
+    {
+    return configuration instanceof JobConf ? (JobConf) configuration : new JobConf( configuration );
+    }
+  }
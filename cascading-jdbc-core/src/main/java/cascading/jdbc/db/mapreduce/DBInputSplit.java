@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db.mapreduce;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * A new-API {@link InputSplit} holding a split planned by the old-API {@link cascading.jdbc.db.DBInputFormat}.
+ * <p/>
+ * The length of the split is the number of rows it is expected to read, not the width of its key range, so
+ * schedulers ordering splits by length start the largest ones first.
+ */
+public class DBInputSplit extends InputSplit implements Writable
+  {
+  /** Field split */
+  private org.apache.hadoop.mapred.InputSplit split;
+
+  /** Default Constructor */
+  public DBInputSplit()
+    {
+    }
+
+  /**
+   * Convenience Constructor
+   *
+   * @param split the split of the old-API input format
+   */
+  public DBInputSplit( org.apache.hadoop.mapred.InputSplit split )
+    {
+    this.split = split;
+    }
+
+  /** @return The split of the old-API input format */
+  public org.apache.hadoop.mapred.InputSplit getSplit()
+    {
+    return split;
+    }
+
+  /** @return The estimated number of rows read by this split */
+  @Override
+  public long getLength() throws IOException
+    {
+    return cascading.jdbc.db.DBInputFormat.getEstimatedRows( split );
+    }
+
+  /** {@inheritDoc} */
+  @Override
+  public String[] getLocations() throws IOException
+    {
+    return split.getLocations();
+    }
+
+  /** {@inheritDoc} */
+  public void readFields( DataInput input ) throws IOException
+    {
+    String className = Text.readString( input );
+
+    try
+      {
+      Class<?> splitClass = Class.forName( className, true, DBInputSplit.class.getClassLoader() );
+      split = (org.apache.hadoop.mapred.InputSplit) ReflectionUtils.newInstance( splitClass, null );
+      }
+    catch( ClassNotFoundException exception )
+      {
+      throw new IOException( "unable to load split class: " + className, exception );
+      }
+
+    split.readFields( input );
+    }
+
+  /** {@inheritDoc} */
+  public void write( DataOutput output ) throws IOException
+    {
+    Text.writeString( output, split.getClass().getName() );
+    split.write( output );
+    }
+
+  @Override
+  public String toString()
+    {
+    return String.valueOf( split );
+    }
+  }
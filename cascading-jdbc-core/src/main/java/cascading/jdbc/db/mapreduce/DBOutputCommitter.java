@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db.mapreduce;
+
+import java.io.IOException;
+import java.sql.Connection;
+
+import cascading.jdbc.JDBCUtil;
+import cascading.jdbc.TableDesc;
+import cascading.jdbc.db.DBConfiguration;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link OutputCommitter} of the new-API {@link DBOutputFormat}. It creates the output table once, when the job
+ * is set up, instead of every task racing to create it.
+ * <p/>
+ * If task staging is enabled, every task attempt writes into its own staging table. Committing the task moves its
+ * rows into the output table in one transaction and drops it, aborting the task only drops it. A commit run again,
+ * e.g. after the application master recovered, finds the staging table empty or gone. Without staging the tasks
+ * commit their batches on their own, so rows written by finished tasks are kept, if the job fails.
+ */
+public class DBOutputCommitter extends OutputCommitter
+  {
+  private static final Logger LOG = LoggerFactory.getLogger( DBOutputCommitter.class );
+
+  /** @return true, if task attempts write into their own staging table */
+  static boolean isTaskStaging( Configuration configuration )
+    {
+    return configuration.getBoolean( DBConfiguration.OUTPUT_TASK_STAGING_PROPERTY, false );
+    }
+
+  /**
+   * Returns the name of the staging table of a task attempt. It is short enough for databases limiting names to 30
+   * characters.
+   *
+   * @param attemptID the id of the task attempt
+   */
+  static String getStagingTableName( TaskAttemptID attemptID )
+    {
+    String type = attemptID.getTaskType() == TaskType.MAP ? "m" : "r";
+
+    return String.format( "cascading_%08x_%s%d_%d", attemptID.getJobID().toString().hashCode(), type,
+      attemptID.getTaskID().getId(), attemptID.getId() );
+    }
+
+  @Override
+  public void setupJob( JobContext context ) throws IOException
+    {
+    DBConfiguration dbConf = new DBConfiguration( context.getConfiguration() );
+    TableDesc tableDesc = dbConf.toTableDesc();
+
+    LOG.info( "creating table {} for job {}", tableDesc.getTableName(), context.getJobID() );
+
+    Connection connection = dbConf.getConnection();
+
+    try
+      {
+      JDBCUtil.createTableIfNotExists( connection, tableDesc );
+      }
+    finally
+      {
+      JDBCUtil.closeConnection( connection );
+      }
+    }
+
+  @Override
+  public void setupTask( TaskAttemptContext context )
+    {
+    // the staging table is created by the record writer
+    }
+
+  @Override
+  public boolean needsTaskCommit( TaskAttemptContext context )
+    {
+    return isTaskStaging( context.getConfiguration() );
+    }
+
+  @Override
+  public void commitTask( TaskAttemptContext context ) throws IOException
+    {
+    DBConfiguration dbConf = new DBConfiguration( context.getConfiguration() );
+    TableDesc tableDesc = dbConf.toTableDesc();
+    TableDesc stagingDesc = new TableDesc( getStagingTableName( context.getTaskAttemptID() ) );
+
+    Connection connection = dbConf.getConnection();
+
+    try
+      {
+      // the task may have written nothing, if it never opened its record writer
+      if( !JDBCUtil.tableExists( connection, stagingDesc ) )
+        return;
+
+      // empties the staging table in the same transaction, so a commit rerun after recovery publishes nothing twice
+      int rows = JDBCUtil.moveRows( connection, stagingDesc, tableDesc );
+
+      LOG.info( "published {} rows of task {} to table {}", rows, context.getTaskAttemptID(), tableDesc.getTableName() );
+
+      JDBCUtil.dropTable( connection, stagingDesc );
+      }
+    finally
+      {
+      JDBCUtil.closeConnection( connection );
+      }
+    }
+
+  @Override
+  public void abortTask( TaskAttemptContext context ) throws IOException
+    {
+    if( !isTaskStaging( context.getConfiguration() ) )
+      return;
+
+    DBConfiguration dbConf = new DBConfiguration( context.getConfiguration() );
+    Connection connection = dbConf.getConnection();
+
+    try
+      {
+      JDBCUtil.dropTable( connection, new TableDesc( getStagingTableName( context.getTaskAttemptID() ) ) );
+      }
+    finally
+      {
+      JDBCUtil.closeConnection( connection );
+      }
+    }
+
+  @Override
+  public void abortJob( JobContext context, JobStatus.State state ) throws IOException
+    {
+    LOG.warn( "job {} ended in state {}, rows of committed tasks are kept", context.getJobID(), state );
+    }
+  }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db.mapreduce;
+
+import java.io.IOException;
+
+import cascading.jdbc.db.DBConfiguration;
+import cascading.jdbc.db.DBWritable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * A new-API (org.apache.hadoop.mapreduce) OutputFormat, that sends the reduce output to a SQL table.
+ * <p/>
+ * The output is configured with {@link cascading.jdbc.db.DBOutputFormat#setOutput}, the same way as for old-API
+ * jobs, and written by the old-API output format class set there. Its {@link DBOutputCommitter} creates the table
+ * once per job.
+ * <p/>
+ * With {@link #setTaskStaging(Configuration, boolean)} every task attempt writes into its own staging table, which
+ * is copied into the output table, when the task commits. Rows of failed or speculative attempts are never
+ * published then.
+ * <p/>
+ * Plain MapReduce jobs set it with {@link org.apache.hadoop.mapreduce.Job#setOutputFormatClass(Class)}, Cascading flows
+ * on the Tez planner with {@link cascading.jdbc.JDBCScheme#setNewApi(boolean)}.
+ */
+public class DBOutputFormat<K extends DBWritable, V> extends OutputFormat<K, V>
+  {
+  /** A RecordWriter that writes with a record writer of the old-API output format */
+  protected class DBRecordWriter extends RecordWriter<K, V>
+    {
+    /** Field writer */
+    private final org.apache.hadoop.mapred.RecordWriter<K, V> writer;
+
+    protected DBRecordWriter( org.apache.hadoop.mapred.RecordWriter<K, V> writer )
+      {
+      this.writer = writer;
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write( K key, V value ) throws IOException
+      {
+      writer.write( key, value );
+      }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close( TaskAttemptContext context ) throws IOException
+      {
+      writer.close( new TaskContextReporter( context, null ) );
+      }
+    }
+
+  /**
+   * Enables or disables writing into a staging table per task attempt.
+   *
+   * @param configuration The configuration object.
+   * @param taskStaging true, if the rows of a task are published when the task commits
+   */
+  public static void setTaskStaging( Configuration configuration, boolean taskStaging )
+    {
+    configuration.setBoolean( DBConfiguration.OUTPUT_TASK_STAGING_PROPERTY, taskStaging );
+    }
+
+  /** {@inheritDoc} */
+  @Override
+  public void checkOutputSpecs( JobContext context ) throws IOException
+    {
+    Configuration configuration = context.getConfiguration();
+
+    if( DBOutputCommitter.isTaskStaging( configuration ) && configuration.get( DBConfiguration.OUTPUT_UPDATE_FIELD_NAMES_PROPERTY ) != null )
+      throw new IOException( "task staging cannot be used with updates" );
+    }
+
+  /** {@inheritDoc} */
+  @Override
+  public RecordWriter<K, V> getRecordWriter( TaskAttemptContext context ) throws IOException
+    {
+    // a copy, the table name is replaced for staging
+    JobConf job = new JobConf( context.getConfiguration() );
+
+    if( DBOutputCommitter.isTaskStaging( job ) )
+      job.set( DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY, DBOutputCommitter.getStagingTableName( context.getTaskAttemptID() ) );
+
+    String name = context.getTaskAttemptID().toString();
+
+    return new DBRecordWriter( getOldFormat( job ).getRecordWriter( null, job, name, context ) );
+    }
+
+  /** {@inheritDoc} */
+  @Override
+  public OutputCommitter getOutputCommitter( TaskAttemptContext context )
+    {
+    return new DBOutputCommitter();
+    }
+
+  /**
+   * Returns a new instance of the old-API output format, which writes the rows.
+   *
+   * @param job the configuration of the job
+   */
+  @SuppressWarnings("unchecked")
+  protected org.apache.hadoop.mapred.OutputFormat<K, V> getOldFormat( JobConf job )
+    {
+    Class<? extends org.apache.hadoop.mapred.OutputFormat> formatClass = job.getClass( "mapred.output.format.class",
+      cascading.jdbc.db.DBOutputFormat.class, org.apache.hadoop.mapred.OutputFormat.class );
+
+    return ReflectionUtils.newInstance( formatClass, job );
+    }
+  }
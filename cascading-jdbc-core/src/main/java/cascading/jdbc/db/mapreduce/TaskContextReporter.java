@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db.mapreduce;
+
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+/**
+ * A {@link Reporter} handed to the old-API readers and writers, which forwards progress, status and counters to the
+ * context of the new-API task.
+ */
+class TaskContextReporter implements Reporter
+  {
+  /** Field context */
+  private final TaskAttemptContext context;
+  /** Field split */
+  private final InputSplit split;
+
+  TaskContextReporter( TaskAttemptContext context, InputSplit split )
+    {
+    this.context = context;
+    this.split = split;
+    }
+
+  @Override
+  public void setStatus( String status )
+    {
+    context.setStatus( status );
+    }
+
+  @Override
+  public Counters.Counter getCounter( Enum<?> name )
+    {
+    return asOldCounter( context.getCounter( name ) );
+    }
+
+  @Override
+  public Counters.Counter getCounter( String group, String name )
+    {
+    return asOldCounter( context.getCounter( group, name ) );
+    }
+
+  private static Counters.Counter asOldCounter( Counter counter )
+    {
+    if( counter == null || counter instanceof Counters.Counter )
+      return (Counters.Counter) counter;
+
+    return new ContextCounter( counter );
+    }
+
+  @Override
+  public void incrCounter( Enum<?> key, long amount )
+    {
+    Counter counter = context.getCounter( key );
+
+    if( counter != null )
+      counter.increment( amount );
+    }
+
+  @Override
+  public void incrCounter( String group, String counter, long amount )
+    {
+    Counter found = context.getCounter( group, counter );
+
+    if( found != null )
+      found.increment( amount );
+    }
+
+  @Override
+  public InputSplit getInputSplit() throws UnsupportedOperationException
+    {
+    if( split == null )
+      throw new UnsupportedOperationException( "not reading an input split" );
+
+    return split;
+    }
+
+  @Override
+  public float getProgress()
+    {
+    return context.getProgress();
+    }
+
+  @Override
+  public void progress()
+    {
+    context.progress();
+    }
+
+  /** An old-API counter forwarding to a counter of the new-API task context */
+  private static class ContextCounter extends Counters.Counter
+    {
+    /** Field counter */
+    private final Counter counter;
+
+    private ContextCounter( Counter counter )
+      {
+      this.counter = counter;
+      }
+
+    @Override
+    public String getName()
+      {
+      return counter.getName();
+      }
+
+    @Override
+    public String getDisplayName()
+      {
+      return counter.getDisplayName();
+      }
+
+    @Override
+    public void setDisplayName( String displayName )
+      {
+      counter.setDisplayName( displayName );
+      }
+
+    @Override
+    public long getValue()
+      {
+      return counter.getValue();
+      }
+
+    @Override
+    public void setValue( long value )
+      {
+      counter.setValue( value );
+      }
+
+    @Override
+    public void increment( long amount )
+      {
+      counter.increment( amount );
+      }
+
+    @Override
+    public long getCounter()
+      {
+      return counter.getValue();
+      }
+
+    @Override
+    public Counter getUnderlyingCounter()
+      {
+      return counter;
+      }
+    }
+  }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc.db.tez;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import cascading.jdbc.db.DBInputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.InputFormat;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.tez.common.TezUtils;
+import org.apache.tez.dag.api.DataSourceDescriptor;
+import org.apache.tez.dag.api.InputInitializerDescriptor;
+import org.apache.tez.dag.api.TaskLocationHint;
+import org.apache.tez.dag.api.VertexLocationHint;
+import org.apache.tez.mapreduce.hadoop.MRInputHelpers;
+import org.apache.tez.mapreduce.input.MRInput;
+import org.apache.tez.mapreduce.protos.MRRuntimeProtos.MRInputUserPayloadProto;
+import org.apache.tez.runtime.api.Event;
+import org.apache.tez.runtime.api.InputInitializer;
+import org.apache.tez.runtime.api.InputInitializerContext;
+import org.apache.tez.runtime.api.InputSpecUpdate;
+import org.apache.tez.runtime.api.events.InputConfigureVertexTasksEvent;
+import org.apache.tez.runtime.api.events.InputDataInformationEvent;
+import org.apache.tez.runtime.api.events.InputInitializerEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Tez {@link InputInitializer} planning the splits of a {@link DBInputFormat} once in the application master.
+ * <p/>
+ * The generic split generator of Tez groups splits by their length in bytes, which the row counts of database splits
+ * are not, so it may collapse all splits into a single task. This initializer keeps the planned splits as they are,
+ * sets the parallelism of the vertex to their number and hints the location of each split, e.g. the host of its
+ * shard. Each split is sent to its task in an {@link InputDataInformationEvent}, which {@link MRInput} reads.
+ * <p/>
+ * It is meant for DAGs built directly on Tez, see {@link #createDataSource(Configuration)}. The Tez planner of
+ * Cascading builds the data sources of its vertices itself, so {@link cascading.jdbc.JDBCTap} cannot use it.
+ */
+public class DBInputInitializer extends InputInitializer
+  {
+  private static final Logger LOG = LoggerFactory.getLogger( DBInputInitializer.class );
+
+  public DBInputInitializer( InputInitializerContext initializerContext )
+    {
+    super( initializerContext );
+    }
+
+  /**
+   * Returns a data source reading with the configured {@link DBInputFormat}, whose splits are planned by this
+   * initializer. The vertex reading it must not set its parallelism, it is set to the number of splits.
+   *
+   * @param configuration the configuration of the input, see {@link DBInputFormat#setInput}
+   * @return the data source of a vertex
+   */
+  public static DataSourceDescriptor createDataSource( Configuration configuration )
+    {
+    Class<?> inputFormat = configuration.getClass( "mapred.input.format.class", DBInputFormat.class );
+    DataSourceDescriptor source = MRInput.createConfigBuilder( configuration, inputFormat ).groupSplits( false ).build();
+
+    // the initializer reads the configuration from the payload of the input
+    InputInitializerDescriptor initializer = InputInitializerDescriptor.create( DBInputInitializer.class.getName() )
+      .setUserPayload( source.getInputDescriptor().getUserPayload() );
+
+    return DataSourceDescriptor.create( source.getInputDescriptor(), initializer, null );
+    }
+
+  @Override
+  public List<Event> initialize() throws Exception
+    {
+    MRInputUserPayloadProto payload = MRInputHelpers.parseMRInputPayload( getContext().getInputUserPayload() );
+    JobConf conf = new JobConf( TezUtils.createConfFromByteString( payload.getConfigurationBytes() ) );
+
+    // the configured number of concurrent reads takes precedence, see DBInputFormat#getSplits
+    int chunks = getContext().getNumTasks() > 0 ? getContext().getNumTasks() : Math.max( 1, getContext().getNumClusterNodes() );
+
+    InputFormat<?, ?> format = ReflectionUtils.newInstance( conf.getClass( "mapred.input.format.class", DBInputFormat.class, InputFormat.class ), conf );
+    InputSplit[] splits = format.getSplits( conf, chunks );
+
+    LOG.info( "planned {} splits for input {}", splits.length, getContext().getInputName() );
+
+    List<TaskLocationHint> locationHints = new ArrayList<TaskLocationHint>( splits.length );
+
+    for( InputSplit split : splits )
+      locationHints.add( TaskLocationHint.createTaskLocationHint( new HashSet<String>( Arrays.asList( split.getLocations() ) ), null ) );
+
+    List<Event> events = new ArrayList<Event>( splits.length + 1 );
+
+    events.add( InputConfigureVertexTasksEvent.create( splits.length, VertexLocationHint.create( locationHints ),
+      InputSpecUpdate.getDefaultSinglePhysicalInputSpecUpdate() ) );
+
+    for( int i = 0; i < splits.length; i++ )
+      events.add( InputDataInformationEvent.createWithSerializedPayload( i, MRInputHelpers.createSplitProto( splits[ i ] ).toByteString().asReadOnlyByteBuffer() ) );
+
+    return events;
+    }
+
+  @Override
+  public void handleInputInitializerEvent( List<InputInitializerEvent> events )
+    {
+    // all splits are planned up front, events sent by other vertices, e.g. to prune partitions, change none of them
+    LOG.debug( "ignoring {} events for input {}", events.size(), getContext().getInputName() );
+    }
+  }
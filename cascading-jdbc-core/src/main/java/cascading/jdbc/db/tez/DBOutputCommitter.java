@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc.db.tez;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.UUID;
+
+import cascading.jdbc.JDBCUtil;
+import cascading.jdbc.TableDesc;
+import cascading.jdbc.db.DBConfiguration;
+import cascading.jdbc.db.mapreduce.DBOutputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.tez.common.TezUtils;
+import org.apache.tez.dag.api.DataSinkDescriptor;
+import org.apache.tez.dag.api.OutputCommitterDescriptor;
+import org.apache.tez.dag.api.client.VertexStatus;
+import org.apache.tez.mapreduce.output.MROutput;
+import org.apache.tez.runtime.api.OutputCommitter;
+import org.apache.tez.runtime.api.OutputCommitterContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Tez {@link OutputCommitter} publishing the rows written by a vertex to the output table, once the vertex
+ * succeeded.
+ * <p/>
+ * The tasks of the vertex write with the new-API {@link DBOutputFormat} with task staging enabled, so every task
+ * attempt writes into a staging table of its own. Committing the {@link MROutput} of a task, as the processor does when
+ * it is done, moves its rows into the staging table of the vertex. This committer creates the output table and the
+ * staging table of the vertex, before any task runs. Committing the vertex moves the staged rows into the output table
+ * in one transaction and drops the staging table, aborting it only drops the staging table. Rows of failed task
+ * attempts or of a failed vertex are never published.
+ * <p/>
+ * It is meant for DAGs built directly on Tez, see {@link #createDataSink(Configuration)}. The Tez planner of Cascading
+ * builds the data sinks of its vertices itself, so {@link cascading.jdbc.JDBCTap} cannot use it.
+ */
+public class DBOutputCommitter extends OutputCommitter
+  {
+  private static final Logger LOG = LoggerFactory.getLogger( DBOutputCommitter.class );
+
+  /** Field configuration */
+  private Configuration configuration;
+  /** Field dbConf */
+  private DBConfiguration dbConf;
+
+  public DBOutputCommitter( OutputCommitterContext committerContext )
+    {
+    super( committerContext );
+    }
+
+  /**
+   * Returns a data sink writing the configured output through a staging table, which is published by this committer.
+   *
+   * @param configuration the configuration of the output, see {@link cascading.jdbc.db.DBOutputFormat#setOutput}
+   * @return the data sink of a vertex
+   */
+  public static DataSinkDescriptor createDataSink( Configuration configuration )
+    {
+    if( configuration.get( DBConfiguration.OUTPUT_UPDATE_FIELD_NAMES_PROPERTY ) != null )
+      throw new IllegalArgumentException( "updates cannot be staged" );
+
+    // a copy, the tasks write into the staging table, which is named to fit databases limiting names to 30 characters
+    Configuration conf = new Configuration( configuration );
+    conf.set( DBConfiguration.OUTPUT_PUBLISH_TABLE_NAME_PROPERTY, new DBConfiguration( configuration ).toTableDesc().getTableName() );
+    conf.set( DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY, String.format( "cascading_%08x_v", UUID.randomUUID().hashCode() ) );
+    DBOutputFormat.setTaskStaging( conf, true );
+
+    DataSinkDescriptor sink = MROutput.createConfigBuilder( conf, DBOutputFormat.class ).build();
+
+    return DataSinkDescriptor.create( sink.getOutputDescriptor(), OutputCommitterDescriptor.create( DBOutputCommitter.class.getName() ), null );
+    }
+
+  @Override
+  public void initialize() throws Exception
+    {
+    configuration = TezUtils.createConfFromUserPayload( getContext().getOutputUserPayload() );
+    dbConf = new DBConfiguration( configuration );
+    }
+
+  @Override
+  public void setupOutput() throws Exception
+    {
+    LOG.info( "creating tables {} and {} for output {}", getOutputDesc().getTableName(), getStagingDesc().getTableName(),
+      getContext().getOutputName() );
+
+    Connection connection = dbConf.getConnection();
+
+    try
+      {
+      JDBCUtil.createTableIfNotExists( connection, getOutputDesc() );
+      JDBCUtil.createTableIfNotExists( connection, getStagingDesc() );
+      }
+    finally
+      {
+      JDBCUtil.closeConnection( connection );
+      }
+    }
+
+  @Override
+  public void commitOutput() throws Exception
+    {
+    Connection connection = dbConf.getConnection();
+
+    try
+      {
+      // a commit rerun after the application master recovered finds the staging table empty or gone
+      if( !JDBCUtil.tableExists( connection, getStagingDesc() ) )
+        return;
+
+      int rows = JDBCUtil.moveRows( connection, getStagingDesc(), getOutputDesc() );
+
+      LOG.info( "published {} rows of output {} to table {}", rows, getContext().getOutputName(), getOutputDesc().getTableName() );
+
+      JDBCUtil.dropTable( connection, getStagingDesc() );
+      }
+    finally
+      {
+      JDBCUtil.closeConnection( connection );
+      }
+    }
+
+  @Override
+  public void abortOutput( VertexStatus.State finalState ) throws Exception
+    {
+    LOG.warn( "output {} ended in state {}, dropping staging table {}", getContext().getOutputName(), finalState,
+      getStagingDesc().getTableName() );
+
+    Connection connection = dbConf.getConnection();
+
+    try
+      {
+      JDBCUtil.dropTable( connection, getStagingDesc() );
+      }
+    finally
+      {
+      JDBCUtil.closeConnection( connection );
+      }
+    }
+
+  /** Returns the staging table of the vertex, which is the output table of its tasks. */
+  private TableDesc getStagingDesc()
+    {
+    return dbConf.toTableDesc();
+    }
+
+  /** Returns the output table the staged rows are published to. */
+  private TableDesc getOutputDesc() throws IOException
+    {
+    TableDesc stagingDesc = dbConf.toTableDesc();
+    String tableName = configuration.get( DBConfiguration.OUTPUT_PUBLISH_TABLE_NAME_PROPERTY );
+
+    if( tableName == null )
+      throw new IOException( "no output table to publish to, see DBOutputCommitter#createDataSink" );
+
+    return new TableDesc( tableName, stagingDesc.getColumnNames(), stagingDesc.getColumnDefs(), stagingDesc.getPrimaryKeys() );
+    }
+  }
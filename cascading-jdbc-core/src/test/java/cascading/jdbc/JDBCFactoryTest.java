@@ -22,10 +22,14 @@ package cascading.jdbc;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.sql.Connection;
 import java.util.Properties;
 
 import org.junit.Test;
@@ -34,6 +38,7 @@ import cascading.jdbc.JDBCFactory;
 import cascading.jdbc.JDBCScheme;
 import cascading.jdbc.JDBCTap;
 import cascading.jdbc.TableDesc;
+import cascading.jdbc.db.DBFilter;
 import cascading.jdbc.db.DBInputFormat;
 import cascading.scheme.Scheme;
 import cascading.tap.SinkMode;
@@ -221,6 +226,29 @@ public class JDBCFactoryTest
 
     }
   
+  @Test
+  public void testCreateTapWithReplicas()
+    {
+    String protocol = "jdbc";
+    String identifier = "jdbc:some:stuf//primary";
+    JDBCScheme mockScheme = mock( JDBCScheme.class );
+
+    JDBCFactory factory = new JDBCFactory();
+
+    Properties props = new Properties();
+    props.setProperty( JDBCFactory.PROTOCOL_JDBC_DRIVER, "some.Driver" );
+    props.setProperty( JDBCFactory.PROTOCOL_TABLE_NAME, "myTable" );
+    props.setProperty( JDBCFactory.PROTOCOL_COLUMN_NAMES, "id:name:lastname" );
+    props.setProperty( JDBCFactory.PROTOCOL_COLUMN_DEFS, "int:varchar(42):varchar(23)" );
+    props.setProperty( JDBCFactory.PROTOCOL_REPLICAS, "jdbc:some:stuf//replica1  jdbc:some:stuf//replica2" );
+    props.setProperty( JDBCFactory.PROTOCOL_REPLICA_SELECTION, "least_loaded" );
+
+    JDBCTap tap = (JDBCTap) factory.createTap( protocol, mockScheme, identifier, SinkMode.KEEP, props );
+    assertEquals( identifier, tap.connectionUrl );
+    assertArrayEquals( new String[]{"jdbc:some:stuf//replica1", "jdbc:some:stuf//replica2"}, tap.getReplicaUrls() );
+    assertEquals( DBInputFormat.ReplicaSelection.LEAST_LOADED, tap.getReplicaSelection() );
+    }
+
   @Test
   public void testCreateScheme()
     {
@@ -284,7 +312,185 @@ public class JDBCFactoryTest
     Scheme<?, ?, ?, ?, ?> scheme = factory.createScheme( "someFormat", fields, schemeProperties );
     assertNotNull( scheme );
     }
+
+  @Test
+  public void testCreateSchemeWithMaterializedQuery()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_COLUMNS, "one:two:three" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_SELECT_QUERY, "select one, two, three from table" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_COUNT_QUERY, "select count(*) from table" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_MATERIALIZE, "true" );
+
+    JDBCScheme scheme = (JDBCScheme) factory.createScheme( "someFormat", fields, schemeProperties );
+    assertTrue( scheme.isMaterialized() );
+    }
   
+  @Test
+  public void testCreateSchemeWithReadProperties()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_ISOLATION_LEVEL, "serializable" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_CONSISTENT_READ, "true" );
+
+    JDBCScheme jdbcScheme = (JDBCScheme) factory.createScheme( "someFormat", fields, schemeProperties );
+
+    assertEquals( Integer.valueOf( Connection.TRANSACTION_SERIALIZABLE ), jdbcScheme.getIsolationLevel() );
+    assertTrue( jdbcScheme.isConsistentRead() );
+    }
+
+  @Test
+  public void testCreateSchemeWithFetchSize()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_FETCH_SIZE, "250" );
+
+    JDBCScheme jdbcScheme = (JDBCScheme) factory.createScheme( "someFormat", fields, schemeProperties );
+    assertEquals( Integer.valueOf( 250 ), jdbcScheme.getFetchSize() );
+    assertFalse( jdbcScheme.isAutoFetchSize() );
+
+    schemeProperties.setProperty( JDBCFactory.FORMAT_FETCH_SIZE, "auto" );
+
+    jdbcScheme = (JDBCScheme) factory.createScheme( "someFormat", fields, schemeProperties );
+    assertNull( jdbcScheme.getFetchSize() );
+    assertTrue( jdbcScheme.isAutoFetchSize() );
+    }
+
+  @Test
+  public void testCreateSchemeWithProjection()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_PROJECTION, "three:one" );
+
+    JDBCScheme jdbcScheme = (JDBCScheme) factory.createScheme( "someFormat", fields, schemeProperties );
+    assertEquals( new Fields( "three", "one" ), jdbcScheme.getProjection() );
+    assertEquals( new Fields( "three", "one" ), jdbcScheme.getSourceFields() );
+    assertEquals( fields, jdbcScheme.getSinkFields() );
+    }
+
+  @Test
+  public void testCreateSchemeWithPaging()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_SPLIT_COLUMN, "one" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_PAGE_SIZE, "5000" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_REBALANCE_THREADS, "4" );
+
+    JDBCScheme jdbcScheme = (JDBCScheme) factory.createScheme( "someFormat", fields, schemeProperties );
+    assertEquals( "one", jdbcScheme.getSplitColumn() );
+    assertEquals( 5000, jdbcScheme.getPageSize() );
+    assertEquals( 4, jdbcScheme.getRebalanceThreads() );
+    }
+
+  @Test
+  public void testCreateSchemeWithCombinedSplits()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_COMBINED_SPLITS, "8" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_COMBINE_THREADS, "4" );
+
+    JDBCScheme jdbcScheme = (JDBCScheme) factory.createScheme( "someFormat", fields, schemeProperties );
+    assertEquals( 8, jdbcScheme.getCombinedSplits() );
+    assertEquals( 4, jdbcScheme.getCombineThreads() );
+    }
+
+  @Test
+  public void testCreateSchemeWithFilter()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+    DBFilter filter = DBFilter.and( DBFilter.ge( "one", 10 ), DBFilter.in( "two", "a", "b" ) );
+
+    Properties objectProperties = new Properties();
+    objectProperties.put( JDBCFactory.FORMAT_FILTER, filter );
+
+    JDBCScheme objectScheme = (JDBCScheme) factory.createScheme( "someFormat", fields, objectProperties );
+    assertEquals( filter, objectScheme.getFilter() );
+
+    // string properties, as handed over by Lingual
+    Properties stringProperties = new Properties();
+    stringProperties.setProperty( JDBCFactory.FORMAT_FILTER, DBFilter.serialize( filter ) );
+
+    JDBCScheme stringScheme = (JDBCScheme) factory.createScheme( "someFormat", fields, stringProperties );
+    assertEquals( filter, stringScheme.getFilter() );
+    assertEquals( filter.toSQL(), stringScheme.getFilter().toSQL() );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateSchemeWithMalformedFilter()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_FILTER, "one > 10" );
+
+    factory.createScheme( "someFormat", fields, schemeProperties );
+    }
+
+  @Test
+  public void testCreateSchemeWithSplitQuery()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_COLUMNS, "one:two:three" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_SELECT_QUERY, "select one, two, three from table where $CONDITIONS" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_COUNT_QUERY, "select count(*) from table" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_SPLIT_COLUMN, "one" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_SPLIT_LOWER_BOUND, "-10" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_SPLIT_UPPER_BOUND, "1000" );
+
+    JDBCScheme jdbcScheme = (JDBCScheme) factory.createScheme( "someFormat", fields, schemeProperties );
+    assertEquals( "one", jdbcScheme.getSplitColumn() );
+    assertEquals( Long.valueOf( -10 ), jdbcScheme.getSplitLowerBound() );
+    assertEquals( Long.valueOf( 1000 ), jdbcScheme.getSplitUpperBound() );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateSchemeWithIncompleteSplitBounds()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_SPLIT_COLUMN, "one" );
+    schemeProperties.setProperty( JDBCFactory.FORMAT_SPLIT_LOWER_BOUND, "0" );
+
+    factory.createScheme( "someFormat", fields, schemeProperties );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateSchemeWithUnknownIsolationLevel()
+    {
+    JDBCFactory factory = new JDBCFactory();
+    Fields fields = new Fields( "one", "two", "three" );
+
+    Properties schemeProperties = new Properties();
+    schemeProperties.setProperty( JDBCFactory.FORMAT_ISOLATION_LEVEL, "snapshot" );
+
+    factory.createScheme( "someFormat", fields, schemeProperties );
+    }
+
   @Test
   public void testGetInputFormatClass()
     {
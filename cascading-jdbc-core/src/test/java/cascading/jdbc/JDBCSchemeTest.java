@@ -23,6 +23,8 @@ package cascading.jdbc;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
+
 import org.apache.hadoop.mapred.JobConf;
 import org.junit.Test;
 
@@ -90,6 +92,104 @@ public class JDBCSchemeTest
 
     }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testNewApi()
+    {
+    String[] columnNames = new String[]{ "id", "name" };
+    JDBCScheme scheme = new JDBCScheme( columnNames );
+    FlowProcess<JobConf> fp = mock( FlowProcess.class );
+
+    JDBCTap tap = mock( JDBCTap.class );
+    when( tap.getTableName() ).thenReturn( "test_table" );
+    when( tap.getTableDesc() ).thenReturn( new TableDesc( "test_table", columnNames, new String[]{ "int", "varchar(20)" }, null ) );
+
+    JobConf oldConf = new JobConf( false );
+    scheme.sourceConfInit( fp, tap, oldConf );
+    scheme.sinkConfInit( fp, tap, oldConf );
+
+    assertFalse( scheme.isNewApi() );
+    assertEquals( "false", oldConf.get( "mapred.mapper.new-api" ) );
+    assertNull( oldConf.get( "mapreduce.job.inputformat.class" ) );
+    assertNull( oldConf.get( "mapreduce.job.outputformat.class" ) );
+
+    scheme.setNewApi( true );
+
+    JobConf newConf = new JobConf( false );
+    scheme.sourceConfInit( fp, tap, newConf );
+    scheme.sinkConfInit( fp, tap, newConf );
+
+    assertEquals( "true", newConf.get( "mapred.mapper.new-api" ) );
+    assertEquals( "true", newConf.get( "mapred.reducer.new-api" ) );
+    assertEquals( cascading.jdbc.db.mapreduce.DBInputFormat.class.getName(), newConf.get( "mapreduce.job.inputformat.class" ) );
+    assertEquals( cascading.jdbc.db.mapreduce.DBOutputFormat.class.getName(), newConf.get( "mapreduce.job.outputformat.class" ) );
+
+    // the new-API formats delegate to the old-API formats of the scheme
+    assertEquals( DBInputFormat.class.getName(), newConf.get( "mapred.input.format.class" ) );
+    assertEquals( DBOutputFormat.class.getName(), newConf.get( "mapred.output.format.class" ) );
+    }
+
+  @Test
+  public void testProjection()
+    {
+    String[] columnNames = new String[]{ "ID", "FIRST_NAME", "LAST_NAME" };
+    Fields columnFields = new Fields( new String[]{ "id", "firstname", "lastname" }, new Class<?>[]{ int.class, String.class, String.class } );
+    JDBCScheme scheme = new JDBCScheme( columnFields, columnNames );
+
+    scheme.setProjection( new Fields( "lastname", "id" ) );
+
+    assertEquals( new Fields( "lastname", "id" ), scheme.getSourceFields() );
+    assertEquals( String.class, scheme.getSourceFields().getType( 0 ) );
+    assertArrayEquals( new String[]{ "LAST_NAME", "ID" }, scheme.getSourceColumns() );
+    assertEquals( columnFields, scheme.getSinkFields() );
+
+    scheme.setProjection( null );
+
+    assertEquals( columnFields, scheme.getSourceFields() );
+    assertArrayEquals( columnNames, scheme.getSourceColumns() );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testProjectionWithUnknownField()
+    {
+    JDBCScheme scheme = new JDBCScheme( new Fields( "id", "firstname" ), new String[]{ "id", "firstname" } );
+
+    scheme.setProjection( new Fields( "lastname" ) );
+    }
+
+  @Test(expected = IllegalStateException.class)
+  public void testIncrementalWithSelectQuery()
+    {
+    JDBCScheme scheme = new JDBCScheme( new Fields( "id" ), new String[]{"id"}, "select id from test", "select count(*) from test", -1 );
+
+    scheme.setIncremental( "id", new TableWatermarkStore( "watermarks", "test" ) );
+    }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSplitColumnWithoutPlaceholder()
+    {
+    JDBCScheme scheme = new JDBCScheme( new Fields( "id" ), new String[]{"id"}, "select id from test", "select count(*) from test", -1 );
+
+    scheme.setSplitColumn( "id" );
+    }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMaterializedTable()
+    {
+    JDBCScheme scheme = new JDBCScheme( new Fields( "id", "firstname" ), new String[]{ "id", "firstname" } );
+
+    scheme.setMaterialized( true );
+    }
+
+  @Test
+  public void testStagingStatements()
+    {
+    JDBCScheme scheme = new JDBCScheme( new Fields( "id" ), new String[]{"id"}, "select id from test", "select count(*) from test", -1 );
+
+    assertEquals( Arrays.asList( "CREATE TABLE staging AS SELECT ROW_NUMBER() OVER () AS cascading_row, q.* FROM ( select id from test ) q" ),
+      scheme.getStagingStatements( "staging" ) );
+    }
+
   @SuppressWarnings("unchecked")
   @Test(expected = IllegalArgumentException.class)
   public void testPresentSinkFieldsWithFieldsMismatch()
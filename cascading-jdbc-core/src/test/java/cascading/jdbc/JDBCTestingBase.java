@@ -20,22 +20,42 @@
 
 package cascading.jdbc;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
 import cascading.flow.Flow;
 import cascading.flow.FlowConnector;
+import cascading.flow.FlowException;
+import cascading.flow.FlowProcess;
 import cascading.flow.FlowRuntimeProps;
+import cascading.flow.local.LocalFlowConnector;
 
 import cascading.flow.tez.Hadoop2TezFlowConnector;
+import cascading.jdbc.db.DBFilter;
 import cascading.jdbc.db.DBInputFormat;
 import cascading.jdbc.db.DBOutputFormat;
 import cascading.jdbc.db.DBWritable;
+import cascading.operation.BaseOperation;
+import cascading.operation.Filter;
+import cascading.operation.FilterCall;
+import cascading.operation.Function;
+import cascading.operation.FunctionCall;
 import cascading.operation.Identity;
+import cascading.operation.OperationCall;
 import cascading.operation.regex.RegexSplitter;
 import cascading.pipe.Each;
 import cascading.pipe.Pipe;
@@ -44,7 +64,9 @@ import cascading.scheme.hadoop.TextLine;
 import cascading.tap.SinkMode;
 import cascading.tap.Tap;
 import cascading.tap.hadoop.Hfs;
+import cascading.tap.local.FileTap;
 import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
 import cascading.tuple.TupleEntryIterator;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.mapred.JobConf;
@@ -489,6 +511,506 @@ public abstract class JDBCTestingBase
     verifySink( readFlow, 13 );
     }
 
+  @Test
+  public void testJDBCPrefetch() throws IOException
+    {
+    // CREATE NEW TABLE FROM SOURCE
+
+    Tap<?, ?, ?> source = new Hfs( new TextLine(), inputFile );
+    Fields fields = new Fields( new Comparable[]{"num", "lwr", "upr"}, new Type[]{int.class, String.class,
+                                                                                  String.class} );
+    Pipe parsePipe = new Each( "insert", new Fields( "line" ), new RegexSplitter( fields, "\\s" ) );
+
+    String[] columnNames = {"num", "lwr", "upr"};
+    String[] columnDefs = {"INT NOT NULL", "VARCHAR(100) NOT NULL", "VARCHAR(100) NOT NULL"};
+    String[] primaryKeys = {"num", "lwr"};
+    TableDesc tableDesc = getNewTableDesc( TESTING_TABLE_NAME, columnNames, columnDefs, primaryKeys );
+
+    JDBCTap replaceTap = getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.REPLACE );
+
+    Flow<?> parseFlow = createFlowConnector( createProperties() ).connect( source, replaceTap, parsePipe );
+
+    parseFlow.complete();
+
+    verifySink( parseFlow, 13 );
+
+    // READ DATA FROM TABLE INTO TEXT FILE, READING AHEAD IN THE BACKGROUND
+
+    JDBCScheme prefetchScheme = getNewJDBCScheme( fields, columnNames );
+    // smaller than the table, so that the prefetch thread has to wait for the task
+    prefetchScheme.setPrefetchDepth( 4 );
+
+    Tap<?, ?, ?> prefetchTap = getNewJDBCTap( tableDesc, prefetchScheme, SinkMode.KEEP );
+    Tap<?, ?, ?> sink = new Hfs( new TextLine(), "build/test/jdbc", SinkMode.REPLACE );
+
+    Flow<?> copyFlow = createFlowConnector( createProperties() ).connect( prefetchTap, sink, new Each( "read", new Identity() ) );
+
+    copyFlow.complete();
+
+    verifySink( copyFlow, 13 );
+    }
+
+  @Test
+  public void testJDBCKeyRangeSplits() throws IOException
+    {
+    // CREATE NEW TABLE FROM SOURCE
+
+    Tap<?, ?, ?> source = new Hfs( new TextLine(), inputFile );
+    Fields fields = new Fields( new Comparable[]{"num", "lwr", "upr"}, new Type[]{int.class, String.class,
+                                                                                  String.class} );
+    Pipe parsePipe = new Each( "insert", new Fields( "line" ), new RegexSplitter( fields, "\\s" ) );
+
+    String[] columnNames = {"num", "lwr", "upr"};
+    String[] columnDefs = {"INT NOT NULL", "VARCHAR(100) NOT NULL", "VARCHAR(100) NOT NULL"};
+    String[] primaryKeys = {"num", "lwr"};
+    TableDesc tableDesc = getNewTableDesc( TESTING_TABLE_NAME, columnNames, columnDefs, primaryKeys );
+
+    JDBCTap replaceTap = getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.REPLACE );
+
+    Flow<?> parseFlow = createFlowConnector( createProperties() ).connect( source, replaceTap, parsePipe );
+
+    parseFlow.complete();
+
+    verifySink( parseFlow, 13 );
+
+    // READ DATA FROM TABLE INTO TEXT FILE, SPLIT INTO RANGES OF num
+
+    JDBCScheme rangeScheme = getNewJDBCScheme( fields, columnNames );
+    rangeScheme.setSplitColumn( "num" );
+
+    JDBCTap rangeTap = getNewJDBCTap( tableDesc, rangeScheme, SinkMode.KEEP );
+    rangeTap.setConcurrentReads( 3 );
+
+    Tap<?, ?, ?> sink = new Hfs( new TextLine(), "build/test/jdbc", SinkMode.REPLACE );
+
+    Flow<?> copyFlow = createFlowConnector( createProperties() ).connect( rangeTap, sink, new Each( "read", new Identity() ) );
+
+    copyFlow.complete();
+
+    verifySink( copyFlow, 13 );
+    }
+
+  @Test
+  public void testJDBCCombinedSplits() throws IOException
+    {
+    // CREATE NEW TABLE FROM SOURCE
+
+    Tap<?, ?, ?> source = new Hfs( new TextLine(), inputFile );
+    Fields fields = new Fields( new Comparable[]{"num", "lwr", "upr"}, new Type[]{int.class, String.class,
+                                                                                  String.class} );
+    Pipe parsePipe = new Each( "insert", new Fields( "line" ), new RegexSplitter( fields, "\\s" ) );
+
+    String[] columnNames = {"num", "lwr", "upr"};
+    String[] columnDefs = {"INT NOT NULL", "VARCHAR(100) NOT NULL", "VARCHAR(100) NOT NULL"};
+    String[] primaryKeys = {"num", "lwr"};
+    TableDesc tableDesc = getNewTableDesc( TESTING_TABLE_NAME, columnNames, columnDefs, primaryKeys );
+
+    JDBCTap replaceTap = getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.REPLACE );
+
+    Flow<?> parseFlow = createFlowConnector( createProperties() ).connect( source, replaceTap, parsePipe );
+
+    parseFlow.complete();
+
+    verifySink( parseFlow, 13 );
+
+    // READ DATA FROM TABLE INTO TEXT FILE, TWO SPLITS PER TASK READ CONCURRENTLY
+
+    JDBCScheme combinedScheme = getNewJDBCScheme( fields, columnNames );
+    combinedScheme.setCombinedSplits( 2, 2 );
+
+    JDBCTap combinedTap = getNewJDBCTap( tableDesc, combinedScheme, SinkMode.KEEP );
+    combinedTap.setConcurrentReads( 4 );
+
+    Tap<?, ?, ?> sink = new Hfs( new TextLine(), "build/test/jdbc", SinkMode.REPLACE );
+
+    Flow<?> copyFlow = createFlowConnector( createProperties() ).connect( combinedTap, sink, new Each( "read", new Identity() ) );
+
+    copyFlow.complete();
+
+    verifySink( copyFlow, 13 );
+    }
+
+  @Test
+  public void testJDBCLocalMode() throws IOException
+    {
+    // CREATE NEW TABLE FROM SOURCE, IN PROCESS
+
+    Tap<?, ?, ?> source = new FileTap( new cascading.scheme.local.TextLine(), inputFile );
+    Fields fields = new Fields( new Comparable[]{"num", "lwr", "upr"}, new Type[]{int.class, String.class,
+                                                                                  String.class} );
+    Pipe parsePipe = new Each( "insert", new Fields( "line" ), new RegexSplitter( fields, "\\s" ) );
+
+    String[] columnNames = {"num", "lwr", "upr"};
+    String[] columnDefs = {"INT NOT NULL", "VARCHAR(100) NOT NULL", "VARCHAR(100) NOT NULL"};
+    String[] primaryKeys = {"num", "lwr"};
+    TableDesc tableDesc = getNewTableDesc( TESTING_TABLE_NAME, columnNames, columnDefs, primaryKeys );
+
+    LocalJDBCTap replaceTap = new LocalJDBCTap( getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.REPLACE ) );
+    replaceTap.setWriteThreads( 2 );
+
+    Flow<?> parseFlow = new LocalFlowConnector( createProperties() ).connect( source, replaceTap, parsePipe );
+
+    parseFlow.complete();
+
+    verifySink( parseFlow, 13 );
+
+    // READ DATA FROM TABLE INTO TEXT FILE, IN PROCESS
+
+    LocalJDBCTap sourceTap = new LocalJDBCTap( getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.KEEP ) );
+    sourceTap.setReadThreads( 3 );
+
+    Tap<?, ?, ?> sink = new FileTap( new cascading.scheme.local.TextLine(), "build/test/jdbc-local.txt", SinkMode.REPLACE );
+
+    Flow<?> copyFlow = new LocalFlowConnector( createProperties() ).connect( sourceTap, sink, new Each( "read", new Identity() ) );
+
+    copyFlow.complete();
+
+    verifySink( copyFlow, 13 );
+    }
+
+  @Test
+  public void testJDBCLocalModeReusedTuple() throws IOException
+    {
+    // WRITE THE ONE OUTPUT TUPLE AN UPSTREAM OPERATION REUSES FOR EVERY LINE, IN PROCESS
+
+    Tap<?, ?, ?> source = new FileTap( new cascading.scheme.local.TextLine(), inputFile );
+    Fields fields = new Fields( "num", "lwr", "upr" );
+    Pipe parsePipe = new Each( "insert", new Fields( "line" ), new ReusingSplitter( fields ), Fields.RESULTS );
+
+    String[] columnNames = {"num", "lwr", "upr"};
+    String[] columnDefs = {"INT NOT NULL", "VARCHAR(100) NOT NULL", "VARCHAR(100) NOT NULL"};
+    String[] primaryKeys = {"num", "lwr"};
+    TableDesc tableDesc = getNewTableDesc( TESTING_TABLE_NAME, columnNames, columnDefs, primaryKeys );
+
+    // untyped sink fields hand the outgoing tuple itself to the tap, which batches it for a writer thread
+    LocalJDBCTap replaceTap = new LocalJDBCTap( getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.REPLACE ) );
+    replaceTap.setWriteThreads( 2 );
+
+    Flow<?> parseFlow = new LocalFlowConnector( createProperties() ).connect( source, replaceTap, parsePipe );
+
+    parseFlow.complete();
+
+    List<String> expected = new ArrayList<String>();
+
+    for( String line : Files.readAllLines( Paths.get( inputFile ), StandardCharsets.UTF_8 ) )
+      {
+      String[] values = line.split( "\\s" );
+      expected.add( values[ 0 ] + " " + values[ 1 ] );
+      }
+
+    Collections.sort( expected );
+
+    assertEquals( expected, readFiltered( tableDesc, fields, columnNames, null ) );
+    }
+
+  @Test
+  public void testJDBCSplitQuery() throws IOException
+    {
+    // CREATE NEW TABLE FROM SOURCE
+
+    Tap<?, ?, ?> source = new Hfs( new TextLine(), inputFile );
+    Fields fields = new Fields( new Comparable[]{"num", "lwr", "upr"}, new Type[]{int.class, String.class,
+                                                                                  String.class} );
+    Pipe parsePipe = new Each( "insert", new Fields( "line" ), new RegexSplitter( fields, "\\s" ) );
+
+    String[] columnNames = {"num", "lwr", "upr"};
+    String[] columnDefs = {"INT NOT NULL", "VARCHAR(100) NOT NULL", "VARCHAR(100) NOT NULL"};
+    String[] primaryKeys = {"num", "lwr"};
+    TableDesc tableDesc = getNewTableDesc( TESTING_TABLE_NAME, columnNames, columnDefs, primaryKeys );
+
+    JDBCTap replaceTap = getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.REPLACE );
+
+    Flow<?> parseFlow = createFlowConnector( createProperties() ).connect( source, replaceTap, parsePipe );
+
+    parseFlow.complete();
+
+    verifySink( parseFlow, 13 );
+
+    // READ DATA FROM A QUERY SPLIT INTO RANGES OF num INTO TEXT FILE
+
+    JDBCScheme queryScheme = getNewJDBCScheme( columnNames, "select num, lwr, upr from " + TESTING_TABLE_NAME + " where $CONDITIONS",
+      "select count(*) from " + TESTING_TABLE_NAME );
+    queryScheme.setSplitColumn( "num" );
+
+    JDBCTap queryTap = getNewJDBCTap( queryScheme );
+    queryTap.setConcurrentReads( 3 );
+
+    Tap<?, ?, ?> sink = new Hfs( new TextLine(), "build/test/jdbc", SinkMode.REPLACE );
+
+    Flow<?> readFlow = createFlowConnector( createProperties() ).connect( queryTap, sink, new Each( "read", new Identity() ) );
+
+    readFlow.complete();
+
+    verifySink( readFlow, 13 );
+    }
+
+  @Test
+  public void testJDBCMaterializedQuery() throws IOException
+    {
+    // CREATE NEW TABLE FROM SOURCE
+
+    Tap<?, ?, ?> source = new Hfs( new TextLine(), inputFile );
+    Fields fields = new Fields( new Comparable[]{"num", "lwr", "upr"}, new Type[]{int.class, String.class,
+                                                                                  String.class} );
+    Pipe parsePipe = new Each( "insert", new Fields( "line" ), new RegexSplitter( fields, "\\s" ) );
+
+    String[] columnNames = {"num", "lwr", "upr"};
+    String[] columnDefs = {"INT NOT NULL", "VARCHAR(100) NOT NULL", "VARCHAR(100) NOT NULL"};
+    String[] primaryKeys = {"num", "lwr"};
+    TableDesc tableDesc = getNewTableDesc( TESTING_TABLE_NAME, columnNames, columnDefs, primaryKeys );
+
+    JDBCTap replaceTap = getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.REPLACE );
+
+    Flow<?> parseFlow = createFlowConnector( createProperties() ).connect( source, replaceTap, parsePipe );
+
+    parseFlow.complete();
+
+    verifySink( parseFlow, 13 );
+
+    // READ DATA FROM A MATERIALIZED QUERY INTO TEXT FILE
+
+    JDBCScheme queryScheme = getNewJDBCScheme( columnNames, "select num, lwr, upr from " + TESTING_TABLE_NAME,
+      "select count(*) from " + TESTING_TABLE_NAME );
+    queryScheme.setMaterialized( true );
+
+    JDBCTap queryTap = getNewJDBCTap( queryScheme );
+    queryTap.setConcurrentReads( 3 );
+
+    Tap<?, ?, ?> sink = new Hfs( new TextLine(), "build/test/jdbc", SinkMode.REPLACE );
+
+    Flow<?> readFlow = createFlowConnector( createProperties() ).connect( queryTap, sink, new Each( "read", new Identity() ) );
+
+    readFlow.complete();
+
+    verifySink( readFlow, 13 );
+    }
+
+  @Test
+  public void testJDBCFilter() throws Exception
+    {
+    // CREATE NEW TABLE FROM SOURCE, upr MAY BE NULL
+
+    Tap<?, ?, ?> source = new Hfs( new TextLine(), inputFile );
+    Fields fields = new Fields( new Comparable[]{"num", "lwr", "upr"}, new Type[]{int.class, String.class,
+                                                                                  String.class} );
+    Pipe parsePipe = new Each( "insert", new Fields( "line" ), new RegexSplitter( fields, "\\s" ) );
+
+    String[] columnNames = {"num", "lwr", "upr"};
+    String[] columnDefs = {"INT NOT NULL", "VARCHAR(100) NOT NULL", "VARCHAR(100)"};
+    String[] primaryKeys = {"num", "lwr"};
+    TableDesc tableDesc = getNewTableDesc( TESTING_TABLE_NAME, columnNames, columnDefs, primaryKeys );
+
+    JDBCTap replaceTap = getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.REPLACE );
+
+    Flow<?> parseFlow = createFlowConnector( createProperties() ).connect( source, replaceTap, parsePipe );
+
+    parseFlow.complete();
+
+    verifySink( parseFlow, 13 );
+
+    Connection connection = openConnection();
+
+    try( Statement statement = connection.createStatement() )
+      {
+      statement.executeUpdate( "UPDATE " + TESTING_TABLE_NAME + " SET upr = NULL WHERE num = 4" );
+      connection.commit();
+      }
+    finally
+      {
+      JDBCUtil.closeConnection( connection );
+      }
+
+    // READ THE ROWS MATCHING TYPED FILTERS INTO TEXT FILES
+
+    assertEquals( Arrays.asList( "2 b", "2 c", "2 d", "3 c", "4 b", "4 c", "4 d" ),
+      readFiltered( tableDesc, fields, columnNames, DBFilter.and( DBFilter.ge( "num", 2 ), DBFilter.lt( "num", 5 ) ) ) );
+
+    assertEquals( Arrays.asList( "1 a", "5 a", "5 e" ),
+      readFiltered( tableDesc, fields, columnNames, DBFilter.in( "lwr", "a", "e" ) ) );
+
+    assertEquals( Arrays.asList( "4 b", "4 c", "4 d" ),
+      readFiltered( tableDesc, fields, columnNames, DBFilter.isNull( "upr" ) ) );
+
+    assertEquals( Arrays.asList( "1 a", "1 b", "1 c", "2 d" ),
+      readFiltered( tableDesc, fields, columnNames, DBFilter.or( DBFilter.eq( "num", 1 ),
+        DBFilter.and( DBFilter.isNotNull( "upr" ), DBFilter.in( "lwr", "d" ) ) ) ) );
+    }
+
+  /** Returns the sorted num and lwr values of the rows read with the given filter. */
+  private List<String> readFiltered( TableDesc tableDesc, Fields fields, String[] columnNames, DBFilter filter ) throws IOException
+    {
+    JDBCScheme filterScheme = getNewJDBCScheme( fields, columnNames );
+    filterScheme.setFilter( filter );
+
+    Tap<?, ?, ?> filterTap = getNewJDBCTap( tableDesc, filterScheme, SinkMode.KEEP );
+    Tap<?, ?, ?> sink = new Hfs( new TextLine(), "build/test/jdbc", SinkMode.REPLACE );
+
+    Flow<?> readFlow = createFlowConnector( createProperties() ).connect( filterTap, sink, new Each( "read", new Identity() ) );
+
+    readFlow.complete();
+
+    List<String> rows = new ArrayList<String>();
+    TupleEntryIterator iterator = readFlow.openSink();
+
+    while( iterator.hasNext() )
+      {
+      String[] values = iterator.next().getString( "line" ).split( "\t" );
+      rows.add( values[ 0 ] + " " + values[ 1 ] );
+      }
+
+    iterator.close();
+
+    Collections.sort( rows );
+
+    return rows;
+    }
+
+  @Test
+  public void testJDBCIncremental() throws Exception
+    {
+    // CREATE NEW TABLE FROM SOURCE
+
+    Tap<?, ?, ?> source = new Hfs( new TextLine(), inputFile );
+    Fields fields = new Fields( new Comparable[]{"num", "lwr", "upr"}, new Type[]{int.class, String.class,
+                                                                                  String.class} );
+    Pipe parsePipe = new Each( "insert", new Fields( "line" ), new RegexSplitter( fields, "\\s" ) );
+
+    String[] columnNames = {"num", "lwr", "upr"};
+    String[] columnDefs = {"INT NOT NULL", "VARCHAR(100) NOT NULL", "VARCHAR(100) NOT NULL"};
+    String[] primaryKeys = {"num", "lwr"};
+    TableDesc tableDesc = getNewTableDesc( TESTING_TABLE_NAME, columnNames, columnDefs, primaryKeys );
+
+    JDBCTap replaceTap = getNewJDBCTap( tableDesc, getNewJDBCScheme( fields, columnNames ), SinkMode.REPLACE );
+
+    Flow<?> parseFlow = createFlowConnector( createProperties() ).connect( source, replaceTap, parsePipe );
+
+    parseFlow.complete();
+
+    verifySink( parseFlow, 13 );
+
+    // FIRST RUN READS ALL ROWS AND STORES THE LARGEST num AS THE MARK
+
+    File markFile = new File( "build/test/jdbc-watermark/mark" );
+    markFile.delete();
+    new File( markFile.getPath() + ".tmp" ).delete();
+
+    FileWatermarkStore store = new FileWatermarkStore( markFile.getAbsoluteFile().toURI().toString() );
+
+    Flow<?> firstFlow = createIncrementalFlow( tableDesc, fields, columnNames, store, new Each( "read", new Identity() ) );
+
+    firstFlow.complete();
+
+    verifySink( firstFlow, 13 );
+    assertEquals( 5L, ( (Number) store.load( null, new JobConf() ) ).longValue() );
+
+    // SECOND RUN ONLY READS THE ROWS ABOVE THE MARK
+
+    insertRows( 6, 7 );
+
+    Flow<?> secondFlow = createIncrementalFlow( tableDesc, fields, columnNames, store, new Each( "read", new Identity() ) );
+
+    secondFlow.complete();
+
+    verifySink( secondFlow, 2 );
+    assertEquals( 7L, ( (Number) store.load( null, new JobConf() ) ).longValue() );
+
+    // A FAILED RUN KEEPS THE MARK, SO THE NEXT RUN READS ITS ROWS AGAIN
+
+    insertRows( 8 );
+
+    Flow<?> failingFlow = createIncrementalFlow( tableDesc, fields, columnNames, store, new Each( "read", new FailingFilter() ) );
+
+    try
+      {
+      failingFlow.complete();
+      fail( "flow did not fail" );
+      }
+    catch( FlowException exception )
+      {
+      // expected
+      }
+
+    assertEquals( 7L, ( (Number) store.load( null, new JobConf() ) ).longValue() );
+
+    Flow<?> retryFlow = createIncrementalFlow( tableDesc, fields, columnNames, store, new Each( "read", new Identity() ) );
+
+    retryFlow.complete();
+
+    verifySink( retryFlow, 1 );
+    assertEquals( 8L, ( (Number) store.load( null, new JobConf() ) ).longValue() );
+    }
+
+  private Flow<?> createIncrementalFlow( TableDesc tableDesc, Fields fields, String[] columnNames, WatermarkStore store, Pipe readPipe )
+    {
+    JDBCScheme incrementalScheme = getNewJDBCScheme( fields, columnNames );
+    incrementalScheme.setIncremental( "num", store );
+
+    Tap<?, ?, ?> incrementalTap = getNewJDBCTap( tableDesc, incrementalScheme, SinkMode.KEEP );
+    Tap<?, ?, ?> sink = new Hfs( new TextLine(), "build/test/jdbc", SinkMode.REPLACE );
+
+    return createFlowConnector( createProperties() ).connect( incrementalTap, sink, readPipe );
+    }
+
+  private void insertRows( int... nums ) throws Exception
+    {
+    Connection connection = openConnection();
+
+    try( PreparedStatement statement = connection.prepareStatement( "INSERT INTO " + TESTING_TABLE_NAME + " ( num, lwr, upr ) VALUES ( ?, ?, ? )" ) )
+      {
+      for( int num : nums )
+        {
+        statement.setInt( 1, num );
+        statement.setString( 2, "a" );
+        statement.setString( 3, "A" );
+        statement.executeUpdate();
+        }
+
+      connection.commit();
+      }
+    finally
+      {
+      JDBCUtil.closeConnection( connection );
+      }
+    }
+
+  /** Function splitting a line into the same output tuple for every line, as many operations do. */
+  private static class ReusingSplitter extends BaseOperation<Tuple> implements Function<Tuple>
+    {
+    ReusingSplitter( Fields fieldDeclaration )
+      {
+      super( 1, fieldDeclaration );
+      }
+
+    @Override
+    public void prepare( FlowProcess flowProcess, OperationCall<Tuple> operationCall )
+      {
+      operationCall.setContext( Tuple.size( getFieldDeclaration().size() ) );
+      }
+
+    @Override
+    public void operate( FlowProcess flowProcess, FunctionCall<Tuple> functionCall )
+      {
+      Tuple output = functionCall.getContext();
+      String[] values = functionCall.getArguments().getString( 0 ).split( "\\s" );
+
+      output.set( 0, Integer.parseInt( values[ 0 ] ) );
+      output.set( 1, values[ 1 ] );
+      output.set( 2, values[ 2 ] );
+
+      functionCall.getOutputCollector().add( output );
+      }
+    }
+
+  /** Filter failing on the first tuple, to fail the flow reading it. */
+  private static class FailingFilter extends BaseOperation implements Filter
+    {
+    @Override
+    public boolean isRemove( FlowProcess flowProcess, FilterCall filterCall )
+      {
+      throw new IllegalStateException( "failing on purpose" );
+      }
+    }
+
   private void verifySink( Flow<?> flow, int expects ) throws IOException
     {
     int count = 0;
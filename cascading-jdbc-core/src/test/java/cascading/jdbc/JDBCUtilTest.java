@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class JDBCUtilTest
+  {
+
+  @Test
+  public void testNewThread() throws Exception
+    {
+    Method isVirtual = null;
+
+    try
+      {
+      isVirtual = Thread.class.getMethod( "isVirtual" );
+      }
+    catch( NoSuchMethodException exception )
+      {
+      // before Java 21 all threads are platform threads
+      }
+
+    assertThread( JDBCUtil.newThread( "platform", new Runnable()
+    {
+    @Override
+    public void run()
+      {
+      }
+    }, false ), "platform", isVirtual, false );
+
+    final AtomicBoolean ran = new AtomicBoolean();
+
+    Thread virtual = JDBCUtil.newThread( "virtual", new Runnable()
+    {
+    @Override
+    public void run()
+      {
+      ran.set( true );
+      }
+    }, true );
+
+    assertThread( virtual, "virtual", isVirtual, isVirtual != null );
+
+    virtual.start();
+    virtual.join();
+
+    assertTrue( ran.get() );
+    }
+
+  private static void assertThread( Thread thread, String name, Method isVirtual, boolean virtual ) throws Exception
+    {
+    assertEquals( name, thread.getName() );
+    assertTrue( thread.isDaemon() );
+    assertEquals( Thread.State.NEW, thread.getState() );
+
+    if( isVirtual != null )
+      assertEquals( virtual, isVirtual.invoke( thread ) );
+    }
+  }
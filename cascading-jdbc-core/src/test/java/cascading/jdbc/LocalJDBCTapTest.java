@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cascading.jdbc.db.DBOutputFormat;
+import cascading.tuple.Tuple;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.Progressable;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalJDBCTapTest
+  {
+  private static final AtomicInteger closed = new AtomicInteger();
+  private static final List<Object> written = Collections.synchronizedList( new ArrayList<Object>() );
+
+  private JobConf conf;
+
+  @Before
+  public void setUp()
+    {
+    closed.set( 0 );
+    written.clear();
+    conf = new JobConf();
+    conf.set( "mapred.output.format.class", FailingOutputFormat.class.getName() );
+    }
+
+  @Test(timeout = 10000)
+  public void testSingleWriterFailing() throws IOException
+    {
+    assertFailsWithoutBlocking( new LocalJDBCTap.ConcurrentOutputCollector( conf, 1, 1 ) );
+    assertEquals( 1, closed.get() );
+    }
+
+  @Test(timeout = 10000)
+  public void testAllWritersFailing() throws IOException
+    {
+    assertFailsWithoutBlocking( new LocalJDBCTap.ConcurrentOutputCollector( conf, 3, 2 ) );
+    assertEquals( 3, closed.get() );
+    }
+
+  @Test(timeout = 10000)
+  public void testReusedTuple() throws IOException
+    {
+    conf.set( "mapred.output.format.class", RecordingOutputFormat.class.getName() );
+
+    LocalJDBCTap.ConcurrentOutputCollector collector = new LocalJDBCTap.ConcurrentOutputCollector( conf, 2, 5 );
+
+    // an upstream operation reusing its output tuple for every row
+    Tuple tuple = new Tuple( (Object) null );
+    TupleRecord record = new TupleRecord( tuple );
+
+    for( int i = 0; i < 100; i++ )
+      {
+      tuple.set( 0, i );
+      collector.collect( record, null );
+      }
+
+    collector.close();
+
+    List<Object> values = new ArrayList<Object>( written );
+    Collections.sort( values, new Comparator<Object>()
+    {
+    @Override
+    public int compare( Object lhs, Object rhs )
+      {
+      return (Integer) lhs - (Integer) rhs;
+      }
+    } );
+
+    assertEquals( 100, values.size() );
+
+    for( int i = 0; i < 100; i++ )
+      assertEquals( i, values.get( i ) );
+    }
+
+  private void assertFailsWithoutBlocking( LocalJDBCTap.ConcurrentOutputCollector collector )
+    {
+    try
+      {
+      // many more batches than the queue holds
+      for( int i = 0; i < 1000; i++ )
+        collector.collect( new TupleRecord(), null );
+
+      collector.close();
+      fail( "expected the failure of the writers" );
+      }
+    catch( IOException exception )
+      {
+      assertEquals( "unable to write rows", exception.getMessage() );
+      }
+
+    // waits for the writers, if collecting failed before closing
+    try
+      {
+      collector.close();
+      }
+    catch( IOException exception )
+      {
+      assertEquals( "unable to write rows", exception.getMessage() );
+      }
+    }
+
+  public static class FailingOutputFormat extends DBOutputFormat<TupleRecord, Object>
+    {
+    @Override
+    public RecordWriter<TupleRecord, Object> getRecordWriter( FileSystem filesystem, JobConf job, String name, Progressable progress )
+      {
+      return new RecordWriter<TupleRecord, Object>()
+        {
+        @Override
+        public void write( TupleRecord key, Object value ) throws IOException
+          {
+          throw new IOException( "writer failed" );
+          }
+
+        @Override
+        public void close( Reporter reporter )
+          {
+          closed.incrementAndGet();
+          }
+        };
+      }
+    }
+  
+  public static class RecordingOutputFormat extends DBOutputFormat<TupleRecord, Object>
+    {
+    @Override
+    public RecordWriter<TupleRecord, Object> getRecordWriter( FileSystem filesystem, JobConf job, String name, Progressable progress )
+      {
+      return new RecordWriter<TupleRecord, Object>()
+        {
+        @Override
+        public void write( TupleRecord key, Object value )
+          {
+          written.add( key.getTuple().getObject( 0 ) );
+          }
+
+        @Override
+        public void close( Reporter reporter )
+          {
+          closed.incrementAndGet();
+          }
+        };
+      }
+    }
+  }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cascading.jdbc;
+
+import static org.junit.Assert.*;
+
+import cascading.tap.TapException;
+import cascading.tuple.Fields;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Test;
+
+public class ShardedJDBCTapTest
+  {
+  private static final String[] SHARD_URLS = {"jdbc:postgresql://db1:5432/test", "jdbc:postgresql://db2:5432/test"};
+
+  @Test
+  public void testShardUrls()
+    {
+    ShardedJDBCTap tap = new ShardedJDBCTap( SHARD_URLS, "org.postgresql.Driver", "test", newQueryScheme() );
+
+    assertArrayEquals( SHARD_URLS, tap.getShardUrls() );
+    assertEquals( "jdbc://" + SHARD_URLS[ 0 ] + "," + SHARD_URLS[ 1 ], tap.getJDBCPath() );
+    assertFalse( tap.isSink() );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyShardUrls()
+    {
+    new ShardedJDBCTap( new String[ 0 ], "org.postgresql.Driver", "test", newQueryScheme() );
+    }
+
+  @Test(expected = TapException.class)
+  public void testMaterialized()
+    {
+    JDBCScheme scheme = newQueryScheme();
+    scheme.setMaterialized( true );
+
+    new ShardedJDBCTap( SHARD_URLS, "org.postgresql.Driver", "test", scheme );
+    }
+
+  @Test
+  public void testMaterializedAfterConstruction()
+    {
+    JDBCScheme scheme = newQueryScheme();
+    ShardedJDBCTap tap = new ShardedJDBCTap( SHARD_URLS, "org.postgresql.Driver", "test", scheme );
+    scheme.setMaterialized( true );
+
+    try
+      {
+      tap.sourceConfInit( null, new JobConf() );
+      fail( "materialized query accepted across shards" );
+      }
+    catch( TapException exception )
+      {
+      // expected
+      }
+    }
+
+  @Test(expected = TapException.class)
+  public void testIncremental()
+    {
+    JDBCScheme scheme = new JDBCScheme( new Fields( "id" ), new String[]{"id"} );
+    scheme.setIncremental( "id", new TableWatermarkStore( "watermarks", "test" ) );
+
+    new ShardedJDBCTap( SHARD_URLS, "org.postgresql.Driver", "test", scheme );
+    }
+
+  private static JDBCScheme newQueryScheme()
+    {
+    return new JDBCScheme( new Fields( "id" ), new String[]{"id"}, "select id from test", "select count(*) from test", -1 );
+    }
+  }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+public class WatermarkStoreTest
+  {
+
+  @Test
+  public void testEncoding()
+    {
+    assertEquals( 42L, WatermarkStore.decode( WatermarkStore.encode( 42 ) ) );
+    assertEquals( new BigDecimal( "12.50" ), WatermarkStore.decode( WatermarkStore.encode( new BigDecimal( "12.50" ) ) ) );
+    assertEquals( "a:b", WatermarkStore.decode( WatermarkStore.encode( "a:b" ) ) );
+
+    Timestamp timestamp = Timestamp.valueOf( "2015-03-01 12:30:45.123" );
+    assertEquals( timestamp, WatermarkStore.decode( WatermarkStore.encode( timestamp ) ) );
+
+    Date date = Date.valueOf( "2015-03-01" );
+    assertEquals( date, WatermarkStore.decode( WatermarkStore.encode( date ) ) );
+
+    assertNull( WatermarkStore.decode( null ) );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType()
+    {
+    WatermarkStore.encode( new Object() );
+    }
+
+  @Test
+  public void testFileStore() throws IOException
+    {
+    File directory = new File( System.getProperty( "java.io.tmpdir" ), "watermark-" + System.nanoTime() );
+    FileWatermarkStore store = new FileWatermarkStore( new File( directory, "mark" ).toURI().toString() );
+    Configuration conf = new Configuration();
+
+    assertNull( store.load( null, conf ) );
+
+    store.store( null, conf, 10L );
+    assertEquals( 10L, store.load( null, conf ) );
+
+    store.store( null, conf, 20L );
+    assertEquals( 20L, store.load( null, conf ) );
+    assertFalse( new File( directory, "mark.tmp" ).exists() );
+    }
+
+  @Test
+  public void testFileStoreFallsBackToTempFile() throws IOException
+    {
+    File directory = new File( System.getProperty( "java.io.tmpdir" ), "watermark-" + System.nanoTime() );
+    File mark = new File( directory, "mark" );
+    FileWatermarkStore store = new FileWatermarkStore( mark.toURI().toString() );
+    Configuration conf = new Configuration();
+
+    // a job, which died after deleting the old mark, leaves only the temporary file
+    assertTrue( directory.mkdirs() );
+    writeFile( new File( directory, "mark.tmp" ), "long:30" );
+
+    assertEquals( 30L, store.load( null, conf ) );
+
+    // the mark itself wins, once it exists
+    writeFile( mark, "long:40" );
+
+    assertEquals( 40L, store.load( null, conf ) );
+    }
+
+  private static void writeFile( File file, String content ) throws IOException
+    {
+    try( OutputStream output = new FileOutputStream( file ) )
+      {
+      output.write( content.getBytes( StandardCharsets.UTF_8 ) );
+      }
+    }
+  }
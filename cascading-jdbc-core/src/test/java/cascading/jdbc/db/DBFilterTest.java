@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc.db;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Test;
+
+public class DBFilterTest
+  {
+
+  @Test
+  public void testRendering()
+    {
+    DBFilter filter = DBFilter.and( DBFilter.ge( "created", 10L ), DBFilter.or( DBFilter.in( "status", "NEW", "OPEN" ),
+      DBFilter.isNull( "status" ) ), DBFilter.between( "amount", 1, 100 ) );
+
+    assertEquals( "(created >= ?) AND ((status IN (?, ?)) OR (status IS NULL)) AND (amount BETWEEN ? AND ?)", filter.toSQL() );
+    assertEquals( Arrays.<Object>asList( 10L, "NEW", "OPEN", 1, 100 ), filter.getParameters() );
+    }
+
+  @Test
+  public void testNullComparisons()
+    {
+    assertEquals( "name IS NULL", DBFilter.eq( "name", null ).toSQL() );
+    assertEquals( "name IS NOT NULL", DBFilter.ne( "name", null ).toSQL() );
+    assertEquals( "1 = 0", DBFilter.in( "name" ).toSQL() );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullValue()
+    {
+    DBFilter.gt( "name", null );
+    }
+
+  @Test
+  public void testSerialization()
+    {
+    DBFilter filter = DBFilter.or( DBFilter.eq( "id", 42 ), DBFilter.lt( "name", "m" ) );
+
+    assertEquals( filter, DBFilter.deserialize( DBFilter.serialize( filter ) ) );
+    }
+
+  @Test
+  public void testAppendWhere()
+    {
+    JobConf conf = new JobConf();
+    DBInputFormat.setInput( conf, DBInputFormat.NullDBWritable.class, "test", "id > 5", null, -1, 1, false, "id", "name" );
+    DBInputFormat.setFilter( conf, DBFilter.eq( "name", "foo" ) );
+
+    DBInputFormat<DBInputFormat.NullDBWritable> format = new DBInputFormat<DBInputFormat.NullDBWritable>();
+    format.configure( conf );
+
+    List<Object> parameters = new ArrayList<Object>();
+
+    assertEquals( "SELECT COUNT(*) FROM test WHERE (id > 5) AND (name = ?)", format.getCountQuery( parameters ) );
+    assertEquals( Arrays.<Object>asList( "foo" ), parameters );
+    }
+  }
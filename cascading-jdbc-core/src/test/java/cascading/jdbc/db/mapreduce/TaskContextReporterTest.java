@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db.mapreduce;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import cascading.jdbc.db.DBInputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.junit.Test;
+
+public class TaskContextReporterTest
+  {
+
+  @Test
+  public void testCounters()
+    {
+    org.apache.hadoop.mapreduce.Counters counters = new org.apache.hadoop.mapreduce.Counters();
+    TaskAttemptID attemptID = new TaskAttemptID( "job", 1, TaskType.MAP, 0, 0 );
+    TaskContextReporter reporter = new TaskContextReporter( createContext( new Configuration(), attemptID, counters ), null );
+
+    Counters.Counter stolen = reporter.getCounter( DBInputFormat.Counter.STOLEN_KEY_RANGES );
+    stolen.increment( 2 );
+    reporter.incrCounter( DBInputFormat.Counter.STOLEN_KEY_RANGES, 1 );
+    reporter.getCounter( "jdbc", "rows" ).increment( 5 );
+
+    assertEquals( 3, counters.findCounter( DBInputFormat.Counter.STOLEN_KEY_RANGES ).getValue() );
+    assertEquals( 3, stolen.getCounter() );
+    assertEquals( 5, counters.findCounter( "jdbc", "rows" ).getValue() );
+    }
+
+  /**
+   * Returns a context of the given task attempt, which also serves as the context of its job. The contexts of
+   * Hadoop log in the current user, which needs the security setup of a cluster.
+   */
+  private static TaskAttemptContext createContext( final Configuration conf, final TaskAttemptID attemptID, final org.apache.hadoop.mapreduce.Counters counters )
+    {
+    return (TaskAttemptContext) Proxy.newProxyInstance( TaskAttemptContext.class.getClassLoader(), new Class[]{TaskAttemptContext.class},
+      new InvocationHandler()
+      {
+      @Override
+      public Object invoke( Object proxy, Method method, Object[] args )
+        {
+        switch( method.getName() )
+          {
+          case "getConfiguration":
+            return conf;
+          case "getTaskAttemptID":
+            return attemptID;
+          case "getJobID":
+            return attemptID.getJobID();
+          case "getCounter":
+            if( args.length == 1 )
+              return counters.findCounter( (Enum<?>) args[ 0 ] );
+
+            return counters.findCounter( (String) args[ 0 ], (String) args[ 1 ] );
+          case "getProgress":
+            return 0f;
+          case "progress":
+          case "setStatus":
+            return null;
+          default:
+            throw new UnsupportedOperationException( method.getName() );
+          }
+        }
+      } );
+    }
+  }
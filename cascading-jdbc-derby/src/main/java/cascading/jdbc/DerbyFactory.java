@@ -21,7 +21,9 @@
 package cascading.jdbc;
 
 import cascading.jdbc.db.DBInputFormat;
+import cascading.jdbc.db.DBOutputFormat;
 import cascading.jdbc.db.DerbyDBInputFormat;
+import cascading.jdbc.db.DerbyDBOutputFormat;
 
 /**
  *
@@ -33,4 +35,10 @@ public class DerbyFactory extends JDBCFactory
     {
     return DerbyDBInputFormat.class;
     }
+
+  @Override
+  protected Class<? extends DBOutputFormat> getOutputFormClass()
+    {
+    return DerbyDBOutputFormat.class;
+    }
   }
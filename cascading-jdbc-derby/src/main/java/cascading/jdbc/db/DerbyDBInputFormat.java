@@ -21,18 +21,124 @@
 package cascading.jdbc.db;
 
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.RecordReader;
 
 /**
- *
+ * {@link DBInputFormat} for Apache Derby. Tables are split by the ranges of their key, see
+ * {@link #findSplitColumn(Connection, String)}, and by <code>OFFSET</code> and <code>FETCH</code> otherwise.
  */
 public class DerbyDBInputFormat extends DBInputFormat<DBWritable>
   {
 
+  @Override
+  public List<String> getStagingStatements( String stagingTable, String query )
+    {
+    // derby creates tables from queries without data only
+    String select = "SELECT ROW_NUMBER() OVER () AS " + STAGING_ROW_COLUMN + ", q.* FROM ( " + query + " ) q";
+
+    return Arrays.asList( "CREATE TABLE " + stagingTable + " AS " + select + " WITH NO DATA",
+      "INSERT INTO " + stagingTable + " " + select );
+    }
+
+  /**
+   * Splits tables by their primary key, or else by a unique index, if it covers a single integral column, which
+   * must not be null. Derby skips the rows before an <code>OFFSET</code> by reading them, so splits of row numbers
+   * are only used for tables without such a key.
+   */
+  @Override
+  protected String findSplitColumn( Connection connection, String table ) throws SQLException
+    {
+    int separator = table.lastIndexOf( '.' );
+    String schemaName = separator == -1 ? connection.getSchema() : DerbyDBOutputFormat.normalizeIdentifier( table.substring( 0, separator ) );
+    String tableName = DerbyDBOutputFormat.normalizeIdentifier( table.substring( separator + 1 ) );
+    DatabaseMetaData metaData = connection.getMetaData();
+    List<String> keys = new ArrayList<String>();
+
+    try( ResultSet results = metaData.getPrimaryKeys( null, schemaName, tableName ) )
+      {
+      while( results.next() )
+        keys.add( results.getString( "COLUMN_NAME" ) );
+      }
+
+    if( keys.size() == 1 && isIntegral( metaData, schemaName, tableName, keys.get( 0 ) ) )
+      return toIdentifier( keys.get( 0 ) );
+
+    Map<String, List<String>> indexes = new LinkedHashMap<String, List<String>>();
+
+    try( ResultSet results = metaData.getIndexInfo( null, schemaName, tableName, true, true ) )
+      {
+      while( results.next() )
+        {
+        String indexName = results.getString( "INDEX_NAME" );
+
+        if( indexName == null )
+          continue;
+
+        if( !indexes.containsKey( indexName ) )
+          indexes.put( indexName, new ArrayList<String>() );
+
+        indexes.get( indexName ).add( results.getString( "COLUMN_NAME" ) );
+        }
+      }
+
+    for( List<String> columns : indexes.values() )
+      {
+      if( columns.size() == 1 && isIntegral( metaData, schemaName, tableName, columns.get( 0 ) ) )
+        return toIdentifier( columns.get( 0 ) );
+      }
+
+    return null;
+    }
+
+  /** Returns true, if the column holds integers and no nulls, which would fall outside of every key range. */
+  private static boolean isIntegral( DatabaseMetaData metaData, String schemaName, String tableName, String columnName ) throws SQLException
+    {
+    try( ResultSet results = metaData.getColumns( null, schemaName, tableName, columnName ) )
+      {
+      if( !results.next() || results.getInt( "NULLABLE" ) != DatabaseMetaData.columnNoNulls )
+        return false;
+
+      switch( results.getInt( "DATA_TYPE" ) )
+        {
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+          return true;
+        default:
+          return false;
+        }
+      }
+    }
+
+  /** Quotes the given column name, unless Derby would read it unquoted as the same name. */
+  static String toIdentifier( String columnName )
+    {
+    if( columnName.matches( "[A-Z][A-Z0-9_]*" ) )
+      return columnName;
+
+    return "\"" + columnName.replace( "\"", "\"\"" ) + "\"";
+    }
+
+  @Override
+  protected String limitPage( String query, List<Object> parameters, int pageSize )
+    {
+    parameters.add( pageSize );
+    return query + " FETCH FIRST ? ROWS ONLY";
+    }
+
   @Override
   protected RecordReader<LongWritable, DBWritable> getRecordReaderInternal( cascading.jdbc.db.DBInputFormat.DBInputSplit split, Class inputClass, JobConf job ) throws SQLException, IOException
     {
@@ -66,8 +172,7 @@ public class DerbyDBInputFormat extends DBInputFormat<DBWritable>
           }
 
         query.append( " FROM " ).append( tableName );
-        if( conditions != null && conditions.length() > 0 )
-          query.append( " WHERE " ).append( conditions );
+        appendWhere( query, parameters );
 
         String orderBy = dbConf.getInputOrderBy();
         if( orderBy != null && orderBy.length() > 0 )
@@ -76,14 +181,16 @@ public class DerbyDBInputFormat extends DBInputFormat<DBWritable>
       else
         {
         //PREBUILT QUERY
-        query.append( dbConf.getInputQuery() );
+        query.append( getInputQuery() );
         }
+      // splits of row numbers are only planned for tables without a key to split by, see findSplitColumn
       try
         {
         if( split.getLength() > 0 && split.getStart() >= 0 )
           {
-          query.append( " OFFSET " ).append( split.getStart() )
-               .append( " ROWS FETCH NEXT " ).append( split.getEnd() - split.getStart() ).append( " ROWS ONLY" );
+          query.append( " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY" );
+          parameters.add( split.getStart() );
+          parameters.add( split.getEnd() - split.getStart() );
           }
         }
       catch( IOException ex )
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Locale;
+
+import cascading.jdbc.JDBCUtil;
+import cascading.jdbc.TableDesc;
+import cascading.jdbc.TupleRecord;
+import cascading.tuple.Tuple;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.Progressable;
+
+/**
+ * {@link DBOutputFormat} loading the rows of a task with <code>SYSCS_UTIL.SYSCS_IMPORT_DATA</code>. The rows are
+ * spooled to a local delimited file, which is imported when the task closes, so Derby inserts them in a single
+ * statement instead of one row at a time.
+ * <p/>
+ * Derby reads the file itself, so the spool directory must be visible to the database, which it is for embedded
+ * databases and network servers on the same host. Therefore the import has to be enabled with
+ * {@link #setUseImport(Configuration, boolean)}, otherwise the rows are inserted with the batched statements of
+ * {@link DBOutputFormat}, as are updates.
+ * <p/>
+ * Dates are written in the format of the column they are imported into, as given by the column definitions of the
+ * table.
+ */
+public class DerbyDBOutputFormat<K extends DBWritable, V> extends DBOutputFormat<K, V>
+  {
+  private static final Log LOG = LogFactory.getLog( DerbyDBOutputFormat.class );
+
+  /** Whether rows are inserted with <code>SYSCS_UTIL.SYSCS_IMPORT_DATA</code> */
+  public static final String USE_IMPORT_PROPERTY = "mapred.jdbc.output.derby.import";
+
+  /** The directory the rows are spooled to, defaults to <code>java.io.tmpdir</code> */
+  public static final String IMPORT_DIR_PROPERTY = "mapred.jdbc.output.derby.import.dir";
+
+  static final char COLUMN_DELIMITER = ',';
+  static final char CHARACTER_DELIMITER = '"';
+
+  /**
+   * Sets whether rows are inserted with <code>SYSCS_UTIL.SYSCS_IMPORT_DATA</code>. By default they are inserted with
+   * batched statements.
+   *
+   * @param configuration the configuration of the job
+   * @param useImport     true to import the rows, only if the database can read the import directory
+   */
+  public static void setUseImport( Configuration configuration, boolean useImport )
+    {
+    configuration.setBoolean( USE_IMPORT_PROPERTY, useImport );
+    }
+
+  /**
+   * Sets the directory the rows are spooled to before they are imported.
+   *
+   * @param configuration the configuration of the job
+   * @param importDir     a directory readable by the Derby server
+   */
+  public static void setImportDir( Configuration configuration, String importDir )
+    {
+    configuration.set( IMPORT_DIR_PROPERTY, importDir );
+    }
+
+  /** {@inheritDoc} */
+  @Override
+  public RecordWriter<K, V> getRecordWriter( FileSystem filesystem, JobConf job, String name, Progressable progress ) throws IOException
+    {
+    DBConfiguration dbConf = new DBConfiguration( job );
+
+    if( dbConf.getOutputUpdateFieldNames() != null || !job.getBoolean( USE_IMPORT_PROPERTY, false ) )
+      return super.getRecordWriter( filesystem, job, name, progress );
+
+    Connection connection = dbConf.getConnection();
+    TableDesc tableDesc = dbConf.toTableDesc();
+
+    configureConnection( connection );
+    JDBCUtil.createTableIfNotExists( connection, tableDesc );
+
+    String[] columnTypes = new String[ tableDesc.getColumnDefs().length ];
+
+    for( int i = 0; i < columnTypes.length; i++ )
+      columnTypes[ i ] = getTypeName( tableDesc.getColumnDefs()[ i ] );
+
+    String importDir = job.get( IMPORT_DIR_PROPERTY, System.getProperty( "java.io.tmpdir" ) );
+    File file;
+
+    try
+      {
+      file = File.createTempFile( "derby-import-", ".csv", new File( importDir ) );
+      }
+    catch( IOException exception )
+      {
+      JDBCUtil.closeConnection( connection );
+      throw new IOException( "unable to create import file in: " + importDir, exception );
+      }
+
+    return new ImportRecordWriter( connection, dbConf.getOutputTableName(), dbConf.getOutputFieldNames(), columnTypes, file );
+    }
+
+  /** Returns the upper case name of the type of a column definition, like <code>DATE</code> for <code>date not null</code>. */
+  static String getTypeName( String columnDef )
+    {
+    String typeName = columnDef.trim().split( "[\\s(]", 2 )[ 0 ];
+
+    return typeName.toUpperCase( Locale.ENGLISH );
+    }
+
+  /**
+   * Constructs the call importing a file, binding the schema, table, columns, file, column delimiter and character
+   * delimiter. The rows are appended to the table.
+   */
+  protected String constructImportCall()
+    {
+    return "CALL SYSCS_UTIL.SYSCS_IMPORT_DATA( ?, ?, ?, NULL, ?, ?, ?, 'UTF-8', 0 )";
+    }
+
+  /**
+   * Normalizes an identifier the way Derby does when parsing SQL, the import procedures compare names as given.
+   *
+   * @param identifier a possibly quoted identifier
+   */
+  static String normalizeIdentifier( String identifier )
+    {
+    identifier = identifier.trim();
+
+    if( identifier.length() > 1 && identifier.startsWith( "\"" ) && identifier.endsWith( "\"" ) )
+      return identifier.substring( 1, identifier.length() - 1 ).replace( "\"\"", "\"" );
+
+    return identifier.toUpperCase();
+    }
+
+  /**
+   * Appends a value in the format read by <code>SYSCS_UTIL.SYSCS_IMPORT_DATA</code>. Nulls are left empty, character
+   * data is enclosed in the character delimiter, binary data is written in hex. Dates are written as dates, times or
+   * timestamps, depending on the type of the column.
+   *
+   * @param builder    the line of the import file
+   * @param value      the value to append
+   * @param columnType the upper case type name of the column, or null, if unknown
+   */
+  static void appendValue( StringBuilder builder, Object value, String columnType )
+    {
+    if( value == null )
+      return;
+
+    if( value instanceof CharSequence || value instanceof Character )
+      {
+      String string = value.toString();
+
+      builder.append( CHARACTER_DELIMITER );
+
+      for( int i = 0; i < string.length(); i++ )
+        {
+        char current = string.charAt( i );
+
+        if( current == CHARACTER_DELIMITER )
+          builder.append( CHARACTER_DELIMITER );
+
+        builder.append( current );
+        }
+
+      builder.append( CHARACTER_DELIMITER );
+      }
+    else if( value instanceof byte[] )
+      {
+      for( byte current : (byte[]) value )
+        {
+        builder.append( Character.forDigit( ( current >> 4 ) & 0xF, 16 ) );
+        builder.append( Character.forDigit( current & 0xF, 16 ) );
+        }
+      }
+    else if( value instanceof Date )
+      {
+      long time = ( (Date) value ).getTime();
+
+      if( "DATE".equals( columnType ) )
+        builder.append( new java.sql.Date( time ) );
+      else if( "TIME".equals( columnType ) )
+        builder.append( new Time( time ) );
+      else if( value instanceof Timestamp )
+        builder.append( value );
+      else
+        builder.append( new Timestamp( time ) );
+      }
+    else
+      {
+      builder.append( value );
+      }
+    }
+
+  /** A RecordWriter spooling rows to a file, which is imported when it is closed */
+  protected class ImportRecordWriter implements RecordWriter<K, V>
+    {
+    private final Connection connection;
+    private final String tableName;
+    private final String[] fieldNames;
+    private final String[] columnTypes;
+    private final File file;
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder();
+    private long rowsWritten = 0;
+
+    protected ImportRecordWriter( Connection connection, String tableName, String[] fieldNames, String[] columnTypes, File file ) throws IOException
+      {
+      this.connection = connection;
+      this.tableName = tableName;
+      this.fieldNames = fieldNames;
+      this.columnTypes = columnTypes;
+      this.file = file;
+
+      try
+        {
+        this.writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), StandardCharsets.UTF_8 ) );
+        }
+      catch( IOException exception )
+        {
+        JDBCUtil.closeConnection( connection );
+
+        if( !file.delete() )
+          LOG.warn( "unable to delete import file: " + file );
+
+        throw exception;
+        }
+      }
+
+    /** {@inheritDoc} */
+    public synchronized void write( K key, V value ) throws IOException
+      {
+      if( !( key instanceof TupleRecord ) )
+        throw new IOException( "imports require keys of type: " + TupleRecord.class.getName() );
+
+      Tuple tuple = ( (TupleRecord) key ).getTuple();
+
+      line.setLength( 0 );
+
+      for( int i = 0; i < tuple.size(); i++ )
+        {
+        if( i != 0 )
+          line.append( COLUMN_DELIMITER );
+
+        appendValue( line, tuple.getObject( i ), i < columnTypes.length ? columnTypes[ i ] : null );
+        }
+
+      line.append( '\n' );
+      writer.write( line.toString() );
+      rowsWritten++;
+      }
+
+    /** {@inheritDoc} */
+    public void close( Reporter reporter ) throws IOException
+      {
+      try
+        {
+        writer.close();
+
+        if( rowsWritten != 0 )
+          importFile();
+        }
+      finally
+        {
+        JDBCUtil.closeConnection( connection );
+
+        if( !file.delete() )
+          LOG.warn( "unable to delete import file: " + file );
+        }
+      }
+
+    private void importFile() throws IOException
+      {
+      int separator = tableName.lastIndexOf( '.' );
+      String schema = separator == -1 ? null : normalizeIdentifier( tableName.substring( 0, separator ) );
+      String table = normalizeIdentifier( tableName.substring( separator + 1 ) );
+      StringBuilder columns = new StringBuilder();
+
+      for( String fieldName : fieldNames )
+        {
+        if( columns.length() != 0 )
+          columns.append( ',' );
+
+        columns.append( normalizeIdentifier( fieldName ) );
+        }
+
+      try( CallableStatement statement = connection.prepareCall( constructImportCall() ) )
+        {
+        statement.setString( 1, schema );
+        statement.setString( 2, table );
+        statement.setString( 3, columns.toString() );
+        statement.setString( 4, file.getAbsolutePath() );
+        statement.setString( 5, String.valueOf( COLUMN_DELIMITER ) );
+        statement.setString( 6, String.valueOf( CHARACTER_DELIMITER ) );
+        statement.execute();
+        connection.commit();
+        }
+      catch( SQLException exception )
+        {
+        try
+          {
+          connection.rollback();
+          }
+        catch( SQLException rollbackException )
+          {
+          LOG.error( "unable to rollback import", rollbackException );
+          }
+
+        // the most likely cause is a database server, that cannot read the import directory
+        throw new IOException( "unable to import " + rowsWritten + " rows into: " + tableName + " from: " + file.getAbsolutePath()
+          + ", the file must be readable by the database, see " + IMPORT_DIR_PROPERTY + " and " + USE_IMPORT_PROPERTY, exception );
+        }
+
+      LOG.info( "imported " + rowsWritten + " rows into: " + tableName );
+      }
+    }
+  }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cascading.jdbc.db.DerbyDBInputFormat;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class JDBCTapTest
+  {
+  private static final String URL = "jdbc:derby:memory:staging;create=true";
+
+  private static Connection connection;
+
+  @BeforeClass
+  public static void createTables() throws Exception
+    {
+    connection = DriverManager.getConnection( URL );
+
+    try( Statement statement = connection.createStatement() )
+      {
+      statement.execute( "CREATE TABLE source (id INT)" );
+
+      for( int i = 0; i < 10; i++ )
+        statement.execute( "INSERT INTO source VALUES (" + i + ")" );
+      }
+    }
+
+  @AfterClass
+  public static void closeConnection() throws Exception
+    {
+    connection.close();
+    }
+
+  @Test
+  public void testConcurrentStagingTable() throws Exception
+    {
+    JDBCScheme scheme = new JDBCScheme( DerbyDBInputFormat.class, new String[]{"id"}, "select id from source", "select count(*) from source", -1 );
+    scheme.setMaterialized( true );
+
+    final JDBCTap tap = new JDBCTap( URL, "org.apache.derby.jdbc.EmbeddedDriver", scheme );
+    List<Callable<String>> copies = new ArrayList<Callable<String>>();
+
+    // copies of the tap, e.g. of two steps, share their id and staging table
+    for( int i = 0; i < 4; i++ )
+      {
+      final JDBCTap copy = copy( tap );
+
+      copies.add( new Callable<String>()
+      {
+      @Override
+      public String call()
+        {
+        return copy.getStagingTable();
+        }
+      } );
+      }
+
+    ExecutorService executor = Executors.newFixedThreadPool( copies.size() );
+
+    try
+      {
+      List<Future<String>> tables = executor.invokeAll( copies );
+
+      for( Future<String> table : tables )
+        assertEquals( tables.get( 0 ).get(), table.get() );
+
+      // the table is left in place by the copies, which did not create it
+      assertEquals( tables.get( 0 ).get(), tap.getStagingTable() );
+      assertEquals( 10, count( tables.get( 0 ).get() ) );
+      }
+    finally
+      {
+      executor.shutdown();
+      }
+    }
+
+  private static JDBCTap copy( JDBCTap tap ) throws Exception
+    {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try( ObjectOutputStream output = new ObjectOutputStream( bytes ) )
+      {
+      output.writeObject( tap );
+      }
+
+    try( ObjectInputStream input = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+      {
+      return (JDBCTap) input.readObject();
+      }
+    }
+
+  private static int count( String table ) throws Exception
+    {
+    try( Statement statement = connection.createStatement();
+         ResultSet results = statement.executeQuery( "SELECT COUNT(DISTINCT cascading_row) FROM " + table ) )
+      {
+      results.next();
+
+      return results.getInt( 1 );
+      }
+    }
+  }
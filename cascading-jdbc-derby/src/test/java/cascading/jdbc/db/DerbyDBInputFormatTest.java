@@ -0,0 +1,451 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cascading.jdbc.TupleRecord;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DerbyDBInputFormatTest
+  {
+  private static final String URL = "jdbc:derby:memory:splitting;create=true";
+
+  private static Connection connection;
+
+  @BeforeClass
+  public static void createTables() throws Exception
+    {
+    connection = DriverManager.getConnection( URL );
+
+    try( Statement statement = connection.createStatement() )
+      {
+      statement.execute( "CREATE TABLE keyed (id INT PRIMARY KEY, name VARCHAR(10))" );
+      statement.execute( "CREATE TABLE indexed (code VARCHAR(10) PRIMARY KEY, seq BIGINT NOT NULL UNIQUE)" );
+      statement.execute( "CREATE TABLE nullable (seq BIGINT UNIQUE, name VARCHAR(10))" );
+      statement.execute( "CREATE TABLE \"Quoted\" (\"Id\" INT PRIMARY KEY)" );
+      statement.execute( "CREATE TABLE plain (name VARCHAR(10))" );
+      statement.execute( "INSERT INTO nullable VALUES (1, 'one'), (NULL, 'none')" );
+
+      for( int i = 0; i < 100; i++ )
+        statement.execute( "INSERT INTO keyed VALUES (" + i + ", 'name-" + i + "')" );
+      }
+    }
+
+  @AfterClass
+  public static void closeConnection() throws Exception
+    {
+    connection.close();
+    }
+
+  @Test
+  public void testFindSplitColumn() throws Exception
+    {
+    DerbyDBInputFormat format = new DerbyDBInputFormat();
+
+    assertEquals( "ID", format.findSplitColumn( connection, "keyed" ) );
+    assertEquals( "ID", format.findSplitColumn( connection, "app.KEYED" ) );
+    assertEquals( "SEQ", format.findSplitColumn( connection, "indexed" ) );
+    assertEquals( "\"Id\"", format.findSplitColumn( connection, "\"Quoted\"" ) );
+    assertNull( format.findSplitColumn( connection, "nullable" ) );
+    assertNull( format.findSplitColumn( connection, "plain" ) );
+    }
+
+  @Test
+  public void testKeyRangeSplits() throws Exception
+    {
+    JobConf job = createJob( -1 );
+
+    DerbyDBInputFormat format = new DerbyDBInputFormat();
+    format.configure( job );
+
+    InputSplit[] splits = format.getSplits( job, 4 );
+
+    assertEquals( 4, splits.length );
+
+    for( int i = 0; i < splits.length; i++ )
+      {
+      DBInputFormat.DBInputSplit split = (DBInputFormat.DBInputSplit) splits[ i ];
+
+      assertTrue( split.hasKeyRange() );
+      assertEquals( "ID", split.getSplitColumn() );
+      assertEquals( i * 25, split.getLowerKey() );
+      assertEquals( i * 25 + 24, split.getUpperKey() );
+      }
+
+    // the tasks only know the split column from their splits, when the splits were planned elsewhere
+    assertEachIdOnce( read( createJob( -1 ), splits ), 100 );
+    }
+
+  @Test
+  public void testWithoutSplitColumnDiscovery() throws Exception
+    {
+    JobConf job = createJob( -1 );
+    DBInputFormat.setSplitColumnDiscovery( job, false );
+
+    DerbyDBInputFormat format = new DerbyDBInputFormat();
+    format.configure( job );
+
+    InputSplit[] splits = format.getSplits( job, 4 );
+
+    for( InputSplit split : splits )
+      assertFalse( ( (DBInputFormat.DBInputSplit) split ).hasKeyRange() );
+
+    assertEachIdOnce( read( job, splits ), 100 );
+    }
+
+  @Test
+  public void testPaging() throws Exception
+    {
+    JobConf job = createJob( -1 );
+    DBInputFormat.setPageSize( job, 7 );
+
+    assertEachIdOnce( readAll( job, new DerbyDBInputFormat() ), 100 );
+    }
+
+  @Test
+  public void testRetryPageFromLastKey() throws Exception
+    {
+    final AtomicInteger statements = new AtomicInteger();
+    final List<String> queries = new ArrayList<String>();
+    JobConf job = createJob( -1 );
+    DBInputFormat.setPageSize( job, 7 );
+    DBInputFormat.setPageRetries( job, 1 );
+
+    // the second page of the first split fails once and is read again after the last key of the first page
+    DerbyDBInputFormat format = new DerbyDBInputFormat()
+      {
+      @Override
+      protected RecordReader<LongWritable, DBWritable> getRecordReaderInternal( DBInputSplit split, Class inputClass, JobConf job ) throws SQLException, IOException
+        {
+        return new DBRecordReader( split, inputClass, job )
+          {
+          @Override
+          protected PreparedStatement createStatement( String query ) throws SQLException
+            {
+            if( statements.incrementAndGet() == 2 )
+              throw new SQLTransientConnectionException( "connection lost" );
+
+            queries.add( query + " " + parameters );
+
+            return super.createStatement( query );
+            }
+          };
+        }
+      };
+
+    assertEachIdOnce( readAll( job, format ), 100 );
+    assertEquals( "SELECT id, name FROM keyed WHERE ID BETWEEN ? AND ? AND ID > ? ORDER BY ID FETCH FIRST ? ROWS ONLY [0, 24, 6, 7]",
+      queries.get( 1 ) );
+    }
+
+  @Test
+  public void testPagingIgnoredForRowSplits() throws Exception
+    {
+    // limits are read by row numbers, which are not paged
+    JobConf job = createJob( 10 );
+    DBInputFormat.setPageSize( job, 3 );
+
+    List<Integer> ids = readAll( job, new DerbyDBInputFormat() );
+
+    assertEquals( 10, ids.size() );
+    assertEquals( 10, new java.util.HashSet<Integer>( ids ).size() );
+    }
+
+  @Test
+  public void testConsistentRead() throws Exception
+    {
+    final List<String> snapshots = new ArrayList<String>();
+    JobConf job = createJob( -1 );
+    DBInputFormat.setPageSize( job, 10 );
+    DBInputFormat.setConsistentRead( job, true );
+
+    // every reader, page and retry reads at the snapshot taken while planning, at the isolation level keeping it
+    DerbyDBInputFormat format = new DerbyDBInputFormat()
+      {
+      @Override
+      protected String exportSnapshot( Connection connection )
+        {
+        return "snapshot-1";
+        }
+
+      @Override
+      protected void useSnapshot( Connection connection, String snapshot ) throws SQLException
+        {
+        snapshots.add( snapshot + "@" + connection.getTransactionIsolation() );
+        }
+      };
+
+    assertEachIdOnce( readAll( job, format ), 100 );
+
+    assertEquals( "snapshot-1", new DBConfiguration( job ).getInputSnapshot() );
+    // 4 splits of 25 rows, read in 3 pages each
+    assertEquals( 12, snapshots.size() );
+
+    for( String snapshot : snapshots )
+      assertEquals( "snapshot-1@" + Connection.TRANSACTION_REPEATABLE_READ, snapshot );
+    }
+
+  @Test(expected = IOException.class)
+  public void testNullableSplitColumn() throws Exception
+    {
+    JobConf job = new JobConf();
+    DBConfiguration.configureDB( job, "org.apache.derby.jdbc.EmbeddedDriver", URL );
+    DBInputFormat.setInput( job, TupleRecord.class, "nullable", null, null, -1, 2, false, "seq", "name" );
+    DBInputFormat.setSplitColumn( job, "seq" );
+
+    DerbyDBInputFormat format = new DerbyDBInputFormat();
+    format.configure( job );
+    format.getSplits( job, 2 );
+    }
+
+  @Test
+  public void testShards() throws Exception
+    {
+    String[] shardUrls = {"jdbc:derby:memory:shard0;create=true", "jdbc:derby:memory:shard1;create=true"};
+
+    // each shard holds half of the ids
+    for( int shard = 0; shard < shardUrls.length; shard++ )
+      {
+      try( Connection shardConnection = DriverManager.getConnection( shardUrls[ shard ] );
+           Statement statement = shardConnection.createStatement() )
+        {
+        statement.execute( "CREATE TABLE keyed (id INT PRIMARY KEY, name VARCHAR(10))" );
+
+        for( int i = shard * 50; i < shard * 50 + 50; i++ )
+          statement.execute( "INSERT INTO keyed VALUES (" + i + ", 'name-" + i + "')" );
+        }
+      }
+
+    JobConf job = createJob( -1 );
+    DBInputFormat.setShards( job, shardUrls );
+
+    DerbyDBInputFormat format = new DerbyDBInputFormat();
+    format.configure( job );
+
+    InputSplit[] splits = format.getSplits( job, 4 );
+    int[] splitsPerShard = new int[ shardUrls.length ];
+
+    for( InputSplit inputSplit : splits )
+      {
+      DBInputFormat.DBInputSplit split = (DBInputFormat.DBInputSplit) inputSplit;
+
+      splitsPerShard[ split.getShard() ]++;
+
+      assertEquals( shardUrls[ split.getShard() ], format.getConnectionUrl( split ) );
+      assertTrue( split.getLowerKey() >= split.getShard() * 50 );
+      assertTrue( split.getUpperKey() < split.getShard() * 50 + 50 );
+
+      // embedded databases name no host
+      assertEquals( 0, split.getLocations().length );
+      }
+
+    // the concurrent reads apply to each shard
+    assertArrayEquals( new int[]{4, 4}, splitsPerShard );
+    assertEachIdOnce( read( job, splits ), 100 );
+    }
+
+  @Test
+  public void testRebalancing() throws Exception
+    {
+    JobConf job = createJob( -1 );
+    DBInputFormat.setPageSize( job, 5 );
+    DBInputFormat.setRebalanceThreads( job, 4 );
+
+    ReporterRecordingFormat format = new ReporterRecordingFormat();
+    format.configure( job );
+
+    InputSplit[] splits = format.getSplits( job, 4 );
+    CountingReporter reporter = new CountingReporter();
+    List<Integer> ids = new ArrayList<Integer>();
+
+    ReporterRecordingFormat.reporters.clear();
+
+    for( InputSplit split : splits )
+      {
+      RecordReader<LongWritable, DBWritable> reader = format.getRecordReader( split, job, reporter );
+      LongWritable key = reader.createKey();
+      DBWritable value = reader.createValue();
+
+      while( reader.next( key, value ) )
+        ids.add( ( (Number) ( (TupleRecord) value ).getTuple().getObject( 0 ) ).intValue() );
+
+      reader.close();
+      }
+
+    // idle threads cut the range of the first reader while it is reading
+    assertTrue( reporter.stolen.get() > 0 );
+    assertEachIdOnce( ids, 100 );
+
+    // the first reader of each split and every stolen one report to the task
+    assertEquals( splits.length + reporter.stolen.get(), ReporterRecordingFormat.reporters.size() );
+
+    for( Reporter recorded : ReporterRecordingFormat.reporters )
+      assertSame( reporter, recorded );
+    }
+
+  /** Records the reporter of every reader, including the readers created by rebalancing threads. */
+  public static class ReporterRecordingFormat extends DerbyDBInputFormat
+    {
+    static final List<Reporter> reporters = Collections.synchronizedList( new ArrayList<Reporter>() );
+
+    @Override
+    protected RecordReader<LongWritable, DBWritable> getRecordReaderInternal( DBInputSplit split, Class inputClass, JobConf job ) throws SQLException, IOException
+      {
+      return new DerbyDBRecordReader( split, inputClass, job )
+        {
+        @Override
+        protected void setReporter( Reporter reporter )
+          {
+          reporters.add( reporter );
+          super.setReporter( reporter );
+          }
+        };
+      }
+    }
+
+  /** Counts the stolen key ranges. */
+  private static class CountingReporter implements Reporter
+    {
+    final AtomicLong stolen = new AtomicLong();
+
+    @Override
+    public void incrCounter( Enum<?> key, long amount )
+      {
+      if( key == DBInputFormat.Counter.STOLEN_KEY_RANGES )
+        stolen.addAndGet( amount );
+      }
+
+    @Override
+    public void incrCounter( String group, String counter, long amount )
+      {
+      }
+
+    @Override
+    public Counters.Counter getCounter( Enum<?> name )
+      {
+      return null;
+      }
+
+    @Override
+    public Counters.Counter getCounter( String group, String name )
+      {
+      return null;
+      }
+
+    @Override
+    public InputSplit getInputSplit()
+      {
+      return null;
+      }
+
+    @Override
+    public float getProgress()
+      {
+      return 0;
+      }
+
+    @Override
+    public void setStatus( String status )
+      {
+      }
+
+    @Override
+    public void progress()
+      {
+      }
+    }
+
+  private static JobConf createJob( long limit )
+    {
+    JobConf job = new JobConf();
+    DBConfiguration.configureDB( job, "org.apache.derby.jdbc.EmbeddedDriver", URL );
+    DBInputFormat.setInput( job, TupleRecord.class, "keyed", null, null, limit, 4, false, "id", "name" );
+
+    return job;
+    }
+
+  /** Plans the splits and reads each with a reader of its own, like the tasks of a job. */
+  private static List<Integer> readAll( JobConf job, DerbyDBInputFormat format ) throws IOException
+    {
+    format.configure( job );
+
+    return read( job, format, format.getSplits( job, 4 ) );
+    }
+
+  private static List<Integer> read( JobConf job, InputSplit[] splits ) throws IOException
+    {
+    return read( job, new DerbyDBInputFormat(), splits );
+    }
+
+  private static List<Integer> read( JobConf job, DerbyDBInputFormat format, InputSplit[] splits ) throws IOException
+    {
+    List<Integer> ids = new ArrayList<Integer>();
+
+    for( InputSplit split : splits )
+      {
+      format.configure( job );
+
+      RecordReader<LongWritable, DBWritable> reader = format.getRecordReader( split, job, Reporter.NULL );
+      LongWritable key = reader.createKey();
+      DBWritable value = reader.createValue();
+
+      while( reader.next( key, value ) )
+        ids.add( ( (Number) ( (TupleRecord) value ).getTuple().getObject( 0 ) ).intValue() );
+
+      reader.close();
+      }
+
+    return ids;
+    }
+
+  private static void assertEachIdOnce( List<Integer> ids, int count )
+    {
+    Collections.sort( ids );
+
+    assertEquals( count, ids.size() );
+
+    for( int i = 0; i < count; i++ )
+      assertEquals( i, (int) ids.get( i ) );
+    }
+  }
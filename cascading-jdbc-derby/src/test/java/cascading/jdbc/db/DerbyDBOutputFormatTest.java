@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import cascading.jdbc.TableDesc;
+import cascading.jdbc.TupleRecord;
+import cascading.tuple.Tuple;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.junit.Test;
+
+public class DerbyDBOutputFormatTest
+  {
+  private static final String URL = "jdbc:derby:memory:importing;create=true";
+
+  @Test
+  public void testAppendValue()
+    {
+    StringBuilder builder = new StringBuilder();
+
+    DerbyDBOutputFormat.appendValue( builder, "say \"hi\", bye", "VARCHAR" );
+    builder.append( '|' );
+    DerbyDBOutputFormat.appendValue( builder, null, "INT" );
+    builder.append( '|' );
+    DerbyDBOutputFormat.appendValue( builder, 42, "INT" );
+    builder.append( '|' );
+    DerbyDBOutputFormat.appendValue( builder, new byte[]{0x0a, (byte) 0xff}, null );
+
+    assertEquals( "\"say \"\"hi\"\", bye\"||42|0aff", builder.toString() );
+    }
+
+  @Test
+  public void testAppendDate()
+    {
+    Date date = Timestamp.valueOf( "2015-03-01 12:30:45.123" );
+
+    assertEquals( "2015-03-01", append( new Date( date.getTime() ), "DATE" ) );
+    assertEquals( "12:30:45", append( new Date( date.getTime() ), "TIME" ) );
+    assertEquals( "2015-03-01 12:30:45.123", append( new Date( date.getTime() ), "TIMESTAMP" ) );
+    assertEquals( "2015-03-01 12:30:45.123", append( new Date( date.getTime() ), null ) );
+    assertEquals( "2015-03-01", append( date, "DATE" ) );
+    }
+
+  @Test
+  public void testGetTypeName()
+    {
+    assertEquals( "DATE", DerbyDBOutputFormat.getTypeName( "date not null" ) );
+    assertEquals( "TIMESTAMP", DerbyDBOutputFormat.getTypeName( " timestamp" ) );
+    assertEquals( "VARCHAR", DerbyDBOutputFormat.getTypeName( "varchar(100)" ) );
+    }
+
+  @Test
+  public void testImportDisabledByDefault() throws Exception
+    {
+    JobConf job = new JobConf();
+    DBConfiguration.configureDB( job, "org.apache.derby.jdbc.EmbeddedDriver", URL );
+    TableDesc tableDesc = new TableDesc( "batched", new String[]{"id"}, new String[]{"int"}, null );
+    DBOutputFormat.setOutput( job, DerbyDBOutputFormat.class, tableDesc, null, -1 );
+
+    RecordWriter<TupleRecord, Object> writer = new DerbyDBOutputFormat<TupleRecord, Object>().getRecordWriter( null, job, "part", null );
+
+    assertFalse( writer instanceof DerbyDBOutputFormat.ImportRecordWriter );
+
+    writer.close( null );
+    }
+
+  @Test
+  public void testNormalizeIdentifier()
+    {
+    assertEquals( "EVENTS", DerbyDBOutputFormat.normalizeIdentifier( "events" ) );
+    assertEquals( "events", DerbyDBOutputFormat.normalizeIdentifier( "\"events\"" ) );
+    }
+
+  @Test
+  public void testImport() throws Exception
+    {
+    File importDir = new File( "build/derby-import" );
+    importDir.mkdirs();
+
+    JobConf job = new JobConf();
+    DBConfiguration.configureDB( job, "org.apache.derby.jdbc.EmbeddedDriver", URL );
+    TableDesc tableDesc = new TableDesc( "events", new String[]{"id", "name"}, new String[]{"int", "varchar(100)"}, null );
+    DBOutputFormat.setOutput( job, DerbyDBOutputFormat.class, tableDesc, null, -1 );
+    DerbyDBOutputFormat.setUseImport( job, true );
+    DerbyDBOutputFormat.setImportDir( job, importDir.getPath() );
+
+    writeRows( job, 0, 3 );
+    writeRows( job, 3, 2 );
+
+    try( Connection connection = DriverManager.getConnection( URL );
+         Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery( "SELECT id, name FROM events ORDER BY id" ) )
+      {
+      for( int i = 0; i < 5; i++ )
+        {
+        assertTrue( resultSet.next() );
+        assertEquals( i, resultSet.getInt( 1 ) );
+        assertEquals( i == 1 ? null : "name, \"" + i + "\"", resultSet.getString( 2 ) );
+        }
+
+      assertFalse( resultSet.next() );
+      }
+
+    assertEquals( 0, importDir.list().length );
+    }
+
+  @Test
+  public void testImportDates() throws Exception
+    {
+    TableDesc tableDesc = new TableDesc( "stamps", new String[]{"id", "day", "clock", "happened"},
+      new String[]{"int", "date", "time", "timestamp"}, null );
+    File importDir = new File( "build/derby-import" );
+    importDir.mkdirs();
+
+    JobConf job = new JobConf();
+    DBConfiguration.configureDB( job, "org.apache.derby.jdbc.EmbeddedDriver", URL );
+    DBOutputFormat.setOutput( job, DerbyDBOutputFormat.class, tableDesc, null, -1 );
+    DerbyDBOutputFormat.setUseImport( job, true );
+    DerbyDBOutputFormat.setImportDir( job, importDir.getPath() );
+
+    Date date = new Date( Timestamp.valueOf( "2015-03-01 12:30:45.123" ).getTime() );
+
+    DerbyDBOutputFormat<TupleRecord, Object> format = new DerbyDBOutputFormat<TupleRecord, Object>();
+    RecordWriter<TupleRecord, Object> writer = format.getRecordWriter( null, job, "part", null );
+
+    assertTrue( writer instanceof DerbyDBOutputFormat.ImportRecordWriter );
+
+    writer.write( new TupleRecord( new Tuple( 1, date, date, date ) ), null );
+    writer.close( null );
+
+    try( Connection connection = DriverManager.getConnection( URL );
+         Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery( "SELECT day, clock, happened FROM " + tableDesc.getTableName() ) )
+      {
+      assertTrue( resultSet.next() );
+      assertEquals( java.sql.Date.valueOf( "2015-03-01" ), resultSet.getDate( 1 ) );
+      assertEquals( Time.valueOf( "12:30:45" ), resultSet.getTime( 2 ) );
+      assertEquals( Timestamp.valueOf( "2015-03-01 12:30:45.123" ), resultSet.getTimestamp( 3 ) );
+      assertFalse( resultSet.next() );
+      }
+    }
+
+  private static String append( Object value, String columnType )
+    {
+    StringBuilder builder = new StringBuilder();
+
+    DerbyDBOutputFormat.appendValue( builder, value, columnType );
+
+    return builder.toString();
+    }
+
+  private void writeRows( JobConf job, int first, int count ) throws IOException
+    {
+    DerbyDBOutputFormat<TupleRecord, Object> format = new DerbyDBOutputFormat<TupleRecord, Object>();
+    RecordWriter<TupleRecord, Object> writer = format.getRecordWriter( null, job, "part", null );
+
+    for( int i = first; i < first + count; i++ )
+      writer.write( new TupleRecord( new Tuple( i, i == 1 ? null : "name, \"" + i + "\"" ) ), null );
+
+    writer.close( null );
+    }
+  }
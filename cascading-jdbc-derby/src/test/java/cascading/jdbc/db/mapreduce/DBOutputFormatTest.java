@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db.mapreduce;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import cascading.jdbc.JDBCUtil;
+import cascading.jdbc.TableDesc;
+import cascading.jdbc.TupleRecord;
+import cascading.jdbc.db.DBConfiguration;
+import cascading.tuple.Tuple;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.junit.Test;
+
+public class DBOutputFormatTest
+  {
+  private static final String URL = "jdbc:derby:memory:mapreduce;create=true";
+
+  @Test
+  public void testTaskStaging() throws Exception
+    {
+    Configuration conf = createConf( "staged" );
+    DBOutputFormat.setTaskStaging( conf, true );
+
+    DBOutputFormat<TupleRecord, Object> format = new DBOutputFormat<TupleRecord, Object>();
+    TaskAttemptContext committed = createContext( conf, new TaskAttemptID( "staging", 1, TaskType.REDUCE, 0, 0 ) );
+    TaskAttemptContext aborted = createContext( conf, new TaskAttemptID( "staging", 1, TaskType.REDUCE, 0, 1 ) );
+    OutputCommitter committer = format.getOutputCommitter( committed );
+
+    // the context of the first attempt also serves as the context of the job
+    format.checkOutputSpecs( committed );
+    committer.setupJob( committed );
+
+    assertEquals( 0, count( "staged" ) );
+
+    write( format, committed, 0, 3 );
+    write( format, aborted, 10, 2 );
+
+    String committedTable = DBOutputCommitter.getStagingTableName( committed.getTaskAttemptID() );
+    String abortedTable = DBOutputCommitter.getStagingTableName( aborted.getTaskAttemptID() );
+
+    // nothing is published before the task commits
+    assertEquals( 0, count( "staged" ) );
+    assertEquals( 3, count( committedTable ) );
+    assertEquals( 2, count( abortedTable ) );
+
+    assertTrue( committer.needsTaskCommit( committed ) );
+    committer.commitTask( committed );
+    committer.abortTask( aborted );
+
+    assertEquals( list( 0, 1, 2 ), readIds( "staged" ) );
+    assertFalse( exists( committedTable ) );
+    assertFalse( exists( abortedTable ) );
+    }
+
+  @Test
+  public void testCommitTaskRerun() throws Exception
+    {
+    Configuration conf = createConf( "rerun" );
+    DBOutputFormat.setTaskStaging( conf, true );
+
+    DBOutputFormat<TupleRecord, Object> format = new DBOutputFormat<TupleRecord, Object>();
+    TaskAttemptContext context = createContext( conf, new TaskAttemptID( "rerun", 1, TaskType.MAP, 0, 0 ) );
+    OutputCommitter committer = format.getOutputCommitter( context );
+
+    committer.setupJob( context );
+    write( format, context, 0, 3 );
+
+    String stagingTable = DBOutputCommitter.getStagingTableName( context.getTaskAttemptID() );
+
+    // the task died after moving its rows, before dropping its staging table
+    try( Connection connection = DriverManager.getConnection( URL ) )
+      {
+      assertEquals( 3, JDBCUtil.moveRows( connection, new TableDesc( stagingTable ), new DBConfiguration( conf ).toTableDesc() ) );
+      }
+
+    committer.commitTask( context );
+    committer.commitTask( context );
+
+    assertEquals( list( 0, 1, 2 ), readIds( "rerun" ) );
+    assertFalse( exists( stagingTable ) );
+    }
+
+  @Test
+  public void testWithoutStaging() throws Exception
+    {
+    Configuration conf = createConf( "direct" );
+    DBOutputFormat<TupleRecord, Object> format = new DBOutputFormat<TupleRecord, Object>();
+    TaskAttemptContext context = createContext( conf, new TaskAttemptID( "direct", 1, TaskType.MAP, 0, 0 ) );
+    OutputCommitter committer = format.getOutputCommitter( context );
+
+    committer.setupJob( context );
+    write( format, context, 0, 2 );
+
+    assertFalse( committer.needsTaskCommit( context ) );
+    assertEquals( list( 0, 1 ), readIds( "direct" ) );
+    }
+
+  @Test(expected = IOException.class)
+  public void testTaskStagingWithUpdates() throws Exception
+    {
+    Configuration conf = createConf( "updated" );
+    DBOutputFormat.setTaskStaging( conf, true );
+    conf.set( DBConfiguration.OUTPUT_UPDATE_FIELD_NAMES_PROPERTY, "id" );
+
+    new DBOutputFormat<TupleRecord, Object>().checkOutputSpecs( createContext( conf, new TaskAttemptID( "updated", 1, TaskType.MAP, 0, 0 ) ) );
+    }
+
+  /** Returns a context of the given task attempt, which also serves as the context of its job. */
+  private static TaskAttemptContext createContext( final Configuration conf, final TaskAttemptID attemptID )
+    {
+    return (TaskAttemptContext) Proxy.newProxyInstance( TaskAttemptContext.class.getClassLoader(), new Class[]{TaskAttemptContext.class},
+      new InvocationHandler()
+      {
+      @Override
+      public Object invoke( Object proxy, Method method, Object[] args )
+        {
+        switch( method.getName() )
+          {
+          case "getConfiguration":
+            return conf;
+          case "getTaskAttemptID":
+            return attemptID;
+          case "getJobID":
+            return attemptID.getJobID();
+          case "getProgress":
+            return 0f;
+          case "progress":
+          case "setStatus":
+            return null;
+          default:
+            throw new UnsupportedOperationException( method.getName() );
+          }
+        }
+      } );
+    }
+
+  private static Configuration createConf( String table )
+    {
+    Configuration conf = new Configuration();
+    DBConfiguration.configureDB( conf, "org.apache.derby.jdbc.EmbeddedDriver", URL );
+    TableDesc tableDesc = new TableDesc( table, new String[]{"id", "name"}, new String[]{"int", "varchar(20)"}, null );
+    cascading.jdbc.db.DBOutputFormat.setOutput( conf, cascading.jdbc.db.DBOutputFormat.class, tableDesc, null, 10 );
+
+    return conf;
+    }
+
+  private static void write( DBOutputFormat<TupleRecord, Object> format, TaskAttemptContext context, int first, int count ) throws Exception
+    {
+    RecordWriter<TupleRecord, Object> writer = format.getRecordWriter( context );
+
+    for( int i = first; i < first + count; i++ )
+      writer.write( new TupleRecord( new Tuple( i, "name-" + i ) ), null );
+
+    writer.close( context );
+    }
+
+  private static int count( String table ) throws Exception
+    {
+    return readIds( table ).size();
+    }
+
+  private static List<Integer> readIds( String table ) throws Exception
+    {
+    List<Integer> ids = new ArrayList<Integer>();
+
+    try( Connection connection = DriverManager.getConnection( URL );
+         Statement statement = connection.createStatement();
+         ResultSet results = statement.executeQuery( "SELECT id FROM " + table + " ORDER BY id" ) )
+      {
+      while( results.next() )
+        ids.add( results.getInt( 1 ) );
+      }
+
+    return ids;
+    }
+
+  private static boolean exists( String table ) throws Exception
+    {
+    try( Connection connection = DriverManager.getConnection( URL ) )
+      {
+      return JDBCUtil.tableExists( connection, new TableDesc( table ) );
+      }
+    }
+
+  private static List<Integer> list( Integer... ids )
+    {
+    List<Integer> list = new ArrayList<Integer>();
+
+    for( Integer id : ids )
+      list.add( id );
+
+    return list;
+    }
+  }
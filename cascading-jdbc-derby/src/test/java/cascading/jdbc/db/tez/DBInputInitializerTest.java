@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc.db.tez;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cascading.jdbc.TupleRecord;
+import cascading.jdbc.db.DBConfiguration;
+import cascading.jdbc.db.DBInputFormat;
+import cascading.jdbc.db.DBWritable;
+import cascading.jdbc.db.DerbyDBInputFormat;
+import com.google.protobuf.ByteString;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.tez.dag.api.DataSourceDescriptor;
+import org.apache.tez.mapreduce.hadoop.MRInputHelpers;
+import org.apache.tez.mapreduce.input.MRInput;
+import org.apache.tez.mapreduce.protos.MRRuntimeProtos.MRSplitProto;
+import org.apache.tez.runtime.api.Event;
+import org.apache.tez.runtime.api.InputInitializerContext;
+import org.apache.tez.runtime.api.events.InputConfigureVertexTasksEvent;
+import org.apache.tez.runtime.api.events.InputDataInformationEvent;
+import org.junit.Test;
+
+public class DBInputInitializerTest
+  {
+  private static final String URL = "jdbc:derby:memory:initializing;create=true";
+
+  @Test
+  public void testInitialize() throws Exception
+    {
+    try( Connection connection = DriverManager.getConnection( URL );
+         Statement statement = connection.createStatement() )
+      {
+      statement.execute( "CREATE TABLE planned (id INT PRIMARY KEY, name VARCHAR(10))" );
+
+      for( int i = 0; i < 100; i++ )
+        statement.execute( "INSERT INTO planned VALUES (" + i + ", 'name-" + i + "')" );
+      }
+
+    JobConf conf = new JobConf();
+    DBConfiguration.configureDB( conf, "org.apache.derby.jdbc.EmbeddedDriver", URL );
+    DBInputFormat.setInput( conf, TupleRecord.class, "planned", null, null, -1, 4, false, "id", "name" );
+    conf.set( "mapred.input.format.class", DerbyDBInputFormat.class.getName() );
+
+    DataSourceDescriptor source = DBInputInitializer.createDataSource( conf );
+
+    assertEquals( MRInput.class.getName(), source.getInputDescriptor().getClassName() );
+    assertEquals( DBInputInitializer.class.getName(), source.getInputInitializerDescriptor().getClassName() );
+
+    InputInitializerContext context = mock( InputInitializerContext.class );
+    when( context.getInputUserPayload() ).thenReturn( source.getInputDescriptor().getUserPayload() );
+    when( context.getInputName() ).thenReturn( "planned" );
+    when( context.getNumTasks() ).thenReturn( -1 );
+    when( context.getNumClusterNodes() ).thenReturn( 2 );
+
+    List<Event> events = new DBInputInitializer( context ).initialize();
+
+    // the configured number of concurrent reads takes precedence over the number of nodes
+    assertEquals( 5, events.size() );
+
+    InputConfigureVertexTasksEvent configure = (InputConfigureVertexTasksEvent) events.get( 0 );
+    assertEquals( 4, configure.getNumTasks() );
+    assertEquals( 4, configure.getLocationHint().getTaskLocationHints().size() );
+
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+
+    for( int i = 1; i < events.size(); i++ )
+      {
+      InputDataInformationEvent event = (InputDataInformationEvent) events.get( i );
+      assertEquals( i - 1, event.getSourceIndex() );
+
+      MRSplitProto proto = MRSplitProto.parseFrom( ByteString.copyFrom( event.getUserPayload().duplicate() ) );
+      splits.add( MRInputHelpers.createOldFormatSplitFromUserPayload( proto, new SerializationFactory( conf ) ) );
+      }
+
+    // each task reads the split of its event
+    List<Integer> ids = new ArrayList<Integer>();
+
+    for( InputSplit split : splits )
+      {
+      DerbyDBInputFormat format = new DerbyDBInputFormat();
+      format.configure( conf );
+
+      RecordReader<LongWritable, DBWritable> reader = format.getRecordReader( split, conf, Reporter.NULL );
+      LongWritable key = reader.createKey();
+      DBWritable value = reader.createValue();
+
+      while( reader.next( key, value ) )
+        ids.add( ( (Number) ( (TupleRecord) value ).getTuple().getObject( 0 ) ).intValue() );
+
+      reader.close();
+      }
+
+    Collections.sort( ids );
+
+    assertEquals( 100, ids.size() );
+
+    for( int i = 0; i < 100; i++ )
+      assertEquals( i, (int) ids.get( i ) );
+    }
+  }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc.db.tez;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cascading.jdbc.JDBCUtil;
+import cascading.jdbc.TableDesc;
+import cascading.jdbc.TupleRecord;
+import cascading.jdbc.db.DBConfiguration;
+import cascading.jdbc.db.mapreduce.DBOutputFormat;
+import cascading.tuple.Tuple;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.tez.common.TezUtils;
+import org.apache.tez.dag.api.DataSinkDescriptor;
+import org.apache.tez.dag.api.UserPayload;
+import org.apache.tez.dag.api.client.VertexStatus;
+import org.apache.tez.runtime.api.OutputCommitterContext;
+import org.junit.Test;
+
+public class DBOutputCommitterTest
+  {
+  private static final String URL = "jdbc:derby:memory:committing;create=true";
+
+  @Test
+  public void testCommitOutput() throws Exception
+    {
+    DataSinkDescriptor sink = DBOutputCommitter.createDataSink( createConf( "published" ) );
+
+    assertEquals( DBOutputCommitter.class.getName(), sink.getOutputCommitterDescriptor().getClassName() );
+
+    UserPayload payload = sink.getOutputDescriptor().getUserPayload();
+    Configuration taskConf = TezUtils.createConfFromUserPayload( payload );
+    String stagingTable = taskConf.get( DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY );
+
+    DBOutputCommitter committer = createCommitter( payload );
+    committer.setupOutput();
+
+    assertTrue( exists( "published" ) );
+    assertTrue( exists( stagingTable ) );
+
+    // one attempt of a task commits, as its processor commits its MROutput, another one fails
+    writeAttempt( taskConf, new TaskAttemptID( "committing", 1, TaskType.MAP, 0, 0 ), 0, 3, true );
+    writeAttempt( taskConf, new TaskAttemptID( "committing", 1, TaskType.MAP, 1, 0 ), 10, 2, false );
+    writeAttempt( taskConf, new TaskAttemptID( "committing", 1, TaskType.MAP, 1, 1 ), 20, 2, true );
+
+    // nothing is published before the vertex commits
+    assertEquals( list(), readIds( "published" ) );
+    assertEquals( list( 0, 1, 2, 20, 21 ), readIds( stagingTable ) );
+
+    committer.commitOutput();
+
+    assertEquals( list( 0, 1, 2, 20, 21 ), readIds( "published" ) );
+    assertFalse( exists( stagingTable ) );
+
+    // a commit rerun after the application master recovered publishes nothing twice
+    committer.commitOutput();
+
+    assertEquals( list( 0, 1, 2, 20, 21 ), readIds( "published" ) );
+    }
+
+  @Test
+  public void testAbortOutput() throws Exception
+    {
+    UserPayload payload = DBOutputCommitter.createDataSink( createConf( "aborted" ) ).getOutputDescriptor().getUserPayload();
+    Configuration taskConf = TezUtils.createConfFromUserPayload( payload );
+    String stagingTable = taskConf.get( DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY );
+
+    DBOutputCommitter committer = createCommitter( payload );
+    committer.setupOutput();
+
+    writeAttempt( taskConf, new TaskAttemptID( "aborting", 1, TaskType.MAP, 0, 0 ), 0, 3, true );
+
+    committer.abortOutput( VertexStatus.State.FAILED );
+
+    assertEquals( list(), readIds( "aborted" ) );
+    assertFalse( exists( stagingTable ) );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUpdatesRejected()
+    {
+    Configuration conf = createConf( "updated" );
+    conf.set( DBConfiguration.OUTPUT_UPDATE_FIELD_NAMES_PROPERTY, "id" );
+
+    DBOutputCommitter.createDataSink( conf );
+    }
+
+  private static DBOutputCommitter createCommitter( UserPayload payload ) throws Exception
+    {
+    OutputCommitterContext context = mock( OutputCommitterContext.class );
+    when( context.getOutputUserPayload() ).thenReturn( payload );
+    when( context.getOutputName() ).thenReturn( "output" );
+
+    DBOutputCommitter committer = new DBOutputCommitter( context );
+    committer.initialize();
+
+    return committer;
+    }
+
+  private static Configuration createConf( String table )
+    {
+    Configuration conf = new Configuration();
+    DBConfiguration.configureDB( conf, "org.apache.derby.jdbc.EmbeddedDriver", URL );
+    TableDesc tableDesc = new TableDesc( table, new String[]{"id", "name"}, new String[]{"int", "varchar(20)"}, null );
+    cascading.jdbc.db.DBOutputFormat.setOutput( conf, cascading.jdbc.db.DBOutputFormat.class, tableDesc, null, 10 );
+
+    return conf;
+    }
+
+  /** Writes rows like the MROutput of a task attempt, which is committed or aborted when the attempt ends. */
+  private static void writeAttempt( Configuration conf, TaskAttemptID attemptID, int first, int count, boolean commit ) throws Exception
+    {
+    TaskAttemptContext context = new TaskAttemptContextImpl( conf, attemptID );
+    DBOutputFormat<TupleRecord, Object> format = new DBOutputFormat<TupleRecord, Object>();
+    RecordWriter<TupleRecord, Object> writer = format.getRecordWriter( context );
+
+    for( int i = first; i < first + count; i++ )
+      writer.write( new TupleRecord( new Tuple( i, "name-" + i ) ), null );
+
+    writer.close( context );
+
+    OutputCommitter committer = format.getOutputCommitter( context );
+
+    if( commit )
+      committer.commitTask( context );
+    else
+      committer.abortTask( context );
+    }
+
+  private static List<Integer> readIds( String table ) throws Exception
+    {
+    List<Integer> ids = new ArrayList<Integer>();
+
+    try( Connection connection = DriverManager.getConnection( URL );
+         Statement statement = connection.createStatement();
+         ResultSet results = statement.executeQuery( "SELECT id FROM " + table + " ORDER BY id" ) )
+      {
+      while( results.next() )
+        ids.add( results.getInt( 1 ) );
+      }
+
+    return ids;
+    }
+
+  private static boolean exists( String table ) throws Exception
+    {
+    try( Connection connection = DriverManager.getConnection( URL ) )
+      {
+      return JDBCUtil.tableExists( connection, new TableDesc( table ) );
+      }
+    }
+
+  private static List<Integer> list( Integer... ids )
+    {
+    return Arrays.asList( ids );
+    }
+  }
@@ -20,43 +20,30 @@
 
 package cascading.jdbc.db;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-
-import org.apache.hadoop.mapred.JobConf;
-import org.apache.hadoop.mapred.InputFormat;
-import org.apache.hadoop.mapred.RecordReader;
-import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.Writable;
-import org.apache.hadoop.mapred.*;
-
-import java.io.IOException;
-
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MySQL specific sub-class of DBInputFormat. Rows are streamed from the server one by one by default, since
+ * Connector/J otherwise reads the whole result into memory. A positive fetch size only takes effect, if
+ * <code>useCursorFetch=true</code> is part of the JDBC URL.
+ */
 public class MySqlDBInputFormat extends DBInputFormat<DBWritable>
   {
-
-  protected class MySqlDBRecordReader extends DBRecordReader
+  @Override
+  protected int getDefaultFetchSize()
     {
-    protected MySqlDBRecordReader( DBInputSplit split, Class<DBWritable> inputClass, JobConf job ) throws SQLException, IOException
-      {
-      super( split, inputClass, job );
-      }
-
-    @Override
-    protected Statement createStatement() throws SQLException
-      {
-      Statement statement = connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
-      statement.setFetchSize( Integer.MIN_VALUE );
-      return statement;
-      }
+    return Integer.MIN_VALUE;
     }
 
+  /**
+   * Numbers the rows with a user variable, since <code>ROW_NUMBER</code> is only available from MySQL 8.0 on. The
+   * variable is reset by a derived table of the same statement, so the numbers start from 1 on every connection.
+   */
   @Override
-  protected RecordReader<LongWritable, DBWritable> getRecordReaderInternal( DBInputSplit split, Class inputClass, JobConf job ) throws SQLException,
-    IOException
+  public List<String> getStagingStatements( String stagingTable, String query )
     {
-    return new MySqlDBRecordReader( split, inputClass, job );
+    return Collections.singletonList( "CREATE TABLE " + stagingTable + " AS SELECT @cascading_row := @cascading_row + 1 AS "
+      + STAGING_ROW_COLUMN + ", q.* FROM ( " + query + " ) q, ( SELECT @cascading_row := 0 ) r" );
     }
-
   }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc.db;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class MySqlDBInputFormatTest
+  {
+  @Test
+  public void testStagingStatements()
+    {
+    assertEquals( Arrays.asList( "CREATE TABLE staging AS SELECT @cascading_row := @cascading_row + 1 AS cascading_row, q.* FROM "
+      + "( select id from test ) q, ( SELECT @cascading_row := 0 ) r" ),
+      new MySqlDBInputFormat().getStagingStatements( "staging", "select id from test" ) );
+    }
+  }
@@ -38,7 +38,14 @@
 package cascading.jdbc.db;
 
 import java.io.IOException;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapred.JobConf;
@@ -47,6 +54,95 @@ import org.apache.hadoop.mapred.RecordReader;
 @SuppressWarnings("rawtypes")
 public class OracleDBInputFormat extends DBInputFormat<DBWritable>
   {
+  /**
+   * Consistent reads use flashback queries in Oracle, so the isolation level does not have to be raised. Oracle only
+   * supports READ_COMMITTED and SERIALIZABLE.
+   */
+  @Override
+  protected int getTransactionIsolationLevel()
+    {
+    if( dbConf.getInputIsolationLevel() == Connection.TRANSACTION_SERIALIZABLE )
+      return Connection.TRANSACTION_SERIALIZABLE;
+
+    return Connection.TRANSACTION_READ_COMMITTED;
+    }
+
+  /** The Oracle driver only fetches 10 rows per round trip by default. */
+  @Override
+  protected int getDefaultFetchSize()
+    {
+    return 500;
+    }
+
+  /** Uses the current system change number (SCN) as the snapshot. */
+  @Override
+  protected String exportSnapshot( Connection connection ) throws SQLException
+    {
+    Statement statement = connection.createStatement();
+
+    try
+      {
+      ResultSet results = statement.executeQuery( "SELECT DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER FROM DUAL" );
+      results.next();
+      return Long.toString( results.getLong( 1 ) );
+      }
+    finally
+      {
+      statement.close();
+      }
+    }
+
+  /**
+   * Puts the session into flashback mode at the exported SCN, which behaves like an AS OF SCN clause on every table
+   * in the select query, including user given queries. A commit does not end flashback mode, and enabling it again
+   * fails with ORA-08184, so the mode of the previous page or attempt is disabled first, which does nothing if the
+   * session is not in flashback mode.
+   */
+  @Override
+  protected void useSnapshot( Connection connection, String snapshot ) throws SQLException
+    {
+    if( snapshot == null )
+      return;
+
+    CallableStatement statement = connection.prepareCall( "BEGIN DBMS_FLASHBACK.DISABLE; DBMS_FLASHBACK.ENABLE_AT_SYSTEM_CHANGE_NUMBER(?); END;" );
+
+    try
+      {
+      statement.setLong( 1, Long.parseLong( snapshot ) );
+      statement.execute();
+      }
+    finally
+      {
+      statement.close();
+      }
+    }
+
+  @Override
+  public List<String> getStagingStatements( String stagingTable, String query )
+    {
+    // ROW_NUMBER requires an ordering in Oracle, ROWNUM numbers the rows as they are produced
+    return Collections.singletonList( "CREATE TABLE " + stagingTable + " AS SELECT ROWNUM AS " + STAGING_ROW_COLUMN + ", q.* FROM ( "
+      + query + " ) q" );
+    }
+
+  @Override
+  protected String limitPage( String query, List<Object> parameters, int pageSize )
+    {
+    // ROWNUM is assigned before ORDER BY, so the ordered query has to be nested
+    parameters.add( pageSize );
+    return "SELECT * FROM ( " + query + " ) WHERE ROWNUM <= ?";
+    }
+
+  @Override
+  protected void setParameter( PreparedStatement statement, int index, Object value ) throws SQLException
+    {
+    // Oracle has no boolean column type, flags are stored as numbers
+    if( value instanceof Boolean )
+      statement.setInt( index, (Boolean) value ? 1 : 0 );
+    else
+      super.setParameter( statement, index, value );
+    }
+
   @Override
   protected RecordReader<LongWritable, DBWritable> getRecordReaderInternal( cascading.jdbc.db.DBInputFormat.DBInputSplit split, Class inputClass, JobConf job ) throws SQLException, IOException
     {
@@ -80,8 +176,7 @@ public class OracleDBInputFormat extends DBInputFormat<DBWritable>
           }
 
         query.append( " FROM " ).append( tableName );
-        if( conditions != null && conditions.length() > 0 )
-          query.append( " WHERE " ).append( conditions );
+        appendWhere( query, parameters );
 
         String orderBy = dbConf.getInputOrderBy();
         if( orderBy != null && orderBy.length() > 0 )
@@ -91,7 +186,7 @@ public class OracleDBInputFormat extends DBInputFormat<DBWritable>
       else
         {
         //PREBUILT QUERY
-        query.append( dbConf.getInputQuery() );
+        query.append( getInputQuery() );
         }
 
       try
@@ -104,9 +199,10 @@ public class OracleDBInputFormat extends DBInputFormat<DBWritable>
           query = new StringBuilder();
           query.append( "SELECT * FROM (SELECT a.*,ROWNUM dbif_rno FROM ( " );
           query.append( querystring );
-          query.append( " ) a WHERE rownum <= " ).append( split.getStart() );
-          query.append( " + " ).append( split.getLength() );
-          query.append( " ) WHERE dbif_rno >= " ).append( split.getStart() + 1 );
+          query.append( " ) a WHERE rownum <= ?" );
+          query.append( " ) WHERE dbif_rno >= ?" );
+          parameters.add( split.getStart() + split.getLength() );
+          parameters.add( split.getStart() + 1 );
           }
         }
       catch( IOException ex )
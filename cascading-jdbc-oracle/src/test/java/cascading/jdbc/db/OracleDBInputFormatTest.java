@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OracleDBInputFormatTest
+  {
+
+  @Test
+  public void testUseSnapshotAgain() throws Exception
+    {
+    List<String> calls = new ArrayList<String>();
+    Connection connection = createConnection( calls );
+    OracleDBInputFormat format = new OracleDBInputFormat();
+
+    // the first page, and the next page after the commit
+    format.useSnapshot( connection, "1234" );
+    format.useSnapshot( connection, "1234" );
+
+    assertEquals( 2, calls.size() );
+
+    for( String call : calls )
+      assertEquals( "BEGIN DBMS_FLASHBACK.DISABLE; DBMS_FLASHBACK.ENABLE_AT_SYSTEM_CHANGE_NUMBER(?); END; [1234]", call );
+    }
+
+  @Test
+  public void testWithoutSnapshot() throws Exception
+    {
+    List<String> calls = new ArrayList<String>();
+
+    new OracleDBInputFormat().useSnapshot( createConnection( calls ), null );
+
+    assertTrue( calls.isEmpty() );
+    }
+
+  private static Connection createConnection( final List<String> calls )
+    {
+    return (Connection) Proxy.newProxyInstance( Connection.class.getClassLoader(), new Class[]{Connection.class}, new InvocationHandler()
+    {
+    @Override
+    public Object invoke( Object proxy, Method method, Object[] args )
+      {
+      if( !method.getName().equals( "prepareCall" ) )
+        throw new UnsupportedOperationException( method.getName() );
+
+      final String sql = (String) args[ 0 ];
+      final List<Object> parameters = new ArrayList<Object>();
+
+      return Proxy.newProxyInstance( CallableStatement.class.getClassLoader(), new Class[]{CallableStatement.class}, new InvocationHandler()
+      {
+      @Override
+      public Object invoke( Object proxy, Method method, Object[] args )
+        {
+        if( method.getName().equals( "setLong" ) )
+          parameters.add( args[ 1 ] );
+        else if( method.getName().equals( "execute" ) )
+          calls.add( sql + " " + parameters );
+
+        return method.getReturnType() == boolean.class ? false : null;
+        }
+      } );
+      }
+    } );
+    }
+  }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cascading.jdbc.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * PostgreSQL specific sub-class of DBInputFormat. Consistent reads are implemented by exporting the snapshot of the
+ * planning transaction via <code>pg_export_snapshot()</code> and importing it into the transaction of every split
+ * with <code>SET TRANSACTION SNAPSHOT</code>. Requires PostgreSQL 9.2 or newer.
+ */
+public class PostgresDBInputFormat extends DBInputFormat<DBWritable>
+  {
+  @Override
+  protected String exportSnapshot( Connection connection ) throws SQLException
+    {
+    Statement statement = connection.createStatement();
+
+    try
+      {
+      ResultSet results = statement.executeQuery( "SELECT pg_export_snapshot()" );
+      results.next();
+      return results.getString( 1 );
+      }
+    finally
+      {
+      statement.close();
+      }
+    }
+
+  @Override
+  protected void useSnapshot( Connection connection, String snapshot ) throws SQLException
+    {
+    if( snapshot == null )
+      return;
+
+    Statement statement = connection.createStatement();
+
+    try
+      {
+      // has to be the first statement of the transaction
+      statement.execute( "SET TRANSACTION SNAPSHOT '" + snapshot.replace( "'", "''" ) + "'" );
+      }
+    finally
+      {
+      statement.close();
+      }
+    }
+
+  @Override
+  protected boolean isSnapshotBoundToTransaction()
+    {
+    return true;
+    }
+  }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+import cascading.tuple.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link RedshiftSafeDelimitedParser#joinLine(Iterable, Appendable)} for lines of plain ASCII values, of
+ * values with characters to escape and of non ASCII values. Run it with {@code gradle :cascading-jdbc-redshift:jmh}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedshiftSafeDelimitedParserBenchmark
+  {
+  @Param({"ascii", "escaped", "unicode"})
+  public String values;
+
+  @Param({"16", "256"})
+  public int length;
+
+  private RedshiftSafeDelimitedParser parser;
+  private Tuple tuple;
+  private StringBuilder line;
+
+  @Setup
+  public void setup()
+    {
+    parser = new RedshiftSafeDelimitedParser( RedshiftScheme.DEFAULT_DELIMITER, RedshiftScheme.DEFAULT_QUOTE );
+    tuple = new Tuple();
+
+    for( int i = 0; i < 10; i++ )
+      tuple.add( createValue( i ) );
+
+    tuple.add( 42L );
+    line = new StringBuilder();
+    }
+
+  private String createValue( int seed )
+    {
+    StringBuilder builder = new StringBuilder( length );
+
+    for( int i = 0; builder.length() < length; i++ )
+      {
+      if( values.equals( "escaped" ) && i % 8 == 7 )
+        builder.append( i % 16 == 7 ? '"' : '\'' );
+      else if( values.equals( "unicode" ) && i % 4 == 3 )
+        builder.append( (char) ( 0x00e0 + ( seed + i ) % 32 ) );
+      else
+        builder.append( (char) ( 'a' + ( seed + i ) % 26 ) );
+      }
+
+    return builder.toString();
+    }
+
+  @Benchmark
+  public int joinLine()
+    {
+    line.setLength( 0 );
+    parser.joinLine( tuple, line );
+
+    return line.length();
+    }
+  }
@@ -57,6 +57,13 @@ public class RedshiftFactory extends JDBCFactory
   ;
   public static final String PROTOCOL_KEEP_DEBUG_HFS_DATA = "keepdebughfsdata";
   public static final String PROTOCOL_USE_DIRECT_INSERT = "usedirectinsert";
+  public static final String PROTOCOL_USE_UNLOAD = "useunload";
+  public static final String PROTOCOL_STAGING_COMPRESSION = "stagingcompression";
+  public static final String PROTOCOL_STAGING_FILE_SIZE = "stagingfilesize";
+  public static final String PROTOCOL_STAGING_FORMAT = "stagingformat";
+  public static final String PROTOCOL_MERGE_KEYS = "mergekeys";
+  public static final String PROTOCOL_COPY_THRESHOLD_ROWS = "copythresholdrows";
+  public static final String PROTOCOL_COPY_THRESHOLD_BYTES = "copythresholdbytes";
 
   public static final String FORMAT_DISTRIBUTION_KEY = "distributionkey";
   public static final String FORMAT_SORT_KEYS = "sortkeys";
@@ -127,7 +134,31 @@ public class RedshiftFactory extends JDBCFactory
     if( !Util.isEmpty( sinkModeProperty ) )
       sinkMode = SinkMode.valueOf( sinkModeProperty );
 
-    return new RedshiftTap( identifier, jdbcUser, jdbcPassword, hfsStagingDir, credentials, redshiftTableDesc, (RedshiftScheme) scheme, sinkMode, keepDebugHdfsData, useDirectInsert );
+    RedshiftTap tap = new RedshiftTap( identifier, jdbcUser, jdbcPassword, hfsStagingDir, credentials, redshiftTableDesc, (RedshiftScheme) scheme, sinkMode, keepDebugHdfsData, useDirectInsert );
+
+    tap.setUseUnload( Boolean.parseBoolean( protocolProperties.getProperty( PROTOCOL_USE_UNLOAD ) ) );
+
+    String stagingCompression = protocolProperties.getProperty( PROTOCOL_STAGING_COMPRESSION );
+    if( !Util.isEmpty( stagingCompression ) )
+      tap.setStagingCompression( RedshiftTap.StagingCompression.valueOf( stagingCompression.toUpperCase() ) );
+
+    String stagingFileSize = protocolProperties.getProperty( PROTOCOL_STAGING_FILE_SIZE );
+    if( !Util.isEmpty( stagingFileSize ) )
+      tap.setStagingFileSize( Long.parseLong( stagingFileSize ) );
+
+    String stagingFormat = protocolProperties.getProperty( PROTOCOL_STAGING_FORMAT );
+    if( !Util.isEmpty( stagingFormat ) )
+      tap.setStagingFormat( RedshiftTap.StagingFormat.valueOf( stagingFormat.toUpperCase() ) );
+
+    String mergeKeys = protocolProperties.getProperty( PROTOCOL_MERGE_KEYS );
+    if( !Util.isEmpty( mergeKeys ) )
+      tap.setMergeKeys( mergeKeys.split( DEFAULT_SEPARATOR ) );
+
+    String copyThresholdRows = protocolProperties.getProperty( PROTOCOL_COPY_THRESHOLD_ROWS, "0" );
+    String copyThresholdBytes = protocolProperties.getProperty( PROTOCOL_COPY_THRESHOLD_BYTES, "0" );
+    tap.setCopyThresholds( Long.parseLong( copyThresholdRows ), Long.parseLong( copyThresholdBytes ) );
+
+    return tap;
     }
 
   private RedshiftTableDesc createTableDescFromProperties( Fields fields, Properties properties, boolean allowNullName )
@@ -216,6 +247,9 @@ public class RedshiftFactory extends JDBCFactory
       ENCRYPTED,
       GZIP,
       LZOP,
+      ZSTD,
+      MANIFEST,
+      FORMAT( "AS %s" ),
       REMOVEQUOTES,
       EXPLICIT_IDS,
       ACCEPTINVCHARS( "\'%s\'" ),
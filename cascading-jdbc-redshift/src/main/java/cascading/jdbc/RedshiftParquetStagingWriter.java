@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import cascading.tap.TapException;
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
+import cascading.tuple.TupleEntry;
+import cascading.tuple.TupleEntryCollector;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * Writes the tuples of one task into Parquet part files below the staging directory of a {@link RedshiftTap}, see
+ * {@link RedshiftTap.StagingFormat#PARQUET}.
+ * <p/>
+ * Like {@link RedshiftStagingWriter} the tuples are spread round robin over a fixed number of files, which roll over
+ * once they reach the target size, and the files are moved into the staging directory, when the collector is closed.
+ * The pages of the files are compressed with snappy.
+ * <p/>
+ * The values are taken from the sink fields of the scheme, so the n-th sink field is written into the n-th column of
+ * the table, as with the delimited files.
+ */
+class RedshiftParquetStagingWriter extends TupleEntryCollector
+  {
+  /** Field configuration */
+  private final Configuration configuration;
+  /** Field fileSystem */
+  private final FileSystem fileSystem;
+  /** Field stagingDir */
+  private final Path stagingDir;
+  /** Field tempDir */
+  private final Path tempDir;
+  /** Field prefix */
+  private final String prefix;
+  /** Field tableDesc */
+  private final TableDesc tableDesc;
+  /** Field sinkFields */
+  private final Fields sinkFields;
+  /** Field fileSize */
+  private final long fileSize;
+  /** Field writers */
+  private final ParquetWriter<Tuple>[] writers;
+  /** Field rolls */
+  private final int[] rolls;
+  /** Field files */
+  private final List<Path> files = new ArrayList<Path>();
+  /** Field rows */
+  private long rows = 0;
+
+  /**
+   * Constructor RedshiftParquetStagingWriter creates a new RedshiftParquetStagingWriter instance.
+   *
+   * @param configuration the configuration of the task
+   * @param stagingDir    the directory the part files are loaded from
+   * @param prefix        the prefix of the names of the part files, unique to the task
+   * @param tableDesc     the table the part files are loaded into
+   * @param sinkFields    the fields written into the columns of the table, in column order
+   * @param fileCount     the number of files written at the same time
+   * @param fileSize      the size in bytes after which a file is rolled over
+   */
+  @SuppressWarnings("unchecked")
+  RedshiftParquetStagingWriter( Configuration configuration, Path stagingDir, String prefix, TableDesc tableDesc, Fields sinkFields, int fileCount, long fileSize ) throws IOException
+    {
+    if( fileCount < 1 )
+      throw new IllegalArgumentException( "fileCount must be at least 1" );
+
+    if( fileSize < 1 )
+      throw new IllegalArgumentException( "fileSize must be at least 1" );
+
+    // fail before the first tuple, if the columns can not be mapped
+    new RedshiftParquetWriteSupport( tableDesc );
+
+    if( sinkFields.isDefined() && sinkFields.size() != tableDesc.getColumnNames().length )
+      throw new IllegalArgumentException( "sink fields: " + sinkFields.print() + " do not match the columns of table: " + tableDesc.getTableName() );
+
+    this.configuration = configuration;
+    this.fileSystem = stagingDir.getFileSystem( configuration );
+    this.stagingDir = stagingDir;
+    this.tempDir = new Path( stagingDir, "_temporary/" + prefix + "-" + UUID.randomUUID() );
+    this.prefix = prefix;
+    this.tableDesc = tableDesc;
+    this.sinkFields = sinkFields;
+    this.fileSize = fileSize;
+    this.writers = new ParquetWriter[ fileCount ];
+    this.rolls = new int[ fileCount ];
+    }
+
+  @Override
+  protected void collect( TupleEntry tupleEntry ) throws IOException
+    {
+    int index = (int) ( rows++ % writers.length );
+
+    if( writers[ index ] == null || writers[ index ].getDataSize() >= fileSize )
+      roll( index );
+
+    writers[ index ].write( sinkFields.isDefined() ? tupleEntry.selectTuple( sinkFields ) : tupleEntry.getTuple() );
+    }
+
+  private void roll( int index ) throws IOException
+    {
+    if( writers[ index ] != null )
+      writers[ index ].close();
+
+    Path file = new Path( tempDir, String.format( "%s-%03d-%05d.parquet", prefix, index, rolls[ index ]++ ) );
+    int blockSize = (int) Math.min( fileSize, ParquetWriter.DEFAULT_BLOCK_SIZE );
+
+    files.add( file );
+    writers[ index ] = new ParquetWriter<Tuple>( file, ParquetFileWriter.Mode.OVERWRITE, new RedshiftParquetWriteSupport( tableDesc ),
+      CompressionCodecName.SNAPPY, blockSize, ParquetWriter.DEFAULT_PAGE_SIZE, ParquetWriter.DEFAULT_PAGE_SIZE,
+      ParquetWriter.DEFAULT_IS_DICTIONARY_ENABLED, false, ParquetWriter.DEFAULT_WRITER_VERSION, configuration );
+    }
+
+  /** Closes all files and moves them into the staging directory, replacing the files of an earlier attempt of the same task. */
+  @Override
+  public void close()
+    {
+    try
+      {
+      for( int i = 0; i < writers.length; i++ )
+        {
+        if( writers[ i ] != null )
+          writers[ i ].close();
+
+        writers[ i ] = null;
+        }
+
+      RedshiftStagingWriter.publish( fileSystem, stagingDir, tempDir, prefix, files );
+      }
+    catch( IOException exception )
+      {
+      throw new TapException( "unable to write part files to: " + stagingDir, exception );
+      }
+    }
+
+  @Override
+  public String toString()
+    {
+    return "RedshiftParquetStagingWriter{stagingDir=" + stagingDir + ", prefix='" + prefix + "'}";
+    }
+  }
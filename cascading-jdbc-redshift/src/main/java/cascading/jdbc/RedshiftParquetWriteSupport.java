@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import cascading.tuple.Tuple;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Writes the tuples staged for a {@link RedshiftTap} into Parquet files. The Parquet schema is derived from the column
+ * definitions of the {@link RedshiftTableDesc}, so every value is stored with the type COPY expects for its column and
+ * is not parsed again by the cluster. Columns of types without a Parquet counterpart are stored as UTF8 strings.
+ * <p/>
+ * Values are converted from their Java types, or parsed, if they are strings. Empty strings of non character columns
+ * are stored as null.
+ */
+class RedshiftParquetWriteSupport extends WriteSupport<Tuple>
+  {
+  /** The precision of a Redshift decimal without declared precision */
+  static final int DEFAULT_DECIMAL_PRECISION = 18;
+
+  /** The number of bytes storing a decimal, that does not fit into a long */
+  static final int DECIMAL_BYTES = 16;
+
+  private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+  private static final Pattern COLUMN_TYPE = Pattern.compile( "^\\s*(double precision|timestamp without time zone|[a-z0-9]+)\\s*(\\(\\s*(\\d+)\\s*(,\\s*(\\d+)\\s*)?\\))?" );
+
+  /** The Parquet representations of the column types */
+  enum ColumnType
+    {
+      INT32, INT64, FLOAT, DOUBLE, BOOLEAN, DECIMAL64, DECIMAL128, DATE, TIMESTAMP, STRING
+    }
+
+  /** Field names */
+  private final String[] names;
+  /** Field types */
+  private final ColumnType[] types;
+  /** Field scales, the scales of decimal columns */
+  private final int[] scales;
+  /** Field schema */
+  private final MessageType schema;
+  /** Field calendar */
+  private final Calendar calendar = Calendar.getInstance();
+  /** Field consumer */
+  private RecordConsumer consumer;
+
+  /**
+   * Constructor RedshiftParquetWriteSupport creates a new RedshiftParquetWriteSupport instance.
+   *
+   * @param tableDesc the table the files are loaded into, the column definitions are required
+   */
+  RedshiftParquetWriteSupport( TableDesc tableDesc )
+    {
+    String[] columnDefs = tableDesc.getColumnDefs();
+
+    if( columnDefs == null )
+      throw new IllegalArgumentException( "column definitions are required to stage Parquet files for table: " + tableDesc.getTableName() );
+
+    this.names = tableDesc.getColumnNames();
+    this.types = new ColumnType[ columnDefs.length ];
+    this.scales = new int[ columnDefs.length ];
+
+    Types.MessageTypeBuilder builder = Types.buildMessage();
+
+    for( int i = 0; i < columnDefs.length; i++ )
+      addColumn( builder, i, columnDefs[ i ] );
+
+    this.schema = builder.named( "schema" );
+    }
+
+  private void addColumn( Types.MessageTypeBuilder builder, int index, String columnDef )
+    {
+    Matcher matcher = COLUMN_TYPE.matcher( columnDef.toLowerCase( Locale.ENGLISH ) );
+    String typeName = matcher.find() ? matcher.group( 1 ) : "";
+    String name = names[ index ];
+
+    switch( typeName )
+      {
+      case "smallint":
+      case "int2":
+      case "int":
+      case "integer":
+      case "int4":
+        types[ index ] = ColumnType.INT32;
+        builder.optional( PrimitiveTypeName.INT32 ).named( name );
+        break;
+      case "bigint":
+      case "int8":
+        types[ index ] = ColumnType.INT64;
+        builder.optional( PrimitiveTypeName.INT64 ).named( name );
+        break;
+      case "real":
+      case "float4":
+        types[ index ] = ColumnType.FLOAT;
+        builder.optional( PrimitiveTypeName.FLOAT ).named( name );
+        break;
+      case "double precision":
+      case "float8":
+      case "float":
+        types[ index ] = ColumnType.DOUBLE;
+        builder.optional( PrimitiveTypeName.DOUBLE ).named( name );
+        break;
+      case "boolean":
+      case "bool":
+        types[ index ] = ColumnType.BOOLEAN;
+        builder.optional( PrimitiveTypeName.BOOLEAN ).named( name );
+        break;
+      case "decimal":
+      case "numeric":
+        int precision = matcher.group( 3 ) == null ? DEFAULT_DECIMAL_PRECISION : Integer.parseInt( matcher.group( 3 ) );
+        int scale = matcher.group( 5 ) == null ? 0 : Integer.parseInt( matcher.group( 5 ) );
+
+        scales[ index ] = scale;
+
+        if( precision <= DEFAULT_DECIMAL_PRECISION )
+          {
+          types[ index ] = ColumnType.DECIMAL64;
+          builder.optional( PrimitiveTypeName.INT64 ).as( OriginalType.DECIMAL ).precision( precision ).scale( scale ).named( name );
+          }
+        else
+          {
+          types[ index ] = ColumnType.DECIMAL128;
+          builder.optional( PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY ).length( DECIMAL_BYTES ).as( OriginalType.DECIMAL ).precision( precision ).scale( scale ).named( name );
+          }
+        break;
+      case "date":
+        types[ index ] = ColumnType.DATE;
+        builder.optional( PrimitiveTypeName.INT32 ).as( OriginalType.DATE ).named( name );
+        break;
+      case "timestamp":
+      case "timestamp without time zone":
+        types[ index ] = ColumnType.TIMESTAMP;
+        builder.optional( PrimitiveTypeName.INT64 ).as( OriginalType.TIMESTAMP_MILLIS ).named( name );
+        break;
+      default:
+        types[ index ] = ColumnType.STRING;
+        builder.optional( PrimitiveTypeName.BINARY ).as( OriginalType.UTF8 ).named( name );
+      }
+    }
+
+  /** @return the Parquet schema of the staged files */
+  MessageType getSchema()
+    {
+    return schema;
+    }
+
+  @Override
+  public WriteContext init( Configuration configuration )
+    {
+    return new WriteContext( schema, new HashMap<String, String>() );
+    }
+
+  @Override
+  public void prepareForWrite( RecordConsumer recordConsumer )
+    {
+    this.consumer = recordConsumer;
+    }
+
+  @Override
+  public void write( Tuple tuple )
+    {
+    consumer.startMessage();
+
+    for( int i = 0; i < types.length; i++ )
+      {
+      Object value = tuple.getObject( i );
+
+      if( value == null || types[ i ] != ColumnType.STRING && value instanceof String && ( (String) value ).trim().isEmpty() )
+        continue;
+
+      consumer.startField( names[ i ], i );
+      writeValue( i, value );
+      consumer.endField( names[ i ], i );
+      }
+
+    consumer.endMessage();
+    }
+
+  private void writeValue( int index, Object value )
+    {
+    switch( types[ index ] )
+      {
+      case INT32:
+        consumer.addInteger( value instanceof Number ? ( (Number) value ).intValue() : Integer.parseInt( value.toString().trim() ) );
+        break;
+      case INT64:
+        consumer.addLong( value instanceof Number ? ( (Number) value ).longValue() : Long.parseLong( value.toString().trim() ) );
+        break;
+      case FLOAT:
+        consumer.addFloat( value instanceof Number ? ( (Number) value ).floatValue() : Float.parseFloat( value.toString().trim() ) );
+        break;
+      case DOUBLE:
+        consumer.addDouble( value instanceof Number ? ( (Number) value ).doubleValue() : Double.parseDouble( value.toString().trim() ) );
+        break;
+      case BOOLEAN:
+        consumer.addBoolean( toBoolean( value ) );
+        break;
+      case DECIMAL64:
+        consumer.addLong( toUnscaled( value, scales[ index ] ).longValue() );
+        break;
+      case DECIMAL128:
+        consumer.addBinary( Binary.fromConstantByteArray( toFixedBytes( toUnscaled( value, scales[ index ] ) ) ) );
+        break;
+      case DATE:
+        consumer.addInteger( (int) floorDiv( toLocalMillis( value ), MILLIS_PER_DAY ) );
+        break;
+      case TIMESTAMP:
+        consumer.addLong( toLocalMillis( value ) );
+        break;
+      default:
+        consumer.addBinary( Binary.fromString( value.toString() ) );
+      }
+    }
+
+  private static boolean toBoolean( Object value )
+    {
+    if( value instanceof Boolean )
+      return (Boolean) value;
+
+    if( value instanceof Number )
+      return ( (Number) value ).intValue() != 0;
+
+    String string = value.toString().trim();
+
+    return string.equalsIgnoreCase( "true" ) || string.equalsIgnoreCase( "t" ) || string.equals( "1" );
+    }
+
+  static BigInteger toUnscaled( Object value, int scale )
+    {
+    BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal( value.toString().trim() );
+
+    return decimal.setScale( scale, RoundingMode.HALF_UP ).unscaledValue();
+    }
+
+  /** Returns the big endian two's complement of the unscaled value, sign extended to {@link #DECIMAL_BYTES}. */
+  static byte[] toFixedBytes( BigInteger unscaled )
+    {
+    byte[] bytes = unscaled.toByteArray();
+
+    if( bytes.length > DECIMAL_BYTES )
+      throw new IllegalArgumentException( "decimal value out of range: " + unscaled );
+
+    byte[] fixed = new byte[ DECIMAL_BYTES ];
+    byte padding = bytes[ 0 ] < 0 ? (byte) -1 : 0;
+    int offset = DECIMAL_BYTES - bytes.length;
+
+    for( int i = 0; i < offset; i++ )
+      fixed[ i ] = padding;
+
+    System.arraycopy( bytes, 0, fixed, offset, bytes.length );
+
+    return fixed;
+    }
+
+  /**
+   * Returns the wall clock time of a date or timestamp as milliseconds since the epoch in UTC, since Redshift dates
+   * and timestamps carry no time zone. Numbers are taken as milliseconds since the epoch.
+   */
+  long toLocalMillis( Object value )
+    {
+    if( value instanceof Number )
+      return ( (Number) value ).longValue();
+
+    Date date;
+
+    if( value instanceof Date )
+      date = (Date) value;
+    else
+      {
+      String string = value.toString().trim().replace( 'T', ' ' );
+      date = string.indexOf( ' ' ) < 0 ? java.sql.Date.valueOf( string ) : Timestamp.valueOf( string );
+      }
+
+    calendar.setTime( date );
+
+    return calendar.getTimeInMillis() + calendar.get( Calendar.ZONE_OFFSET ) + calendar.get( Calendar.DST_OFFSET );
+    }
+
+  private static long floorDiv( long dividend, long divisor )
+    {
+    long quotient = dividend / divisor;
+
+    return dividend % divisor < 0 ? quotient - 1 : quotient;
+    }
+  }
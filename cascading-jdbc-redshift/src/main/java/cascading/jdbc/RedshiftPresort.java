@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc;
+
+import cascading.pipe.GroupBy;
+import cascading.pipe.Pipe;
+import cascading.pipe.SubAssembly;
+import cascading.tuple.Fields;
+
+/**
+ * Sorts the tuples written to a {@link RedshiftTap} by the sort keys of its {@link RedshiftTableDesc}. Place it right
+ * before the sink:
+ * <pre>
+ * Pipe pipe = new RedshiftPresort( previous, redshiftScheme );
+ * </pre>
+ * The tuples are grouped on the sort keys, so every reducer receives them in sort key order and writes its part files
+ * in that order. When COPY loads rows in sort key order, which all follow the rows already in the table, it appends
+ * them to the sorted region of the table, so no VACUUM is needed.
+ * <p/>
+ * The sort keys name columns, the tuples are grouped on the sink fields written into those columns. The keys are
+ * compared by their values in the tuple stream, so numbers and dates should be coerced to their types before, and not
+ * be compared as strings.
+ */
+public class RedshiftPresort extends SubAssembly
+  {
+  /**
+   * Constructor RedshiftPresort creates a new RedshiftPresort instance for the sink fields of the given scheme.
+   *
+   * @param previous the pipe of the tuples to load
+   * @param scheme   the scheme of the sink, whose table must declare sort keys
+   */
+  public RedshiftPresort( Pipe previous, RedshiftScheme scheme )
+    {
+    this( previous, getTableDesc( scheme ), scheme.getSinkFields() );
+    }
+
+  /**
+   * Constructor RedshiftPresort creates a new RedshiftPresort instance for tuples, whose fields are named like the
+   * columns of the table.
+   *
+   * @param previous  the pipe of the tuples to load
+   * @param tableDesc the table the tuples are loaded into, which must declare sort keys
+   */
+  public RedshiftPresort( Pipe previous, RedshiftTableDesc tableDesc )
+    {
+    this( previous, tableDesc, new Fields( tableDesc.getColumnNames() ) );
+    }
+
+  /**
+   * Constructor RedshiftPresort creates a new RedshiftPresort instance.
+   *
+   * @param previous   the pipe of the tuples to load
+   * @param tableDesc  the table the tuples are loaded into, which must declare sort keys
+   * @param sinkFields the fields written into the columns of the table, in column order
+   */
+  public RedshiftPresort( Pipe previous, RedshiftTableDesc tableDesc, Fields sinkFields )
+    {
+    super( previous );
+
+    setTails( new GroupBy( previous, getSortFields( tableDesc, sinkFields ) ) );
+    }
+
+  private static RedshiftTableDesc getTableDesc( RedshiftScheme scheme )
+    {
+    if( !( scheme.getRedshiftTableDesc() instanceof RedshiftTableDesc ) )
+      throw new IllegalArgumentException( "scheme does not load a table with sort keys" );
+
+    return (RedshiftTableDesc) scheme.getRedshiftTableDesc();
+    }
+
+  /** Returns the sink fields written into the sort key columns, in the order of the sort keys. */
+  static Fields getSortFields( RedshiftTableDesc tableDesc, Fields sinkFields )
+    {
+    String[] sortKeys = tableDesc.getSortKeys();
+    String[] columnNames = tableDesc.getColumnNames();
+
+    if( sortKeys == null || sortKeys.length == 0 )
+      throw new IllegalArgumentException( "table declares no sort keys: " + tableDesc.getTableName() );
+
+    if( sinkFields == null || sinkFields.size() != columnNames.length )
+      throw new IllegalArgumentException( "sink fields do not match the columns of table: " + tableDesc.getTableName() );
+
+    Comparable[] sortFields = new Comparable[ sortKeys.length ];
+
+    for( int i = 0; i < sortKeys.length; i++ )
+      {
+      int column = 0;
+
+      while( column < columnNames.length && !columnNames[ column ].equalsIgnoreCase( sortKeys[ i ] ) )
+        column++;
+
+      if( column == columnNames.length )
+        throw new IllegalArgumentException( "sort key: " + sortKeys[ i ] + " is not a column of table: " + tableDesc.getTableName() );
+
+      sortFields[ i ] = sinkFields.get( column );
+      }
+
+    return new Fields( sortFields );
+    }
+  }
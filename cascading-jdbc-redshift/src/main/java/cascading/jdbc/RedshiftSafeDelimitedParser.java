@@ -25,7 +25,6 @@ import java.io.IOException;
 import cascading.scheme.util.DelimitedParser;
 import cascading.tap.TapException;
 import cascading.tuple.Fields;
-import org.apache.hadoop.util.StringUtils;
 
 /** {@link DelimitedParser} that treats the presence of characters that Redshift can't handle as an error in that line. */
 
@@ -68,21 +67,9 @@ public class RedshiftSafeDelimitedParser extends DelimitedParser
       if( value != null )
         {
         if( value instanceof String )
-          {
-          String valueString = value.toString();
-
-          if( containsAnyInvalidCodepoints( valueString ) )
-            {
-            throw new InvalidCodepointForRedshiftException( valueString );
-            }
-
-          String escaped = StringUtils.escapeString( valueString, BACKSLASH, new char[]{'"', '\''} );
-          buffer.append( quote ).append( escaped ).append( quote );
-          }
+          appendQuoted( (String) value, buffer );
         else
-          {
           buffer.append( value.toString() );
-          }
         }
       count++;
       }
@@ -90,29 +77,55 @@ public class RedshiftSafeDelimitedParser extends DelimitedParser
     return buffer;
     }
 
-  private boolean containsAnyInvalidCodepoints( String s )
+  /**
+   * Validates, escapes and appends a quoted value in a single pass. Runs of characters, which need no escaping, are
+   * appended at once, so a value without quotes or backslashes is appended without any copy.
+   */
+  private void appendQuoted( String value, Appendable buffer ) throws IOException
     {
-    for( int i = 0; i < s.length(); i++ )
+    int length = value.length();
+    int start = 0;
+
+    buffer.append( quote );
+
+    for( int i = 0; i < length; i++ )
       {
-      if( isExcludedCodepoint( s.codePointAt( i ) ) )
+      char c = value.charAt( i );
+
+      if( c < 0x80 )
+        {
+        if( c == '"' || c == '\'' || c == BACKSLASH )
+          {
+          buffer.append( value, start, i ).append( BACKSLASH );
+          start = i;
+          }
+        }
+      else if( isExcludedChar( c ) )
         {
-        return true;
+        throw new InvalidCodepointForRedshiftException( value );
         }
       }
-    return false;
+
+    if( start == 0 )
+      buffer.append( value );
+    else
+      buffer.append( value, start, length );
+
+    buffer.append( quote );
     }
 
-  private boolean isExcludedCodepoint( int codepoint )
+  /** Surrogates are rejected, whether they are paired or not, as are the noncharacters of the basic multilingual plane. */
+  private static boolean isExcludedChar( char c )
     {
-    if( codepoint >= 0xD800 && codepoint <= 0xDFFF )
+    if( c >= 0xD800 && c <= 0xDFFF )
       {
       return true;
       }
-    if( codepoint >= 0xFDD0 && codepoint <= 0xFDEF )
+    if( c >= 0xFDD0 && c <= 0xFDEF )
       {
       return true;
       }
-    if( codepoint >= 0xFFFE && codepoint <= 0xFFFF )
+    if( c >= 0xFFFE )
       {
       return true;
       }
@@ -26,6 +26,7 @@ import java.util.Map;
 
 import cascading.flow.FlowProcess;
 import cascading.jdbc.db.DBInputFormat;
+import cascading.jdbc.db.RedshiftDBOutputFormat;
 import cascading.scheme.Scheme;
 import cascading.scheme.hadoop.TextDelimited;
 import cascading.tap.Tap;
@@ -52,6 +53,8 @@ public class RedshiftScheme extends JDBCScheme
   private static final Logger LOG = LoggerFactory.getLogger( RedshiftScheme.class );
 
   private TextDelimited textDelimited;
+  private TextDelimited unloadTextDelimited;
+  private String delimiter;
   private Scheme<Configuration, RecordReader, OutputCollector, Object[], Object[]> sinkScheme;
   private RedshiftTableDesc redshiftTableDesc;
   private Map<RedshiftFactory.CopyOption, String> copyOptions = new HashMap<RedshiftFactory.CopyOption, String>();
@@ -104,6 +107,9 @@ public class RedshiftScheme extends JDBCScheme
     this.redshiftTableDesc = redshiftTableDesc;
     this.textDelimited = new TextDelimited( redshiftTableDesc.getHFSFields(), false, new RedshiftSafeDelimitedParser( delimiter, quoteCharacter ) );
     textDelimited.setSinkFields( getSinkFields() );
+    // UNLOAD writes CSV, which always quotes with double quotes
+    this.unloadTextDelimited = new TextDelimited( redshiftTableDesc.getHFSFields(), false, new RedshiftSafeDelimitedParser( delimiter, DEFAULT_QUOTE ) );
+    this.delimiter = delimiter;
     this.sinkScheme = this;
     if( copyOptions != null )
       this.copyOptions.putAll( copyOptions );
@@ -134,6 +140,17 @@ public class RedshiftScheme extends JDBCScheme
     return textDelimited;
     }
 
+  /** @return the scheme reading the part files written by UNLOAD, see {@link RedshiftTap#setUseUnload(boolean)} */
+  public TextDelimited getUnloadTextDelimited()
+    {
+    return unloadTextDelimited;
+    }
+
+  public String getDelimiter()
+    {
+    return delimiter;
+    }
+
   public TableDesc getRedshiftTableDesc()
     {
     return redshiftTableDesc;
@@ -151,6 +168,7 @@ public class RedshiftScheme extends JDBCScheme
       {
       sinkScheme = this;
       super.sinkConfInit( flowProcess, tap, jobConf );
+      jobConf.set( "mapred.output.format.class", RedshiftDBOutputFormat.class.getName() );
       }
     else
       {
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.mapred.OutputCollector;
+
+/**
+ * Writes the lines of one task into compressed part files below the staging directory of a {@link RedshiftTap}.
+ * <p/>
+ * The lines are spread round robin over a fixed number of files, each of which rolls over to a new file once it
+ * reaches the target size, so the files of a load have about the same size. The files are written into a temporary
+ * directory and moved into the staging directory, when the writer is closed, so files of failed attempts are never
+ * loaded.
+ */
+class RedshiftStagingWriter implements OutputCollector<Object, Object>
+  {
+  /** Field fileSystem */
+  private final FileSystem fileSystem;
+  /** Field stagingDir */
+  private final Path stagingDir;
+  /** Field tempDir */
+  private final Path tempDir;
+  /** Field prefix */
+  private final String prefix;
+  /** Field codec, null if the files are not compressed */
+  private final CompressionCodec codec;
+  /** Field fileSize */
+  private final long fileSize;
+  /** Field streams */
+  private final OutputStream[] streams;
+  /** Field written, the uncompressed bytes written to the current file of each stream */
+  private final long[] written;
+  /** Field rolls */
+  private final int[] rolls;
+  /** Field files */
+  private final List<Path> files = new ArrayList<Path>();
+  /** Field lines */
+  private long lines = 0;
+
+  /**
+   * Constructor RedshiftStagingWriter creates a new RedshiftStagingWriter instance.
+   *
+   * @param configuration the configuration of the task
+   * @param stagingDir    the directory the part files are loaded from
+   * @param prefix        the prefix of the names of the part files, unique to the task
+   * @param codec         the codec compressing the files, or null
+   * @param fileCount     the number of files written at the same time
+   * @param fileSize      the size in uncompressed bytes after which a file is rolled over
+   */
+  RedshiftStagingWriter( Configuration configuration, Path stagingDir, String prefix, CompressionCodec codec, int fileCount, long fileSize ) throws IOException
+    {
+    if( fileCount < 1 )
+      throw new IllegalArgumentException( "fileCount must be at least 1" );
+
+    if( fileSize < 1 )
+      throw new IllegalArgumentException( "fileSize must be at least 1" );
+
+    this.fileSystem = stagingDir.getFileSystem( configuration );
+    this.stagingDir = stagingDir;
+    this.tempDir = new Path( stagingDir, "_temporary/" + prefix + "-" + UUID.randomUUID() );
+    this.prefix = prefix;
+    this.codec = codec;
+    this.fileSize = fileSize;
+    this.streams = new OutputStream[ fileCount ];
+    this.written = new long[ fileCount ];
+    this.rolls = new int[ fileCount ];
+    }
+
+  @Override
+  public void collect( Object key, Object value ) throws IOException
+    {
+    int index = (int) ( lines++ % streams.length );
+
+    if( streams[ index ] == null || written[ index ] >= fileSize )
+      roll( index );
+
+    Text line = value instanceof Text ? (Text) value : new Text( value.toString() );
+
+    streams[ index ].write( line.getBytes(), 0, line.getLength() );
+    streams[ index ].write( '\n' );
+    written[ index ] += line.getLength() + 1;
+    }
+
+  private void roll( int index ) throws IOException
+    {
+    if( streams[ index ] != null )
+      streams[ index ].close();
+
+    String name = String.format( "%s-%03d-%05d", prefix, index, rolls[ index ]++ );
+
+    if( codec != null )
+      name += codec.getDefaultExtension();
+
+    Path file = new Path( tempDir, name );
+    OutputStream stream = fileSystem.create( file, true );
+
+    files.add( file );
+    streams[ index ] = codec == null ? stream : codec.createOutputStream( stream );
+    written[ index ] = 0;
+    }
+
+  /**
+   * Closes all files and moves them into the staging directory, replacing the files of an earlier attempt of the same
+   * task.
+   *
+   * @throws IOException
+   */
+  void close() throws IOException
+    {
+    for( int i = 0; i < streams.length; i++ )
+      {
+      if( streams[ i ] != null )
+        streams[ i ].close();
+
+      streams[ i ] = null;
+      }
+
+    publish( fileSystem, stagingDir, tempDir, prefix, files );
+    }
+
+  /**
+   * Moves the closed files of a task from its temporary directory into the staging directory, after deleting the files
+   * of an earlier attempt of the same task.
+   */
+  static void publish( FileSystem fileSystem, Path stagingDir, Path tempDir, String prefix, List<Path> files ) throws IOException
+    {
+    FileStatus[] stale = fileSystem.globStatus( new Path( stagingDir, prefix + "-*" ) );
+
+    for( int i = 0; stale != null && i < stale.length; i++ )
+      fileSystem.delete( stale[ i ].getPath(), false );
+
+    for( Path file : files )
+      {
+      Path target = new Path( stagingDir, file.getName() );
+
+      if( !fileSystem.rename( file, target ) )
+        throw new IOException( "unable to rename " + file + " to " + target );
+      }
+
+    files.clear();
+    fileSystem.delete( tempDir, true );
+    }
+
+  @Override
+  public String toString()
+    {
+    return "RedshiftStagingWriter{stagingDir=" + stagingDir + ", prefix='" + prefix + "'}";
+    }
+  }
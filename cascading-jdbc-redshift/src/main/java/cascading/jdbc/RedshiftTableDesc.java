@@ -61,6 +61,30 @@ public class RedshiftTableDesc extends TableDesc
     return createTableCommand;
     }
 
+  public String getDistributionKey()
+    {
+    return distributionkey;
+    }
+
+  public String[] getSortKeys()
+    {
+    return sortKeys;
+    }
+
+  /**
+   * Returns the statement creating a temporary table with the columns, distribution key and sort keys of this table.
+   * Sharing the keys keeps joins between both tables local to the slices.
+   *
+   * @param tempTableName the name of the temporary table
+   * @return the create statement
+   */
+  public String getCreateTempTableStatement( String tempTableName )
+    {
+    List<String> createTableStatement = addCreateTableBodyTo( new ArrayList<String>() );
+
+    return String.format( "CREATE TEMP TABLE %s ( %s ) %s", tempTableName, Util.join( createTableStatement, ", " ), getRedshiftTableKeys() );
+    }
+
   @Override
   public String[] getPrimaryKeys()
     {
@@ -21,17 +21,40 @@
 package cascading.jdbc;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import cascading.flow.Flow;
+import cascading.flow.FlowListener;
 import cascading.flow.FlowProcess;
 import cascading.jdbc.db.DBConfiguration;
+import cascading.jdbc.db.RedshiftDBOutputFormat;
 import cascading.tap.SinkMode;
 import cascading.tap.Tap;
+import cascading.tap.TapException;
 import cascading.tap.hadoop.Hfs;
+import cascading.tuple.Tuple;
+import cascading.tuple.TupleEntry;
 import cascading.tuple.TupleEntryCollector;
+import cascading.tuple.TupleEntryIterator;
+import cascading.tuple.TupleEntrySchemeCollector;
+import cascading.util.Util;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,13 +71,78 @@ public class RedshiftTap extends JDBCTap
 
   public static final String DB_DRIVER = "org.postgresql.Driver";
 
+  /** The number of slices of the cluster, queried when the flow is planned, unless it is set in advance */
+  public static final String SLICES_PROPERTY = "cascading.jdbc.redshift.slices";
+
+  /** The default size of a staged part file in uncompressed bytes */
+  public static final long DEFAULT_STAGING_FILE_SIZE = 256L * 1024 * 1024;
+
+  /** The name of the COPY manifest in the staging directory */
+  static final String MANIFEST_NAME = "manifest";
+
+  /** Compression of the part files staged for COPY */
+  public enum StagingCompression
+    {
+      NONE( null, null ),
+      GZIP( "org.apache.hadoop.io.compress.GzipCodec", RedshiftFactory.CopyOption.GZIP ),
+      ZSTD( "org.apache.hadoop.io.compress.ZStandardCodec", RedshiftFactory.CopyOption.ZSTD );
+
+    private final String codecClassName;
+    private final RedshiftFactory.CopyOption copyOption;
+
+    StagingCompression( String codecClassName, RedshiftFactory.CopyOption copyOption )
+      {
+      this.codecClassName = codecClassName;
+      this.copyOption = copyOption;
+      }
+
+    /** @return the COPY option reading files of this compression, or null */
+    public RedshiftFactory.CopyOption getCopyOption()
+      {
+      return copyOption;
+      }
+
+    CompressionCodec createCodec( Configuration configuration ) throws IOException
+      {
+      if( codecClassName == null )
+        return null;
+
+      try
+        {
+        Class<?> codecClass = configuration.getClassByName( codecClassName );
+        return (CompressionCodec) ReflectionUtils.newInstance( codecClass, configuration );
+        }
+      catch( ClassNotFoundException exception )
+        {
+        throw new IOException( "compression codec not available in this Hadoop version: " + codecClassName, exception );
+        }
+      }
+    }
+
+  /** File format of the part files staged for COPY */
+  public enum StagingFormat
+    {
+      /** Delimited text written by the {@link RedshiftScheme}, compressed according to the {@link StagingCompression} */
+      TEXT,
+      /** Parquet with the column types of the {@link RedshiftTableDesc}, compressed with snappy */
+      PARQUET
+    }
+
   private AWSCredentials awsCredentials;
   private RedshiftScheme redshiftScheme;
   private Hfs hfsStagingDir;
   private String s3WorkingDir;
   private boolean keepDebugHfsData;
   private boolean useDirectInsert;
-
+  private Hfs hfsUnloadDir;
+  private String s3UnloadDir;
+  private boolean useUnload;
+  private StagingCompression stagingCompression = StagingCompression.GZIP;
+  private long stagingFileSize = DEFAULT_STAGING_FILE_SIZE;
+  private StagingFormat stagingFormat = StagingFormat.TEXT;
+  private String[] mergeKeys;
+  private long copyThresholdRows;
+  private long copyThresholdBytes;
 
   /**
    * Redshift tap to stage data to S3 and then issue a JDBC COPY command to specified Redshift table
@@ -69,6 +157,8 @@ public class RedshiftTap extends JDBCTap
     String workingDirPath = hfsStagingDir + "/" + UUID.randomUUID();
     this.s3WorkingDir = workingDirPath.replaceAll( "s3n://", "s3://" );
     this.hfsStagingDir = new Hfs( redshiftScheme.getTextDelimited(), workingDirPath );
+    this.hfsUnloadDir = new Hfs( redshiftScheme.getUnloadTextDelimited(), workingDirPath + "/unload" );
+    this.s3UnloadDir = s3WorkingDir + "/unload/";
     this.awsCredentials = awsCredentials;
     this.keepDebugHfsData = keepDebugHfsData;
     this.useDirectInsert = useDirectInsert;
@@ -105,6 +195,17 @@ public class RedshiftTap extends JDBCTap
   @Override
   public void sourceConfInit( FlowProcess<? extends Configuration> process, Configuration configuration )
     {
+    if( useUnload )
+      {
+      if( redshiftScheme.getProjection() != null )
+        throw new TapException( "projections are not supported when unloading" );
+
+      configureCredentials( configuration );
+      unload( configuration );
+      hfsUnloadDir.sourceConfInit( process, configuration );
+      return;
+      }
+
     if( username == null )
       DBConfiguration.configureDB( configuration, driverClassName, connectionUrl );
     else
@@ -116,28 +217,116 @@ public class RedshiftTap extends JDBCTap
   @Override
   public void sinkConfInit( FlowProcess<? extends Configuration> process, Configuration conf )
     {
-    if (!useDirectInsert) {
-      // if we haven't set the credentials beforehand try to set them from the job conf
-      if( awsCredentials.equals( AWSCredentials.RUNTIME_DETERMINED ) )
-        {
-        String accessKey = conf.get( "fs.s3n.awsAccessKeyId", null );
-        String secretKey = conf.get( "fs.s3n.awsSecretAccessKey", null );
-        awsCredentials = new AWSCredentials( accessKey, secretKey );
-        }
-      // make the credentials to be used available to the JobConf if they were set differently
-      conf.set( "fs.s3n.awsAccessKeyId", awsCredentials.getAwsAccessKey() );
-      conf.set( "fs.s3n.awsSecretAccessKey", awsCredentials.getAwsSecretKey() );
+    if( mergeKeys != null && useDirectInsert )
+      throw new TapException( "merging requires staged loads, direct inserts must be disabled" );
+
+    if( isSwitchingToCopy() && awsCredentials == null )
+      throw new TapException( "switching to COPY requires AWS credentials and a staging directory" );
+
+    if( !useDirectInsert || isSwitchingToCopy() ) {
+      configureCredentials( conf );
+
+      if( stagingFormat == StagingFormat.PARQUET && redshiftScheme.getRedshiftTableDesc().getColumnDefs() == null )
+        throw new TapException( "column definitions are required to stage Parquet files" );
+
+      // attempts of the same task replace each other's part files, but speculative attempts would race
+      conf.setBoolean( "mapred.map.tasks.speculative.execution", false );
+      conf.setBoolean( "mapred.reduce.tasks.speculative.execution", false );
+
+      if( conf.get( SLICES_PROPERTY ) == null )
+        conf.setInt( SLICES_PROPERTY, querySlices() );
     }
     super.sinkConfInit( process, conf );
     }
 
+  /** Returns the number of slices of the cluster, which load the part files in parallel, or 1 if it is unknown. */
+  private int querySlices()
+    {
+    try
+      {
+      List<Object[]> results = executeQuery( "SELECT COUNT(*) FROM stv_slices", 1 );
+
+      if( !results.isEmpty() && results.get( 0 )[ 0 ] instanceof Number )
+        return Math.max( 1, ( (Number) results.get( 0 )[ 0 ] ).intValue() );
+      }
+    catch( IOException | TapException exception )
+      {
+      LOG.warn( "unable to query the number of slices, staging one file per task", exception );
+      }
+
+    return 1;
+    }
+
+  private void configureCredentials( Configuration conf )
+    {
+    // if we haven't set the credentials beforehand try to set them from the job conf
+    if( awsCredentials.equals( AWSCredentials.RUNTIME_DETERMINED ) )
+      {
+      String accessKey = conf.get( "fs.s3n.awsAccessKeyId", null );
+      String secretKey = conf.get( "fs.s3n.awsSecretAccessKey", null );
+      awsCredentials = new AWSCredentials( accessKey, secretKey );
+      }
+    // make the credentials to be used available to the JobConf if they were set differently
+    conf.set( "fs.s3n.awsAccessKeyId", awsCredentials.getAwsAccessKey() );
+    conf.set( "fs.s3n.awsSecretAccessKey", awsCredentials.getAwsSecretKey() );
+    }
+
+  /**
+   * Unloads the rows of the scheme into the unload directory, unless they have been unloaded already. The directory
+   * is unique to this tap, so the rows are unloaded once, even if the tap is initialized again by another step.
+   */
+  private synchronized void unload( Configuration configuration )
+    {
+    try
+      {
+      if( hfsUnloadDir.resourceExists( configuration ) )
+        return;
+
+      LOG.info( "unloading {} to {}", getTableName(), s3UnloadDir );
+      executeUpdate( buildUnloadToS3Command() );
+      }
+    catch( IOException exception )
+      {
+      throw new TapException( "unable to unload into: " + s3UnloadDir, exception );
+      }
+    }
+
+  @Override
+  public TupleEntryIterator openForRead( FlowProcess<? extends Configuration> flowProcess, RecordReader input ) throws IOException
+    {
+    if( !useUnload )
+      return super.openForRead( flowProcess, input );
+
+    // reading on the client side, the rows may not have been unloaded yet
+    if( input == null )
+      {
+      configureCredentials( flowProcess.getConfig() );
+      unload( flowProcess.getConfig() );
+      }
+
+    return hfsUnloadDir.openForRead( flowProcess, input );
+    }
+
+  @Override
+  void addFlowListeners( Flow<?> flow )
+    {
+    super.addFlowListeners( flow );
+
+    if( useUnload && !keepDebugHfsData )
+      flow.addListener( new UnloadDirDeletingListener() );
+    }
+
   @Override
   public TupleEntryCollector openForWrite( FlowProcess<? extends Configuration> flowProcess, OutputCollector outputCollector ) throws IOException
     {
     // force a table creation if one does not exist
     LOG.info( "creating db table: " + getTableName() );
     super.createResource( flowProcess );
-    if( useDirectInsert )
+    if( useDirectInsert && isSwitchingToCopy() )
+      {
+      return new CopySwitchingCollector( flowProcess, outputCollector );
+      }
+    else if( useDirectInsert )
       {
       return super.openForWrite( flowProcess, outputCollector );
       }
@@ -145,10 +334,53 @@ public class RedshiftTap extends JDBCTap
       {
       LOG.info( "Creating scratch dir: " + hfsStagingDir.getIdentifier() );
       hfsStagingDir.createResource( flowProcess );
-      return hfsStagingDir.openForWrite( flowProcess );
+      return openStagingForWrite( flowProcess );
       }
     }
 
+  /**
+   * Opens the part files of this task. All tasks together write about as many files at a time, as the cluster has
+   * slices, so every slice loads about the same amount of data.
+   */
+  private TupleEntryCollector openStagingForWrite( FlowProcess<? extends Configuration> flowProcess ) throws IOException
+    {
+    Configuration conf = flowProcess.getConfig();
+    int slices = conf.getInt( SLICES_PROPERTY, 1 );
+    int tasks = Math.max( 1, flowProcess.getNumProcessSlices() );
+    int fileCount = ( slices + tasks - 1 ) / tasks;
+    String prefix = String.format( "part-%05d", flowProcess.getCurrentSliceNum() );
+
+    if( stagingFormat == StagingFormat.PARQUET )
+      return new RedshiftParquetStagingWriter( conf, hfsStagingDir.getPath(), prefix, redshiftScheme.getRedshiftTableDesc(),
+        redshiftScheme.getSinkFields(), fileCount, stagingFileSize );
+
+    final RedshiftStagingWriter writer = new RedshiftStagingWriter( conf, hfsStagingDir.getPath(), prefix,
+      stagingCompression.createCodec( conf ), fileCount, stagingFileSize );
+
+    return new TupleEntrySchemeCollector<Configuration, OutputCollector>( flowProcess, redshiftScheme.getTextDelimited(), writer, hfsStagingDir.getIdentifier() )
+      {
+      @Override
+      public void close()
+        {
+        try
+          {
+          super.close();
+          }
+        finally
+          {
+          try
+            {
+            writer.close();
+            }
+          catch( IOException exception )
+            {
+            throw new TapException( "unable to write part files to: " + hfsStagingDir.getIdentifier(), exception );
+            }
+          }
+        }
+      };
+    }
+
   @Override
   public boolean createResource( Configuration configuration ) throws IOException
     {
@@ -185,14 +417,29 @@ public class RedshiftTap extends JDBCTap
   @Override
   public boolean commitResource( Configuration configuration ) throws IOException
     {
-    if( !useDirectInsert )
+    if( !useDirectInsert || isSwitchingToCopy() )
       {
-      String copyCommand = buildCopyFromS3Command();
       try
         {
-        int results = super.executeUpdate( copyCommand );
-        if( results != 0 )
-          LOG.info( "Copy return code: {} ( expected: 0 )", results );
+        if( writeManifest( configuration ) == 0 )
+          LOG.info( "no part files staged, skipping copy" );
+        else if( mergeKeys != null )
+          {
+          try( Connection connection = createConnection() )
+            {
+            JDBCUtil.executeUpdates( connection, buildMergeStatements() );
+            }
+          catch( SQLException exception )
+            {
+            throw new IOException( "unable to merge into: " + getTableName(), exception );
+            }
+          }
+        else
+          {
+          int results = super.executeUpdate( buildCopyFromS3Command() );
+          if( results != 0 )
+            LOG.info( "Copy return code: {} ( expected: 0 )", results );
+          }
         }
       finally
         {
@@ -217,15 +464,260 @@ public class RedshiftTap extends JDBCTap
     return useDirectInsert;
     }
 
+  private boolean isSwitchingToCopy()
+    {
+    return useDirectInsert && ( copyThresholdRows > 0 || copyThresholdBytes > 0 );
+    }
+
+  public long getCopyThresholdRows()
+    {
+    return copyThresholdRows;
+    }
+
+  public long getCopyThresholdBytes()
+    {
+    return copyThresholdBytes;
+    }
+
+  /**
+   * Lets tasks writing with direct inserts switch to staging for COPY, once they have written more rows or more
+   * estimated bytes than given. A task holds its tuples in memory until it either passes a threshold or ends, so all
+   * tuples of a task are either inserted or copied. Copying requires AWS credentials and a staging directory.
+   *
+   * @param rows  the number of rows of a task after which it switches, or 0 for no limit
+   * @param bytes the estimated number of bytes of a task after which it switches, or 0 for no limit
+   */
+  public void setCopyThresholds( long rows, long bytes )
+    {
+    if( rows < 0 || bytes < 0 )
+      throw new IllegalArgumentException( "thresholds must not be negative" );
+
+    this.copyThresholdRows = rows;
+    this.copyThresholdBytes = bytes;
+    }
+
+  public StagingCompression getStagingCompression()
+    {
+    return stagingCompression;
+    }
+
+  /**
+   * Sets the compression of the part files staged for COPY, {@link StagingCompression#GZIP} by default. Compressed
+   * files are transferred from S3 faster. {@link StagingCompression#ZSTD} requires a Hadoop version providing its
+   * codec.
+   *
+   * @param stagingCompression the compression of the part files
+   */
+  public void setStagingCompression( StagingCompression stagingCompression )
+    {
+    if( stagingCompression == null )
+      throw new IllegalArgumentException( "stagingCompression must not be null" );
+
+    this.stagingCompression = stagingCompression;
+    }
+
+  public long getStagingFileSize()
+    {
+    return stagingFileSize;
+    }
+
+  /**
+   * Sets the size in uncompressed bytes, after which a staged part file is rolled over to a new one. Redshift loads
+   * files of equal size fastest.
+   *
+   * @param stagingFileSize the size of a part file
+   */
+  public void setStagingFileSize( long stagingFileSize )
+    {
+    if( stagingFileSize < 1 )
+      throw new IllegalArgumentException( "stagingFileSize must be at least 1" );
+
+    this.stagingFileSize = stagingFileSize;
+    }
+
+  public StagingFormat getStagingFormat()
+    {
+    return stagingFormat;
+    }
+
+  /**
+   * Sets the format of the part files staged for COPY, {@link StagingFormat#TEXT} by default. Parquet files carry the
+   * column types of the table, so COPY loads them without parsing and converting text. Staging Parquet requires the
+   * column definitions of the {@link RedshiftTableDesc}; the COPY options of the {@link RedshiftScheme} and the
+   * staging compression only apply to text and are ignored.
+   *
+   * @param stagingFormat the format of the part files
+   */
+  public void setStagingFormat( StagingFormat stagingFormat )
+    {
+    if( stagingFormat == null )
+      throw new IllegalArgumentException( "stagingFormat must not be null" );
+
+    this.stagingFormat = stagingFormat;
+    }
+
+  public String[] getMergeKeys()
+    {
+    return mergeKeys == null ? null : Arrays.copyOf( mergeKeys, mergeKeys.length );
+    }
+
+  /**
+   * Merges the staged rows into the table instead of appending them. Rows are copied into a temporary table with the
+   * same columns, distribution key and sort keys; the rows of the table matching a staged row on all merge keys are
+   * deleted and the staged rows are inserted. All of it runs in one transaction, so readers either see the table
+   * before or after the merge. Staged rows sharing the same keys are all inserted.
+   * <p/>
+   * Merging requires staged loads and {@link SinkMode#UPDATE}, with {@link SinkMode#REPLACE} the table is dropped
+   * anyway.
+   *
+   * @param mergeKeys the columns identifying a row, or null to append rows
+   */
+  public void setMergeKeys( String... mergeKeys )
+    {
+    if( mergeKeys != null && mergeKeys.length == 0 )
+      throw new IllegalArgumentException( "at least one merge key is required" );
+
+    this.mergeKeys = mergeKeys == null ? null : Arrays.copyOf( mergeKeys, mergeKeys.length );
+    }
+
+  public boolean isUseUnload()
+    {
+    return useUnload;
+    }
+
+  /**
+   * Reads the table with a Redshift UNLOAD instead of selecting the rows over the leader node. All slices of the
+   * cluster unload their rows in parallel into gzip compressed CSV part files below the staging directory, which are
+   * read by {@link Hfs}. Compressed files are not split, so every part file is read by its own task. The part files
+   * are deleted once the flow has finished, unless the debug data is kept.
+   * <p/>
+   * Values containing line breaks are not supported, since the part files are read line by line.
+   *
+   * @param useUnload true, if the table is read through UNLOAD
+   */
+  public void setUseUnload( boolean useUnload )
+    {
+    this.useUnload = useUnload;
+    }
+
+  /** @return the directory the part files are staged in for COPY */
+  public String getStagingDir()
+    {
+    return hfsStagingDir.getIdentifier();
+    }
+
+  /** @return the directory the rows are unloaded into, see {@link #setUseUnload(boolean)} */
+  public String getUnloadDir()
+    {
+    return hfsUnloadDir.getIdentifier();
+    }
+
   public String buildCopyFromS3Command()
+    {
+    return buildCopyFromS3Command( redshiftScheme.getRedshiftTableDesc().getTableName() );
+    }
+
+  private String buildCopyFromS3Command( String tableName )
     {
     return String.format( "COPY %s from '%s' %s %s ;",
-      redshiftScheme.getRedshiftTableDesc().getTableName(),
-      s3WorkingDir,
+      tableName,
+      s3WorkingDir + "/" + MANIFEST_NAME,
       buildAuthenticationOptions(),
       buildCopyOptions() );
     }
 
+  /**
+   * Writes the COPY manifest listing all staged part files with their sizes, which are required to load Parquet.
+   * Loading from a manifest never picks up stray files and fails, if a listed file is missing.
+   *
+   * @return the number of part files
+   */
+  int writeManifest( Configuration configuration ) throws IOException
+    {
+    Path stagingPath = hfsStagingDir.getPath();
+    FileSystem fileSystem = stagingPath.getFileSystem( configuration );
+
+    // no task staged any files, when all of them inserted directly
+    if( !fileSystem.exists( stagingPath ) )
+      return 0;
+    StringBuilder manifest = new StringBuilder( "{\"entries\":[" );
+    int count = 0;
+
+    for( FileStatus status : fileSystem.listStatus( stagingPath ) )
+      {
+      String name = status.getPath().getName();
+
+      if( status.isDirectory() || name.startsWith( "_" ) || name.startsWith( "." ) || name.equals( MANIFEST_NAME ) )
+        continue;
+
+      if( count++ != 0 )
+        manifest.append( "," );
+
+      String url = status.getPath().toString().replaceAll( "s3n://", "s3://" );
+      manifest.append( "{\"url\":\"" ).append( url ).append( "\",\"mandatory\":true,\"meta\":{\"content_length\":" )
+        .append( status.getLen() ).append( "}}" );
+      }
+
+    manifest.append( "]}" );
+
+    try( OutputStream output = fileSystem.create( new Path( stagingPath, MANIFEST_NAME ), true ) )
+      {
+      output.write( manifest.toString().getBytes( StandardCharsets.UTF_8 ) );
+      }
+
+    LOG.info( "staged {} part files in {}", count, stagingPath );
+
+    return count;
+    }
+
+  /**
+   * Returns the statements merging the staged rows into the table, see {@link #setMergeKeys(String...)}.
+   *
+   * @return the statements in the order they are executed
+   */
+  public List<String> buildMergeStatements()
+    {
+    TableDesc tableDesc = redshiftScheme.getRedshiftTableDesc();
+    String tableName = tableDesc.getTableName();
+    // temporary tables live in a schema of their own
+    String mergeTable = "merge_" + tableName.substring( tableName.lastIndexOf( '.' ) + 1 );
+
+    StringBuilder conditions = new StringBuilder();
+
+    for( String mergeKey : mergeKeys )
+      {
+      if( conditions.length() != 0 )
+        conditions.append( " AND " );
+
+      conditions.append( tableName ).append( "." ).append( mergeKey ).append( " = " ).append( mergeTable ).append( "." ).append( mergeKey );
+      }
+
+    String columns = Util.join( tableDesc.getColumnNames(), ", " );
+    List<String> statements = new ArrayList<String>();
+
+    statements.add( ( (RedshiftTableDesc) tableDesc ).getCreateTempTableStatement( mergeTable ) );
+    statements.add( buildCopyFromS3Command( mergeTable ) );
+    statements.add( String.format( "DELETE FROM %s USING %s WHERE %s", tableName, mergeTable, conditions ) );
+    statements.add( String.format( "INSERT INTO %s ( %s ) SELECT %s FROM %s", tableName, columns, columns, mergeTable ) );
+    statements.add( String.format( "DROP TABLE %s", mergeTable ) );
+
+    return statements;
+    }
+
+  public String buildUnloadToS3Command()
+    {
+    String query = redshiftScheme.getSelectStatement( getTableName() );
+
+    // UNLOAD neither allows a LIMIT in the outer select nor unescaped quotes in the query
+    String escaped = ( "SELECT * FROM ( " + query + " ) q" ).replace( "\\", "\\\\" ).replace( "'", "\\'" );
+
+    return String.format( "UNLOAD ('%s') TO '%s' %s FORMAT AS CSV DELIMITER AS '%s' GZIP PARALLEL ON ALLOWOVERWRITE ;",
+      escaped,
+      s3UnloadDir + "part_",
+      buildAuthenticationOptions(),
+      redshiftScheme.getDelimiter() );
+    }
+
   protected String buildAuthenticationOptions()
     {
     return String.format( " CREDENTIALS 'aws_access_key_id=%s;aws_secret_access_key=%s' ",
@@ -235,8 +727,21 @@ public class RedshiftTap extends JDBCTap
 
   private String buildCopyOptions()
     {
+    Map<RedshiftFactory.CopyOption, String> copyOptions = new LinkedHashMap<RedshiftFactory.CopyOption, String>();
+
+    // the options of the scheme describe the text format, COPY rejects them for Parquet
+    if( stagingFormat == StagingFormat.PARQUET )
+      copyOptions.put( RedshiftFactory.CopyOption.FORMAT, "PARQUET" );
+    else
+      copyOptions.putAll( redshiftScheme.getCopyOptions() );
+
+    copyOptions.put( RedshiftFactory.CopyOption.MANIFEST, null );
+
+    if( stagingFormat == StagingFormat.TEXT && stagingCompression.getCopyOption() != null )
+      copyOptions.put( stagingCompression.getCopyOption(), null );
+
     StringBuilder builder = new StringBuilder();
-    for( Map.Entry<RedshiftFactory.CopyOption, String> copyOption : redshiftScheme.getCopyOptions().entrySet() )
+    for( Map.Entry<RedshiftFactory.CopyOption, String> copyOption : copyOptions.entrySet() )
       {
       builder.append( " " );
       if( copyOption.getValue() == null )
@@ -247,6 +752,128 @@ public class RedshiftTap extends JDBCTap
     return builder.toString();
     }
 
+  /**
+   * Collector of a task writing with direct inserts, which holds the tuples until the task passes a copy threshold or
+   * ends. Tasks staying below the thresholds insert their tuples, the others stage them for COPY.
+   */
+  private class CopySwitchingCollector extends TupleEntryCollector
+    {
+    private final FlowProcess<? extends Configuration> flowProcess;
+    private final OutputCollector outputCollector;
+    private final List<TupleEntry> buffer = new ArrayList<TupleEntry>();
+    private long bytes = 0;
+    private TupleEntryCollector stagingCollector;
+
+    CopySwitchingCollector( FlowProcess<? extends Configuration> flowProcess, OutputCollector outputCollector )
+      {
+      this.flowProcess = flowProcess;
+      this.outputCollector = outputCollector;
+      }
+
+    @Override
+    protected void collect( TupleEntry tupleEntry ) throws IOException
+      {
+      if( stagingCollector != null )
+        {
+        stagingCollector.add( tupleEntry );
+        return;
+        }
+
+      // the entry is reused by the caller
+      TupleEntry copy = new TupleEntry( tupleEntry.getFields(), new Tuple( tupleEntry.getTuple() ) );
+
+      buffer.add( copy );
+
+      for( Object value : copy.getTuple() )
+        bytes += RedshiftDBOutputFormat.estimateLength( value );
+
+      if( ( copyThresholdRows > 0 && buffer.size() >= copyThresholdRows ) || ( copyThresholdBytes > 0 && bytes >= copyThresholdBytes ) )
+        {
+        LOG.info( "task passed the copy thresholds with {} rows, staging for COPY in: {}", buffer.size(), hfsStagingDir.getIdentifier() );
+        hfsStagingDir.createResource( flowProcess );
+        stagingCollector = openStagingForWrite( flowProcess );
+        replay( stagingCollector );
+        }
+      }
+
+    private void replay( TupleEntryCollector collector )
+      {
+      for( TupleEntry entry : buffer )
+        collector.add( entry );
+
+      buffer.clear();
+      }
+
+    @Override
+    public void close()
+      {
+      if( stagingCollector != null )
+        {
+        stagingCollector.close();
+        return;
+        }
+
+      if( buffer.isEmpty() )
+        return;
+
+      TupleEntryCollector insertCollector;
+
+      try
+        {
+        insertCollector = RedshiftTap.super.openForWrite( flowProcess, outputCollector );
+        }
+      catch( IOException exception )
+        {
+        throw new TapException( "unable to insert into: " + getTableName(), exception );
+        }
+
+      try
+        {
+        replay( insertCollector );
+        }
+      finally
+        {
+        insertCollector.close();
+        }
+      }
+    }
+
+  /** FlowListener deleting the unloaded part files, once the flow has finished. */
+  private class UnloadDirDeletingListener implements FlowListener
+    {
+    @Override
+    public void onStarting( Flow flow )
+      {
+      }
+
+    @Override
+    public void onStopping( Flow flow )
+      {
+      }
+
+    @Override
+    public void onCompleted( Flow flow )
+      {
+      Configuration configuration = asJobConf( flow.getConfig() );
+
+      try
+        {
+        if( hfsUnloadDir.resourceExists( configuration ) )
+          hfsUnloadDir.deleteResource( configuration );
+        }
+      catch( IOException exception )
+        {
+        LOG.warn( "unable to delete unload dir: " + hfsUnloadDir.getIdentifier(), exception );
+        }
+      }
+
+    @Override
+    public boolean onThrowable( Flow flow, Throwable throwable )
+      {
+      return false;
+      }
+    }
+
   @Override
   public String toString()
     {
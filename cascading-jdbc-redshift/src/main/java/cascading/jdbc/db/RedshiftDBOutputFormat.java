@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import cascading.jdbc.JDBCUtil;
+import cascading.jdbc.TupleRecord;
+import cascading.tuple.Tuple;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.Progressable;
+
+/**
+ * {@link DBOutputFormat} inserting many rows with a single <code>INSERT ... VALUES (...), (...)</code> statement.
+ * The Redshift leader node executes every statement on its own, so single row inserts, even when batched, run at a
+ * few hundred rows per second. The statements are made as large as Redshift permits, limited by the maximum length of
+ * a statement and by the number of parameters a statement may bind.
+ * <p/>
+ * Updates are written with the batched statements of {@link DBOutputFormat}.
+ */
+public class RedshiftDBOutputFormat<K extends DBWritable, V> extends DBOutputFormat<K, V>
+  {
+  private static final Log LOG = LogFactory.getLog( RedshiftDBOutputFormat.class );
+
+  /** Maximum length of a multi-row insert statement in characters, including the bound values */
+  public static final String MAX_STATEMENT_LENGTH_PROPERTY = "mapred.jdbc.output.redshift.statement.length";
+
+  /** Redshift rejects statements longer than 16 MB */
+  public static final int DEFAULT_MAX_STATEMENT_LENGTH = 16 * 1024 * 1024;
+
+  /** The protocol of the PostgreSQL driver counts the parameters of a statement in a signed short */
+  static final int MAX_PARAMETERS = Short.MAX_VALUE;
+
+  /**
+   * Sets the maximum length of a multi-row insert statement, see {@link #DEFAULT_MAX_STATEMENT_LENGTH}.
+   *
+   * @param configuration      the configuration of the job
+   * @param maxStatementLength the length in characters
+   */
+  public static void setMaxStatementLength( Configuration configuration, int maxStatementLength )
+    {
+    if( maxStatementLength < 1 )
+      throw new IllegalArgumentException( "maxStatementLength must be at least 1" );
+
+    configuration.setInt( MAX_STATEMENT_LENGTH_PROPERTY, maxStatementLength );
+    }
+
+  /** {@inheritDoc} */
+  @Override
+  public RecordWriter<K, V> getRecordWriter( FileSystem filesystem, JobConf job, String name, Progressable progress ) throws IOException
+    {
+    DBConfiguration dbConf = new DBConfiguration( job );
+
+    if( dbConf.getOutputUpdateFieldNames() != null )
+      return super.getRecordWriter( filesystem, job, name, progress );
+
+    Connection connection = dbConf.getConnection();
+
+    configureConnection( connection );
+    JDBCUtil.createTableIfNotExists( connection, dbConf.toTableDesc() );
+
+    int maxStatementLength = job.getInt( MAX_STATEMENT_LENGTH_PROPERTY, DEFAULT_MAX_STATEMENT_LENGTH );
+
+    return new MultiRowRecordWriter( connection, dbConf.getOutputTableName(), dbConf.getOutputFieldNames(), maxStatementLength );
+    }
+
+  /**
+   * Constructs the statement inserting the given number of rows.
+   *
+   * @param table      the table to insert into
+   * @param fieldNames the fields to insert into
+   * @param rows       the number of rows
+   */
+  protected String constructMultiRowInsertQuery( String table, String[] fieldNames, int rows )
+    {
+    String insert = constructInsertQuery( table, fieldNames );
+    int values = insert.lastIndexOf( " VALUES (" ) + " VALUES ".length();
+    String row = insert.substring( values );
+    StringBuilder query = new StringBuilder( values + rows * ( row.length() + 1 ) );
+
+    query.append( insert, 0, values );
+
+    for( int i = 0; i < rows; i++ )
+      {
+      if( i != 0 )
+        query.append( "," );
+
+      query.append( row );
+      }
+
+    return query.toString();
+    }
+
+  /** Estimates the length of a value bound to a statement. */
+  public static int estimateLength( Object value )
+    {
+    if( value == null )
+      return 4;
+
+    if( value instanceof CharSequence )
+      return ( (CharSequence) value ).length() + 2;
+
+    // numbers, dates and the like, without converting them to strings
+    return 24;
+    }
+
+  /** A RecordWriter collecting rows until the next row would exceed the limits of a single insert statement */
+  protected class MultiRowRecordWriter implements RecordWriter<K, V>
+    {
+    private final Connection connection;
+    private final String tableName;
+    private final String[] fieldNames;
+    private final int maxStatementLength;
+    private final int maxRows;
+    private final int prefixLength;
+    private final int rowLength;
+    private final List<Object[]> rows = new ArrayList<Object[]>();
+    private PreparedStatement statement;
+    private int statementRows = 0;
+    private int statementLength;
+    private long rowsWritten = 0;
+
+    protected MultiRowRecordWriter( Connection connection, String tableName, String[] fieldNames, int maxStatementLength )
+      {
+      this.connection = connection;
+      this.tableName = tableName;
+      this.fieldNames = fieldNames;
+      this.maxStatementLength = maxStatementLength;
+      this.maxRows = Math.max( 1, MAX_PARAMETERS / fieldNames.length );
+
+      String single = constructInsertQuery( tableName, fieldNames );
+
+      this.prefixLength = single.lastIndexOf( " VALUES (" ) + " VALUES ".length();
+      this.rowLength = single.length() - prefixLength + 1;
+      this.statementLength = prefixLength;
+      }
+
+    /** {@inheritDoc} */
+    public synchronized void write( K key, V value ) throws IOException
+      {
+      if( !( key instanceof TupleRecord ) )
+        throw new IOException( "multi-row inserts require keys of type: " + TupleRecord.class.getName() );
+
+      Tuple tuple = ( (TupleRecord) key ).getTuple();
+      Object[] row = new Object[ tuple.size() ];
+      int length = rowLength;
+
+      for( int i = 0; i < row.length; i++ )
+        {
+        row[ i ] = tuple.getObject( i );
+        length += estimateLength( row[ i ] );
+        }
+
+      if( !rows.isEmpty() && ( rows.size() == maxRows || statementLength + length > maxStatementLength ) )
+        flush();
+
+      rows.add( row );
+      statementLength += length;
+      }
+
+    private void flush() throws IOException
+      {
+      if( rows.isEmpty() )
+        return;
+
+      try
+        {
+        // consecutive statements mostly have the same number of rows, as long as the values have similar lengths
+        if( statement == null || statementRows != rows.size() )
+          {
+          if( statement != null )
+            statement.close();
+
+          statement = connection.prepareStatement( constructMultiRowInsertQuery( tableName, fieldNames, rows.size() ) );
+          statementRows = rows.size();
+          }
+
+        int index = 1;
+
+        for( Object[] row : rows )
+          {
+          for( Object value : row )
+            statement.setObject( index++, value );
+          }
+
+        statement.executeUpdate();
+        connection.commit();
+        }
+      catch( SQLException exception )
+        {
+        try
+          {
+          connection.rollback();
+          }
+        catch( SQLException rollbackException )
+          {
+          LOG.error( "unable to rollback insert", rollbackException );
+          }
+
+        throw new IOException( "unable to insert " + rows.size() + " rows into: " + tableName, exception );
+        }
+
+      rowsWritten += rows.size();
+      LOG.info( "inserted " + rows.size() + " rows with " + statementLength + " characters, total: " + rowsWritten );
+
+      rows.clear();
+      statementLength = prefixLength;
+      }
+
+    /** {@inheritDoc} */
+    public void close( Reporter reporter ) throws IOException
+      {
+      try
+        {
+        flush();
+
+        if( statement != null )
+          statement.close();
+        }
+      catch( SQLException exception )
+        {
+        throw new IOException( "unable to close statement", exception );
+        }
+      finally
+        {
+        JDBCUtil.closeConnection( connection );
+        }
+      }
+    }
+  }
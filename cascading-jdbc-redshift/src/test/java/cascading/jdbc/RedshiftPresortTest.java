@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cascading.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import cascading.flow.Flow;
+import cascading.flow.FlowRuntimeProps;
+import cascading.flow.tez.Hadoop2TezFlowConnector;
+import cascading.pipe.GroupBy;
+import cascading.pipe.Pipe;
+import cascading.property.AppProps;
+import cascading.scheme.hadoop.TextDelimited;
+import cascading.tap.SinkMode;
+import cascading.tap.Tap;
+import cascading.tap.hadoop.Hfs;
+import cascading.tuple.Fields;
+import org.junit.Test;
+
+public class RedshiftPresortTest
+  {
+  private static final RedshiftTableDesc TABLE_DESC = new RedshiftTableDesc( "events", new String[]{"id", "day"},
+    new String[]{"int", "varchar(10)"}, "id", new String[]{"day", "id"} );
+
+  @Test
+  public void testSortKeys()
+    {
+    RedshiftPresort presort = new RedshiftPresort( new Pipe( "events" ), TABLE_DESC );
+
+    assertEquals( 1, presort.getTails().length );
+
+    GroupBy groupBy = (GroupBy) presort.getTails()[ 0 ];
+
+    // grouping on all sort keys orders the tuples of each reducer without a secondary sort
+    assertEquals( new Fields( "day", "id" ), groupBy.getKeySelectors().get( "events" ) );
+    assertFalse( groupBy.isSorted() );
+    }
+
+  @Test
+  public void testSinkFields()
+    {
+    Fields sinkFields = new Fields( "event_id", "event_day" );
+    RedshiftPresort presort = new RedshiftPresort( new Pipe( "events" ), new RedshiftScheme( sinkFields, TABLE_DESC ) );
+
+    GroupBy groupBy = (GroupBy) presort.getTails()[ 0 ];
+
+    assertEquals( new Fields( "event_day", "event_id" ), groupBy.getKeySelectors().get( "events" ) );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSinkFieldsMismatch()
+    {
+    new RedshiftPresort( new Pipe( "events" ), TABLE_DESC, new Fields( "event_id" ) );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoSortKeys()
+    {
+    RedshiftTableDesc tableDesc = new RedshiftTableDesc( "events", new String[]{"id", "day"}, new String[]{"int", "date"}, "id", null );
+
+    new RedshiftPresort( new Pipe( "events" ), tableDesc );
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownSortKey()
+    {
+    RedshiftTableDesc tableDesc = new RedshiftTableDesc( "events", new String[]{"id", "day"}, new String[]{"int", "date"}, "id", new String[]{"hour"} );
+
+    new RedshiftPresort( new Pipe( "events" ), tableDesc );
+    }
+
+  @Test
+  public void testFlowOrder() throws IOException
+    {
+    File input = new File( "build/test/presort-input.txt" );
+    input.getParentFile().mkdirs();
+
+    // ids in the order of insertion, spread over the days out of order
+    try( OutputStream output = new FileOutputStream( input ) )
+      {
+      for( int id = 0; id < 40; id++ )
+        output.write( ( id + "\t2015-03-0" + ( id * 7 % 5 + 1 ) + "\n" ).getBytes( StandardCharsets.UTF_8 ) );
+      }
+
+    Fields sinkFields = new Fields( new Comparable[]{"event_id", "event_day"}, new Type[]{int.class, String.class} );
+    Tap<?, ?, ?> source = new Hfs( new TextDelimited( sinkFields, "\t" ), input.getPath() );
+    Tap<?, ?, ?> sink = new Hfs( new TextDelimited( sinkFields, "\t" ), "build/test/presort", SinkMode.REPLACE );
+
+    Properties properties = new Properties();
+    AppProps.setApplicationJarClass( properties, getClass() );
+    properties.setProperty( FlowRuntimeProps.GATHER_PARTITIONS, "2" );
+
+    Flow<?> flow = new Hadoop2TezFlowConnector( properties ).connect( source, sink, new RedshiftPresort( new Pipe( "events" ), TABLE_DESC, sinkFields ) );
+
+    flow.complete();
+
+    int rows = 0;
+
+    for( File part : new File( "build/test/presort" ).listFiles() )
+      {
+      if( !part.getName().startsWith( "part-" ) )
+        continue;
+
+      String previous = null;
+
+      try( BufferedReader reader = new BufferedReader( new FileReader( part ) ) )
+        {
+        for( String line = reader.readLine(); line != null; line = reader.readLine() )
+          {
+          String[] values = line.split( "\t" );
+          String current = String.format( "%s %05d", values[ 1 ], Integer.parseInt( values[ 0 ] ) );
+
+          assertTrue( part.getName() + ": " + current + " after " + previous, previous == null || previous.compareTo( current ) < 0 );
+
+          previous = current;
+          rows++;
+          }
+        }
+      }
+
+    assertEquals( 40, rows );
+    }
+  }
@@ -48,4 +48,28 @@ public class RedshiftSafeDelimitedParserTest {
         parser.joinLine(new Tuple(new String(characterBytes, "UTF-8")), buf);
 
     }
+
+    @Test
+    public void shouldEscapeQuotesAndBackslashesAnywhere() {
+        RedshiftSafeDelimitedParser parser = new RedshiftSafeDelimitedParser(",", "\"");
+        StringBuilder buf = new StringBuilder();
+
+        parser.joinLine(new Tuple("a\"b\\c'", "\u00e9t\u00e9", null, ""), buf);
+
+        assertEquals("\"a\\\"b\\\\c\\'\",\"\u00e9t\u00e9\",,\"\"", buf.toString());
+    }
+
+    @Test(expected=InvalidCodepointForRedshiftException.class)
+    public void shouldThrowErrorWithNoncharacter() {
+        RedshiftSafeDelimitedParser parser = new RedshiftSafeDelimitedParser(",", "\"");
+
+        parser.joinLine(new Tuple("ok", "bad\ufdd0"), new StringBuilder());
+    }
+
+    @Test(expected=InvalidCodepointForRedshiftException.class)
+    public void shouldThrowErrorWithSurrogate() {
+        RedshiftSafeDelimitedParser parser = new RedshiftSafeDelimitedParser(",", "\"");
+
+        parser.joinLine(new Tuple("\ud83d\ude00"), new StringBuilder());
+    }
 }
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import cascading.flow.hadoop.HadoopFlowProcess;
+import cascading.tap.SinkMode;
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
+import cascading.tuple.TupleEntry;
+import cascading.tuple.TupleEntryIterator;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.junit.Test;
+
+public class RedshiftTapTest
+  {
+
+  @Test
+  public void testUnloadCommand()
+    {
+    RedshiftTap tap = createTap( "s3n://bucket/staging", "lwr <> 'x'" );
+    String command = tap.buildUnloadToS3Command();
+
+    assertTrue( command, command.startsWith( "UNLOAD ('SELECT * FROM ( SELECT num, lwr FROM unload_test WHERE lwr <> \\'x\\' ) q') TO 's3://bucket/staging/" ) );
+    assertTrue( command, command.contains( "/unload/part_'" ) );
+    assertTrue( command, command.contains( "aws_access_key_id=access;aws_secret_access_key=secret" ) );
+    assertTrue( command, command.endsWith( "FORMAT AS CSV DELIMITER AS ',' GZIP PARALLEL ON ALLOWOVERWRITE ;" ) );
+    }
+
+  @Test
+  public void testReadUnloadedParts() throws IOException
+    {
+    File stagingDir = new File( System.getProperty( "java.io.tmpdir" ), "redshift-unload-" + System.nanoTime() );
+    RedshiftTap tap = createTap( stagingDir.getAbsolutePath(), null );
+    tap.setUseUnload( true );
+
+    // stands in for the part files of an UNLOAD, so no statement is sent to the database
+    JobConf conf = new JobConf();
+    FileSystem fileSystem = FileSystem.getLocal( conf );
+    writePart( fileSystem, new Path( tap.getUnloadDir(), "part_0000_part_00.gz" ), "1,\"a\"\n2,\"b, \"\"c\"\"\"\n" );
+    writePart( fileSystem, new Path( tap.getUnloadDir(), "part_0001_part_00.gz" ), "3,\"d\"\n" );
+
+    int count = 0;
+    boolean quoted = false;
+
+    try( TupleEntryIterator iterator = tap.openForRead( new HadoopFlowProcess( conf ) ) )
+      {
+      while( iterator.hasNext() )
+        {
+        TupleEntry entry = iterator.next();
+        quoted |= "b, \"c\"".equals( entry.getString( "lwr" ) );
+        count++;
+        }
+      }
+
+    assertEquals( 3, count );
+    assertTrue( quoted );
+    }
+
+  @Test
+  public void testCopyCommand()
+    {
+    RedshiftTap tap = createTap( "s3n://bucket/staging", null );
+    String command = tap.buildCopyFromS3Command();
+
+    assertTrue( command, command.startsWith( "COPY unload_test from 's3://bucket/staging/" ) );
+    assertTrue( command, command.contains( "/manifest'" ) );
+    assertTrue( command, command.contains( " MANIFEST" ) );
+    assertTrue( command, command.contains( " GZIP" ) );
+
+    tap.setStagingCompression( RedshiftTap.StagingCompression.ZSTD );
+
+    assertTrue( tap.buildCopyFromS3Command().contains( " ZSTD" ) );
+    assertFalse( tap.buildCopyFromS3Command().contains( " GZIP" ) );
+    }
+
+  @Test
+  public void testStagingFilesAndManifest() throws IOException
+    {
+    File stagingDir = new File( System.getProperty( "java.io.tmpdir" ), "redshift-staging-" + System.nanoTime() );
+    RedshiftTap tap = createTap( stagingDir.getAbsolutePath(), null );
+    Configuration conf = new Configuration();
+    Path stagingPath = new Path( tap.getStagingDir() );
+
+    RedshiftStagingWriter writer = new RedshiftStagingWriter( conf, stagingPath, "part-00000", RedshiftTap.StagingCompression.GZIP.createCodec( conf ), 2, 10 );
+
+    for( int i = 0; i < 6; i++ )
+      writer.collect( null, new Text( "line-" + i ) );
+
+    writer.close();
+
+    FileSystem fileSystem = stagingPath.getFileSystem( conf );
+    FileStatus[] parts = fileSystem.globStatus( new Path( stagingPath, "part-*.gz" ) );
+
+    // two files at a time, each rolled over after two lines
+    assertEquals( 4, parts.length );
+    assertEquals( 4, tap.writeManifest( conf ) );
+
+    int lines = 0;
+
+    for( FileStatus part : parts )
+      {
+      try( BufferedReader reader = new BufferedReader( new InputStreamReader( new GZIPInputStream( fileSystem.open( part.getPath() ) ), StandardCharsets.UTF_8 ) ) )
+        {
+        while( reader.readLine() != null )
+          lines++;
+        }
+      }
+
+    assertEquals( 6, lines );
+
+    try( BufferedReader reader = new BufferedReader( new InputStreamReader( fileSystem.open( new Path( stagingPath, RedshiftTap.MANIFEST_NAME ) ), StandardCharsets.UTF_8 ) ) )
+      {
+      String manifest = reader.readLine();
+
+      assertTrue( manifest, manifest.startsWith( "{\"entries\":[{\"url\":\"" ) );
+      assertTrue( manifest, manifest.contains( "part-00000-001-00001.gz\",\"mandatory\":true," ) );
+      assertTrue( manifest, manifest.contains( "\"meta\":{\"content_length\":" ) );
+      }
+    }
+
+  @Test
+  public void testParquetCopyCommand()
+    {
+    RedshiftTap tap = createTap( "s3n://bucket/staging", null );
+    tap.setStagingFormat( RedshiftTap.StagingFormat.PARQUET );
+
+    String command = tap.buildCopyFromS3Command();
+
+    assertTrue( command, command.contains( " FORMAT AS PARQUET" ) );
+    assertTrue( command, command.contains( " MANIFEST" ) );
+    assertFalse( command, command.contains( " GZIP" ) );
+    assertFalse( command, command.contains( "DELIMITER" ) );
+    }
+
+  @Test
+  public void testParquetSchema()
+    {
+    RedshiftTableDesc tableDesc = new RedshiftTableDesc( "parquet_test",
+      new String[]{"id", "total", "amount", "big", "day", "at", "flag", "name", "ratio"},
+      new String[]{"int not null", "bigint", "decimal(12,2)", "numeric(38, 4)", "date", "timestamp", "boolean", "varchar(100)",
+                   "double precision"}, null, null );
+
+    MessageType schema = new RedshiftParquetWriteSupport( tableDesc ).getSchema();
+
+    assertEquals( PrimitiveType.PrimitiveTypeName.INT32, schema.getType( "id" ).asPrimitiveType().getPrimitiveTypeName() );
+    assertEquals( PrimitiveType.PrimitiveTypeName.INT64, schema.getType( "total" ).asPrimitiveType().getPrimitiveTypeName() );
+    assertEquals( OriginalType.DECIMAL, schema.getType( "amount" ).getOriginalType() );
+    assertEquals( 2, schema.getType( "amount" ).asPrimitiveType().getDecimalMetadata().getScale() );
+    assertEquals( PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY, schema.getType( "big" ).asPrimitiveType().getPrimitiveTypeName() );
+    assertEquals( OriginalType.DATE, schema.getType( "day" ).getOriginalType() );
+    assertEquals( OriginalType.TIMESTAMP_MILLIS, schema.getType( "at" ).getOriginalType() );
+    assertEquals( PrimitiveType.PrimitiveTypeName.BOOLEAN, schema.getType( "flag" ).asPrimitiveType().getPrimitiveTypeName() );
+    assertEquals( OriginalType.UTF8, schema.getType( "name" ).getOriginalType() );
+    assertEquals( PrimitiveType.PrimitiveTypeName.DOUBLE, schema.getType( "ratio" ).asPrimitiveType().getPrimitiveTypeName() );
+    }
+
+  @Test
+  public void testParquetValues()
+    {
+    assertArrayEquals( new byte[]{-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -2},
+      RedshiftParquetWriteSupport.toFixedBytes( RedshiftParquetWriteSupport.toUnscaled( "-0.02", 2 ) ) );
+    assertEquals( 1234L, RedshiftParquetWriteSupport.toUnscaled( "12.335", 2 ).longValue() );
+
+    RedshiftTableDesc tableDesc = new RedshiftTableDesc( "parquet_test", new String[]{"day"}, new String[]{"date"}, null, null );
+    RedshiftParquetWriteSupport writeSupport = new RedshiftParquetWriteSupport( tableDesc );
+    long day = 16495L * 24 * 60 * 60 * 1000;
+
+    assertEquals( day, writeSupport.toLocalMillis( "2015-03-01" ) );
+    assertEquals( day, writeSupport.toLocalMillis( Date.valueOf( "2015-03-01" ) ) );
+    assertEquals( day + 45045123L, writeSupport.toLocalMillis( "2015-03-01T12:30:45.123" ) );
+    }
+
+  @Test
+  public void testParquetRoundTrip() throws IOException
+    {
+    File stagingDir = new File( System.getProperty( "java.io.tmpdir" ), "redshift-parquet-" + System.nanoTime() );
+    Configuration conf = new Configuration();
+    Path stagingPath = new Path( stagingDir.getAbsolutePath() );
+    RedshiftTableDesc tableDesc = new RedshiftTableDesc( "parquet_test", new String[]{"id", "amount", "big", "at", "name"},
+      new String[]{"int", "decimal(12,2)", "numeric(38,4)", "timestamp", "varchar(100)"}, null, null );
+
+    // the sink fields are named unlike the columns, the tuples carry them in another order
+    Fields sinkFields = new Fields( "user_id", "price", "total", "created", "label" );
+    Fields incoming = new Fields( "label", "created", "extra", "total", "price", "user_id" );
+
+    RedshiftParquetStagingWriter writer = new RedshiftParquetStagingWriter( conf, stagingPath, "part-00000", tableDesc, sinkFields, 1, 1024 * 1024 );
+
+    writer.add( new TupleEntry( incoming, new Tuple( "first", Timestamp.valueOf( "2015-03-01 12:30:45.123" ), "ignored", new BigDecimal( "-12345678901234567890.1234" ), "12.335", 1 ) ) );
+    writer.add( new TupleEntry( incoming, new Tuple( null, null, null, null, null, 2 ) ) );
+    writer.close();
+
+    FileSystem fileSystem = stagingPath.getFileSystem( conf );
+    FileStatus[] parts = fileSystem.globStatus( new Path( stagingPath, "part-*.parquet" ) );
+
+    assertEquals( 1, parts.length );
+
+    try( ParquetReader<Group> reader = ParquetReader.builder( new GroupReadSupport(), parts[ 0 ].getPath() ).withConf( conf ).build() )
+      {
+      Group first = reader.read();
+
+      assertEquals( 1, first.getInteger( "id", 0 ) );
+      assertEquals( 1234L, first.getLong( "amount", 0 ) );
+      assertEquals( new BigDecimal( "-12345678901234567890.1234" ), new BigDecimal( new BigInteger( first.getBinary( "big", 0 ).getBytes() ), 4 ) );
+      assertEquals( 16495L * 24 * 60 * 60 * 1000 + 45045123L, first.getLong( "at", 0 ) );
+      assertEquals( "first", first.getString( "name", 0 ) );
+
+      Group second = reader.read();
+
+      assertEquals( 2, second.getInteger( "id", 0 ) );
+
+      for( String column : new String[]{"amount", "big", "at", "name"} )
+        assertEquals( column, 0, second.getFieldRepetitionCount( column ) );
+
+      assertNull( reader.read() );
+      }
+    }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParquetSinkFieldsMismatch() throws IOException
+    {
+    RedshiftTableDesc tableDesc = new RedshiftTableDesc( "parquet_test", new String[]{"id", "name"}, new String[]{"int", "varchar(100)"}, null, null );
+
+    new RedshiftParquetStagingWriter( new Configuration(), new Path( System.getProperty( "java.io.tmpdir" ) ), "part-00000", tableDesc,
+      new Fields( "id" ), 1, 1024 );
+    }
+
+  @Test
+  public void testMergeStatements()
+    {
+    RedshiftTableDesc tableDesc = new RedshiftTableDesc( "public.events", new String[]{"id", "day", "value"},
+      new String[]{"int", "date", "varchar(100)"}, "id", new String[]{"day"} );
+    RedshiftScheme scheme = new RedshiftScheme( new Fields( "id", "day", "value" ), tableDesc );
+    RedshiftTap tap = new RedshiftTap( "jdbc:postgresql://localhost/test", null, null, "s3n://bucket/staging",
+      new AWSCredentials( "access", "secret" ), tableDesc, scheme, SinkMode.UPDATE, false, false );
+
+    tap.setMergeKeys( "id", "day" );
+
+    List<String> statements = tap.buildMergeStatements();
+
+    assertEquals( 5, statements.size() );
+    assertTrue( statements.get( 0 ), statements.get( 0 ).startsWith( "CREATE TEMP TABLE merge_events (" ) );
+    assertTrue( statements.get( 0 ), statements.get( 0 ).contains( "DISTKEY (id)" ) );
+    assertTrue( statements.get( 1 ), statements.get( 1 ).startsWith( "COPY merge_events from 's3://bucket/staging/" ) );
+    assertEquals( "DELETE FROM public.events USING merge_events WHERE public.events.id = merge_events.id AND public.events.day = merge_events.day",
+      statements.get( 2 ) );
+    assertTrue( statements.get( 3 ), statements.get( 3 ).startsWith( "INSERT INTO public.events (" ) );
+    assertEquals( "DROP TABLE merge_events", statements.get( 4 ) );
+    }
+
+  private static RedshiftTap createTap( String stagingDir, String conditions )
+    {
+    RedshiftTableDesc tableDesc = new RedshiftTableDesc( "unload_test", new String[]{"num", "lwr"}, new String[]{"int", "varchar(100)"}, null, null );
+    RedshiftScheme scheme = new RedshiftScheme( new Fields( "num", "lwr" ), tableDesc, conditions );
+
+    return new RedshiftTap( "jdbc:postgresql://localhost/test", null, null, stagingDir, new AWSCredentials( "access", "secret" ), tableDesc,
+      scheme, SinkMode.KEEP, false, true );
+    }
+
+  private static void writePart( FileSystem fileSystem, Path path, String lines ) throws IOException
+    {
+    try( OutputStream output = new GZIPOutputStream( fileSystem.create( path ) ) )
+      {
+      output.write( lines.getBytes( StandardCharsets.UTF_8 ) );
+      }
+    }
+  }
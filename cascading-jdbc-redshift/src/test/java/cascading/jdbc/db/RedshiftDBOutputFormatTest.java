@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2007-2015 Concurrent, Inc. All Rights Reserved.
+ *
+ * Project and contact information: http://www.cascading.org/
+ *
+ * This file is part of the Cascading project.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cascading.jdbc.db;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import cascading.jdbc.TupleRecord;
+import cascading.tuple.Tuple;
+import org.junit.Test;
+
+public class RedshiftDBOutputFormatTest
+  {
+
+  @Test
+  public void testMultiRowInsertQuery()
+    {
+    RedshiftDBOutputFormat<TupleRecord, Object> format = new RedshiftDBOutputFormat<TupleRecord, Object>();
+
+    assertEquals( "INSERT INTO events (id,name) VALUES (?,?),(?,?),(?,?)",
+      format.constructMultiRowInsertQuery( "events", new String[]{"id", "name"}, 3 ) );
+    }
+
+  @Test
+  public void testStatementsSizedByLength() throws IOException
+    {
+    final List<String> statements = new ArrayList<String>();
+    final List<Object> values = new ArrayList<Object>();
+    Connection connection = createConnection( statements, values );
+    RedshiftDBOutputFormat<TupleRecord, Object> format = new RedshiftDBOutputFormat<TupleRecord, Object>();
+
+    // the prefix takes 36 characters, each row 6 plus 24 for the number and 12 for the string
+    RedshiftDBOutputFormat<TupleRecord, Object>.MultiRowRecordWriter writer = format.new MultiRowRecordWriter( connection, "events", new String[]{"id", "name"}, 36 + 2 * 42 );
+
+    for( int i = 0; i < 5; i++ )
+      writer.write( new TupleRecord( new Tuple( i, "value-" + i + "..." ) ), null );
+
+    writer.close( null );
+
+    // the statement of two rows is prepared once and executed twice
+    assertEquals( 2, statements.size() );
+    assertEquals( "INSERT INTO events (id,name) VALUES (?,?),(?,?)", statements.get( 0 ) );
+    assertEquals( "INSERT INTO events (id,name) VALUES (?,?)", statements.get( 1 ) );
+    assertEquals( 10, values.size() );
+    assertEquals( "value-4...", values.get( 9 ) );
+    }
+
+  private static Connection createConnection( final List<String> statements, final List<Object> values )
+    {
+    final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance( PreparedStatement.class.getClassLoader(),
+      new Class[]{PreparedStatement.class}, new InvocationHandler()
+      {
+      @Override
+      public Object invoke( Object proxy, Method method, Object[] args )
+        {
+        if( method.getName().equals( "setObject" ) )
+          values.add( args[ 1 ] );
+
+        return method.getReturnType() == int.class ? 0 : null;
+        }
+      } );
+
+    return (Connection) Proxy.newProxyInstance( Connection.class.getClassLoader(), new Class[]{Connection.class}, new InvocationHandler()
+      {
+      @Override
+      public Object invoke( Object proxy, Method method, Object[] args )
+        {
+        if( method.getName().equals( "prepareStatement" ) )
+          {
+          statements.add( (String) args[ 0 ] );
+          return statement;
+          }
+
+        return method.getReturnType() == boolean.class ? false : null;
+        }
+      } );
+    }
+  }
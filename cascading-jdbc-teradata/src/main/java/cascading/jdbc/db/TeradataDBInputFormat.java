@@ -23,6 +23,7 @@ package cascading.jdbc.db;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 import cascading.CascadingException;
 import org.apache.hadoop.io.LongWritable;
@@ -36,6 +37,13 @@ import org.apache.hadoop.mapred.RecordReader;
 @SuppressWarnings("rawtypes")
 public class TeradataDBInputFormat extends DBInputFormat<DBWritable>
   {
+  @Override
+  protected String limitPage( String query, List<Object> parameters, int pageSize )
+    {
+    // Teradata only knows TOP, which does not accept parameters
+    return "SELECT TOP " + pageSize + query.substring( "SELECT".length() );
+    }
+
   @Override
   protected RecordReader<LongWritable, DBWritable> getRecordReaderInternal( cascading.jdbc.db.DBInputFormat.DBInputSplit split, Class inputClass, JobConf job ) throws SQLException, IOException
     {
@@ -69,8 +77,7 @@ public class TeradataDBInputFormat extends DBInputFormat<DBWritable>
           }
         query.append( " FROM " ).append( tableName );
 
-        if( conditions != null && conditions.length() > 0 )
-          query.append( " WHERE (" ).append( conditions ).append( ")" );
+        appendWhere( query, parameters );
 
         String orderBy = dbConf.getInputOrderBy();
 
@@ -78,7 +85,7 @@ public class TeradataDBInputFormat extends DBInputFormat<DBWritable>
           query.append( " ORDER BY " ).append( orderBy );
         }
       else
-        query.append( dbConf.getInputQuery() );
+        query.append( getInputQuery() );
 
       return query.toString();
       }